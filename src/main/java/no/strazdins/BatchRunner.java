@@ -0,0 +1,267 @@
+package no.strazdins;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import no.strazdins.file.CsvFileParser;
+import no.strazdins.metrics.MetricsHandler;
+import no.strazdins.metrics.PnlMetrics;
+import no.strazdins.process.Report;
+import no.strazdins.process.ReportGenerator;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Generates reports for many accounts in one JVM. The jobs are listed in a manifest CSV file,
+ * one job per row: path to the input file, home currency, path to the extra-info file and the
+ * output directory. The first row of the manifest is a header. Relative paths are resolved
+ * against the directory of the manifest.
+ *
+ * <p>The jobs run concurrently, at most the given number at a time. Each job has its own
+ * report generator, hence its own report state; a failed job does not stop the other jobs.
+ * Virtual threads are used when the JDK supports them.</p>
+ */
+public class BatchRunner {
+  private static final int MANIFEST_COLUMN_COUNT = 4;
+  private static final Logger logger = LogManager.getLogger(BatchRunner.class);
+
+  /**
+   * Not allowed to create instances of this class.
+   */
+  private BatchRunner() {
+  }
+
+  /**
+   * One report generation job.
+   *
+   * @param number        The number of the job in the manifest, starting from 1
+   * @param inputFilePath Path to the input CSV file
+   * @param homeCurrency  The home currency
+   * @param extraFilePath Path to the extra-info CSV file
+   * @param outputDir     The directory where the output files are written
+   */
+  record BatchJob(int number, String inputFilePath, String homeCurrency, String extraFilePath,
+                  Path outputDir) {
+  }
+
+  /**
+   * The outcome of a job.
+   *
+   * @param job            The job
+   * @param durationMillis How long the job took, in milliseconds
+   * @param error          The error message, null if the job succeeded
+   */
+  record BatchJobResult(BatchJob job, long durationMillis, String error) {
+    boolean isSuccessful() {
+      return error == null;
+    }
+  }
+
+  /**
+   * The entrypoint of the batch mode.
+   *
+   * @param args Command line arguments. The first argument is path to the manifest CSV file.
+   *             Optional flags: --threads=N (the number of concurrent jobs, the number of
+   *             processors by default), --metrics-port=N (serve live metrics in the
+   *             Prometheus format on the given port while the jobs run) and the flags of
+   *             {@link Runner} which are not specific to one run: --compact-interest,
+   *             --input-cache and --verify
+   */
+  public static void main(String[] args) {
+    try {
+      List<String> positionalArgs = Runner.getPositionalArgs(args);
+      if (positionalArgs.isEmpty()) {
+        throw new IOException(
+            "The first command-line argument must contain path to the job manifest (CSV)");
+      }
+      List<BatchJob> jobs = readManifest(positionalArgs.get(0));
+      int threadCount = Runner.getPositiveIntOption(args, "threads",
+          Runtime.getRuntime().availableProcessors());
+      HttpServer metricsServer = startMetricsServer(args);
+      try {
+        List<BatchJobResult> results = runJobs(jobs, threadCount, args);
+        logSummary(results);
+      } finally {
+        if (metricsServer != null) {
+          metricsServer.stop(0);
+        }
+      }
+    } catch (IOException e) {
+      logger.error("Batch processing failed: {}", e.getMessage());
+    }
+  }
+
+  /**
+   * Start the HTTP server with the Prometheus metrics endpoint, if requested.
+   *
+   * @param args The command-line arguments
+   * @return The started server, null if the metrics port is not given
+   * @throws IOException When the port is invalid or can't be bound
+   */
+  private static HttpServer startMetricsServer(String[] args) throws IOException {
+    if (Runner.getOption(args, "metrics-port") == null) {
+      return null;
+    }
+    int port = Runner.getPositiveIntOption(args, "metrics-port", 0);
+    HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+    server.createContext(MetricsHandler.PATH, new MetricsHandler());
+    server.start();
+    logger.info("Metrics served on http://localhost:{}{}", port, MetricsHandler.PATH);
+    return server;
+  }
+
+  /**
+   * Read the jobs from a manifest file.
+   *
+   * @param manifestPath Path to the manifest CSV file
+   * @return The jobs, in the order of the manifest
+   * @throws IOException When the file can't be read or a row has an invalid format
+   */
+  static List<BatchJob> readManifest(String manifestPath) throws IOException {
+    Path baseDir = Path.of(manifestPath).toAbsolutePath().getParent();
+    CsvFileParser parser = new CsvFileParser(manifestPath);
+    List<BatchJob> jobs = new ArrayList<>();
+    if (parser.hasMoreRows()) {
+      parser.readNextRow(); // Skip the header
+    }
+    while (parser.hasMoreRows()) {
+      String[] row = parser.readNextRow();
+      if (row.length != MANIFEST_COLUMN_COUNT) {
+        throw new IOException("Invalid manifest row, " + MANIFEST_COLUMN_COUNT
+            + " columns expected: " + String.join(",", row));
+      }
+      jobs.add(new BatchJob(jobs.size() + 1, baseDir.resolve(row[0].trim()).toString(),
+          row[1].trim(), baseDir.resolve(row[2].trim()).toString(),
+          baseDir.resolve(row[3].trim())));
+    }
+    parser.close();
+    return jobs;
+  }
+
+  /**
+   * Run the jobs concurrently, wait for all of them to finish.
+   *
+   * @param jobs        The jobs to run
+   * @param threadCount The maximum number of jobs running at the same time
+   * @param args        The command-line arguments with the options for the report generators
+   * @return The results of the jobs, in the same order as the jobs
+   * @throws IOException When the options are invalid or the waiting is interrupted
+   */
+  static List<BatchJobResult> runJobs(List<BatchJob> jobs, int threadCount, String[] args)
+      throws IOException {
+    // Fail early on invalid options, not once for every job
+    Runner.createReportGenerator(args);
+    Semaphore permits = new Semaphore(threadCount);
+    ExecutorService executor = createExecutor(threadCount);
+    List<BatchJobResult> results = new ArrayList<>();
+    try {
+      List<Future<BatchJobResult>> futures = new ArrayList<>();
+      for (BatchJob job : jobs) {
+        futures.add(executor.submit(() -> runJobWithPermit(job, args, permits)));
+      }
+      for (int i = 0; i < jobs.size(); ++i) {
+        results.add(getResult(jobs.get(i), futures.get(i)));
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    return results;
+  }
+
+  /**
+   * Create the executor for the jobs: a virtual thread per job when the JDK supports it,
+   * otherwise a fixed pool of platform threads. The project is compiled for Java 17, hence
+   * the virtual-thread executor is looked up by reflection.
+   *
+   * @param threadCount The number of platform threads, if those are used
+   * @return The executor
+   */
+  private static ExecutorService createExecutor(int threadCount) {
+    try {
+      Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      logger.info("Running the jobs on virtual threads, at most {} at a time", threadCount);
+      return (ExecutorService) factory.invoke(null);
+    } catch (ReflectiveOperationException e) {
+      logger.info("Running the jobs on {} threads", threadCount);
+      return Executors.newFixedThreadPool(threadCount);
+    }
+  }
+
+  private static BatchJobResult getResult(BatchJob job, Future<BatchJobResult> future)
+      throws IOException {
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      return new BatchJobResult(job, 0, String.valueOf(e.getCause()));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for the jobs");
+    }
+  }
+
+  private static BatchJobResult runJobWithPermit(BatchJob job, String[] args,
+                                                 Semaphore permits)
+      throws InterruptedException {
+    PnlMetrics.QUEUE_DEPTH.get().inc();
+    try {
+      permits.acquire();
+    } finally {
+      PnlMetrics.QUEUE_DEPTH.get().dec();
+    }
+    PnlMetrics.JOBS_IN_FLIGHT.get().inc();
+    try {
+      return runJob(job, args);
+    } finally {
+      PnlMetrics.JOBS_IN_FLIGHT.get().dec();
+      permits.release();
+    }
+  }
+
+  private static BatchJobResult runJob(BatchJob job, String[] args) {
+    long start = System.currentTimeMillis();
+    String error = null;
+    try {
+      logger.info("Job #{} started: {}", job.number(), job.inputFilePath());
+      ReportGenerator reportGenerator = Runner.createReportGenerator(args);
+      Report report = reportGenerator.createReport(job.inputFilePath(), job.extraFilePath(),
+          job.homeCurrency());
+      Files.createDirectories(job.outputDir());
+      Runner.writeOutputFiles(report, null, job.outputDir(), job.homeCurrency(),
+          reportGenerator.getMetrics());
+      Runner.writeUpdatedExtraInfo(report, job.extraFilePath());
+    } catch (IOException | RuntimeException e) {
+      error = e.getClass().getSimpleName() + ": " + e.getMessage();
+    }
+    long duration = System.currentTimeMillis() - start;
+    PnlMetrics.JOBS.labels(error == null ? "success" : "failure").inc();
+    if (error == null) {
+      logger.info("Job #{} finished in {} ms", job.number(), duration);
+    } else {
+      logger.error("Job #{} failed: {}", job.number(), error);
+    }
+    return new BatchJobResult(job, duration, error);
+  }
+
+  private static void logSummary(List<BatchJobResult> results) {
+    long failedCount = results.stream().filter(r -> !r.isSuccessful()).count();
+    long totalMillis = results.stream().mapToLong(BatchJobResult::durationMillis).sum();
+    logger.info("Batch finished: {} jobs, {} succeeded, {} failed, {} ms of job time",
+        results.size(), results.size() - failedCount, failedCount, totalMillis);
+    for (BatchJobResult result : results) {
+      if (!result.isSuccessful()) {
+        logger.info("   Job #{} ({}): {}", result.job().number(), result.job().inputFilePath(),
+            result.error());
+      }
+    }
+  }
+}
@@ -0,0 +1,99 @@
+package no.strazdins;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A parsed multipart/form-data request body: the content of each part, by the part name.
+ */
+class MultipartForm {
+  private static final Pattern BOUNDARY_PATTERN = Pattern.compile("boundary=\"?([^\";]+)\"?");
+  private static final Pattern NAME_PATTERN = Pattern.compile("name=\"([^\"]*)\"");
+  private static final byte[] HEADER_END = "\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+  private final Map<String, byte[]> parts = new HashMap<>();
+
+  private MultipartForm() {
+  }
+
+  /**
+   * Parse a multipart/form-data body.
+   *
+   * @param contentType The Content-Type header of the request
+   * @param body        The request body
+   * @return The parsed form
+   * @throws IOException When the content type is not multipart/form-data or the body is
+   *                     malformed
+   */
+  static MultipartForm parse(String contentType, byte[] body) throws IOException {
+    if (contentType == null || !contentType.startsWith("multipart/form-data")) {
+      throw new IOException("Content-Type must be multipart/form-data");
+    }
+    Matcher matcher = BOUNDARY_PATTERN.matcher(contentType);
+    if (!matcher.find()) {
+      throw new IOException("Multipart boundary missing in the Content-Type");
+    }
+    byte[] delimiter = ("--" + matcher.group(1)).getBytes(StandardCharsets.US_ASCII);
+    MultipartForm form = new MultipartForm();
+    int position = indexOf(body, delimiter, 0);
+    if (position < 0) {
+      throw new IOException("Invalid multipart body");
+    }
+    position += delimiter.length;
+    // Each part is followed by CRLF and the delimiter, the last delimiter by "--"
+    while (!isClosingDelimiter(body, position)) {
+      int headerStart = position + 2;
+      int headerEnd = indexOf(body, HEADER_END, headerStart);
+      if (headerEnd < 0) {
+        throw new IOException("Invalid multipart body");
+      }
+      String headers = new String(body, headerStart, headerEnd - headerStart,
+          StandardCharsets.UTF_8);
+      int contentStart = headerEnd + HEADER_END.length;
+      int next = indexOf(body, delimiter, contentStart);
+      if (next < 0) {
+        throw new IOException("Invalid multipart body, the closing boundary missing");
+      }
+      Matcher nameMatcher = NAME_PATTERN.matcher(headers);
+      if (nameMatcher.find()) {
+        byte[] content = new byte[Math.max(next - 2 - contentStart, 0)];
+        System.arraycopy(body, contentStart, content, 0, content.length);
+        form.parts.put(nameMatcher.group(1), content);
+      }
+      position = next + delimiter.length;
+    }
+    return form;
+  }
+
+  /**
+   * Get the content of a part.
+   *
+   * @param name Name of the form field
+   * @return The content, null if the form has no such part
+   */
+  byte[] getPart(String name) {
+    return parts.get(name);
+  }
+
+  private static boolean isClosingDelimiter(byte[] body, int delimiterEnd) {
+    return delimiterEnd + 2 > body.length
+        || (body[delimiterEnd] == '-' && body[delimiterEnd + 1] == '-');
+  }
+
+  private static int indexOf(byte[] data, byte[] pattern, int from) {
+    outer:
+    for (int i = from; i <= data.length - pattern.length; ++i) {
+      for (int j = 0; j < pattern.length; ++j) {
+        if (data[i + j] != pattern[j]) {
+          continue outer;
+        }
+      }
+      return i;
+    }
+    return -1;
+  }
+}
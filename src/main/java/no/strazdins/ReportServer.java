@@ -0,0 +1,327 @@
+package no.strazdins;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import no.strazdins.data.ExtraInfoEntry;
+import no.strazdins.file.ReportFileWriter;
+import no.strazdins.metrics.MetricsHandler;
+import no.strazdins.metrics.PnlMetrics;
+import no.strazdins.process.MissingExtraInfoException;
+import no.strazdins.process.Report;
+import no.strazdins.process.ReportGenerator;
+import no.strazdins.tool.TimeConverter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * An HTTP server generating reports in a long-running JVM, avoiding the start-up time of the
+ * command-line runner for every account.
+ *
+ * <p>A report is requested with POST /report?currency=NOK, a multipart/form-data body with the
+ * Binance export in the part "input" and, optionally, the extra-info CSV file in the part
+ * "extra". The response is a zip with the output CSV files (and the extra-info file, if asset
+ * prices were fetched from the Binance API), or status 422 with the missing extra-info entries
+ * in the extra-info CSV format.</p>
+ *
+ * <p>The reports are generated by a fixed number of workers. At most the given number of
+ * requests wait for a worker, further requests are rejected with status 503. Each admitted
+ * request holds its upload (up to 64 MB) in memory, hence the heap must fit
+ * (workers + queue size) uploads besides the reports being generated.</p>
+ */
+public class ReportServer {
+  static final String REPORT_PATH = "/report";
+  static final String INPUT_PART = "input";
+  static final String EXTRA_INFO_PART = "extra";
+  private static final int DEFAULT_PORT = 8080;
+  private static final int DEFAULT_QUEUE_SIZE = 2;
+  private static final int MAX_UPLOAD_SIZE = 64 * 1024 * 1024;
+  private static final int SHUTDOWN_DELAY_SECONDS = 30;
+  // Request threads beyond the admitted requests, to reject the excess quickly
+  private static final int REJECTING_THREAD_COUNT = 2;
+  private static final Logger logger = LogManager.getLogger(ReportServer.class);
+
+  private final HttpServer server;
+  private final ExecutorService requestExecutor;
+  private final ExecutorService workerExecutor;
+  private final Semaphore admittedRequests;
+  private final String[] generatorArgs;
+  private volatile boolean stopping = false;
+
+  private record Response(int status, String contentType, byte[] body) {
+  }
+
+  /**
+   * Create the server, bound to the given port. The server does not accept requests before
+   * {@link #start()} is called.
+   *
+   * @param port          The TCP port, 0 to use any free port
+   * @param workerCount   The number of reports generated concurrently
+   * @param queueSize     The number of requests which may wait for a free worker
+   * @param generatorArgs Command-line arguments with the options for the report generators
+   * @throws IOException When the options are invalid or the port can't be bound
+   */
+  ReportServer(int port, int workerCount, int queueSize, String[] generatorArgs)
+      throws IOException {
+    // Fail early on invalid options, not on every request
+    Runner.createReportGenerator(generatorArgs);
+    this.generatorArgs = generatorArgs.clone();
+    int admittedCount = workerCount + queueSize;
+    this.admittedRequests = new Semaphore(admittedCount);
+    this.workerExecutor = Executors.newFixedThreadPool(workerCount);
+    this.requestExecutor = Executors.newFixedThreadPool(admittedCount + REJECTING_THREAD_COUNT);
+    this.server = HttpServer.create(new InetSocketAddress(port), 0);
+    server.createContext(REPORT_PATH, this::handleReportRequest);
+    server.createContext(MetricsHandler.PATH, new MetricsHandler());
+    server.setExecutor(requestExecutor);
+  }
+
+  /**
+   * The entrypoint of the server mode.
+   *
+   * @param args Command line arguments, all optional: --port=N (8080 by default),
+   *             --workers=N (the number of processors by default), --queue=N (2 by default)
+   *             and the flags of {@link Runner} which are not specific to one run:
+   *             --compact-interest, --input-cache and --verify
+   */
+  public static void main(String[] args) {
+    try {
+      int port = Runner.getPositiveIntOption(args, "port", DEFAULT_PORT);
+      int workerCount = Runner.getPositiveIntOption(args, "workers",
+          Runtime.getRuntime().availableProcessors());
+      int queueSize = Runner.getPositiveIntOption(args, "queue", DEFAULT_QUEUE_SIZE);
+      ReportServer reportServer = new ReportServer(port, workerCount, queueSize, args);
+      Runtime.getRuntime().addShutdownHook(new Thread(
+          () -> reportServer.stop(SHUTDOWN_DELAY_SECONDS)));
+      reportServer.start();
+    } catch (IOException e) {
+      logger.error("Could not start the report server: {}", e.getMessage());
+    }
+  }
+
+  /**
+   * Start accepting requests.
+   */
+  void start() {
+    server.start();
+    logger.info("Report server listening on port {}", getPort());
+  }
+
+  /**
+   * Get the port on which the server listens.
+   *
+   * @return The TCP port
+   */
+  int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  /**
+   * Stop the server gracefully: stop accepting new requests, let the requests in progress
+   * finish within the given time.
+   *
+   * @param delaySeconds The maximum time to wait for the requests in progress, in seconds
+   */
+  void stop(int delaySeconds) {
+    stopping = true;
+    logger.info("Stopping the report server");
+    server.stop(delaySeconds);
+    workerExecutor.shutdown();
+    requestExecutor.shutdown();
+    try {
+      if (!workerExecutor.awaitTermination(delaySeconds, TimeUnit.SECONDS)) {
+        workerExecutor.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      workerExecutor.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+    requestExecutor.shutdownNow();
+  }
+
+  private void handleReportRequest(HttpExchange exchange) throws IOException {
+    try {
+      if (!"POST".equals(exchange.getRequestMethod())) {
+        sendResponse(exchange, textResponse(405, "Use POST " + REPORT_PATH));
+      } else if (stopping || !admittedRequests.tryAcquire()) {
+        exchange.getResponseHeaders().add("Retry-After", "1");
+        sendResponse(exchange, textResponse(503, "The server is busy, try again later"));
+      } else {
+        try {
+          sendResponse(exchange, processReportRequest(exchange));
+        } finally {
+          admittedRequests.release();
+        }
+      }
+    } finally {
+      exchange.close();
+    }
+  }
+
+  private Response processReportRequest(HttpExchange exchange) throws IOException {
+    String currency = getQueryParameter(exchange.getRequestURI(), "currency");
+    if (currency == null || currency.isBlank()) {
+      return textResponse(400, "The home currency must be given: " + REPORT_PATH
+          + "?currency=NOK");
+    }
+    byte[] body = exchange.getRequestBody().readNBytes(MAX_UPLOAD_SIZE + 1);
+    if (body.length > MAX_UPLOAD_SIZE) {
+      return textResponse(413, "The upload is too large");
+    }
+    MultipartForm form;
+    try {
+      form = MultipartForm.parse(exchange.getRequestHeaders().getFirst("Content-Type"), body);
+    } catch (IOException e) {
+      return textResponse(400, e.getMessage());
+    }
+    byte[] input = form.getPart(INPUT_PART);
+    if (input == null) {
+      return textResponse(400, "The input file must be uploaded in the part '"
+          + INPUT_PART + "'");
+    }
+    byte[] extra = form.getPart(EXTRA_INFO_PART);
+    PnlMetrics.QUEUE_DEPTH.get().inc();
+    Future<Response> result;
+    try {
+      result = workerExecutor.submit(() -> {
+        PnlMetrics.QUEUE_DEPTH.get().dec();
+        PnlMetrics.JOBS_IN_FLIGHT.get().inc();
+        try {
+          return generateReport(input, extra != null ? extra : new byte[0], currency);
+        } finally {
+          PnlMetrics.JOBS_IN_FLIGHT.get().dec();
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      // The workers are shut down by stop() while the request was read
+      PnlMetrics.QUEUE_DEPTH.get().dec();
+      return textResponse(503, "The server is stopping");
+    }
+    try {
+      return result.get();
+    } catch (ExecutionException e) {
+      logger.error("Report generation failed: {}", String.valueOf(e.getCause()));
+      return textResponse(500, "Report generation failed");
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return textResponse(503, "The server is stopping");
+    }
+  }
+
+  private Response generateReport(byte[] input, byte[] extra, String currency)
+      throws IOException {
+    Path workDir = Files.createTempDirectory("pnl-report");
+    try {
+      Path inputPath = Files.write(workDir.resolve("input.csv"), input);
+      Path extraPath = Files.write(workDir.resolve("extra-info.csv"), extra);
+      Path outputDir = Files.createDirectory(workDir.resolve("output"));
+      ReportGenerator reportGenerator = Runner.createReportGenerator(generatorArgs);
+      Report report = reportGenerator.createReport(inputPath.toString(), extraPath.toString(),
+          currency);
+      Runner.writeOutputFiles(report, null, outputDir, currency,
+          reportGenerator.getMetrics());
+      if (report.isExtraInfoUpdated()) {
+        ReportFileWriter.writeExtraInfoToFile(report.getExtras(),
+            outputDir.resolve("extra-info.csv").toString());
+      }
+      PnlMetrics.JOBS.labels("success").inc();
+      return new Response(200, "application/zip", zipFiles(outputDir));
+    } catch (MissingExtraInfoException e) {
+      PnlMetrics.JOBS.labels("missing-info").inc();
+      return new Response(422, "text/csv; charset=utf-8", formatMissingInfo(e));
+    } catch (IOException | IllegalArgumentException e) {
+      PnlMetrics.JOBS.labels("failure").inc();
+      return textResponse(400, e.getMessage());
+    } catch (RuntimeException e) {
+      PnlMetrics.JOBS.labels("failure").inc();
+      logger.error("Report generation failed: {}", e.toString());
+      return textResponse(500, "Report generation failed: " + e.getMessage());
+    } finally {
+      deleteDirectory(workDir);
+    }
+  }
+
+  private static byte[] formatMissingInfo(MissingExtraInfoException e) {
+    StringBuilder sb = new StringBuilder();
+    for (ExtraInfoEntry mi : e.getMissingInfo().getAllEntries()) {
+      sb.append(mi.utcTimestamp()).append(",")
+          .append(TimeConverter.utcTimeToString(mi.utcTimestamp())).append(",")
+          .append(mi.type()).append(",").append(mi.asset()).append(",").append(mi.value())
+          .append("\n");
+    }
+    return sb.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static byte[] zipFiles(Path dir) throws IOException {
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    try (ZipOutputStream zip = new ZipOutputStream(buffer);
+         Stream<Path> files = Files.list(dir)) {
+      for (Path file : files.sorted().toList()) {
+        zip.putNextEntry(new ZipEntry(file.getFileName().toString()));
+        Files.copy(file, zip);
+        zip.closeEntry();
+      }
+    }
+    return buffer.toByteArray();
+  }
+
+  private static void deleteDirectory(Path dir) {
+    try (Stream<Path> paths = Files.walk(dir)) {
+      List<Path> deleted = paths.sorted(Comparator.reverseOrder()).toList();
+      for (Path path : deleted) {
+        Files.delete(path);
+      }
+    } catch (IOException e) {
+      logger.warn("Could not delete the temporary directory {}: {}", dir, e.getMessage());
+    }
+  }
+
+  private static String getQueryParameter(URI uri, String name) {
+    String query = uri.getRawQuery();
+    if (query == null) {
+      return null;
+    }
+    for (String parameter : query.split("&")) {
+      int separator = parameter.indexOf('=');
+      if (separator > 0 && parameter.substring(0, separator).equals(name)) {
+        return URLDecoder.decode(parameter.substring(separator + 1), StandardCharsets.UTF_8);
+      }
+    }
+    return null;
+  }
+
+  private static Response textResponse(int status, String message) {
+    return new Response(status, "text/plain; charset=utf-8",
+        (message + "\n").getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static void sendResponse(HttpExchange exchange, Response response) throws IOException {
+    exchange.getResponseHeaders().add("Content-Type", response.contentType());
+    // Length -1 means no body, 0 would mean a chunked body of unknown length
+    exchange.sendResponseHeaders(response.status(),
+        response.body().length > 0 ? response.body().length : -1);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(response.body());
+    }
+  }
+}
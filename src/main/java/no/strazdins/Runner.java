@@ -1,9 +1,28 @@
 package no.strazdins;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import no.strazdins.data.CostBasisStrategy;
+import no.strazdins.file.BinaryReportWriter;
 import no.strazdins.file.ReportFileWriter;
+import no.strazdins.process.AnnualReport;
+import no.strazdins.process.AssetPnlBreakdown;
+import no.strazdins.process.CompactionWindow;
+import no.strazdins.process.DailyValue;
+import no.strazdins.process.PeriodDefinition;
+import no.strazdins.process.PeriodReport;
+import no.strazdins.process.ProgressTracker;
+import no.strazdins.process.RecomputationState;
 import no.strazdins.process.Report;
+import no.strazdins.process.ReportCheckpoint;
 import no.strazdins.process.ReportGenerator;
+import no.strazdins.process.RunMetrics;
+import no.strazdins.process.VerificationPolicy;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -14,61 +33,405 @@ public class Runner {
   private static final String TRANSACTION_LOG_CSV_FILE = "transactions.csv";
   private static final String BALANCE_LOG_CSV_FILE = "balances.csv";
   private static final String ANNUAL_REPORT_CSV_FILE = "profits.csv";
+  private static final String PERIOD_REPORT_CSV_FILE_PREFIX = "profits-";
+  private static final String CURRENCY_REPORT_CSV_FILE_PREFIX = "profits-hc-";
+  private static final String ASSET_PNL_CSV_FILE = "asset-profits.csv";
+  private static final String DAILY_VALUES_CSV_FILE = "daily-values.csv";
+  private static final String REALIZED_LOTS_CSV_FILE = "realized-lots.csv";
+  private static final String BINARY_REPORT_FILE = "report.bin";
+  private static final String METRICS_FILE = "metrics.json";
+  private static final String OPTION_PREFIX = "--";
   private static final Logger logger = LogManager.getLogger(Runner.class);
 
   /**
    * The main entrypoint of the application.
    *
    * @param args Command line arguments. Expected values: first argument is path to the
-   *             input CSV-file, the second argument is path to the output file where the result
-   *             will be written.
+   *             input CSV-file, the second argument is the home currency (or a comma-separated
+   *             list of home currencies, the main one first), the third argument is
+   *             path to the CSV file with extra information. Optional flags in the
+   *             form --name or --name=value may follow.
    */
   public static void main(String[] args) {
     try {
-      String inputFilePath = getInputFilePath(args);
-      String homeCurrency = getCurrency(args);
-      String extraFilePath = getExtraFilePath(args);
-      ReportGenerator reportGenerator = new ReportGenerator();
-      Report report = reportGenerator.createReport(inputFilePath, extraFilePath, homeCurrency);
-      ReportFileWriter.writeTransactionLogToFile(report, TRANSACTION_LOG_CSV_FILE);
-      logger.info("Transaction log written to file {}", TRANSACTION_LOG_CSV_FILE);
-      ReportFileWriter.writeBalanceLogToFile(report, BALANCE_LOG_CSV_FILE);
-      logger.info("Wallet balance log written to file {}", BALANCE_LOG_CSV_FILE);
-      ReportFileWriter.writeAnnualReportsToFile(
-          report.createAnnualReports(), ANNUAL_REPORT_CSV_FILE, homeCurrency);
-      logger.info("Annual PNL reports written to file {}", ANNUAL_REPORT_CSV_FILE);
-      if (report.isExtraInfoUpdated()) {
-        ReportFileWriter.writeExtraInfoToFile(report.getExtras(), extraFilePath);
-        logger.info("Extra info file {} updated with asset prices from Binance API", extraFilePath);
+      List<String> positionalArgs = getPositionalArgs(args);
+      String inputFilePath = getInputFilePath(positionalArgs);
+      List<String> homeCurrencies = getCurrencies(positionalArgs);
+      String homeCurrency = homeCurrencies.get(0);
+      String extraFilePath = getExtraFilePath(positionalArgs);
+      ReportGenerator reportGenerator = createReportGenerator(args);
+      reportGenerator.setAdditionalHomeCurrencies(
+          homeCurrencies.subList(1, homeCurrencies.size()));
+      String compactionWindow = getOption(args, "compact-interest");
+      String checkpointPath = getOption(args, "checkpoint");
+      String statePath = getOption(args, "state-file");
+      if (checkpointPath != null && statePath != null) {
+        throw new IOException("--checkpoint and --state-file can't be used together");
       }
+      if ((checkpointPath != null || statePath != null)
+          && getOption(args, "cost-basis") != null
+          && CostBasisStrategy.fromString(getOption(args, "cost-basis"))
+          == CostBasisStrategy.FIFO) {
+        throw new IOException("The FIFO cost basis can't be used with --checkpoint or "
+            + "--state-file, the lots are not stored");
+      }
+      if ((checkpointPath != null || statePath != null) && homeCurrencies.size() > 1) {
+        throw new IOException("Several home currencies can't be used with --checkpoint or "
+            + "--state-file, only the reports in the main currency are stored");
+      }
+      Report report;
+      if (statePath != null) {
+        report = reportGenerator.recomputeReport(inputFilePath, extraFilePath, homeCurrency,
+            readRecomputationState(statePath));
+      } else {
+        report = reportGenerator.resumeReport(inputFilePath, extraFilePath, homeCurrency,
+            readCheckpoint(checkpointPath, compactionWindow));
+      }
+      List<AnnualReport> annualReports = writeOutputFiles(report,
+          reportGenerator.getResumedCheckpoint(), Path.of(""), homeCurrencies,
+          reportGenerator.getMetrics());
+      if (checkpointPath != null) {
+        reportGenerator.createCheckpoint(report, annualReports).writeToFile(checkpointPath);
+        logger.info("Checkpoint written to file {}", checkpointPath);
+      }
+      if (statePath != null) {
+        reportGenerator.createRecomputationState(report, annualReports, inputFilePath,
+            homeCurrency).writeToFile(statePath);
+        logger.info("Recomputation state written to file {}", statePath);
+      }
+      if (getOption(args, "binary-export") != null) {
+        BinaryReportWriter.writeReportToFile(report, BINARY_REPORT_FILE);
+        logger.info("Binary columnar report written to file {}", BINARY_REPORT_FILE);
+      }
+      writeUpdatedExtraInfo(report, extraFilePath);
     } catch (IOException e) {
       logger.error("Report generation failed: {}", e.getMessage());
       e.printStackTrace();
     }
   }
 
-  private static String getInputFilePath(String[] args) throws IOException {
-    if (args.length < 1) {
+  /**
+   * Create a report generator configured with the optional flags which are not specific to
+   * one run: interest compaction, input cache, verification policy, heap report, progress
+   * logging, report periods, daily values and the cost basis strategy.
+   *
+   * @param args All the command-line arguments
+   * @return The configured report generator
+   * @throws IOException When a flag has an invalid value
+   */
+  static ReportGenerator createReportGenerator(String[] args) throws IOException {
+    ReportGenerator reportGenerator = new ReportGenerator();
+    String compactionWindow = getOption(args, "compact-interest");
+    if (compactionWindow != null) {
+      reportGenerator.setInterestCompactionWindow(CompactionWindow.fromString(compactionWindow));
+    }
+    if (getOption(args, "input-cache") != null) {
+      reportGenerator.setInputCacheEnabled(true);
+    }
+    String verificationPolicy = getOption(args, "verify");
+    if (verificationPolicy != null) {
+      reportGenerator.setVerificationPolicy(VerificationPolicy.fromString(verificationPolicy));
+    }
+    if (getOption(args, "heap-report") != null) {
+      reportGenerator.setHeapReportEnabled(true);
+    }
+    String progressInterval = getOption(args, "progress");
+    if (progressInterval != null) {
+      long intervalMillis = progressInterval.isEmpty() ? ProgressTracker.DEFAULT_INTERVAL_MILLIS
+          : getPositiveIntOption(args, "progress", 0) * 1000L;
+      reportGenerator.setProgressTracker(ProgressTracker.createLogging(intervalMillis));
+    }
+    String periods = getOption(args, "periods");
+    if (periods != null) {
+      List<PeriodDefinition> periodDefinitions = new ArrayList<>();
+      for (String period : periods.split(",")) {
+        periodDefinitions.add(PeriodDefinition.fromString(period.trim()));
+      }
+      reportGenerator.setPeriods(periodDefinitions);
+    }
+    if (getOption(args, "daily-values") != null) {
+      reportGenerator.setDailyValuesEnabled(true);
+    }
+    String costBasis = getOption(args, "cost-basis");
+    if (costBasis != null) {
+      reportGenerator.setCostBasisStrategy(CostBasisStrategy.fromString(costBasis));
+    }
+    reportGenerator.checkOptions();
+    return reportGenerator;
+  }
+
+  /**
+   * Write the transaction log, the wallet balance log, the annual and period reports, the PNL
+   * per asset, the daily values and the realized lots to CSV files, and the performance
+   * metrics of the run to a JSON file.
+   *
+   * @param report       The generated report
+   * @param resumedFrom  The checkpoint from which the report was continued, null if the whole
+   *                     report was generated. When given, the logs of the earlier run are
+   *                     continued
+   * @param outputDir    The directory where to write the files
+   * @param homeCurrency The home currency of the report
+   * @param metrics      The metrics of the report generation, the output stages are added
+   * @return All the annual reports, including those stored in the checkpoint
+   * @throws IOException When writing the files fails
+   */
+  static List<AnnualReport> writeOutputFiles(Report report, ReportCheckpoint resumedFrom,
+                                             Path outputDir, String homeCurrency,
+                                             RunMetrics metrics)
+      throws IOException {
+    return writeOutputFiles(report, resumedFrom, outputDir, List.of(homeCurrency), metrics);
+  }
+
+  /**
+   * Write the output files, with annual reports in several home currencies. The reports in
+   * the first (main) currency are written to profits.csv, the reports in each additional
+   * currency to profits-hc-CURRENCY.csv. All the other outputs use the main currency.
+   *
+   * @param report         The generated report
+   * @param resumedFrom    The checkpoint from which the report was continued, null if the
+   *                       whole report was generated. Not used with additional currencies
+   * @param outputDir      The directory where to write the files
+   * @param homeCurrencies The home currencies, the main one first
+   * @param metrics        The metrics of the report generation, the output stages are added
+   * @return All the annual reports in the main currency, including those in the checkpoint
+   * @throws IOException When writing the files fails
+   */
+  static List<AnnualReport> writeOutputFiles(Report report, ReportCheckpoint resumedFrom,
+                                             Path outputDir, List<String> homeCurrencies,
+                                             RunMetrics metrics)
+      throws IOException {
+    String homeCurrency = homeCurrencies.get(0);
+    String transactionLogFile = outputDir.resolve(TRANSACTION_LOG_CSV_FILE).toString();
+    String balanceLogFile = outputDir.resolve(BALANCE_LOG_CSV_FILE).toString();
+    String annualReportFile = outputDir.resolve(ANNUAL_REPORT_CSV_FILE).toString();
+    RunMetrics.Stage annualReportStage = metrics.startStage("annual-reports");
+    Map<String, List<AnnualReport>> currencyReports;
+    if (homeCurrencies.size() > 1) {
+      currencyReports = report.createAnnualReports(homeCurrencies);
+    } else {
+      currencyReports = Map.of(homeCurrency, report.createAnnualReports());
+    }
+    List<AnnualReport> annualReports = currencyReports.get(homeCurrency);
+    annualReportStage.finish(currencyReports.values().stream().mapToInt(List::size).sum());
+    Map<String, List<PeriodReport>> periodReports = Map.of();
+    if (!report.getPeriods().isEmpty()) {
+      RunMetrics.Stage periodReportStage = metrics.startStage("period-reports");
+      periodReports = report.createPeriodReports();
+      periodReportStage.finish(periodReports.values().stream().mapToInt(List::size).sum());
+    }
+    RunMetrics.Stage writeStage = metrics.startStage("write-output");
+    if (resumedFrom != null) {
+      ReportFileWriter.appendTransactionLogToFile(report, transactionLogFile,
+          resumedFrom.getRowCount());
+      ReportFileWriter.appendBalanceLogToFile(report, balanceLogFile,
+          resumedFrom.getRowCount());
+      annualReports = resumedFrom.mergeAnnualReports(annualReports);
+    } else {
+      ReportFileWriter.writeTransactionLogToFile(report, transactionLogFile);
+      ReportFileWriter.writeBalanceLogToFile(report, balanceLogFile);
+    }
+    logger.info("Transaction log written to file {}", transactionLogFile);
+    logger.info("Wallet balance log written to file {}", balanceLogFile);
+    ReportFileWriter.writeAnnualReportsToFile(annualReports, annualReportFile, homeCurrency);
+    logger.info("Annual PNL reports written to file {}", annualReportFile);
+    AssetPnlBreakdown assetPnl = resumedFrom != null
+        ? resumedFrom.mergeAssetPnl(report.getAssetPnlBreakdown())
+        : report.getAssetPnlBreakdown();
+    String assetPnlFile = outputDir.resolve(ASSET_PNL_CSV_FILE).toString();
+    ReportFileWriter.writeAssetPnlToFile(assetPnl, assetPnlFile);
+    logger.info("PNL per asset written to file {}", assetPnlFile);
+    List<String> outputFiles = new ArrayList<>(
+        List.of(transactionLogFile, balanceLogFile, annualReportFile, assetPnlFile));
+    for (String currency : homeCurrencies.subList(1, homeCurrencies.size())) {
+      String currencyReportFile = outputDir.resolve(
+          CURRENCY_REPORT_CSV_FILE_PREFIX + currency + ".csv").toString();
+      ReportFileWriter.writeAnnualReportsToFile(currencyReports.get(currency),
+          currencyReportFile, currency);
+      logger.info("Annual PNL reports in {} written to file {}", currency, currencyReportFile);
+      outputFiles.add(currencyReportFile);
+    }
+    for (Map.Entry<String, List<PeriodReport>> entry : periodReports.entrySet()) {
+      String periodReportFile = outputDir.resolve(
+          PERIOD_REPORT_CSV_FILE_PREFIX + entry.getKey() + ".csv").toString();
+      ReportFileWriter.writePeriodReportsToFile(entry.getValue(), periodReportFile, homeCurrency);
+      logger.info("PNL reports per {} written to file {}", entry.getKey(), periodReportFile);
+      outputFiles.add(periodReportFile);
+    }
+    if (report.getCostBasisStrategy() == CostBasisStrategy.FIFO) {
+      String realizedLotsFile = outputDir.resolve(REALIZED_LOTS_CSV_FILE).toString();
+      ReportFileWriter.writeRealizedLotsToFile(report.getRealizedLots(), realizedLotsFile);
+      logger.info("Realized gains of the lots written to file {}", realizedLotsFile);
+      outputFiles.add(realizedLotsFile);
+    }
+    writeStage.finish(report.getSnapshotCount());
+    // The daily series may need many price requests, it goes after the core outputs
+    if (report.isDailyValuesEnabled()) {
+      RunMetrics.Stage dailyValueStage = metrics.startStage("daily-values");
+      List<DailyValue> dailyValues = report.createDailyValues(homeCurrency);
+      String dailyValuesFile = outputDir.resolve(DAILY_VALUES_CSV_FILE).toString();
+      ReportFileWriter.writeDailyValuesToFile(dailyValues, dailyValuesFile, homeCurrency);
+      dailyValueStage.finish(dailyValues.size());
+      logger.info("Daily wallet values written to file {}", dailyValuesFile);
+      outputFiles.add(dailyValuesFile);
+    }
+    metrics.addApiCalls(report.getApiCallDurations());
+    for (String file : outputFiles) {
+      metrics.addBytesWritten(Files.size(Path.of(file)));
+    }
+    String metricsFile = outputDir.resolve(METRICS_FILE).toString();
+    metrics.writeToFile(metricsFile);
+    logger.info("Run metrics written to file {}", metricsFile);
+    return annualReports;
+  }
+
+  /**
+   * Write the extra info back to its file if asset prices were fetched from the Binance API.
+   *
+   * @param report        The generated report
+   * @param extraFilePath Path to the extra-info file
+   * @throws IOException When writing the file fails
+   */
+  static void writeUpdatedExtraInfo(Report report, String extraFilePath) throws IOException {
+    if (report.isExtraInfoUpdated()) {
+      ReportFileWriter.writeExtraInfoToFile(report.getExtras(), extraFilePath);
+      logger.info("Extra info file {} updated with asset prices from Binance API", extraFilePath);
+    }
+  }
+
+  /**
+   * Read the checkpoint from which to continue, if it exists.
+   *
+   * @param checkpointPath   Path to the checkpoint file, null when checkpoints are not used
+   * @param compactionWindow The interest compaction window option, null when not given
+   * @return The checkpoint, null if the report must be generated from scratch
+   * @throws IOException When the options are invalid or the checkpoint can't be read
+   */
+  private static ReportCheckpoint readCheckpoint(String checkpointPath, String compactionWindow)
+      throws IOException {
+    if (checkpointPath == null) {
+      return null;
+    }
+    if (checkpointPath.isEmpty()) {
+      throw new IOException("Path to the checkpoint file must be given: --checkpoint=<file>");
+    }
+    if (compactionWindow != null) {
+      throw new IOException("Checkpoints can't be combined with interest compaction");
+    }
+    if (!Files.exists(Path.of(checkpointPath))) {
+      logger.info("Checkpoint file {} not found, processing the whole input", checkpointPath);
+      return null;
+    }
+    return ReportCheckpoint.readFromFile(checkpointPath);
+  }
+
+  /**
+   * Read the state of an earlier run, if it exists and the output files of that run are still
+   * there.
+   *
+   * @param statePath Path to the state file
+   * @return The state, null if the report must be generated from scratch
+   * @throws IOException When the path is not given
+   */
+  private static RecomputationState readRecomputationState(String statePath)
+      throws IOException {
+    if (statePath.isEmpty()) {
+      throw new IOException("Path to the state file must be given: --state-file=<file>");
+    }
+    if (!Files.exists(Path.of(statePath))) {
+      logger.info("State file {} not found, processing the whole input", statePath);
+      return null;
+    }
+    if (!Files.exists(Path.of(TRANSACTION_LOG_CSV_FILE))
+        || !Files.exists(Path.of(BALANCE_LOG_CSV_FILE))) {
+      logger.info("Output files of the earlier run not found, processing the whole input");
+      return null;
+    }
+    try {
+      return RecomputationState.readFromFile(statePath);
+    } catch (IOException e) {
+      logger.warn("Ignoring the state file: {}", e.getMessage());
+      return null;
+    }
+  }
+
+  static List<String> getPositionalArgs(String[] args) {
+    return Arrays.stream(args).filter(arg -> !arg.startsWith(OPTION_PREFIX)).toList();
+  }
+
+  /**
+   * Get the value of an optional command-line flag.
+   *
+   * @param args All the command-line arguments
+   * @param name Name of the flag, without the leading dashes
+   * @return The value after the '=' sign, an empty string if the flag is given without a value,
+   *     null if the flag is not given
+   */
+  static String getOption(String[] args, String name) {
+    String flag = OPTION_PREFIX + name;
+    String value = null;
+    for (String arg : args) {
+      if (arg.equals(flag)) {
+        value = "";
+      } else if (arg.startsWith(flag + "=")) {
+        value = arg.substring(flag.length() + 1);
+      }
+    }
+    return value;
+  }
+
+  /**
+   * Get the value of an optional command-line flag which must be a positive integer.
+   *
+   * @param args         All the command-line arguments
+   * @param name         Name of the flag, without the leading dashes
+   * @param defaultValue The value to use when the flag is not given
+   * @return The value of the flag
+   * @throws IOException When the value is not a positive integer
+   */
+  static int getPositiveIntOption(String[] args, String name, int defaultValue)
+      throws IOException {
+    String value = getOption(args, name);
+    if (value == null) {
+      return defaultValue;
+    }
+    try {
+      int number = Integer.parseInt(value);
+      if (number <= 0) {
+        throw new NumberFormatException();
+      }
+      return number;
+    } catch (NumberFormatException e) {
+      throw new IOException("Invalid value for --" + name + ": " + value);
+    }
+  }
+
+  private static String getInputFilePath(List<String> args) throws IOException {
+    if (args.size() < 1) {
       throw new IOException(
           "The first command-line argument must contain path to the input file (CSV)");
     }
 
-    return args[0];
+    return args.get(0);
   }
 
-  private static String getCurrency(String[] args) throws IOException {
-    if (args.length < 2) {
+  static List<String> getCurrencies(List<String> args) throws IOException {
+    if (args.size() < 2) {
       throw new IOException(
           "The second command-line argument must contain the accounting currency (example: NOK)");
     }
-    return args[1];
+    List<String> currencies = Arrays.stream(args.get(1).split(",")).map(String::trim)
+        .filter(currency -> !currency.isEmpty()).distinct().toList();
+    if (currencies.isEmpty()) {
+      throw new IOException("No accounting currency given: " + args.get(1));
+    }
+    return currencies;
   }
 
-  private static String getExtraFilePath(String[] args) throws IOException {
-    if (args.length < 3) {
+  private static String getExtraFilePath(List<String> args) throws IOException {
+    if (args.size() < 3) {
       throw new IOException(
           "The 3rd command-line argument must contain path to CSV file with extra information");
     }
-    return args[2];
+    return args.get(2);
   }
 }
@@ -36,6 +36,15 @@ public class AssetBalance {
     return amount.multiply(obtainPrice);
   }
 
+  /**
+   * Set the average obtain-price of the asset, when it is calculated from the lots.
+   *
+   * @param obtainPrice The average obtain price of the asset
+   */
+  void setObtainPrice(Decimal obtainPrice) {
+    this.obtainPrice = obtainPrice;
+  }
+
   /**
    * Get the amount of the asset held in the balance.
    *
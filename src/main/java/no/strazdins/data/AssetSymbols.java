@@ -0,0 +1,189 @@
+package no.strazdins.data;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Global table of asset symbols. Each symbol is stored once and gets a dense integer ID
+ * (0, 1, 2, ...) together with precomputed flags: whether the asset is USD-like, fiat, or a
+ * Simple Earn lending asset (LD-prefixed). The reports use the IDs as array indices.
+ *
+ * <p>The table is thread-safe: lookups are lock-free, new symbols are added under a lock.
+ * IDs are never reused or removed. Wallets and diffs don't depend on the size of the table;
+ * structures indexed by the IDs are sized by the largest ID they store. Because the table is
+ * shared by all the reports of a process (including the uploads to the report server), it is
+ * limited to {@link #MAX_SIZE} symbols - far more than the number of assets ever listed on
+ * Binance - which also bounds the size of the ID-indexed structures.</p>
+ */
+public class AssetSymbols {
+  /**
+   * The ID returned for unknown or null symbols.
+   */
+  public static final int NO_ID = -1;
+  /**
+   * The maximum number of symbols in the table.
+   */
+  public static final int MAX_SIZE = 1 << 16;
+
+  private static final byte USD_LIKE = 1;
+  private static final byte FIAT = 2;
+  private static final byte LENDING = 4;
+  private static final String LENDING_PREFIX = "LD";
+
+  private static final Set<String> USD_CURRENCIES = Set.of("USD", "USDT", "USDC", "BUSD");
+  private static final Set<String> FIAT_CURRENCIES = Set.of("USD", "USDT", "USDC", "BUSD",
+      "EUR", "RUB", "AUD", "TRY", "NGN", "UAH", "KZT", "INR", "BRL", "GBP", "ZAR", "PLN");
+
+  private static final Map<String, Integer> ids = new ConcurrentHashMap<>();
+  // The arrays are replaced by larger copies when the table grows, existing elements never
+  // change. An ID is put in the map only after its array elements are written, hence a thread
+  // which gets an ID from the map also sees the corresponding elements.
+  private static volatile String[] symbols = new String[64];
+  private static volatile byte[] flags = new byte[64];
+  private static volatile int[] underlyingIds = new int[64];
+  private static volatile int size = 0;
+
+  static {
+    for (String currency : FIAT_CURRENCIES) {
+      intern(currency);
+    }
+  }
+
+  /**
+   * Not allowed to create instances of this class.
+   */
+  private AssetSymbols() {
+  }
+
+  /**
+   * Get the ID of a symbol, add it to the table if it is not there yet.
+   *
+   * @param symbol The asset symbol
+   * @return The ID of the symbol, NO_ID if the symbol is null
+   * @throws IllegalArgumentException When the table is full
+   */
+  public static int intern(String symbol) throws IllegalArgumentException {
+    if (symbol == null) {
+      return NO_ID;
+    }
+    Integer id = ids.get(symbol);
+    return id != null ? id : add(symbol);
+  }
+
+  /**
+   * Get the ID of a symbol without adding it to the table.
+   *
+   * @param symbol The asset symbol
+   * @return The ID of the symbol, NO_ID if the symbol is null or not in the table
+   */
+  public static int getId(String symbol) {
+    if (symbol == null) {
+      return NO_ID;
+    }
+    Integer id = ids.get(symbol);
+    return id != null ? id : NO_ID;
+  }
+
+  /**
+   * Get the symbol with the given ID.
+   *
+   * @param id The ID of the symbol
+   * @return The symbol, or null if id is NO_ID
+   */
+  public static String getSymbol(int id) {
+    return id != NO_ID ? symbols[id] : null;
+  }
+
+  /**
+   * Get the number of symbols in the table. All IDs are less than this number.
+   *
+   * @return The number of symbols
+   */
+  public static int size() {
+    return size;
+  }
+
+  /**
+   * Check whether the asset is USD or one of its coin-equivalents (USDT, BUSD, etc).
+   *
+   * @param id The ID of the asset
+   * @return True when it is USD or alike
+   */
+  public static boolean isUsdLike(int id) {
+    return hasFlag(id, USD_LIKE);
+  }
+
+  /**
+   * Check whether the asset is a fiat currency (or a stablecoin).
+   *
+   * @param id The ID of the asset
+   * @return True when it is a fiat currency
+   */
+  public static boolean isFiat(int id) {
+    return hasFlag(id, FIAT);
+  }
+
+  /**
+   * Check whether the asset is a Simple Earn lending asset - with an LD prefix, for example,
+   * LDBTC.
+   *
+   * @param id The ID of the asset
+   * @return True when it is an LD-prefixed asset
+   */
+  public static boolean isLendingAsset(int id) {
+    return hasFlag(id, LENDING);
+  }
+
+  /**
+   * Get the ID of the underlying asset for a lending asset (BTC for LDBTC).
+   *
+   * @param id The ID of the asset
+   * @return The ID of the underlying asset for lending assets, the same id for all other assets
+   */
+  public static int getUnderlyingId(int id) {
+    return id != NO_ID ? underlyingIds[id] : NO_ID;
+  }
+
+  private static boolean hasFlag(int id, byte flag) {
+    return id != NO_ID && (flags[id] & flag) != 0;
+  }
+
+  private static synchronized int add(String symbol) {
+    Integer existing = ids.get(symbol);
+    if (existing != null) {
+      return existing;
+    }
+    byte symbolFlags = 0;
+    if (USD_CURRENCIES.contains(symbol)) {
+      symbolFlags |= USD_LIKE;
+    }
+    if (FIAT_CURRENCIES.contains(symbol)) {
+      symbolFlags |= FIAT;
+    }
+    int underlyingId = NO_ID;
+    if (symbol.length() >= 3 && symbol.startsWith(LENDING_PREFIX)) {
+      symbolFlags |= LENDING;
+      underlyingId = intern(symbol.substring(LENDING_PREFIX.length()));
+    }
+
+    int id = size;
+    if (id == MAX_SIZE) {
+      throw new IllegalArgumentException("Too many distinct asset symbols (" + MAX_SIZE
+          + "), can't add " + symbol);
+    }
+    if (id == symbols.length) {
+      int newLength = symbols.length * 2;
+      symbols = Arrays.copyOf(symbols, newLength);
+      flags = Arrays.copyOf(flags, newLength);
+      underlyingIds = Arrays.copyOf(underlyingIds, newLength);
+    }
+    symbols[id] = symbol;
+    flags[id] = symbolFlags;
+    underlyingIds[id] = underlyingId != NO_ID ? underlyingId : id;
+    size++;
+    ids.put(symbol, id);
+    return id;
+  }
+}
@@ -0,0 +1,32 @@
+package no.strazdins.data;
+
+import java.io.IOException;
+
+/**
+ * How the cost basis of a decreased (sold, withdrawn, spent) amount of an asset is calculated.
+ */
+public enum CostBasisStrategy {
+  /**
+   * The average obtain price of all the units held in the wallet.
+   */
+  AVERAGE,
+  /**
+   * First in, first out: the obtain prices of the oldest lots held in the wallet.
+   */
+  FIFO;
+
+  /**
+   * Get the strategy from a string (case-insensitive).
+   *
+   * @param s The strategy: average or fifo
+   * @return The strategy
+   * @throws IOException When the string is not a valid strategy
+   */
+  public static CostBasisStrategy fromString(String s) throws IOException {
+    return switch (s.toUpperCase()) {
+      case "AVERAGE" -> AVERAGE;
+      case "FIFO" -> FIFO;
+      default -> throw new IOException("Invalid cost basis strategy: " + s);
+    };
+  }
+}
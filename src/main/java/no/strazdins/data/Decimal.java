@@ -182,6 +182,15 @@ public class Decimal implements Comparable<Decimal> {
     return new Decimal(number.negate());
   }
 
+  /**
+   * Return a new decimal whose value is the absolute value of the original.
+   *
+   * @return A new decimal: |original|
+   */
+  public Decimal abs() {
+    return isNegative() ? negate() : this;
+  }
+
   /**
    * Returns true if the number is positive (greater than zero).
    *
@@ -291,6 +300,28 @@ public class Decimal implements Comparable<Decimal> {
     }
   }
 
+  /**
+   * Get the value as a long integer, scaled by 10^8 (the number of stored decimal digits).
+   * For example, 1.5 is returned as 150000000.
+   *
+   * @return The scaled value
+   * @throws ArithmeticException When the scaled value does not fit in a long
+   */
+  public long toScaledLong() throws ArithmeticException {
+    return number.unscaledValue().longValueExact();
+  }
+
+  /**
+   * Create a Decimal from a long integer value, scaled by 10^8. This is the reverse
+   * of {@link #toScaledLong()}.
+   *
+   * @param scaledValue The value multiplied by 10^8
+   * @return The corresponding decimal
+   */
+  public static Decimal fromScaledLong(long scaledValue) {
+    return new Decimal(BigDecimal.valueOf(scaledValue, DEFAULT_SCALE));
+  }
+
   /**
    * Create an array of Decimals from an array of Strings.
    *
@@ -4,7 +4,10 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.TreeSet;
 import no.strazdins.tool.TimeConverter;
 
 /**
@@ -77,6 +80,33 @@ public class ExtraInfo implements Iterable<ExtraInfoEntry> {
     return entryList != null ? entryList.get(0) : null;
   }
 
+  /**
+   * Find the prices of several assets at several time moments, with one pass over the entries
+   * at each time moment.
+   *
+   * @param assets     The assets of interest
+   * @param timestamps The time moments of interest
+   * @return The prices, indexed by the asset and the time moment: prices[i][j] is the price
+   *     of assets[i] at timestamps[j], or null if not found. When there are several prices,
+   *     the first one is used
+   */
+  public Decimal[][] getAssetPricesAtTimes(List<String> assets, long[] timestamps) {
+    Decimal[][] prices = new Decimal[assets.size()][timestamps.length];
+    for (int j = 0; j < timestamps.length; ++j) {
+      List<ExtraInfoEntry> entriesAtTime = entries.get(timestamps[j]);
+      if (entriesAtTime == null) {
+        continue;
+      }
+      for (ExtraInfoEntry entry : entriesAtTime) {
+        int i = assets.indexOf(entry.asset());
+        if (i >= 0 && entry.type() == ExtraInfoType.ASSET_PRICE && prices[i][j] == null) {
+          prices[i][j] = new Decimal(entry.value());
+        }
+      }
+    }
+    return prices;
+  }
+
   /**
    * Find price for a given asset at a given time moment.
    *
@@ -87,6 +117,9 @@ public class ExtraInfo implements Iterable<ExtraInfoEntry> {
    */
   public Decimal getAssetPriceAtTime(long timestamp, String asset) throws IllegalStateException {
     List<ExtraInfoEntry> entriesAtTime = entries.get(timestamp);
+    if (entriesAtTime == null) {
+      return null;
+    }
     List<ExtraInfoEntry> assetPrices = entriesAtTime.stream().filter(
         entry -> entry.asset().equals(asset) && entry.type().equals(ExtraInfoType.ASSET_PRICE)
     ).toList();
@@ -97,6 +130,59 @@ public class ExtraInfo implements Iterable<ExtraInfoEntry> {
     return assetPrices.size() == 1 ? new Decimal(assetPrices.get(0).value()) : null;
   }
 
+  /**
+   * Create a copy of this extra info, where the given entries override the stored ones: an
+   * entry with the same timestamp, type and asset is replaced in place, the other overriding
+   * entries are added after the stored ones.
+   *
+   * @param overrides The overriding entries
+   * @return The combined extra info; this one is not changed
+   */
+  public ExtraInfo withOverrides(ExtraInfo overrides) {
+    ExtraInfo combined = new ExtraInfo();
+    for (ExtraInfoEntry entry : allEntries) {
+      ExtraInfoEntry override = overrides.find(entry);
+      combined.add(override != null ? override : entry);
+    }
+    for (ExtraInfoEntry override : overrides) {
+      if (find(override) == null) {
+        combined.add(override);
+      }
+    }
+    return combined;
+  }
+
+  private ExtraInfoEntry find(ExtraInfoEntry e) {
+    List<ExtraInfoEntry> entriesAtTime = entries.get(e.utcTimestamp());
+    if (entriesAtTime != null) {
+      for (ExtraInfoEntry entry : entriesAtTime) {
+        if (entry.type() == e.type() && Objects.equals(entry.asset(), e.asset())) {
+          return entry;
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Find the earliest time moment where this and the other extra info differ: an entry is
+   * added, removed or has a different value.
+   *
+   * @param other The extra info to compare with
+   * @return UTC timestamp of the earliest difference, Long.MAX_VALUE when both contain the
+   *     same entries
+   */
+  public long getEarliestDifference(ExtraInfo other) {
+    Set<Long> timestamps = new TreeSet<>(entries.keySet());
+    timestamps.addAll(other.entries.keySet());
+    for (long timestamp : timestamps) {
+      if (!Objects.equals(entries.get(timestamp), other.entries.get(timestamp))) {
+        return timestamp;
+      }
+    }
+    return Long.MAX_VALUE;
+  }
+
   @Override
   public Iterator<ExtraInfoEntry> iterator() {
     return allEntries.iterator();
@@ -0,0 +1,19 @@
+package no.strazdins.data;
+
+/**
+ * A part of one lot of an asset - the units obtained in one transaction.
+ *
+ * @param obtainTime  Time when the lot was obtained, including milliseconds
+ * @param amount      The amount of the asset in this part of the lot
+ * @param obtainPrice The price at which the lot was obtained, in USD
+ */
+public record LotPortion(long obtainTime, Decimal amount, Decimal obtainPrice) {
+  /**
+   * Get the cost of this part of the lot.
+   *
+   * @return The amount multiplied by the obtain price, in USD
+   */
+  public Decimal getCost() {
+    return amount.multiply(obtainPrice);
+  }
+}
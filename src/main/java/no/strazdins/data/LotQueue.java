@@ -0,0 +1,242 @@
+package no.strazdins.data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The lots of one asset, in the order they were obtained - for the FIFO cost basis. The lots
+ * are stored in a ring buffer of primitive arrays: obtain times, and amounts and prices as
+ * longs scaled by 10^8 (the Decimal scale). A lot with an amount which does not fit in a long
+ * is stored as several lots. The oldest lot is consumed partially in place, therefore
+ * consuming is amortized O(1) per lot, regardless of how many tiny lots (such as daily
+ * interest) there are. Consecutive lots with the same obtain time and price are merged.
+ */
+public class LotQueue {
+  private static final int INITIAL_CAPACITY = 8;
+  private static final Decimal MAX_LOT_AMOUNT = Decimal.fromScaledLong(Long.MAX_VALUE);
+
+  private long[] obtainTimes = new long[INITIAL_CAPACITY];
+  private long[] amounts = new long[INITIAL_CAPACITY];
+  private long[] prices = new long[INITIAL_CAPACITY];
+  private int head = 0;
+  private int size = 0;
+  private Decimal totalCost = Decimal.ZERO;
+
+  /**
+   * Add a new lot, as the newest one.
+   *
+   * @param obtainTime  Time when the lot was obtained
+   * @param amount      The amount, must be positive
+   * @param obtainPrice The obtain price of one unit, in USD
+   * @throws IllegalArgumentException When the amount is not positive or the price is too large
+   */
+  public void add(long obtainTime, Decimal amount, Decimal obtainPrice)
+      throws IllegalArgumentException {
+    if (!amount.isPositive()) {
+      throw new IllegalArgumentException("Lot amount must be positive: " + amount);
+    }
+    long price;
+    try {
+      price = obtainPrice.toScaledLong();
+    } catch (ArithmeticException e) {
+      throw new IllegalArgumentException("Lot obtain price too large: " + obtainPrice);
+    }
+    Decimal remaining = amount;
+    while (remaining.isPositive()) {
+      Decimal part = remaining.isGreaterThan(MAX_LOT_AMOUNT) ? MAX_LOT_AMOUNT : remaining;
+      push(obtainTime, part.toScaledLong(), price);
+      remaining = remaining.subtract(part);
+    }
+    totalCost = totalCost.add(amount.multiply(obtainPrice));
+  }
+
+  private void push(long obtainTime, long amount, long price) {
+    if (size > 0) {
+      int tail = index(size - 1);
+      if (obtainTimes[tail] == obtainTime && prices[tail] == price
+          && amounts[tail] <= Long.MAX_VALUE - amount) {
+        amounts[tail] += amount;
+        return;
+      }
+    }
+    if (size == amounts.length) {
+      grow();
+    }
+    int tail = index(size);
+    obtainTimes[tail] = obtainTime;
+    amounts[tail] = amount;
+    prices[tail] = price;
+    size++;
+  }
+
+  private void grow() {
+    int capacity = amounts.length * 2;
+    obtainTimes = copyInOrder(obtainTimes, capacity);
+    amounts = copyInOrder(amounts, capacity);
+    prices = copyInOrder(prices, capacity);
+    head = 0;
+  }
+
+  private long[] copyInOrder(long[] array, int capacity) {
+    long[] copy = new long[capacity];
+    int firstPart = Math.min(size, array.length - head);
+    System.arraycopy(array, head, copy, 0, firstPart);
+    System.arraycopy(array, 0, copy, firstPart, size - firstPart);
+    return copy;
+  }
+
+  private int index(int i) {
+    return (head + i) & (amounts.length - 1);
+  }
+
+  /**
+   * Get the cost of the given amount taken from the oldest lots, without consuming them.
+   *
+   * @param amount The amount
+   * @return The cost, in USD
+   * @throws IllegalStateException When the lots contain less than the given amount
+   */
+  public Decimal getCost(Decimal amount) throws IllegalStateException {
+    return walk(Decimal.ZERO, amount, false, null);
+  }
+
+  /**
+   * Get the cost of the given amount taken from the lots after skipping the oldest units,
+   * without consuming them: the cost of what would be consumed after the skipped amount.
+   *
+   * @param amount The amount
+   * @param offset The amount consumed before, which is skipped
+   * @return The cost, in USD
+   * @throws IllegalStateException When the lots contain less than the offset plus the amount
+   */
+  public Decimal getCost(Decimal amount, Decimal offset) throws IllegalStateException {
+    return walk(offset, amount, false, null);
+  }
+
+  /**
+   * Get the parts of the oldest lots which make up the given amount, without consuming them.
+   *
+   * @param amount The amount
+   * @return The lot parts, the oldest first
+   * @throws IllegalStateException When the lots contain less than the given amount
+   */
+  public List<LotPortion> getPortions(Decimal amount) throws IllegalStateException {
+    List<LotPortion> portions = new ArrayList<>();
+    walk(Decimal.ZERO, amount, false, portions);
+    return portions;
+  }
+
+  /**
+   * Remove the given amount from the oldest lots.
+   *
+   * @param amount The amount
+   * @return The cost of the removed amount, in USD
+   * @throws IllegalStateException When the lots contain less than the given amount
+   */
+  public Decimal consume(Decimal amount) throws IllegalStateException {
+    Decimal cost = walk(Decimal.ZERO, amount, true, null);
+    totalCost = size > 0 ? totalCost.subtract(cost) : Decimal.ZERO;
+    return cost;
+  }
+
+  private Decimal walk(Decimal offset, Decimal amount, boolean consume,
+                       List<LotPortion> portions) {
+    // The position of the walk: lot i, of which lotOffset units are passed. Only a walk
+    // which does not consume can have an offset.
+    int i = 0;
+    long lotOffset = 0;
+    Decimal toSkip = offset;
+    while (toSkip.isPositive()) {
+      Decimal part = toSkip.isGreaterThan(MAX_LOT_AMOUNT) ? MAX_LOT_AMOUNT : toSkip;
+      long partLeft = part.toScaledLong();
+      while (partLeft > 0) {
+        if (i >= size) {
+          throw notEnoughUnits(offset.add(amount));
+        }
+        long available = amounts[index(i)] - lotOffset;
+        long skipped = Math.min(available, partLeft);
+        partLeft -= skipped;
+        if (skipped == available) {
+          i++;
+          lotOffset = 0;
+        } else {
+          lotOffset += skipped;
+        }
+      }
+      toSkip = toSkip.subtract(part);
+    }
+
+    Decimal cost = Decimal.ZERO;
+    Decimal remaining = amount;
+    while (remaining.isPositive()) {
+      Decimal part = remaining.isGreaterThan(MAX_LOT_AMOUNT) ? MAX_LOT_AMOUNT : remaining;
+      long partLeft = part.toScaledLong();
+      while (partLeft > 0) {
+        if (i >= size) {
+          throw notEnoughUnits(offset.add(amount));
+        }
+        int lot = index(consume ? 0 : i);
+        long available = amounts[lot] - lotOffset;
+        long used = Math.min(available, partLeft);
+        Decimal usedAmount = Decimal.fromScaledLong(used);
+        Decimal price = Decimal.fromScaledLong(prices[lot]);
+        cost = cost.add(usedAmount.multiply(price));
+        if (portions != null) {
+          portions.add(new LotPortion(obtainTimes[lot], usedAmount, price));
+        }
+        partLeft -= used;
+        if (consume) {
+          if (used == amounts[lot]) {
+            head = index(1);
+            size--;
+          } else {
+            amounts[lot] -= used;
+          }
+        } else if (used == available) {
+          i++;
+          lotOffset = 0;
+        } else {
+          lotOffset += used;
+        }
+      }
+      remaining = remaining.subtract(part);
+    }
+    return cost;
+  }
+
+  private IllegalStateException notEnoughUnits(Decimal amount) {
+    return new IllegalStateException("Can't take " + amount.getNiceString()
+        + " units from the lots, only " + getAmount().getNiceString() + " units held");
+  }
+
+  /**
+   * Get the total amount in all the lots.
+   *
+   * @return The amount
+   */
+  public Decimal getAmount() {
+    Decimal amount = Decimal.ZERO;
+    for (int i = 0; i < size; ++i) {
+      amount = amount.add(Decimal.fromScaledLong(amounts[index(i)]));
+    }
+    return amount;
+  }
+
+  /**
+   * Get the total cost of all the lots.
+   *
+   * @return The cost, in USD
+   */
+  public Decimal getTotalCost() {
+    return totalCost;
+  }
+
+  /**
+   * Get the number of lots.
+   *
+   * @return The number of lots
+   */
+  public int getLotCount() {
+    return size;
+  }
+}
@@ -12,6 +12,7 @@ public class RawAccountChange {
   private final AccountType account;
   private final Operation operation;
   private String asset;
+  private int assetId;
   private Decimal changeAmount;
   private final String remark;
 
@@ -31,7 +32,9 @@ public class RawAccountChange {
     this.utcTime = utcTime;
     this.account = account;
     this.operation = operation;
-    this.asset = asset;
+    this.assetId = AssetSymbols.intern(asset);
+    // Store the interned symbol, so that all changes share one String object per asset
+    this.asset = AssetSymbols.getSymbol(assetId);
     this.changeAmount = changeAmount;
     this.remark = remark;
     runAssertions();
@@ -70,7 +73,7 @@ public class RawAccountChange {
     for (int i = 1; i < originalChanges.size(); ++i) {
       RawAccountChange c = originalChanges.get(i);
       if (c.utcTime != merged.utcTime || c.account != merged.account
-          || c.operation != merged.operation || !c.asset.equals(merged.asset)) {
+          || c.operation != merged.operation || c.assetId != merged.assetId) {
         throw new IllegalArgumentException(
             "Merged changes must have the same time, account, operation and asset, time="
                 + TimeConverter.utcTimeToString(merged.utcTime)
@@ -91,6 +94,7 @@ public class RawAccountChange {
     this.account = original.account;
     this.changeAmount = original.changeAmount;
     this.asset = original.asset;
+    this.assetId = original.assetId;
     this.remark = original.remark;
     this.operation = original.operation;
     this.utcTime = original.utcTime;
@@ -123,6 +127,15 @@ public class RawAccountChange {
     return asset;
   }
 
+  /**
+   * Get the ID of the asset in the {@link AssetSymbols} table.
+   *
+   * @return The ID of the asset, AssetSymbols.NO_ID if the asset is null
+   */
+  public int getAssetId() {
+    return assetId;
+  }
+
   @Override
   public String toString() {
     return "RawAccountChange{"
@@ -145,7 +158,7 @@ public class RawAccountChange {
     }
     RawAccountChange that = (RawAccountChange) o;
     return utcTime == that.utcTime && account == that.account && operation == that.operation
-        && Objects.equals(asset, that.asset) && Objects.equals(changeAmount, that.changeAmount)
+        && assetId == that.assetId && Objects.equals(changeAmount, that.changeAmount)
         && Objects.equals(remark, that.remark);
   }
 
@@ -163,6 +176,15 @@ public class RawAccountChange {
     return changeAmount;
   }
 
+  /**
+   * Get the remark (comment) of the change.
+   *
+   * @return The remark
+   */
+  public String getRemark() {
+    return remark;
+  }
+
   /**
    * Get the account to which the change was performed.
    *
@@ -182,6 +204,20 @@ public class RawAccountChange {
     if (asset == null) {
       throw new IllegalArgumentException("Asset can't be null");
     }
-    this.asset = asset;
+    setAssetId(AssetSymbols.intern(asset));
+  }
+
+  /**
+   * Set the asset for the change, by its ID in the {@link AssetSymbols} table.
+   *
+   * @param assetId The ID of the asset involved in this account change
+   * @throws IllegalArgumentException When the ID is AssetSymbols.NO_ID
+   */
+  public void setAssetId(int assetId) throws IllegalArgumentException {
+    if (assetId == AssetSymbols.NO_ID) {
+      throw new IllegalArgumentException("Asset can't be null");
+    }
+    this.assetId = assetId;
+    this.asset = AssetSymbols.getSymbol(assetId);
   }
 }
@@ -0,0 +1,378 @@
+package no.strazdins.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Columnar in-memory store of raw account changes: one primitive array per field instead of
+ * one object per change. The amounts are stored as longs scaled by 10^8 (the Decimal scale),
+ * the rare amounts which don't fit in a long are kept in a separate map. The assets are stored
+ * as IDs in the {@link AssetSymbols} table, the remarks (if kept at all) as references to a
+ * dictionary of distinct remark strings.
+ *
+ * <p>Use {@link #cursor()} to iterate over the changes without creating objects,
+ * or {@link #get(int)} to materialize a single change as a {@link RawAccountChange}.</p>
+ */
+public class RawAccountChangeStore {
+  private static final int INITIAL_CAPACITY = 1024;
+  // Marks an amount stored in the overflow map
+  private static final long OVERFLOW = Long.MIN_VALUE;
+  private static final int NO_REMARK = -1;
+  private static final AccountType[] ACCOUNT_TYPES = AccountType.values();
+  private static final Operation[] OPERATIONS = Operation.values();
+
+  private final boolean keepRemarks;
+  private int size = 0;
+  private long[] times = new long[INITIAL_CAPACITY];
+  private byte[] accounts = new byte[INITIAL_CAPACITY];
+  private byte[] operations = new byte[INITIAL_CAPACITY];
+  private int[] assetIds = new int[INITIAL_CAPACITY];
+  private long[] amounts = new long[INITIAL_CAPACITY];
+  private int[] remarkIds;
+  private final Map<Integer, Decimal> overflowAmounts = new HashMap<>();
+  private final Map<String, Integer> remarkDictionary = new HashMap<>();
+  private final List<String> remarks = new ArrayList<>();
+
+  /**
+   * Create an empty store which keeps the remarks.
+   */
+  public RawAccountChangeStore() {
+    this(true);
+  }
+
+  /**
+   * Create an empty store.
+   *
+   * @param keepRemarks When false, the remarks are not stored, all changes get an empty remark
+   */
+  public RawAccountChangeStore(boolean keepRemarks) {
+    this.keepRemarks = keepRemarks;
+    remarkIds = keepRemarks ? new int[INITIAL_CAPACITY] : null;
+  }
+
+  /**
+   * Create a store containing the given changes.
+   *
+   * @param changes The raw account changes to store
+   * @return The columnar store
+   */
+  public static RawAccountChangeStore of(Iterable<RawAccountChange> changes) {
+    RawAccountChangeStore store = new RawAccountChangeStore();
+    for (RawAccountChange change : changes) {
+      store.add(change);
+    }
+    return store;
+  }
+
+  /**
+   * Add a change at the end of the store.
+   *
+   * @param change The change to add
+   */
+  public void add(RawAccountChange change) {
+    add(change.getUtcTime(), change.getAccount(), change.getOperation(), change.getAssetId(),
+        change.getAmount(), change.getRemark());
+  }
+
+  /**
+   * Add a change at the end of the store.
+   *
+   * @param utcTime   UTC timestamp, with milliseconds
+   * @param account   The account that was used
+   * @param operation Performed operation
+   * @param assetId   ID of the involved asset in the {@link AssetSymbols} table
+   * @param amount    The amount of the change
+   * @param remark    A comment
+   */
+  public void add(long utcTime, AccountType account, Operation operation, int assetId,
+                  Decimal amount, String remark) {
+    ensureCapacity(size + 1);
+    times[size] = utcTime;
+    accounts[size] = (byte) account.ordinal();
+    operations[size] = (byte) operation.ordinal();
+    assetIds[size] = assetId;
+    amounts[size] = toScaled(amount);
+    if (keepRemarks) {
+      remarkIds[size] = getRemarkId(remark);
+    }
+    size++;
+  }
+
+  /**
+   * Add a change at the end of the store, with the amount given as a scaled long.
+   *
+   * @param utcTime      UTC timestamp, with milliseconds
+   * @param account      The account that was used
+   * @param operation    Performed operation
+   * @param assetId      ID of the involved asset in the {@link AssetSymbols} table
+   * @param scaledAmount The amount of the change, multiplied by 10^8
+   * @param remark       A comment
+   */
+  public void addScaled(long utcTime, AccountType account, Operation operation, int assetId,
+                        long scaledAmount, String remark) {
+    if (scaledAmount == OVERFLOW) {
+      add(utcTime, account, operation, assetId, Decimal.fromScaledLong(scaledAmount), remark);
+      return;
+    }
+    ensureCapacity(size + 1);
+    times[size] = utcTime;
+    accounts[size] = (byte) account.ordinal();
+    operations[size] = (byte) operation.ordinal();
+    assetIds[size] = assetId;
+    amounts[size] = scaledAmount;
+    if (keepRemarks) {
+      remarkIds[size] = getRemarkId(remark);
+    }
+    size++;
+  }
+
+  private long toScaled(Decimal amount) {
+    try {
+      long scaled = amount.toScaledLong();
+      if (scaled != OVERFLOW) {
+        return scaled;
+      }
+    } catch (ArithmeticException e) {
+      // Too large for a long, stored in the overflow map below
+    }
+    overflowAmounts.put(size, amount);
+    return OVERFLOW;
+  }
+
+  private int getRemarkId(String remark) {
+    if (remark == null || remark.isEmpty()) {
+      return NO_REMARK;
+    }
+    Integer id = remarkDictionary.get(remark);
+    if (id == null) {
+      id = remarks.size();
+      remarkDictionary.put(remark, id);
+      remarks.add(remark);
+    }
+    return id;
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (capacity > times.length) {
+      int newLength = Math.max(capacity, times.length * 2);
+      times = Arrays.copyOf(times, newLength);
+      accounts = Arrays.copyOf(accounts, newLength);
+      operations = Arrays.copyOf(operations, newLength);
+      assetIds = Arrays.copyOf(assetIds, newLength);
+      amounts = Arrays.copyOf(amounts, newLength);
+      if (keepRemarks) {
+        remarkIds = Arrays.copyOf(remarkIds, newLength);
+      }
+    }
+  }
+
+  /**
+   * Get the number of stored changes.
+   *
+   * @return The number of changes
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Get the timestamp of a change.
+   *
+   * @param index Index of the change
+   * @return UTC timestamp, with milliseconds
+   */
+  public long getUtcTime(int index) {
+    checkIndex(index);
+    return times[index];
+  }
+
+  /**
+   * Get the account of a change.
+   *
+   * @param index Index of the change
+   * @return The account
+   */
+  public AccountType getAccount(int index) {
+    checkIndex(index);
+    return ACCOUNT_TYPES[accounts[index]];
+  }
+
+  /**
+   * Get the operation of a change.
+   *
+   * @param index Index of the change
+   * @return The operation
+   */
+  public Operation getOperation(int index) {
+    checkIndex(index);
+    return OPERATIONS[operations[index]];
+  }
+
+  /**
+   * Get the asset ID of a change.
+   *
+   * @param index Index of the change
+   * @return ID of the asset in the {@link AssetSymbols} table
+   */
+  public int getAssetId(int index) {
+    checkIndex(index);
+    return assetIds[index];
+  }
+
+  /**
+   * Set the asset ID of a change.
+   *
+   * @param index   Index of the change
+   * @param assetId ID of the asset in the {@link AssetSymbols} table
+   */
+  public void setAssetId(int index, int assetId) {
+    checkIndex(index);
+    assetIds[index] = assetId;
+  }
+
+  /**
+   * Get the amount of a change.
+   *
+   * @param index Index of the change
+   * @return The amount of the change
+   */
+  public Decimal getAmount(int index) {
+    checkIndex(index);
+    long scaled = amounts[index];
+    return scaled != OVERFLOW ? Decimal.fromScaledLong(scaled) : overflowAmounts.get(index);
+  }
+
+  /**
+   * Get the remark of a change.
+   *
+   * @param index Index of the change
+   * @return The remark, an empty string when there is none or when remarks are not kept
+   */
+  public String getRemark(int index) {
+    checkIndex(index);
+    int remarkId = keepRemarks ? remarkIds[index] : NO_REMARK;
+    return remarkId != NO_REMARK ? remarks.get(remarkId) : "";
+  }
+
+  /**
+   * Materialize a change as an object.
+   *
+   * @param index Index of the change
+   * @return The change, as a new RawAccountChange object
+   */
+  public RawAccountChange get(int index) {
+    return new RawAccountChange(getUtcTime(index), getAccount(index), getOperation(index),
+        AssetSymbols.getSymbol(getAssetId(index)), getAmount(index), getRemark(index));
+  }
+
+  /**
+   * Create a store containing only the changes at or after the given time. The timestamps
+   * in this store are expected to be in increasing order.
+   *
+   * @param utcTime UTC timestamp, with milliseconds
+   * @return A new store with copies of the changes having timestamp &gt;= utcTime
+   */
+  public RawAccountChangeStore tailFrom(long utcTime) {
+    int first = findFirstIndexAtOrAfter(utcTime);
+    RawAccountChangeStore tail = new RawAccountChangeStore(keepRemarks);
+    tail.ensureCapacity(size - first);
+    for (int i = first; i < size; ++i) {
+      tail.add(times[i], getAccount(i), getOperation(i), assetIds[i], getAmount(i),
+          getRemark(i));
+    }
+    return tail;
+  }
+
+  private int findFirstIndexAtOrAfter(long utcTime) {
+    int low = 0;
+    int high = size;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (times[middle] < utcTime) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Create a cursor for iterating over all the changes, positioned before the first change.
+   *
+   * @return The cursor
+   */
+  public Cursor cursor() {
+    return new Cursor();
+  }
+
+  private void checkIndex(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index " + index + " out of range, size " + size);
+    }
+  }
+
+  /**
+   * A cursor over the changes in the store. The cursor starts before the first change,
+   * call {@link #next()} to advance it.
+   */
+  public class Cursor {
+    private int index = -1;
+
+    private Cursor() {
+    }
+
+    /**
+     * Move to the next change.
+     *
+     * @return True if the cursor points to a change, false if the end of the store is reached
+     */
+    public boolean next() {
+      if (index < size) {
+        index++;
+      }
+      return index < size;
+    }
+
+    /**
+     * Get the index of the current change.
+     *
+     * @return The index of the change in the store
+     */
+    public int getIndex() {
+      return index;
+    }
+
+    public long getUtcTime() {
+      return RawAccountChangeStore.this.getUtcTime(index);
+    }
+
+    public AccountType getAccount() {
+      return RawAccountChangeStore.this.getAccount(index);
+    }
+
+    public Operation getOperation() {
+      return RawAccountChangeStore.this.getOperation(index);
+    }
+
+    public int getAssetId() {
+      return RawAccountChangeStore.this.getAssetId(index);
+    }
+
+    public Decimal getAmount() {
+      return RawAccountChangeStore.this.getAmount(index);
+    }
+
+    /**
+     * Materialize the current change as an object.
+     *
+     * @return The change, as a new RawAccountChange object
+     */
+    public RawAccountChange get() {
+      return RawAccountChangeStore.this.get(index);
+    }
+  }
+}
@@ -1,32 +1,93 @@
 package no.strazdins.data;
 
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
-import java.util.Map;
-import java.util.Objects;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
 
 /**
  * A wallet that holds a list of assets in it, keeps track of the amount and average purchase
- * price for each asset.
+ * price for each asset. The balances of the held assets are stored in arrays sorted by the
+ * asset ID (see {@link AssetSymbols}), hence the size of a wallet (and the cost of copying it)
+ * depends only on the number of held assets. The assets are iterated in alphabetical order,
+ * independent of the order in which the symbols got their IDs.
+ *
+ * <p>With the {@link CostBasisStrategy#FIFO} strategy, the wallet also keeps the lots of each
+ * asset, and the average purchase price is that of the remaining lots. The lots are not
+ * copied with the wallet - a copy takes them over, and only the newest copy may be changed.</p>
  */
 public class Wallet implements Iterable<String> {
-  private final Map<String, AssetBalance> assets = new HashMap<>();
+  private static final int INITIAL_CAPACITY = 4;
 
-  public Wallet() {
+  // IDs of the held assets, sorted, and their balances
+  private int[] assetIds;
+  private AssetBalance[] balances;
+  private int assetCount = 0;
+  // The held asset symbols in alphabetical order, null until needed after a change of the
+  // held assets. The array is never changed, hence it is shared with the copies
+  private String[] sortedSymbols;
+  // IDs of the assets added or decreased since this wallet was created (or copied)
+  private final BitSet touchedAssets = new BitSet();
+  // The lots of each asset, indexed by the asset ID; null with the average cost basis
+  private LotQueue[] lots;
 
+  public Wallet() {
+    assetIds = new int[INITIAL_CAPACITY];
+    balances = new AssetBalance[INITIAL_CAPACITY];
   }
 
   /**
-   * A copy-constructor - creates a deep-copy of w.
+   * A copy-constructor - copies the balances of w. The lots (with the FIFO cost basis) are not
+   * copied, the new wallet takes them over and w must not be changed afterwards. The set of
+   * touched assets is not copied, the new wallet starts with no touched assets.
    *
    * @param w The original wallet to be copied
    */
   public Wallet(Wallet w) {
-    for (Map.Entry<String, AssetBalance> entry : w.assets.entrySet()) {
-      assets.put(entry.getKey(), new AssetBalance(entry.getValue()));
+    // Room for one more asset, the copy is usually changed by one transaction
+    int capacity = w.assetCount + 1;
+    assetIds = Arrays.copyOf(w.assetIds, capacity);
+    balances = new AssetBalance[capacity];
+    for (int i = 0; i < w.assetCount; ++i) {
+      balances[i] = new AssetBalance(w.balances[i]);
+    }
+    assetCount = w.assetCount;
+    sortedSymbols = w.sortedSymbols;
+    lots = w.lots;
+  }
+
+  /**
+   * Set the cost basis strategy. When switching to FIFO, each asset already in the wallet
+   * becomes one lot at its average obtain price, with an unknown obtain time (0).
+   *
+   * @param strategy The cost basis strategy
+   */
+  public void setCostBasisStrategy(CostBasisStrategy strategy) {
+    if (strategy == CostBasisStrategy.AVERAGE) {
+      lots = null;
+    } else if (lots == null) {
+      lots = new LotQueue[0];
+      for (int i = 0; i < assetCount; ++i) {
+        LotQueue assetLots = new LotQueue();
+        assetLots.add(0, balances[i].getAmount(), balances[i].getObtainPrice());
+        setLots(assetIds[i], assetLots);
+      }
     }
   }
 
+  /**
+   * Get the cost basis strategy of the wallet.
+   *
+   * @return The cost basis strategy
+   */
+  public CostBasisStrategy getCostBasisStrategy() {
+    return lots != null ? CostBasisStrategy.FIFO : CostBasisStrategy.AVERAGE;
+  }
+
   /**
    * Add an asset to the wallet.
    *
@@ -35,11 +96,48 @@ public class Wallet implements Iterable<String> {
    * @param obtainPrice The price at which the asset was obtained (in Home Currency)
    */
   public void addAsset(String asset, Decimal amount, Decimal obtainPrice) {
-    AssetBalance assetBalance = assets.get(asset);
+    addAsset(AssetSymbols.intern(asset), amount, obtainPrice, 0);
+  }
+
+  /**
+   * Add an asset to the wallet.
+   *
+   * @param asset       The asset to add
+   * @param amount      The amount of the asset
+   * @param obtainPrice The price at which the asset was obtained (in Home Currency)
+   * @param obtainTime  Time when the asset was obtained, used for the lots
+   */
+  public void addAsset(String asset, Decimal amount, Decimal obtainPrice, long obtainTime) {
+    addAsset(AssetSymbols.intern(asset), amount, obtainPrice, obtainTime);
+  }
+
+  /**
+   * Add an asset to the wallet.
+   *
+   * @param assetId     The ID of the asset to add
+   * @param amount      The amount of the asset
+   * @param obtainPrice The price at which the asset was obtained (in Home Currency)
+   * @param obtainTime  Time when the asset was obtained, used for the lots
+   */
+  public void addAsset(int assetId, Decimal amount, Decimal obtainPrice, long obtainTime) {
+    if (assetId == AssetSymbols.NO_ID) {
+      throw new IllegalArgumentException("Asset can't be null");
+    }
+    touchedAssets.set(assetId);
+    AssetBalance assetBalance = getBalance(assetId);
     if (assetBalance != null) {
       assetBalance.add(amount, obtainPrice);
     } else {
-      assets.put(asset, new AssetBalance(amount, obtainPrice));
+      insertBalance(assetId, new AssetBalance(amount, obtainPrice));
+    }
+    if (lots != null && amount.isPositive()) {
+      LotQueue assetLots = getLots(assetId);
+      if (assetLots == null) {
+        assetLots = new LotQueue();
+        setLots(assetId, assetLots);
+      }
+      assetLots.add(obtainTime, amount, obtainPrice);
+      updateObtainPrice(assetId, assetLots);
     }
   }
 
@@ -51,7 +149,23 @@ public class Wallet implements Iterable<String> {
    * @throws IllegalStateException If there is no enough asset in the wallet
    */
   public void decreaseAsset(String asset, Decimal amount) throws IllegalStateException {
-    AssetBalance assetBalance = assets.get(asset);
+    decreaseAsset(AssetSymbols.intern(asset), amount);
+  }
+
+  /**
+   * Remove given amount of the given asset from the wallet.
+   *
+   * @param assetId The ID of the asset to remove (decrease its amount)
+   * @param amount  The amount of the asset to reduce
+   * @throws IllegalStateException If there is no enough asset in the wallet
+   */
+  public void decreaseAsset(int assetId, Decimal amount) throws IllegalStateException {
+    if (assetId == AssetSymbols.NO_ID) {
+      throw new IllegalArgumentException("Asset can't be null");
+    }
+    touchedAssets.set(assetId);
+    AssetBalance assetBalance = getBalance(assetId);
+    String asset = AssetSymbols.getSymbol(assetId);
     if (assetBalance == null) {
       throw new IllegalStateException("Can't decrease asset " + asset
           + " - no asset in the wallet");
@@ -61,9 +175,117 @@ public class Wallet implements Iterable<String> {
     }
 
     assetBalance.decrease(amount);
+    LotQueue assetLots = getLots(assetId);
+    if (assetLots != null) {
+      assetLots.consume(amount);
+    }
     if (assetBalance.getAmount().isZero()) {
-      assets.remove(asset);
+      removeBalance(assetId);
+      if (assetLots != null) {
+        lots[assetId] = null;
+      }
+    } else if (assetLots != null) {
+      updateObtainPrice(assetId, assetLots);
+    }
+  }
+
+  private void insertBalance(int assetId, AssetBalance balance) {
+    int index = -(find(assetId) + 1);
+    if (assetCount == assetIds.length) {
+      int capacity = Math.max(INITIAL_CAPACITY, assetIds.length * 2);
+      assetIds = Arrays.copyOf(assetIds, capacity);
+      balances = Arrays.copyOf(balances, capacity);
     }
+    System.arraycopy(assetIds, index, assetIds, index + 1, assetCount - index);
+    System.arraycopy(balances, index, balances, index + 1, assetCount - index);
+    assetIds[index] = assetId;
+    balances[index] = balance;
+    assetCount++;
+    sortedSymbols = null;
+  }
+
+  private void removeBalance(int assetId) {
+    int index = find(assetId);
+    assetCount--;
+    System.arraycopy(assetIds, index + 1, assetIds, index, assetCount - index);
+    System.arraycopy(balances, index + 1, balances, index, assetCount - index);
+    balances[assetCount] = null;
+    sortedSymbols = null;
+  }
+
+  private int find(int assetId) {
+    return Arrays.binarySearch(assetIds, 0, assetCount, assetId);
+  }
+
+  private void updateObtainPrice(int assetId, LotQueue assetLots) {
+    AssetBalance balance = getBalance(assetId);
+    balance.setObtainPrice(assetLots.getTotalCost().divide(balance.getAmount()));
+  }
+
+  private LotQueue getLots(int assetId) {
+    return lots != null && assetId >= 0 && assetId < lots.length ? lots[assetId] : null;
+  }
+
+  private void setLots(int assetId, LotQueue assetLots) {
+    if (assetId >= lots.length) {
+      lots = Arrays.copyOf(lots, Math.max(assetId + 1, lots.length * 2));
+    }
+    lots[assetId] = assetLots;
+  }
+
+  /**
+   * Get the cost basis of the given amount of an asset, if it was removed from the wallet now:
+   * the amount multiplied by the average obtain price, or the cost of the oldest lots with the
+   * FIFO strategy.
+   *
+   * @param asset  The asset
+   * @param amount The amount of the asset
+   * @return The cost basis in USD, zero if the asset is not in the wallet
+   * @throws IllegalStateException When there is not enough asset in the lots
+   */
+  public Decimal getCostBasis(String asset, Decimal amount) throws IllegalStateException {
+    int assetId = AssetSymbols.getId(asset);
+    LotQueue assetLots = getLots(assetId);
+    return assetLots != null ? assetLots.getCost(amount)
+        : amount.multiply(getAvgObtainPrice(assetId));
+  }
+
+  /**
+   * Get the cost basis of the given amount of an asset, if it was removed from the wallet
+   * right after removing another amount of the same asset (the offset). With the FIFO
+   * strategy, the cost of the lots following the offset is used; when the lots don't contain
+   * the offset plus the amount, the average obtain price is used instead (as for a fee which
+   * is paid from the asset obtained in the same transaction).
+   *
+   * @param asset  The asset
+   * @param amount The amount of the asset
+   * @param offset The amount of the asset removed before
+   * @return The cost basis, in USD
+   */
+  public Decimal getCostBasis(String asset, Decimal amount, Decimal offset) {
+    int assetId = AssetSymbols.getId(asset);
+    LotQueue assetLots = getLots(assetId);
+    AssetBalance balance = getBalance(assetId);
+    if (assetLots != null && balance != null
+        && !balance.getAmount().isLessThan(offset.add(amount))) {
+      return assetLots.getCost(amount, offset);
+    }
+    return amount.multiply(getAvgObtainPrice(assetId));
+  }
+
+  /**
+   * Get the lots from which the given amount of an asset would be removed now.
+   *
+   * @param asset  The asset
+   * @param amount The amount of the asset
+   * @return The lot parts, the oldest first; empty with the average cost basis, or when the
+   *     asset is not in the wallet
+   * @throws IllegalStateException When there is not enough asset in the lots
+   */
+  public List<LotPortion> getLotPortions(String asset, Decimal amount)
+      throws IllegalStateException {
+    LotQueue assetLots = getLots(AssetSymbols.getId(asset));
+    return assetLots != null ? assetLots.getPortions(amount) : List.of();
   }
 
 
@@ -73,7 +295,7 @@ public class Wallet implements Iterable<String> {
    * @return The number of assets in the wallet
    */
   public int getAssetCount() {
-    return assets.size();
+    return assetCount;
   }
 
   @Override
@@ -85,12 +307,25 @@ public class Wallet implements Iterable<String> {
       return false;
     }
     Wallet wallet = (Wallet) o;
-    return assets.equals(wallet.assets);
+    if (assetCount != wallet.assetCount) {
+      return false;
+    }
+    for (int i = 0; i < assetCount; ++i) {
+      if (assetIds[i] != wallet.assetIds[i] || !balances[i].equals(wallet.balances[i])) {
+        return false;
+      }
+    }
+    return true;
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(assets);
+    int hash = 0;
+    for (int i = 0; i < assetCount; ++i) {
+      hash = 31 * hash + assetIds[i];
+      hash = 31 * hash + balances[i].hashCode();
+    }
+    return hash;
   }
 
   /**
@@ -100,7 +335,17 @@ public class Wallet implements Iterable<String> {
    * @return The amount of asset or Decimal.ZERO if it is not found
    */
   public Decimal getAssetAmount(String asset) {
-    AssetBalance b = assets.get(asset);
+    return getAssetAmount(AssetSymbols.getId(asset));
+  }
+
+  /**
+   * Get the amount of asset stored in the wallet.
+   *
+   * @param assetId The ID of the asset to look for
+   * @return The amount of asset or Decimal.ZERO if it is not found
+   */
+  public Decimal getAssetAmount(int assetId) {
+    AssetBalance b = getBalance(assetId);
     return b != null ? b.getAmount() : Decimal.ZERO;
   }
 
@@ -111,13 +356,67 @@ public class Wallet implements Iterable<String> {
    * @return The average obtain price of asset or Decimal.ZERO if it is not found
    */
   public Decimal getAvgObtainPrice(String asset) {
-    AssetBalance b = assets.get(asset);
+    return getAvgObtainPrice(AssetSymbols.getId(asset));
+  }
+
+  /**
+   * Get average obtain price for a given asset.
+   *
+   * @param assetId The ID of the asset to look for
+   * @return The average obtain price of asset or Decimal.ZERO if it is not found
+   */
+  public Decimal getAvgObtainPrice(int assetId) {
+    AssetBalance b = getBalance(assetId);
     return b != null ? b.getObtainPrice() : Decimal.ZERO;
   }
 
+  private AssetBalance getBalance(int assetId) {
+    if (assetId == AssetSymbols.NO_ID) {
+      return null;
+    }
+    int index = find(assetId);
+    return index >= 0 ? balances[index] : null;
+  }
+
   @Override
   public Iterator<String> iterator() {
-    return assets.keySet().iterator();
+    if (sortedSymbols == null) {
+      String[] symbols = new String[assetCount];
+      for (int i = 0; i < assetCount; ++i) {
+        symbols[i] = AssetSymbols.getSymbol(assetIds[i]);
+      }
+      Arrays.sort(symbols);
+      sortedSymbols = symbols;
+    }
+    String[] symbols = sortedSymbols;
+    return new Iterator<>() {
+      private int next = 0;
+
+      @Override
+      public boolean hasNext() {
+        return next < symbols.length;
+      }
+
+      @Override
+      public String next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return symbols[next++];
+      }
+    };
+  }
+
+  /**
+   * Get the assets which have been added or decreased since this wallet was created. For a
+   * wallet copied from the previous snapshot these are the assets changed by one transaction.
+   *
+   * @return Read-only set of the touched assets
+   */
+  public Set<String> getTouchedAssets() {
+    Set<String> assets = new HashSet<>();
+    touchedAssets.stream().forEach(id -> assets.add(AssetSymbols.getSymbol(id)));
+    return Collections.unmodifiableSet(assets);
   }
 
   /**
@@ -131,4 +430,38 @@ public class Wallet implements Iterable<String> {
         .addAll(this)
         .removeAll(previous);
   }
+
+  /**
+   * Get wallet difference between this and another wallet, considering only the given assets.
+   * The cost is proportional to the number of the given assets, not to the size of the wallets.
+   *
+   * @param previous The previous wallet to compare against
+   * @param assets   The assets to compare
+   * @return The wallet difference: the change of amount for each of the given assets
+   */
+  public WalletDiff getDiffFrom(Wallet previous, Iterable<String> assets) {
+    WalletDiff diff = new WalletDiff();
+    for (String asset : assets) {
+      diff.add(asset, getAssetAmount(asset).subtract(previous.getAssetAmount(asset)));
+    }
+    return diff;
+  }
+
+  /**
+   * Get wallet difference between this and another wallet, considering only the assets touched
+   * since this wallet was created and the given extra assets.
+   *
+   * @param previous    The previous wallet to compare against
+   * @param extraAssets IDs of additional assets to compare
+   * @return The wallet difference: the change of amount for each compared asset
+   */
+  public WalletDiff getTouchedDiffFrom(Wallet previous, BitSet extraAssets) {
+    BitSet ids = (BitSet) touchedAssets.clone();
+    ids.or(extraAssets);
+    WalletDiff diff = new WalletDiff();
+    for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+      diff.add(id, getAssetAmount(id).subtract(previous.getAssetAmount(id)));
+    }
+    return diff;
+  }
 }
@@ -1,14 +1,22 @@
 package no.strazdins.data;
 
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Map;
-import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
 
 /**
  * Difference between two wallet snapshots - the changes made by a single transaction.
+ * The changes are stored in arrays sorted by the asset ID (see {@link AssetSymbols}), hence
+ * the cost of the operations depends only on the number of changed assets.
  */
 public class WalletDiff {
-  private final Map<String, Decimal> assetDiffs = new HashMap<>();
+  private int[] assetIds = new int[0];
+  private Decimal[] assetDiffs = new Decimal[0];
+  private int assetCount = 0;
 
   /**
    * Add the given amount of asset in the diff.
@@ -18,15 +26,58 @@ public class WalletDiff {
    * @return This same object, for method chaining
    */
   public WalletDiff add(String asset, Decimal amount) {
-    Decimal newAmount = assetDiffs.getOrDefault(asset, Decimal.ZERO).add(amount);
-    if (newAmount.isZero()) {
-      assetDiffs.remove(asset);
-    } else {
-      assetDiffs.put(asset, newAmount);
+    return add(AssetSymbols.intern(asset), amount);
+  }
+
+  /**
+   * Add the given amount of asset in the diff.
+   *
+   * @param assetId The ID of the asset to add
+   * @param amount  The amount to add. It can be negative.
+   * @return This same object, for method chaining
+   */
+  public WalletDiff add(int assetId, Decimal amount) {
+    if (assetId == AssetSymbols.NO_ID) {
+      throw new IllegalArgumentException("Asset can't be null");
+    }
+    int index = find(assetId);
+    Decimal newAmount = index >= 0 ? assetDiffs[index].add(amount) : amount;
+    if (index >= 0) {
+      if (newAmount.isZero()) {
+        remove(index);
+      } else {
+        assetDiffs[index] = newAmount;
+      }
+    } else if (!newAmount.isZero()) {
+      insert(-(index + 1), assetId, newAmount);
     }
     return this;
   }
 
+  private int find(int assetId) {
+    return Arrays.binarySearch(assetIds, 0, assetCount, assetId);
+  }
+
+  private void insert(int index, int assetId, Decimal amount) {
+    if (assetCount == assetIds.length) {
+      int capacity = Math.max(4, assetIds.length * 2);
+      assetIds = Arrays.copyOf(assetIds, capacity);
+      assetDiffs = Arrays.copyOf(assetDiffs, capacity);
+    }
+    System.arraycopy(assetIds, index, assetIds, index + 1, assetCount - index);
+    System.arraycopy(assetDiffs, index, assetDiffs, index + 1, assetCount - index);
+    assetIds[index] = assetId;
+    assetDiffs[index] = amount;
+    assetCount++;
+  }
+
+  private void remove(int index) {
+    assetCount--;
+    System.arraycopy(assetIds, index + 1, assetIds, index, assetCount - index);
+    System.arraycopy(assetDiffs, index + 1, assetDiffs, index, assetCount - index);
+    assetDiffs[assetCount] = null;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) {
@@ -36,12 +87,25 @@ public class WalletDiff {
       return false;
     }
     WalletDiff that = (WalletDiff) o;
-    return Objects.equals(assetDiffs, that.assetDiffs);
+    if (assetCount != that.assetCount) {
+      return false;
+    }
+    for (int i = 0; i < assetCount; ++i) {
+      if (assetIds[i] != that.assetIds[i] || !assetDiffs[i].equals(that.assetDiffs[i])) {
+        return false;
+      }
+    }
+    return true;
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(assetDiffs);
+    int hash = 0;
+    for (int i = 0; i < assetCount; ++i) {
+      hash = 31 * hash + assetIds[i];
+      hash = 31 * hash + assetDiffs[i].hashCode();
+    }
+    return hash;
   }
 
   /**
@@ -51,12 +115,53 @@ public class WalletDiff {
    * @return The amount of asset in the diff or Decimal.ZERO if not found
    */
   public Decimal getAmount(String asset) {
-    return assetDiffs.getOrDefault(asset, Decimal.ZERO);
+    return getAmount(AssetSymbols.getId(asset));
+  }
+
+  /**
+   * Get the amount of given asset stored in this diff.
+   *
+   * @param assetId The ID of the asset to check
+   * @return The amount of asset in the diff or Decimal.ZERO if not found
+   */
+  public Decimal getAmount(int assetId) {
+    int index = assetId != AssetSymbols.NO_ID ? find(assetId) : -1;
+    return index >= 0 ? assetDiffs[index] : Decimal.ZERO;
+  }
+
+  /**
+   * Get the assets with a non-zero change in this diff.
+   *
+   * @return The changed assets
+   */
+  public Set<String> getAssets() {
+    Set<String> changed = new HashSet<>();
+    for (int i = 0; i < assetCount; ++i) {
+      changed.add(AssetSymbols.getSymbol(assetIds[i]));
+    }
+    return Collections.unmodifiableSet(changed);
+  }
+
+  /**
+   * Get the IDs of the assets with a non-zero change in this diff.
+   *
+   * @return The IDs of the changed assets
+   */
+  public BitSet getAssetIds() {
+    BitSet ids = new BitSet();
+    for (int i = 0; i < assetCount; ++i) {
+      ids.set(assetIds[i]);
+    }
+    return ids;
   }
 
   @Override
   public String toString() {
-    return assetDiffs.toString();
+    Map<String, Decimal> changes = new TreeMap<>();
+    for (int i = 0; i < assetCount; ++i) {
+      changes.put(AssetSymbols.getSymbol(assetIds[i]), assetDiffs[i]);
+    }
+    return changes.toString();
   }
 
   /**
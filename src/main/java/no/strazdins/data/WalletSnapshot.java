@@ -1,6 +1,7 @@
 package no.strazdins.data;
 
 import java.util.Objects;
+import no.strazdins.jfr.WalletCopyEvent;
 import no.strazdins.tool.TimeConverter;
 import no.strazdins.transaction.Transaction;
 
@@ -9,8 +10,10 @@ import no.strazdins.transaction.Transaction;
  */
 public class WalletSnapshot {
   private final Transaction transaction;
-  private Wallet wallet;
+  private final Wallet wallet;
   private Decimal pnl;
+  // When true, the wallet is shared with the previous snapshot and must not be changed
+  private final boolean walletNeutral;
 
   /**
    * Create a wallet snapshot.
@@ -19,9 +22,15 @@ public class WalletSnapshot {
    * @param pnl         Total running Profit & Loss (PNL) accumulated so far
    */
   public WalletSnapshot(Transaction transaction, Decimal pnl) {
+    this(transaction, new Wallet(), pnl, false);
+  }
+
+  private WalletSnapshot(Transaction transaction, Wallet wallet, Decimal pnl,
+                         boolean walletNeutral) {
     this.transaction = transaction;
-    this.wallet = new Wallet();
+    this.wallet = wallet;
     this.pnl = pnl;
+    this.walletNeutral = walletNeutral;
   }
 
   /**
@@ -33,6 +42,18 @@ public class WalletSnapshot {
     return new WalletSnapshot(null, Decimal.ZERO);
   }
 
+  /**
+   * Create a starting snapshot with the given wallet and PNL, for example, one restored from
+   * an earlier run. The snapshot is not related to any transaction.
+   *
+   * @param wallet The wallet content
+   * @param pnl    Total running Profit & Loss (PNL) accumulated so far
+   * @return The starting snapshot
+   */
+  public static WalletSnapshot createInitial(Wallet wallet, Decimal pnl) {
+    return new WalletSnapshot(null, wallet, pnl, false);
+  }
+
   /**
    * Create a new wallet transaction which has the same data as this, and is ready to be
    * used as a template for "snapshot after transaction t".
@@ -41,13 +62,52 @@ public class WalletSnapshot {
    * @return A snapshot - copy of the current one, with the given transaction
    */
   public WalletSnapshot prepareForTransaction(Transaction transaction) {
-    WalletSnapshot ws = new WalletSnapshot(transaction, new Decimal(pnl));
-    ws.wallet = new Wallet(this.wallet);
-    return ws;
+    WalletCopyEvent event = new WalletCopyEvent();
+    event.begin();
+    Wallet walletCopy = new Wallet(this.wallet);
+    event.end();
+    if (event.shouldCommit()) {
+      event.assetCount = walletCopy.getAssetCount();
+      event.commit();
+    }
+    return new WalletSnapshot(transaction, walletCopy, pnl, false);
+  }
+
+  /**
+   * Create a snapshot for a transaction which does not change the wallet, for example, moving
+   * an asset between the Spot and Earn accounts. The new snapshot references the same wallet
+   * instance as this snapshot - no copy is made - and the wallet can't be changed through it.
+   *
+   * @param transaction The wallet-neutral transaction for which the snapshot is created
+   * @return A snapshot sharing the wallet and PNL of the current one, with the given transaction
+   */
+  public WalletSnapshot prepareForWalletNeutralTransaction(Transaction transaction) {
+    return new WalletSnapshot(transaction, wallet, pnl, true);
+  }
+
+  /**
+   * Check whether this snapshot was created for a wallet-neutral transaction - it shares the
+   * wallet with the previous snapshot.
+   *
+   * @return True if the wallet is the same as in the previous snapshot
+   */
+  public boolean isWalletNeutral() {
+    return walletNeutral;
   }
 
-  public void addAsset(String asset, Decimal amount, Decimal obtainPrice) {
-    wallet.addAsset(asset, amount, obtainPrice);
+  /**
+   * Add an asset to the wallet.
+   *
+   * @param asset       The asset to add
+   * @param amount      The amount of the asset
+   * @param obtainPrice The price at which the asset was obtained
+   * @throws IllegalStateException When called on a wallet-neutral snapshot
+   */
+  public void addAsset(String asset, Decimal amount, Decimal obtainPrice)
+      throws IllegalStateException {
+    requireOwnWallet();
+    long obtainTime = transaction != null ? transaction.getUtcTime() : 0;
+    wallet.addAsset(asset, amount, obtainPrice, obtainTime);
   }
 
   /**
@@ -55,11 +115,21 @@ public class WalletSnapshot {
    *
    * @param asset  The asset to decrease
    * @param amount The decrease amount
+   * @throws IllegalStateException When called on a wallet-neutral snapshot or when there is
+   *                               not enough asset in the wallet
    */
-  public void decreaseAsset(String asset, Decimal amount) {
+  public void decreaseAsset(String asset, Decimal amount) throws IllegalStateException {
+    requireOwnWallet();
     wallet.decreaseAsset(asset, amount);
   }
 
+  private void requireOwnWallet() throws IllegalStateException {
+    if (walletNeutral) {
+      throw new IllegalStateException("Can't change the wallet of a wallet-neutral snapshot "
+          + "after " + transaction);
+    }
+  }
+
 
   @Override
   public String toString() {
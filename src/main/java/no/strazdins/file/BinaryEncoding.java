@@ -0,0 +1,129 @@
+package no.strazdins.file;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Primitive encodings shared by the binary file formats: variable-length integers
+ * (LEB128-style, 7 bits per byte), zig-zag encoding for signed values and length-prefixed
+ * UTF-8 strings.
+ */
+public class BinaryEncoding {
+  /**
+   * Not allowed to create instances of this class.
+   */
+  private BinaryEncoding() {
+  }
+
+  /**
+   * Write an unsigned variable-length long. Small values take one byte, the largest ones - ten.
+   *
+   * @param out   The stream to write to
+   * @param value The value to write, treated as unsigned
+   * @throws IOException When writing fails
+   */
+  public static void writeVarLong(DataOutputStream out, long value) throws IOException {
+    while ((value & ~0x7FL) != 0) {
+      out.writeByte((int) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    out.writeByte((int) value);
+  }
+
+  /**
+   * Write a signed long, zig-zag encoded so that values close to zero take few bytes.
+   *
+   * @param out   The stream to write to
+   * @param value The value to write
+   * @throws IOException When writing fails
+   */
+  public static void writeSignedVarLong(DataOutputStream out, long value) throws IOException {
+    writeVarLong(out, (value << 1) ^ (value >> 63));
+  }
+
+  /**
+   * Write a string: its UTF-8 byte count as a variable-length integer, followed by the bytes.
+   *
+   * @param out The stream to write to
+   * @param s   The string to write, must not be null
+   * @throws IOException When writing fails
+   */
+  public static void writeString(DataOutputStream out, String s) throws IOException {
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    writeVarLong(out, bytes.length);
+    out.write(bytes);
+  }
+
+  /**
+   * Read an unsigned variable-length long, written by {@link #writeVarLong}.
+   *
+   * @param buffer The buffer to read from
+   * @return The decoded value
+   * @throws IOException When the buffer ends prematurely or the value is malformed
+   */
+  public static long readVarLong(ByteBuffer buffer) throws IOException {
+    long value = 0;
+    int shift = 0;
+    try {
+      byte b;
+      do {
+        if (shift > 63) {
+          throw new IOException("Malformed variable-length integer");
+        }
+        b = buffer.get();
+        value |= (long) (b & 0x7F) << shift;
+        shift += 7;
+      } while ((b & 0x80) != 0);
+    } catch (BufferUnderflowException e) {
+      throw new IOException("Unexpected end of binary data");
+    }
+    return value;
+  }
+
+  /**
+   * Read an unsigned variable-length integer which must fit in an int.
+   *
+   * @param buffer The buffer to read from
+   * @return The decoded value
+   * @throws IOException When the buffer ends prematurely or the value does not fit in an int
+   */
+  public static int readVarInt(ByteBuffer buffer) throws IOException {
+    long value = readVarLong(buffer);
+    if (value < 0 || value > Integer.MAX_VALUE) {
+      throw new IOException("Integer value out of range: " + value);
+    }
+    return (int) value;
+  }
+
+  /**
+   * Read a signed long, written by {@link #writeSignedVarLong}.
+   *
+   * @param buffer The buffer to read from
+   * @return The decoded value
+   * @throws IOException When the buffer ends prematurely or the value is malformed
+   */
+  public static long readSignedVarLong(ByteBuffer buffer) throws IOException {
+    long encoded = readVarLong(buffer);
+    return (encoded >>> 1) ^ -(encoded & 1);
+  }
+
+  /**
+   * Read a string, written by {@link #writeString}.
+   *
+   * @param buffer The buffer to read from
+   * @return The decoded string
+   * @throws IOException When the buffer ends prematurely
+   */
+  public static String readString(ByteBuffer buffer) throws IOException {
+    int length = readVarInt(buffer);
+    if (length > buffer.remaining()) {
+      throw new IOException("Unexpected end of binary data");
+    }
+    byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
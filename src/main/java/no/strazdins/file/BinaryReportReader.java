@@ -0,0 +1,125 @@
+package no.strazdins.file;
+
+import static no.strazdins.file.BinaryEncoding.readSignedVarLong;
+import static no.strazdins.file.BinaryEncoding.readString;
+import static no.strazdins.file.BinaryEncoding.readVarInt;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a binary columnar report file, written by {@link BinaryReportWriter}.
+ */
+public class BinaryReportReader {
+  /**
+   * Not allowed to create instances of this class.
+   */
+  private BinaryReportReader() {
+  }
+
+  /**
+   * Read a binary columnar report file.
+   *
+   * @param inputFilePath Path to the binary file
+   * @return The report, in columnar form
+   * @throws IOException When the file can't be read or has an unexpected format
+   */
+  public static ColumnarReport readFromFile(String inputFilePath) throws IOException {
+    try (FileChannel channel = FileChannel.open(Path.of(inputFilePath),
+        StandardOpenOption.READ)) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      return read(buffer);
+    } catch (NoSuchFileException e) {
+      throw new IOException("File not found: " + inputFilePath);
+    }
+  }
+
+  private static ColumnarReport read(ByteBuffer buffer) throws IOException {
+    checkHeader(buffer);
+    List<String> types = readDictionary(buffer);
+    List<String> assets = readDictionary(buffer);
+    int rowCount = readVarInt(buffer);
+
+    long[] timestamps = new long[rowCount];
+    long timestamp = 0;
+    for (int row = 0; row < rowCount; ++row) {
+      timestamp += readSignedVarLong(buffer);
+      timestamps[row] = timestamp;
+    }
+    int[] typeIds = readIds(buffer, rowCount, 0, types.size());
+    int[] baseAssetIds = readIds(buffer, rowCount, 1, assets.size());
+    int[] quoteAssetIds = readIds(buffer, rowCount, 1, assets.size());
+    int[] feeAssetIds = readIds(buffer, rowCount, 1, assets.size());
+    long[][] values = new long[ColumnarReport.Column.values().length][];
+    for (ColumnarReport.Column column : ColumnarReport.Column.values()) {
+      values[column.ordinal()] = readValues(buffer, rowCount);
+    }
+
+    int[] balanceOffsets = new int[rowCount + 1];
+    int balanceCount = 0;
+    for (int row = 0; row < rowCount; ++row) {
+      balanceOffsets[row] = balanceCount;
+      balanceCount += readVarInt(buffer);
+    }
+    balanceOffsets[rowCount] = balanceCount;
+    int[] balanceAssetIds = readIds(buffer, balanceCount, 0, assets.size());
+    long[] balanceAmounts = readValues(buffer, balanceCount);
+    long[] balanceObtainPrices = readValues(buffer, balanceCount);
+
+    return new ColumnarReport(rowCount, timestamps, types, typeIds, assets, baseAssetIds,
+        quoteAssetIds, feeAssetIds, values, balanceOffsets, balanceAssetIds, balanceAmounts,
+        balanceObtainPrices);
+  }
+
+  private static void checkHeader(ByteBuffer buffer) throws IOException {
+    try {
+      if (buffer.getInt() != BinaryReportWriter.MAGIC) {
+        throw new IOException("Not a binary report file");
+      }
+      int version = buffer.get();
+      if (version != BinaryReportWriter.VERSION) {
+        throw new IOException("Unsupported binary report version: " + version);
+      }
+    } catch (BufferUnderflowException e) {
+      throw new IOException("Not a binary report file");
+    }
+  }
+
+  private static List<String> readDictionary(ByteBuffer buffer) throws IOException {
+    int count = readVarInt(buffer);
+    List<String> strings = new ArrayList<>(count);
+    for (int i = 0; i < count; ++i) {
+      strings.add(readString(buffer));
+    }
+    return strings;
+  }
+
+  private static int[] readIds(ByteBuffer buffer, int count, int shift, int dictionarySize)
+      throws IOException {
+    int[] ids = new int[count];
+    for (int i = 0; i < count; ++i) {
+      int id = readVarInt(buffer) - shift;
+      if (id >= dictionarySize) {
+        throw new IOException("Invalid dictionary reference: " + id);
+      }
+      ids[i] = id;
+    }
+    return ids;
+  }
+
+  private static long[] readValues(ByteBuffer buffer, int count) throws IOException {
+    long[] values = new long[count];
+    for (int i = 0; i < count; ++i) {
+      values[i] = readSignedVarLong(buffer);
+    }
+    return values;
+  }
+}
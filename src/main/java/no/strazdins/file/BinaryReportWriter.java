@@ -0,0 +1,118 @@
+package no.strazdins.file;
+
+import static no.strazdins.file.BinaryEncoding.writeSignedVarLong;
+import static no.strazdins.file.BinaryEncoding.writeString;
+import static no.strazdins.file.BinaryEncoding.writeVarLong;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+import no.strazdins.process.Report;
+
+/**
+ * Writes the transaction log and the balance log of a report to a compact binary columnar
+ * file. The layout (all integers are variable-length, signed ones zig-zag encoded):
+ * <ul>
+ *   <li>Header: magic number "PNLB" (4 bytes), format version (1 byte)</li>
+ *   <li>Dictionaries: transaction types, then assets - count followed by the strings</li>
+ *   <li>Row count</li>
+ *   <li>Timestamps: the first one as is, the rest as deltas from the previous timestamp</li>
+ *   <li>Type ids, then base, quote and fee asset ids (id + 1, 0 means "no asset")</li>
+ *   <li>Decimal columns, as longs scaled by 10^8, in {@link ColumnarReport.Column} order</li>
+ *   <li>Balance log: asset count for each row, then asset ids, amounts and obtain prices of
+ *       all the balances</li>
+ * </ul>
+ * Each column is stored contiguously, so that a reader can load it with one sequential pass.
+ */
+public class BinaryReportWriter {
+  static final int MAGIC = 0x504E4C42;
+  static final int VERSION = 1;
+
+  /**
+   * Not allowed to create instances of this class.
+   */
+  private BinaryReportWriter() {
+  }
+
+  /**
+   * Write the report to a binary columnar file.
+   *
+   * @param report         The report content
+   * @param outputFilePath Path to the binary file where to store the result
+   * @throws IOException When something goes wrong while writing the file or when some
+   *                     decimal value is too large to be stored
+   */
+  public static void writeReportToFile(Report report, String outputFilePath)
+      throws IOException {
+    ColumnarReport columns;
+    try {
+      columns = ColumnarReport.fromReport(report);
+    } catch (ArithmeticException e) {
+      throw new IOException("Value too large for the binary export: " + e.getMessage());
+    }
+    writeToFile(columns, outputFilePath);
+  }
+
+  /**
+   * Write a columnar report to a binary file.
+   *
+   * @param report         The columnar report
+   * @param outputFilePath Path to the binary file where to store the result
+   * @throws IOException When something goes wrong while writing the file
+   */
+  public static void writeToFile(ColumnarReport report, String outputFilePath)
+      throws IOException {
+    try (DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(new FileOutputStream(outputFilePath)))) {
+      out.writeInt(MAGIC);
+      out.writeByte(VERSION);
+      writeDictionary(out, report.getTypes());
+      writeDictionary(out, report.getAssets());
+      int rowCount = report.getRowCount();
+      writeVarLong(out, rowCount);
+
+      long previousTimestamp = 0;
+      for (long timestamp : report.getTimestamps()) {
+        writeSignedVarLong(out, timestamp - previousTimestamp);
+        previousTimestamp = timestamp;
+      }
+      writeIds(out, report.getTypeIds(), 0);
+      writeIds(out, report.getBaseAssetIds(), 1);
+      writeIds(out, report.getQuoteAssetIds(), 1);
+      writeIds(out, report.getFeeAssetIds(), 1);
+      for (ColumnarReport.Column column : ColumnarReport.Column.values()) {
+        writeValues(out, report.getValues(column));
+      }
+
+      int[] balanceOffsets = report.getBalanceOffsets();
+      for (int row = 0; row < rowCount; ++row) {
+        writeVarLong(out, balanceOffsets[row + 1] - balanceOffsets[row]);
+      }
+      writeIds(out, report.getBalanceAssetIds(), 0);
+      writeValues(out, report.getBalanceAmounts());
+      writeValues(out, report.getBalanceObtainPrices());
+    }
+  }
+
+  private static void writeDictionary(DataOutputStream out, List<String> strings)
+      throws IOException {
+    writeVarLong(out, strings.size());
+    for (String s : strings) {
+      writeString(out, s);
+    }
+  }
+
+  private static void writeIds(DataOutputStream out, int[] ids, int shift) throws IOException {
+    for (int id : ids) {
+      writeVarLong(out, (long) id + shift);
+    }
+  }
+
+  private static void writeValues(DataOutputStream out, long[] values) throws IOException {
+    for (long value : values) {
+      writeSignedVarLong(out, value);
+    }
+  }
+}
@@ -0,0 +1,339 @@
+package no.strazdins.file;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import no.strazdins.data.Decimal;
+import no.strazdins.data.Wallet;
+import no.strazdins.data.WalletSnapshot;
+import no.strazdins.process.Report;
+import no.strazdins.transaction.Transaction;
+
+/**
+ * Column-oriented copy of the transaction log and the balance log of a report. Strings are
+ * dictionary-encoded (each distinct string is stored once, rows refer to it by index), decimals
+ * are stored as longs scaled by 10^8. This is the in-memory form of the binary export, see
+ * {@link BinaryReportWriter} and {@link BinaryReportReader}.
+ */
+public class ColumnarReport {
+  /**
+   * Decimal columns of the transaction log, in the same order as in the CSV transaction log.
+   */
+  public enum Column {
+    AMOUNT, PRICE, QUOTE_AMOUNT, FEE, FEE_IN_USDT, OBTAIN_PRICE, PNL,
+    AMOUNT_IN_WALLET, AVG_OBTAIN_PRICE, RUNNING_PNL
+  }
+
+  // Used in the asset columns when the transaction has no such asset (null)
+  static final int NO_ASSET = -1;
+
+  private final int rowCount;
+  private final long[] timestamps;
+  private final List<String> types;
+  private final int[] typeIds;
+  private final List<String> assets;
+  private final int[] baseAssetIds;
+  private final int[] quoteAssetIds;
+  private final int[] feeAssetIds;
+  private final long[][] values;
+  // Balance log: the balances of row r are stored at indices balanceOffsets[r]
+  // (inclusive) to balanceOffsets[r + 1] (exclusive)
+  private final int[] balanceOffsets;
+  private final int[] balanceAssetIds;
+  private final long[] balanceAmounts;
+  private final long[] balanceObtainPrices;
+
+  ColumnarReport(int rowCount, long[] timestamps, List<String> types, int[] typeIds,
+                 List<String> assets, int[] baseAssetIds, int[] quoteAssetIds,
+                 int[] feeAssetIds, long[][] values, int[] balanceOffsets,
+                 int[] balanceAssetIds, long[] balanceAmounts, long[] balanceObtainPrices) {
+    this.rowCount = rowCount;
+    this.timestamps = timestamps;
+    this.types = types;
+    this.typeIds = typeIds;
+    this.assets = assets;
+    this.baseAssetIds = baseAssetIds;
+    this.quoteAssetIds = quoteAssetIds;
+    this.feeAssetIds = feeAssetIds;
+    this.values = values;
+    this.balanceOffsets = balanceOffsets;
+    this.balanceAssetIds = balanceAssetIds;
+    this.balanceAmounts = balanceAmounts;
+    this.balanceObtainPrices = balanceObtainPrices;
+  }
+
+  /**
+   * Convert the wallet snapshots of a report to the columnar form.
+   *
+   * @param report The report to convert
+   * @return Columnar copy of the transaction log and balance log
+   * @throws ArithmeticException When a decimal value is too large to be stored as a scaled long
+   */
+  public static ColumnarReport fromReport(Report report) throws ArithmeticException {
+    Dictionary typeDictionary = new Dictionary();
+    Dictionary assetDictionary = new Dictionary();
+    List<WalletSnapshot> snapshots = new ArrayList<>();
+    int balanceCount = 0;
+    for (WalletSnapshot snapshot : report) {
+      snapshots.add(snapshot);
+      balanceCount += snapshot.getWallet().getAssetCount();
+    }
+
+    int rowCount = snapshots.size();
+    long[] timestamps = new long[rowCount];
+    int[] typeIds = new int[rowCount];
+    int[] baseAssetIds = new int[rowCount];
+    int[] quoteAssetIds = new int[rowCount];
+    int[] feeAssetIds = new int[rowCount];
+    long[][] values = new long[Column.values().length][rowCount];
+    int[] balanceOffsets = new int[rowCount + 1];
+    int[] balanceAssetIds = new int[balanceCount];
+    long[] balanceAmounts = new long[balanceCount];
+    long[] balanceObtainPrices = new long[balanceCount];
+
+    int b = 0;
+    for (int row = 0; row < rowCount; ++row) {
+      WalletSnapshot snapshot = snapshots.get(row);
+      Transaction t = snapshot.getTransaction();
+      timestamps[row] = snapshot.getTimestamp();
+      typeIds[row] = typeDictionary.getId(t.getType());
+      baseAssetIds[row] = assetDictionary.getId(t.getBaseCurrency());
+      quoteAssetIds[row] = assetDictionary.getId(t.getQuoteCurrency());
+      feeAssetIds[row] = assetDictionary.getId(t.getFeeCurrency());
+      values[Column.AMOUNT.ordinal()][row] = t.getBaseCurrencyAmount().toScaledLong();
+      values[Column.PRICE.ordinal()][row] = t.getAvgPriceInUsdt().toScaledLong();
+      values[Column.QUOTE_AMOUNT.ordinal()][row] = t.getQuoteAmount().toScaledLong();
+      values[Column.FEE.ordinal()][row] = t.getFee().toScaledLong();
+      values[Column.FEE_IN_USDT.ordinal()][row] = t.getFeeInUsdt().toScaledLong();
+      values[Column.OBTAIN_PRICE.ordinal()][row] = t.getObtainPrice().toScaledLong();
+      values[Column.PNL.ordinal()][row] = t.getPnl().toScaledLong();
+      values[Column.AMOUNT_IN_WALLET.ordinal()][row] =
+          snapshot.getBaseCurrencyAmountInWallet().toScaledLong();
+      values[Column.AVG_OBTAIN_PRICE.ordinal()][row] =
+          snapshot.getAvgBaseObtainPrice().toScaledLong();
+      values[Column.RUNNING_PNL.ordinal()][row] = snapshot.getPnl().toScaledLong();
+
+      balanceOffsets[row] = b;
+      Wallet wallet = snapshot.getWallet();
+      for (String asset : wallet) {
+        balanceAssetIds[b] = assetDictionary.getId(asset);
+        balanceAmounts[b] = wallet.getAssetAmount(asset).toScaledLong();
+        balanceObtainPrices[b] = wallet.getAvgObtainPrice(asset).toScaledLong();
+        b++;
+      }
+    }
+    balanceOffsets[rowCount] = b;
+
+    return new ColumnarReport(rowCount, timestamps, typeDictionary.strings, typeIds,
+        assetDictionary.strings, baseAssetIds, quoteAssetIds, feeAssetIds, values,
+        balanceOffsets, balanceAssetIds, balanceAmounts, balanceObtainPrices);
+  }
+
+  /**
+   * Get the number of rows (wallet snapshots) in the report.
+   *
+   * @return The number of rows
+   */
+  public int getRowCount() {
+    return rowCount;
+  }
+
+  /**
+   * Get the timestamp of a row.
+   *
+   * @param row Index of the row
+   * @return UTC timestamp of the transaction, including milliseconds
+   */
+  public long getTimestamp(int row) {
+    return timestamps[row];
+  }
+
+  /**
+   * Get the transaction type of a row.
+   *
+   * @param row Index of the row
+   * @return Human-readable type of the transaction, as in the CSV transaction log
+   */
+  public String getType(int row) {
+    return types.get(typeIds[row]);
+  }
+
+  /**
+   * Get the base currency (main asset) of a row.
+   *
+   * @param row Index of the row
+   * @return The base currency or null if the transaction has none
+   */
+  public String getBaseCurrency(int row) {
+    return getAsset(baseAssetIds[row]);
+  }
+
+  /**
+   * Get the quote currency of a row.
+   *
+   * @param row Index of the row
+   * @return The quote currency
+   */
+  public String getQuoteCurrency(int row) {
+    return getAsset(quoteAssetIds[row]);
+  }
+
+  /**
+   * Get the fee currency of a row.
+   *
+   * @param row Index of the row
+   * @return The fee currency
+   */
+  public String getFeeCurrency(int row) {
+    return getAsset(feeAssetIds[row]);
+  }
+
+  /**
+   * Get a decimal value of a row, as a long scaled by 10^8.
+   *
+   * @param column The column of interest
+   * @param row    Index of the row
+   * @return The value, multiplied by 10^8
+   */
+  public long getScaledValue(Column column, int row) {
+    return values[column.ordinal()][row];
+  }
+
+  /**
+   * Get a decimal value of a row.
+   *
+   * @param column The column of interest
+   * @param row    Index of the row
+   * @return The value
+   */
+  public Decimal getValue(Column column, int row) {
+    return Decimal.fromScaledLong(getScaledValue(column, row));
+  }
+
+  /**
+   * Get the number of assets held in the wallet after the transaction of the given row.
+   *
+   * @param row Index of the row
+   * @return The number of held assets
+   */
+  public int getBalanceCount(int row) {
+    return balanceOffsets[row + 1] - balanceOffsets[row];
+  }
+
+  /**
+   * Get a held asset after the transaction of the given row.
+   *
+   * @param row   Index of the row
+   * @param index Index of the balance within the row, 0 &lt;= index &lt; getBalanceCount(row)
+   * @return The held asset
+   */
+  public String getBalanceAsset(int row, int index) {
+    return getAsset(balanceAssetIds[getBalanceIndex(row, index)]);
+  }
+
+  /**
+   * Get the amount of a held asset after the transaction of the given row.
+   *
+   * @param row   Index of the row
+   * @param index Index of the balance within the row, 0 &lt;= index &lt; getBalanceCount(row)
+   * @return The held amount, multiplied by 10^8
+   */
+  public long getScaledBalanceAmount(int row, int index) {
+    return balanceAmounts[getBalanceIndex(row, index)];
+  }
+
+  /**
+   * Get the average obtain-price of a held asset after the transaction of the given row.
+   *
+   * @param row   Index of the row
+   * @param index Index of the balance within the row, 0 &lt;= index &lt; getBalanceCount(row)
+   * @return The average obtain price in USDT, multiplied by 10^8
+   */
+  public long getScaledBalanceObtainPrice(int row, int index) {
+    return balanceObtainPrices[getBalanceIndex(row, index)];
+  }
+
+  private int getBalanceIndex(int row, int index) {
+    if (index < 0 || index >= getBalanceCount(row)) {
+      throw new IndexOutOfBoundsException("Balance index " + index + " out of range for row "
+          + row);
+    }
+    return balanceOffsets[row] + index;
+  }
+
+  private String getAsset(int id) {
+    return id != NO_ASSET ? assets.get(id) : null;
+  }
+
+  // Package-private raw access for the binary writer
+
+  long[] getTimestamps() {
+    return timestamps;
+  }
+
+  List<String> getTypes() {
+    return types;
+  }
+
+  int[] getTypeIds() {
+    return typeIds;
+  }
+
+  List<String> getAssets() {
+    return assets;
+  }
+
+  int[] getBaseAssetIds() {
+    return baseAssetIds;
+  }
+
+  int[] getQuoteAssetIds() {
+    return quoteAssetIds;
+  }
+
+  int[] getFeeAssetIds() {
+    return feeAssetIds;
+  }
+
+  long[] getValues(Column column) {
+    return values[column.ordinal()];
+  }
+
+  int[] getBalanceOffsets() {
+    return balanceOffsets;
+  }
+
+  int[] getBalanceAssetIds() {
+    return balanceAssetIds;
+  }
+
+  long[] getBalanceAmounts() {
+    return balanceAmounts;
+  }
+
+  long[] getBalanceObtainPrices() {
+    return balanceObtainPrices;
+  }
+
+  /**
+   * Assigns a dense id to each distinct string, in order of appearance.
+   */
+  private static class Dictionary {
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> strings = new ArrayList<>();
+
+    int getId(String s) {
+      if (s == null) {
+        return NO_ASSET;
+      }
+      Integer id = ids.get(s);
+      if (id == null) {
+        id = strings.size();
+        ids.put(s, id);
+        strings.add(s);
+      }
+      return id;
+    }
+  }
+}
@@ -2,9 +2,17 @@ package no.strazdins.file;
 
 
 import java.io.BufferedReader;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -15,6 +23,8 @@ public class CsvFileParser {
   private static final String COMMENT_CHARACTER = "#";
   private static final Logger log = LogManager.getLogger(CsvFileParser.class);
   private final BufferedReader reader;
+  private final CountingInputStream counter;
+  private final long startOffset;
 
   private String nextRow = null;
 
@@ -28,12 +38,38 @@ public class CsvFileParser {
    */
   public CsvFileParser(String inputFilePath) throws IOException {
     try {
-      reader = new BufferedReader(new FileReader(inputFilePath));
+      counter = new CountingInputStream(new FileInputStream(inputFilePath), Long.MAX_VALUE);
+      reader = new BufferedReader(new InputStreamReader(counter));
+      startOffset = 0;
     } catch (FileNotFoundException e) {
       throw new IOException("File not found: " + inputFilePath);
     }
   }
 
+  /**
+   * Create a new CSV file parser which reads only a part of the file - from the given byte
+   * offset (inclusive) up to the given byte offset (exclusive). The start offset must be at
+   * the beginning of a row.
+   *
+   * @param inputFilePath Path to the CSV file to process
+   * @param startOffset   The byte offset where to start reading
+   * @param endOffset     The byte offset where to stop reading
+   * @throws IOException When the file is not found or could not be read
+   */
+  public CsvFileParser(String inputFilePath, long startOffset, long endOffset)
+      throws IOException {
+    try {
+      FileChannel channel = FileChannel.open(Path.of(inputFilePath), StandardOpenOption.READ);
+      channel.position(startOffset);
+      counter = new CountingInputStream(Channels.newInputStream(channel),
+          endOffset - startOffset);
+      reader = new BufferedReader(new InputStreamReader(counter));
+      this.startOffset = startOffset;
+    } catch (NoSuchFileException e) {
+      throw new IOException("File not found: " + inputFilePath);
+    }
+  }
+
   /**
    * Check if there are unread rows left in the CSV file.
    *
@@ -104,4 +140,74 @@ public class CsvFileParser {
     }
     return values;
   }
+
+  /**
+   * Get the byte offset in the file where the reading started.
+   *
+   * @return The byte offset from the start of the file, 0 unless only a part is read
+   */
+  public long getStartOffset() {
+    return startOffset;
+  }
+
+  /**
+   * Get the byte offset in the file up to which it has been read. The file is read in blocks,
+   * hence the offset may be ahead of the last returned row by the size of a block.
+   *
+   * @return The byte offset from the start of the file
+   */
+  public long getByteOffset() {
+    return startOffset + counter.getCount();
+  }
+
+  /**
+   * Close the underlying file.
+   *
+   * @throws IOException When closing fails
+   */
+  public void close() throws IOException {
+    reader.close();
+  }
+
+  /**
+   * An input stream which counts the bytes read and stops after the given number of bytes.
+   */
+  private static class CountingInputStream extends FilterInputStream {
+    private final long limit;
+    private long remaining;
+
+    CountingInputStream(InputStream in, long limit) {
+      super(in);
+      this.limit = limit;
+      this.remaining = limit;
+    }
+
+    long getCount() {
+      return limit - remaining;
+    }
+
+    @Override
+    public int read() throws IOException {
+      if (remaining <= 0) {
+        return -1;
+      }
+      int b = super.read();
+      if (b >= 0) {
+        remaining--;
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (remaining <= 0) {
+        return -1;
+      }
+      int count = super.read(b, off, (int) Math.min(len, remaining));
+      if (count > 0) {
+        remaining -= count;
+      }
+      return count;
+    }
+  }
 }
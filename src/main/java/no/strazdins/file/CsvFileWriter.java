@@ -1,8 +1,17 @@
 package no.strazdins.file;
 
+import java.io.BufferedInputStream;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.text.DecimalFormatSymbols;
+import no.strazdins.jfr.FileWriteEvent;
+import no.strazdins.metrics.PnlMetrics;
 
 /**
  * Writes output to CSV files.
@@ -17,6 +26,7 @@ public class CsvFileWriter {
   final String columnSeparator;
 
   private boolean checkColumnCount;
+  private final FileWriteEvent writeEvent = new FileWriteEvent();
 
   /**
    * Create a CSV file writer, write the header row to the file.
@@ -26,6 +36,8 @@ public class CsvFileWriter {
    * @throws IOException When file writing fails
    */
   public CsvFileWriter(String filePath, String[] headerRow) throws IOException {
+    writeEvent.begin();
+    writeEvent.path = filePath;
     writer = new FileWriter(filePath);
     columnCount = headerRow.length;
     useCommaForDecimalSeparator = isOsDecimalSeparatorComma();
@@ -41,6 +53,8 @@ public class CsvFileWriter {
    * @throws IOException When file writing fails
    */
   public CsvFileWriter(String filePath) throws IOException {
+    writeEvent.begin();
+    writeEvent.path = filePath;
     writer = new FileWriter(filePath);
     columnCount = -1;
     checkColumnCount = false;
@@ -48,6 +62,52 @@ public class CsvFileWriter {
     columnSeparator = useCommaForDecimalSeparator ? ";" : ",";
   }
 
+  /**
+   * Create a CSV file writer which continues an existing file: the header and the given number
+   * of data rows are kept, the rest of the file is removed, new rows are appended.
+   *
+   * @param filePath     Path to the existing CSV file
+   * @param headerRow    The header row of the file - used to check the column count
+   * @param keptRowCount The number of data rows (after the header) to keep
+   * @throws IOException When the file is not found, has fewer rows than expected or
+   *                     writing fails
+   */
+  public CsvFileWriter(String filePath, String[] headerRow, int keptRowCount)
+      throws IOException {
+    writeEvent.begin();
+    writeEvent.path = filePath;
+    truncateAfterRows(filePath, keptRowCount + 1);
+    writer = new FileWriter(filePath, true);
+    columnCount = headerRow.length;
+    useCommaForDecimalSeparator = isOsDecimalSeparatorComma();
+    columnSeparator = useCommaForDecimalSeparator ? ";" : ",";
+    checkColumnCount = true;
+  }
+
+  private static void truncateAfterRows(String filePath, int rowCount) throws IOException {
+    Path path = Path.of(filePath);
+    long offset = 0;
+    int rowsFound = 0;
+    try (InputStream in = new BufferedInputStream(Files.newInputStream(path))) {
+      int b;
+      while (rowsFound < rowCount && (b = in.read()) >= 0) {
+        offset++;
+        if (b == '\n') {
+          rowsFound++;
+        }
+      }
+    } catch (NoSuchFileException e) {
+      throw new IOException("File not found: " + filePath);
+    }
+    if (rowsFound < rowCount) {
+      throw new IOException("File " + filePath + " has only " + rowsFound + " rows, "
+          + rowCount + " expected");
+    }
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+      channel.truncate(offset);
+    }
+  }
+
   /**
    * Check whether the decimal separator in the Operating System is comma (instead of the dot).
    *
@@ -66,6 +126,9 @@ public class CsvFileWriter {
    */
   public void close() throws IOException {
     writer.close();
+    writeEvent.commit();
+    PnlMetrics.ROWS_WRITTEN.get().add(writeEvent.rowCount);
+    PnlMetrics.BYTES_WRITTEN.get().add(writeEvent.byteCount);
   }
 
   /**
@@ -86,6 +149,9 @@ public class CsvFileWriter {
       row = replaceDecimalDotsWithCommas(row);
     }
     writer.write(row + "\n");
+    writeEvent.rowCount++;
+    // The written values are ASCII - one byte per character
+    writeEvent.byteCount += row.length() + 1;
   }
 
   /**
@@ -0,0 +1,418 @@
+package no.strazdins.file;
+
+import static no.strazdins.file.BinaryEncoding.readSignedVarLong;
+import static no.strazdins.file.BinaryEncoding.readString;
+import static no.strazdins.file.BinaryEncoding.readVarInt;
+import static no.strazdins.file.BinaryEncoding.writeSignedVarLong;
+import static no.strazdins.file.BinaryEncoding.writeString;
+import static no.strazdins.file.BinaryEncoding.writeVarLong;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import no.strazdins.data.AccountType;
+import no.strazdins.data.AssetSymbols;
+import no.strazdins.data.Decimal;
+import no.strazdins.data.Operation;
+import no.strazdins.data.RawAccountChangeStore;
+import no.strazdins.process.ProgressTracker;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Cache of the parsed input file. After the CSV file is parsed, a compact binary image of the
+ * raw account changes is stored next to it, in the file &lt;input&gt;.pnlcache. Later runs
+ * load the image instead of parsing the CSV again.
+ *
+ * <p>The cache covers all the complete (newline-terminated) rows of the input file and is
+ * keyed by the SHA-256 hash of those bytes, together with the file size and modification
+ * time. When the size and modification time are unchanged, the cache is used without hashing.
+ * Otherwise the hash of the same number of bytes at the start of the input file is compared,
+ * so that a new export which consists of the old file plus appended rows still uses the
+ * cache - only the appended tail is parsed, and the cache is updated.</p>
+ */
+public class ParsedInputCache {
+  private static final Logger logger = LogManager.getLogger(ParsedInputCache.class);
+  static final String CACHE_FILE_SUFFIX = ".pnlcache";
+  static final int MAGIC = 0x504E4C43;
+  static final int VERSION = 1;
+  private static final int HASH_LENGTH = 32;
+  private static final int BUFFER_SIZE = 65536;
+  private static final AccountType[] ACCOUNT_TYPES = AccountType.values();
+  private static final Operation[] OPERATIONS = Operation.values();
+
+  /**
+   * Not allowed to create instances of this class.
+   */
+  private ParsedInputCache() {
+  }
+
+  /**
+   * Get the path of the cache file for the given input file.
+   *
+   * @param inputFilePath Path to the CSV input file
+   * @return Path to the cache file
+   */
+  public static String getCacheFilePath(String inputFilePath) {
+    return inputFilePath + CACHE_FILE_SUFFIX;
+  }
+
+  /**
+   * Read the raw account changes of the input file, using the cache when it is valid.
+   * Update the cache when the input file has changed.
+   *
+   * @param inputFilePath Path to the CSV input file
+   * @return Columnar store of the atomic account changes
+   * @throws IOException When something goes wrong with reading the input file
+   */
+  public static RawAccountChangeStore readAccountChanges(String inputFilePath)
+      throws IOException {
+    return readAccountChanges(inputFilePath, null);
+  }
+
+  /**
+   * Read the raw account changes of the input file, using the cache when it is valid, report
+   * the progress - the byte offset in the file up to which the changes are loaded or parsed.
+   * Update the cache when the input file has changed.
+   *
+   * @param inputFilePath   Path to the CSV input file
+   * @param progressTracker The tracker of the current phase, updated with the byte offset;
+   *                        null when progress is not tracked
+   * @return Columnar store of the atomic account changes
+   * @throws IOException When something goes wrong with reading the input file
+   */
+  public static RawAccountChangeStore readAccountChanges(String inputFilePath,
+                                                         ProgressTracker progressTracker)
+      throws IOException {
+    Path input = Path.of(inputFilePath);
+    if (!Files.exists(input)) {
+      throw new IOException("File not found: " + inputFilePath);
+    }
+    long fileSize = Files.size(input);
+    long modifiedTime = Files.getLastModifiedTime(input).toMillis();
+    String cacheFilePath = getCacheFilePath(inputFilePath);
+    CacheImage cached = loadCache(cacheFilePath);
+
+    long completeLength;
+    RawAccountChangeStore store;
+    long parsedLength;
+    byte[] hash;
+    if (cached != null && cached.fileSize == fileSize && cached.modifiedTime == modifiedTime) {
+      completeLength = cached.prefixLength;
+      store = cached.store;
+      parsedLength = cached.prefixLength;
+      hash = cached.hash;
+    } else {
+      completeLength = findCompleteRowsLength(input, fileSize);
+      long cachedLength = cached != null && cached.prefixLength <= completeLength
+          ? cached.prefixLength : 0;
+      MessageDigest cachedPrefixDigest = createDigest();
+      hash = hashPrefix(input, completeLength, cachedLength, cachedPrefixDigest);
+      if (cachedLength > 0
+          && Arrays.equals(cached.hash, cachedPrefixDigest.digest())) {
+        store = cached.store;
+        parsedLength = cachedLength;
+      } else {
+        if (cached != null) {
+          logger.info("Input file {} has changed, the parsed-input cache is rebuilt",
+              inputFilePath);
+        }
+        store = new RawAccountChangeStore();
+        parsedLength = 0;
+      }
+    }
+
+    if (parsedLength > 0) {
+      logger.info("Loaded {} account changes from the cache {}", store.size(), cacheFilePath);
+      if (progressTracker != null) {
+        progressTracker.update(parsedLength);
+      }
+    }
+    if (parsedLength < completeLength) {
+      parseRows(inputFilePath, parsedLength, completeLength, store, progressTracker);
+    }
+    if (cached == null || parsedLength < completeLength || cached.fileSize != fileSize
+        || cached.modifiedTime != modifiedTime) {
+      writeCacheSafely(cacheFilePath, store, fileSize, modifiedTime, completeLength, hash);
+    }
+    // The last row without a trailing newline (if any) is never cached
+    if (completeLength < fileSize) {
+      parseRows(inputFilePath, completeLength, fileSize, store, progressTracker);
+    }
+    return store;
+  }
+
+  private static void parseRows(String inputFilePath, long startOffset, long endOffset,
+                                RawAccountChangeStore store, ProgressTracker progressTracker)
+      throws IOException {
+    CsvFileParser csvParser = new CsvFileParser(inputFilePath, startOffset, endOffset);
+    try {
+      if (startOffset == 0) {
+        TransactionFileReader.checkHeaderRowFormat(csvParser.readNextRow());
+      }
+      TransactionFileReader.appendAccountChanges(csvParser, store, inputFilePath,
+          progressTracker);
+    } finally {
+      csvParser.close();
+    }
+  }
+
+  /**
+   * Find the length of the part of the file which consists of complete rows - up to and
+   * including the last newline character.
+   */
+  private static long findCompleteRowsLength(Path input, long fileSize) throws IOException {
+    try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ)) {
+      ByteBuffer buffer = ByteBuffer.allocate(4096);
+      long end = fileSize;
+      while (end > 0) {
+        long start = Math.max(0, end - buffer.capacity());
+        buffer.clear();
+        buffer.limit((int) (end - start));
+        channel.read(buffer, start);
+        for (int i = (int) (end - start) - 1; i >= 0; --i) {
+          if (buffer.get(i) == '\n') {
+            return start + i + 1;
+          }
+        }
+        end = start;
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Hash the first bytes of the file. While doing that, also hash the first cachedLength
+   * bytes in a separate digest.
+   *
+   * @return The hash of the first `length` bytes
+   */
+  private static byte[] hashPrefix(Path input, long length, long cachedLength,
+                                   MessageDigest cachedPrefixDigest) throws IOException {
+    MessageDigest digest = createDigest();
+    try (InputStream in = Files.newInputStream(input)) {
+      byte[] buffer = new byte[BUFFER_SIZE];
+      long position = 0;
+      while (position < length) {
+        int count = in.read(buffer, 0, (int) Math.min(buffer.length, length - position));
+        if (count < 0) {
+          throw new IOException("Unexpected end of file " + input);
+        }
+        digest.update(buffer, 0, count);
+        if (position < cachedLength) {
+          cachedPrefixDigest.update(buffer, 0, (int) Math.min(count, cachedLength - position));
+        }
+        position += count;
+      }
+    }
+    return digest.digest();
+  }
+
+  private static MessageDigest createDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 not supported by the JVM", e);
+    }
+  }
+
+  private static CacheImage loadCache(String cacheFilePath) {
+    Path path = Path.of(cacheFilePath);
+    if (!Files.exists(path)) {
+      return null;
+    }
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      return readImage(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    } catch (IOException | BufferUnderflowException | IndexOutOfBoundsException e) {
+      logger.warn("Ignoring invalid parsed-input cache {}: {}", cacheFilePath, e.getMessage());
+      return null;
+    }
+  }
+
+  private static CacheImage readImage(ByteBuffer buffer) throws IOException {
+    if (buffer.getInt() != MAGIC || buffer.get() != VERSION) {
+      throw new IOException("Not a parsed-input cache file");
+    }
+    long fileSize = buffer.getLong();
+    long modifiedTime = buffer.getLong();
+    long prefixLength = buffer.getLong();
+    byte[] hash = new byte[HASH_LENGTH];
+    buffer.get(hash);
+
+    int[] assetIds = readDictionary(buffer).stream().mapToInt(AssetSymbols::intern).toArray();
+    List<String> remarks = readDictionary(buffer);
+    int rowCount = readVarInt(buffer);
+    long[] times = new long[rowCount];
+    long time = 0;
+    for (int i = 0; i < rowCount; ++i) {
+      time += readSignedVarLong(buffer);
+      times[i] = time;
+    }
+    byte[] accounts = new byte[rowCount];
+    buffer.get(accounts);
+    byte[] operations = new byte[rowCount];
+    buffer.get(operations);
+    int[] assets = new int[rowCount];
+    for (int i = 0; i < rowCount; ++i) {
+      assets[i] = assetIds[readVarInt(buffer)];
+    }
+    int[] remarkIds = new int[rowCount];
+    for (int i = 0; i < rowCount; ++i) {
+      remarkIds[i] = readVarInt(buffer) - 1;
+    }
+    Map<Integer, Decimal> largeAmounts = new HashMap<>();
+    int largeAmountCount = readVarInt(buffer);
+    for (int i = 0; i < largeAmountCount; ++i) {
+      largeAmounts.put(readVarInt(buffer), new Decimal(readString(buffer)));
+    }
+
+    RawAccountChangeStore store = new RawAccountChangeStore();
+    for (int i = 0; i < rowCount; ++i) {
+      long amount = readSignedVarLong(buffer);
+      String remark = remarkIds[i] >= 0 ? remarks.get(remarkIds[i]) : "";
+      Decimal largeAmount = largeAmounts.get(i);
+      if (largeAmount != null) {
+        store.add(times[i], ACCOUNT_TYPES[accounts[i]], OPERATIONS[operations[i]], assets[i],
+            largeAmount, remark);
+      } else {
+        store.addScaled(times[i], ACCOUNT_TYPES[accounts[i]], OPERATIONS[operations[i]],
+            assets[i], amount, remark);
+      }
+    }
+    return new CacheImage(fileSize, modifiedTime, prefixLength, hash, store);
+  }
+
+  private static List<String> readDictionary(ByteBuffer buffer) throws IOException {
+    int count = readVarInt(buffer);
+    List<String> strings = new ArrayList<>(count);
+    for (int i = 0; i < count; ++i) {
+      strings.add(readString(buffer));
+    }
+    return strings;
+  }
+
+  private static void writeCacheSafely(String cacheFilePath, RawAccountChangeStore store,
+                                       long fileSize, long modifiedTime, long prefixLength,
+                                       byte[] hash) {
+    try {
+      writeCache(cacheFilePath, store, fileSize, modifiedTime, prefixLength, hash);
+      logger.info("Parsed-input cache written to {}", cacheFilePath);
+    } catch (IOException e) {
+      logger.warn("Could not write the parsed-input cache {}: {}", cacheFilePath,
+          e.getMessage());
+    }
+  }
+
+  /**
+   * Write the cache image to a temporary file, then move it in place, so that an interrupted
+   * run never leaves a half-written cache.
+   */
+  private static void writeCache(String cacheFilePath, RawAccountChangeStore store,
+                                 long fileSize, long modifiedTime, long prefixLength,
+                                 byte[] hash) throws IOException {
+    Path cachePath = Path.of(cacheFilePath);
+    Path tempPath = Path.of(cacheFilePath + ".tmp");
+    int rowCount = store.size();
+    Map<String, Integer> assetDictionary = new HashMap<>();
+    List<String> assets = new ArrayList<>();
+    Map<String, Integer> remarkDictionary = new HashMap<>();
+    List<String> remarks = new ArrayList<>();
+    int[] assetIds = new int[rowCount];
+    int[] remarkIds = new int[rowCount];
+    for (int i = 0; i < rowCount; ++i) {
+      assetIds[i] = getDictionaryId(AssetSymbols.getSymbol(store.getAssetId(i)),
+          assetDictionary, assets);
+      String remark = store.getRemark(i);
+      remarkIds[i] = remark.isEmpty() ? -1 : getDictionaryId(remark, remarkDictionary, remarks);
+    }
+
+    try (DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+      out.writeInt(MAGIC);
+      out.writeByte(VERSION);
+      out.writeLong(fileSize);
+      out.writeLong(modifiedTime);
+      out.writeLong(prefixLength);
+      out.write(hash);
+      writeDictionary(out, assets);
+      writeDictionary(out, remarks);
+      writeVarLong(out, rowCount);
+      long previousTime = 0;
+      for (int i = 0; i < rowCount; ++i) {
+        writeSignedVarLong(out, store.getUtcTime(i) - previousTime);
+        previousTime = store.getUtcTime(i);
+      }
+      for (int i = 0; i < rowCount; ++i) {
+        out.writeByte(store.getAccount(i).ordinal());
+      }
+      for (int i = 0; i < rowCount; ++i) {
+        out.writeByte(store.getOperation(i).ordinal());
+      }
+      for (int id : assetIds) {
+        writeVarLong(out, id);
+      }
+      for (int id : remarkIds) {
+        writeVarLong(out, id + 1L);
+      }
+      long[] amounts = new long[rowCount];
+      Map<Integer, Decimal> largeAmounts = new HashMap<>();
+      for (int i = 0; i < rowCount; ++i) {
+        Decimal amount = store.getAmount(i);
+        try {
+          amounts[i] = amount.toScaledLong();
+        } catch (ArithmeticException e) {
+          largeAmounts.put(i, amount);
+        }
+      }
+      writeVarLong(out, largeAmounts.size());
+      for (Map.Entry<Integer, Decimal> entry : largeAmounts.entrySet()) {
+        writeVarLong(out, entry.getKey());
+        writeString(out, entry.getValue().toString());
+      }
+      for (long amount : amounts) {
+        writeSignedVarLong(out, amount);
+      }
+    }
+    Files.move(tempPath, cachePath, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  private static int getDictionaryId(String s, Map<String, Integer> ids, List<String> strings) {
+    Integer id = ids.get(s);
+    if (id == null) {
+      id = strings.size();
+      ids.put(s, id);
+      strings.add(s);
+    }
+    return id;
+  }
+
+  private static void writeDictionary(DataOutputStream out, List<String> strings)
+      throws IOException {
+    writeVarLong(out, strings.size());
+    for (String s : strings) {
+      writeString(out, s);
+    }
+  }
+
+  /**
+   * The content of a cache file.
+   */
+  private record CacheImage(long fileSize, long modifiedTime, long prefixLength, byte[] hash,
+                            RawAccountChangeStore store) {
+  }
+}
@@ -7,6 +7,10 @@ import no.strazdins.data.ExtraInfoEntry;
 import no.strazdins.data.Wallet;
 import no.strazdins.data.WalletSnapshot;
 import no.strazdins.process.AnnualReport;
+import no.strazdins.process.AssetPnlBreakdown;
+import no.strazdins.process.DailyValue;
+import no.strazdins.process.PeriodReport;
+import no.strazdins.process.RealizedLot;
 import no.strazdins.process.Report;
 import no.strazdins.tool.TimeConverter;
 import no.strazdins.transaction.Transaction;
@@ -15,6 +19,23 @@ import no.strazdins.transaction.Transaction;
  * Writes report to a CSV file.
  */
 public class ReportFileWriter {
+  private static final String[] TRANSACTION_LOG_HEADER = new String[]{
+      "Unix timestamp", "UTC time",
+      "Transaction", "Asset",
+      "Amount", "Price",
+      "Quote currency", "Quote amount",
+      "Fee", "Fee currency",
+      "Fee in USDT", "Obtain price in USDT",
+      "Transaction PNL in USDT", "Amount in Wallet",
+      "Avg obtain price in USDT", "Running PNL in USDT"
+  };
+  private static final String[] BALANCE_LOG_HEADER = new String[]{
+      "Unix timestamp",
+      "UTC time",
+      "Transaction",
+      "Balances: amount & asset & average obtain price (for each asset)"
+  };
+
   /**
    * Not allowed to create instances of this class.
    */
@@ -30,17 +51,26 @@ public class ReportFileWriter {
    */
   public static void writeTransactionLogToFile(Report report, String outputFilePath)
       throws IOException {
-    String[] header = new String[]{
-        "Unix timestamp", "UTC time",
-        "Transaction", "Asset",
-        "Amount", "Price",
-        "Quote currency", "Quote amount",
-        "Fee", "Fee currency",
-        "Fee in USDT", "Obtain price in USDT",
-        "Transaction PNL in USDT", "Amount in Wallet",
-        "Avg obtain price in USDT", "Running PNL in USDT"
-    };
-    CsvFileWriter writer = new CsvFileWriter(outputFilePath, header);
+    writeTransactionLog(report, new CsvFileWriter(outputFilePath, TRANSACTION_LOG_HEADER));
+  }
+
+  /**
+   * Append the report to a transaction log CSV file written by an earlier run. The rows after
+   * the given number of kept rows are replaced.
+   *
+   * @param report         The report content
+   * @param outputFilePath Path to the existing CSV file
+   * @param keptRowCount   The number of rows (after the header) to keep in the file
+   * @throws IOException When the file can't be continued or writing fails
+   */
+  public static void appendTransactionLogToFile(Report report, String outputFilePath,
+                                                int keptRowCount) throws IOException {
+    writeTransactionLog(report,
+        new CsvFileWriter(outputFilePath, TRANSACTION_LOG_HEADER, keptRowCount));
+  }
+
+  private static void writeTransactionLog(Report report, CsvFileWriter writer)
+      throws IOException {
     for (WalletSnapshot snapshot : report) {
       long timestamp = snapshot.getTimestamp();
       Transaction t = snapshot.getTransaction();
@@ -68,13 +98,24 @@ public class ReportFileWriter {
    */
   public static void writeBalanceLogToFile(Report report, String outputFilePath)
       throws IOException {
-    String[] header = new String[]{
-        "Unix timestamp",
-        "UTC time",
-        "Transaction",
-        "Balances: amount & asset & average obtain price (for each asset)"
-    };
-    CsvFileWriter writer = new CsvFileWriter(outputFilePath, header);
+    writeBalanceLog(report, new CsvFileWriter(outputFilePath, BALANCE_LOG_HEADER));
+  }
+
+  /**
+   * Append wallet balances to a CSV file written by an earlier run. The rows after the given
+   * number of kept rows are replaced.
+   *
+   * @param report         The report containing the wallet snapshots
+   * @param outputFilePath Path to the existing CSV file
+   * @param keptRowCount   The number of rows (after the header) to keep in the file
+   * @throws IOException When the file can't be continued or writing fails
+   */
+  public static void appendBalanceLogToFile(Report report, String outputFilePath,
+                                            int keptRowCount) throws IOException {
+    writeBalanceLog(report, new CsvFileWriter(outputFilePath, BALANCE_LOG_HEADER, keptRowCount));
+  }
+
+  private static void writeBalanceLog(Report report, CsvFileWriter writer) throws IOException {
     writer.disableColumnCountChecking();
     for (WalletSnapshot snapshot : report) {
       long timestamp = snapshot.getTimestamp();
@@ -129,6 +170,118 @@ public class ReportFileWriter {
     writer.close();
   }
 
+  /**
+   * Write period reports to a CSV file.
+   *
+   * @param periodReports  List of period reports, ordered chronologically
+   * @param outputFilePath Path to the CSV file where to write the report
+   * @param homeCurrency   Home currency of the user
+   * @throws IOException When something goes wrong with writing the file
+   */
+  public static void writePeriodReportsToFile(List<PeriodReport> periodReports,
+                                              String outputFilePath,
+                                              String homeCurrency) throws IOException {
+    String[] header = new String[]{
+        "Period end",
+        "Period PNL in USD",
+        "Running PNL in USD",
+        homeCurrency + "/USD exchange rate",
+        "Period PNL in " + homeCurrency,
+        "Held asset value in USD",
+        "Held asset value in " + homeCurrency
+    };
+    CsvFileWriter writer = new CsvFileWriter(outputFilePath, header);
+    for (PeriodReport report : periodReports) {
+      writer.writeRow(new String[]{
+          TimeConverter.utcTimeToDateString(report.timestamp()),
+          report.periodPnlUsd().getNiceString(),
+          report.runningPnlUsd().getNiceString(),
+          report.exchangeRate().getNiceString(),
+          report.periodPnlHc().getNiceString(),
+          report.walletValueUsd().getNiceString(),
+          report.walletValueHc().getNiceString()
+      });
+    }
+    writer.close();
+  }
+
+  /**
+   * Write the realized PNL per asset and per year to a CSV file.
+   *
+   * @param breakdown      The PNL breakdown
+   * @param outputFilePath Path to the CSV file where to write the report
+   * @throws IOException When something goes wrong with writing the file
+   */
+  public static void writeAssetPnlToFile(AssetPnlBreakdown breakdown, String outputFilePath)
+      throws IOException {
+    String[] header = new String[]{"Year", "Asset", "Realized PNL in USD"};
+    CsvFileWriter writer = new CsvFileWriter(outputFilePath, header);
+    for (AssetPnlBreakdown.Entry entry : breakdown.getEntries()) {
+      writer.writeRow(new String[]{
+          String.valueOf(entry.year()),
+          entry.asset(),
+          entry.pnlUsd().getNiceString()
+      });
+    }
+    writer.close();
+  }
+
+  /**
+   * Write the daily wallet values to a CSV file.
+   *
+   * @param dailyValues    The daily values, ordered chronologically. Unknown values are written
+   *                       as empty cells
+   * @param outputFilePath Path to the CSV file where to write the values
+   * @param homeCurrency   Home currency of the user
+   * @throws IOException When something goes wrong with writing the file
+   */
+  public static void writeDailyValuesToFile(List<DailyValue> dailyValues, String outputFilePath,
+                                            String homeCurrency) throws IOException {
+    String[] header = new String[]{
+        "Date",
+        "Held asset value in USD",
+        homeCurrency + "/USD exchange rate",
+        "Held asset value in " + homeCurrency
+    };
+    CsvFileWriter writer = new CsvFileWriter(outputFilePath, header);
+    for (DailyValue value : dailyValues) {
+      writer.writeRow(new String[]{
+          TimeConverter.utcTimeToDateString(value.timestamp()),
+          value.walletValueUsd() != null ? value.walletValueUsd().getNiceString() : "",
+          value.exchangeRate() != null ? value.exchangeRate().getNiceString() : "",
+          value.walletValueHc() != null ? value.walletValueHc().getNiceString() : ""
+      });
+    }
+    writer.close();
+  }
+
+  /**
+   * Write the realized gains of the lots to a CSV file.
+   *
+   * @param realizedLots   The realized lots, ordered chronologically
+   * @param outputFilePath Path to the CSV file where to write the lots
+   * @throws IOException When something goes wrong with writing the file
+   */
+  public static void writeRealizedLotsToFile(List<RealizedLot> realizedLots,
+                                             String outputFilePath) throws IOException {
+    String[] header = new String[]{
+        "Realized", "Asset", "Obtained", "Amount", "Cost in USD", "Proceeds in USD", "Gain in USD"
+    };
+    CsvFileWriter writer = new CsvFileWriter(outputFilePath, header);
+    for (RealizedLot lot : realizedLots) {
+      writer.writeRow(new String[]{
+          TimeConverter.utcTimeToString(lot.realizationTime()),
+          lot.asset(),
+          lot.obtainTime() != 0 ? TimeConverter.utcTimeToString(lot.obtainTime()) : "",
+          lot.amount().getNiceString(),
+          lot.costUsd().getNiceString(),
+          lot.proceedsUsd().getNiceString(),
+          lot.gainUsd().getNiceString()
+      });
+    }
+    writer.close();
+  }
+
   /**
    * Write ExtraInfo to a CSV file.
    *
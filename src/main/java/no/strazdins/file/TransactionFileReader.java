@@ -4,9 +4,13 @@ import java.io.IOException;
 import java.util.LinkedList;
 import java.util.List;
 import no.strazdins.data.AccountType;
+import no.strazdins.data.AssetSymbols;
 import no.strazdins.data.Decimal;
 import no.strazdins.data.Operation;
 import no.strazdins.data.RawAccountChange;
+import no.strazdins.data.RawAccountChangeStore;
+import no.strazdins.jfr.ParseChunkEvent;
+import no.strazdins.process.ProgressTracker;
 import no.strazdins.tool.TimeConverter;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -17,6 +21,10 @@ import org.apache.logging.log4j.Logger;
  */
 public class TransactionFileReader {
   private static final Logger log = LogManager.getLogger(TransactionFileReader.class);
+  /**
+   * A parse chunk event is committed each time this many bytes of the file have been read.
+   */
+  static final long PARSE_CHUNK_BYTES = 1 << 20;
 
   /**
    * Not allowed to create instances of the class.
@@ -54,7 +62,117 @@ public class TransactionFileReader {
     return accountChanges;
   }
 
-  private static void checkHeaderRowFormat(String[] headerRow) throws IOException {
+  /**
+   * Read CSV input file, return the raw account changes in a columnar store. No
+   * RawAccountChange objects are created while reading.
+   *
+   * @param inputFilePath Path to the CSV input file
+   * @return Columnar store of the atomic account changes
+   * @throws IOException When something goes wrong with file reading
+   */
+  public static RawAccountChangeStore readAccountChangeStore(String inputFilePath)
+      throws IOException {
+    return readAccountChangeStore(inputFilePath, null);
+  }
+
+  /**
+   * Read CSV input file, return the raw account changes in a columnar store, report the
+   * progress of the reading - the byte offset in the file.
+   *
+   * @param inputFilePath   Path to the CSV input file
+   * @param progressTracker The tracker of the current phase, updated with the byte offset;
+   *                        null when progress is not tracked
+   * @return Columnar store of the atomic account changes
+   * @throws IOException When something goes wrong with file reading
+   */
+  public static RawAccountChangeStore readAccountChangeStore(String inputFilePath,
+                                                             ProgressTracker progressTracker)
+      throws IOException {
+    CsvFileParser csvParser = new CsvFileParser(inputFilePath);
+
+    String[] headerRow = csvParser.readNextRow();
+    checkHeaderRowFormat(headerRow);
+
+    RawAccountChangeStore store = new RawAccountChangeStore();
+    try {
+      appendAccountChanges(csvParser, store, inputFilePath, progressTracker);
+    } finally {
+      csvParser.close();
+    }
+    return store;
+  }
+
+  /**
+   * Read all the remaining rows of a CSV file, append the changes to the store. A
+   * {@link ParseChunkEvent} is committed per {@link #PARSE_CHUNK_BYTES} bytes read, the chunk
+   * boundaries follow the read blocks of the parser, not the rows.
+   *
+   * @param csvParser       The CSV parser, positioned after the header row
+   * @param store           The store where to append the changes
+   * @param inputFilePath   Path to the CSV file, for the parse chunk events
+   * @param progressTracker The tracker updated with the byte offset, null if not used
+   * @throws IOException When something goes wrong with file reading or when the timestamps
+   *                     are decreasing
+   */
+  static void appendAccountChanges(CsvFileParser csvParser, RawAccountChangeStore store,
+                                   String inputFilePath, ProgressTracker progressTracker)
+      throws IOException {
+    long previousTime = store.size() > 0 ? store.getUtcTime(store.size() - 1) : Long.MIN_VALUE;
+    long chunkStart = csvParser.getStartOffset();
+    int chunkStartSize = store.size();
+    ParseChunkEvent event = new ParseChunkEvent();
+    event.begin();
+    while (csvParser.hasMoreRows()) {
+      String[] row = csvParser.readNextRow();
+      if (row.length != 7) {
+        throw new IOException("Invalid row format: " + String.join(",", row));
+      }
+      try {
+        long utcTimestamp = TimeConverter.stringToUtcTimestamp(row[1]);
+        if (utcTimestamp < previousTime) {
+          throw new IOException("Decreasing timestamp detected: "
+              + TimeConverter.utcTimeToString(previousTime) + " -> " + row[1]);
+        }
+        store.add(utcTimestamp, AccountType.fromString(row[2]), Operation.fromString(row[3]),
+            AssetSymbols.intern(row[4]),
+            new Decimal(TimeConverter.parseDecimalString(row[5])), row[6]);
+        previousTime = utcTimestamp;
+        long offset = csvParser.getByteOffset();
+        if (progressTracker != null) {
+          progressTracker.update(offset);
+        }
+        if (offset - chunkStart >= PARSE_CHUNK_BYTES) {
+          commitChunk(event, inputFilePath, chunkStart, offset, store.size() - chunkStartSize);
+          chunkStart = offset;
+          chunkStartSize = store.size();
+          event = new ParseChunkEvent();
+          event.begin();
+        }
+      } catch (IOException e) {
+        log.error("Invalid row: {}", String.join(",", row));
+        log.error(e.getMessage());
+        throw e;
+      }
+    }
+    if (store.size() > chunkStartSize || chunkStart == csvParser.getStartOffset()) {
+      commitChunk(event, inputFilePath, chunkStart, csvParser.getByteOffset(),
+          store.size() - chunkStartSize);
+    }
+  }
+
+  private static void commitChunk(ParseChunkEvent event, String inputFilePath, long startOffset,
+                                  long endOffset, int rowCount) {
+    event.end();
+    if (event.shouldCommit()) {
+      event.inputFile = inputFilePath;
+      event.startOffset = startOffset;
+      event.byteCount = endOffset - startOffset;
+      event.rowCount = rowCount;
+      event.commit();
+    }
+  }
+
+  static void checkHeaderRowFormat(String[] headerRow) throws IOException {
     if (headerRow.length != 7 || !"User_ID".equals(headerRow[0])
         || !"UTC_Time".equals(headerRow[1])
         || !"Account".equals(headerRow[2])
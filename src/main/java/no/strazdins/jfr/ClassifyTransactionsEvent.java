@@ -0,0 +1,21 @@
+package no.strazdins.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Detection of the type of each grouped transaction.
+ */
+@Name("no.strazdins.ClassifyTransactions")
+@Label("Classify Transactions")
+@Category({"PNL Report", "Pipeline"})
+@Description("Detection of the type of each transaction")
+@StackTrace(false)
+public class ClassifyTransactionsEvent extends Event {
+  @Label("Transactions")
+  public long transactionCount;
+}
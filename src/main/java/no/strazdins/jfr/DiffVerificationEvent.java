@@ -0,0 +1,30 @@
+package no.strazdins.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Comparison of the wallet changes made by a transaction with its raw operation changes. Recorded
+ * only above the threshold by default.
+ */
+@Name("no.strazdins.DiffVerification")
+@Label("Diff Verification")
+@Category({"PNL Report", "Operation"})
+@Description("Comparison of the wallet changes with the raw operation changes")
+@StackTrace(false)
+@Threshold(OperationThreshold.DEFAULT)
+public class DiffVerificationEvent extends Event {
+  @Label("Transaction Type")
+  public Class<?> transactionType;
+
+  @Label("Assets Compared")
+  public int assetCount;
+
+  @Label("Discrepancy")
+  public boolean discrepancy;
+}
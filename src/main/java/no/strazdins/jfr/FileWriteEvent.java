@@ -0,0 +1,29 @@
+package no.strazdins.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Writing of an output CSV file, from opening to closing the file.
+ */
+@Name("no.strazdins.FileWrite")
+@Label("File Write")
+@Category({"PNL Report", "Pipeline"})
+@Description("Writing of an output CSV file")
+@StackTrace(false)
+public class FileWriteEvent extends Event {
+  @Label("Path")
+  public String path;
+
+  @Label("Rows Written")
+  public long rowCount;
+
+  @Label("Bytes Written")
+  @DataAmount
+  public long byteCount;
+}
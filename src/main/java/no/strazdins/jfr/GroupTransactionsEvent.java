@@ -0,0 +1,24 @@
+package no.strazdins.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Grouping of the raw account changes into transactions by timestamp.
+ */
+@Name("no.strazdins.GroupTransactions")
+@Label("Group Transactions")
+@Category({"PNL Report", "Pipeline"})
+@Description("Grouping of the raw account changes into transactions")
+@StackTrace(false)
+public class GroupTransactionsEvent extends Event {
+  @Label("Account Changes")
+  public long accountChangeCount;
+
+  @Label("Transactions")
+  public long transactionCount;
+}
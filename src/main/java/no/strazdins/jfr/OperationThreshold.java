@@ -0,0 +1,16 @@
+package no.strazdins.jfr;
+
+/**
+ * The default threshold of the events recorded for every transaction. Such events take a few
+ * microseconds each, below the threshold they are measured but not written to the recording,
+ * which keeps the recording small when the events are left enabled.
+ */
+final class OperationThreshold {
+  static final String DEFAULT = "1 ms";
+
+  /**
+   * Not allowed to create instances of this class.
+   */
+  private OperationThreshold() {
+  }
+}
@@ -0,0 +1,33 @@
+package no.strazdins.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Parsing of a part of the input CSV file into raw account changes.
+ */
+@Name("no.strazdins.ParseChunk")
+@Label("Parse Chunk")
+@Category({"PNL Report", "Pipeline"})
+@Description("Parsing of a part of the input CSV file")
+@StackTrace(false)
+public class ParseChunkEvent extends Event {
+  @Label("Input File")
+  public String inputFile;
+
+  @Label("Start Offset")
+  @DataAmount
+  public long startOffset;
+
+  @Label("Bytes Parsed")
+  @DataAmount
+  public long byteCount;
+
+  @Label("Rows Parsed")
+  public long rowCount;
+}
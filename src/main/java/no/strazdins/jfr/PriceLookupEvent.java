@@ -0,0 +1,46 @@
+package no.strazdins.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timestamp;
+
+/**
+ * Lookup of an asset price for the annual report.
+ */
+@Name("no.strazdins.PriceLookup")
+@Label("Price Lookup")
+@Category({"PNL Report", "Operation"})
+@Description("Lookup of an asset price")
+@StackTrace(false)
+public class PriceLookupEvent extends Event {
+  /**
+   * The price is fixed, no lookup needed (USDT).
+   */
+  public static final String SOURCE_FIXED = "fixed";
+  /**
+   * The price was found in the extra info, including the prices fetched earlier in the run.
+   */
+  public static final String SOURCE_EXTRA_INFO = "extra-info";
+  /**
+   * The price was fetched from the Binance API.
+   */
+  public static final String SOURCE_API = "api";
+
+  @Label("Asset")
+  public String asset;
+
+  @Label("Price Time")
+  @Timestamp(Timestamp.MILLISECONDS_SINCE_EPOCH)
+  public long priceTime;
+
+  @Label("Source")
+  @Description("Where the price was found: fixed, extra-info or api")
+  public String source;
+
+  @Label("Found")
+  public boolean found;
+}
@@ -0,0 +1,25 @@
+package no.strazdins.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Processing of all the transactions of a report - creation of the wallet snapshots.
+ */
+@Name("no.strazdins.ProcessTransactions")
+@Label("Process Transactions")
+@Category({"PNL Report", "Pipeline"})
+@Description("Processing of all the transactions of a report")
+@StackTrace(false)
+public class ProcessTransactionsEvent extends Event {
+  @Label("Processed Transactions")
+  public long transactionCount;
+
+  @Label("Skipped Transactions")
+  @Description("Transactions before the checkpoint from which the report was continued")
+  public long skippedCount;
+}
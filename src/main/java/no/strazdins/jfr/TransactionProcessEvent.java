@@ -0,0 +1,32 @@
+package no.strazdins.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timestamp;
+
+/**
+ * Processing of one transaction. Recorded only above the threshold by default - set the threshold
+ * to 0 ms in the recording settings to see every transaction.
+ */
+@Name("no.strazdins.TransactionProcess")
+@Label("Transaction Process")
+@Category({"PNL Report", "Operation"})
+@Description("Processing of one transaction")
+@StackTrace(false)
+@Threshold(OperationThreshold.DEFAULT)
+public class TransactionProcessEvent extends Event {
+  @Label("Transaction Type")
+  public Class<?> transactionType;
+
+  @Label("Transaction Time")
+  @Timestamp(Timestamp.MILLISECONDS_SINCE_EPOCH)
+  public long transactionTime;
+
+  @Label("Operations")
+  public int operationCount;
+}
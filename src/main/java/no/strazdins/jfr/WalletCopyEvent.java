@@ -0,0 +1,23 @@
+package no.strazdins.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Copying of the wallet for a new snapshot. Recorded only above the threshold by default.
+ */
+@Name("no.strazdins.WalletCopy")
+@Label("Wallet Copy")
+@Category({"PNL Report", "Operation"})
+@Description("Copying of the wallet for a new snapshot")
+@StackTrace(false)
+@Threshold(OperationThreshold.DEFAULT)
+public class WalletCopyEvent extends Event {
+  @Label("Assets")
+  public int assetCount;
+}
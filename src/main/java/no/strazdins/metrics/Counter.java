@@ -0,0 +1,41 @@
+package no.strazdins.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A monotonically increasing counter. Updates are striped (see {@link LongAdder}), hence cheap
+ * even when many threads update the same counter.
+ */
+public final class Counter implements Metric {
+  private final LongAdder value = new LongAdder();
+
+  /**
+   * Increase the counter by one.
+   */
+  public void inc() {
+    value.increment();
+  }
+
+  /**
+   * Increase the counter.
+   *
+   * @param amount The amount to add, must not be negative
+   */
+  public void add(long amount) {
+    value.add(amount);
+  }
+
+  /**
+   * Get the current value.
+   *
+   * @return The sum of all the increments
+   */
+  public long get() {
+    return value.sum();
+  }
+
+  @Override
+  public void writeSamples(StringBuilder out, String name, String labels) {
+    Metric.writeSample(out, name, labels, Long.toString(get()));
+  }
+}
@@ -0,0 +1,25 @@
+package no.strazdins.metrics;
+
+import java.util.function.DoubleSupplier;
+
+/**
+ * A counter or gauge whose value is computed when the metrics are scraped, for example, from
+ * a JVM management bean.
+ */
+public final class FunctionMetric implements Metric {
+  private final DoubleSupplier supplier;
+
+  /**
+   * Create the metric.
+   *
+   * @param supplier Supplies the current value
+   */
+  public FunctionMetric(DoubleSupplier supplier) {
+    this.supplier = supplier;
+  }
+
+  @Override
+  public void writeSamples(StringBuilder out, String name, String labels) {
+    Metric.writeSample(out, name, labels, Double.toString(supplier.getAsDouble()));
+  }
+}
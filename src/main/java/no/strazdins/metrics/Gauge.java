@@ -0,0 +1,47 @@
+package no.strazdins.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A value which can go up and down, such as the number of jobs in progress.
+ */
+public final class Gauge implements Metric {
+  private final AtomicLong value = new AtomicLong();
+
+  /**
+   * Increase the value by one.
+   */
+  public void inc() {
+    value.incrementAndGet();
+  }
+
+  /**
+   * Decrease the value by one.
+   */
+  public void dec() {
+    value.decrementAndGet();
+  }
+
+  /**
+   * Set the value.
+   *
+   * @param newValue The new value
+   */
+  public void set(long newValue) {
+    value.set(newValue);
+  }
+
+  /**
+   * Get the current value.
+   *
+   * @return The value
+   */
+  public long get() {
+    return value.get();
+  }
+
+  @Override
+  public void writeSamples(StringBuilder out, String name, String labels) {
+    Metric.writeSample(out, name, labels, Long.toString(get()));
+  }
+}
@@ -0,0 +1,95 @@
+package no.strazdins.metrics;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of durations with logarithmic buckets, in the spirit of HdrHistogram: the upper
+ * bound of the bucket i is 2^i microseconds, from 1 microsecond to about 134 seconds, so the
+ * relative error of a bucket is bounded while the number of buckets stays small. Recording a
+ * value is a few arithmetic operations and one striped counter update.
+ */
+public final class Histogram implements Metric {
+  private static final int BUCKET_COUNT = 28;
+  private static final long NANOS_PER_MICRO = 1000;
+  private static final int NANOS_SCALE = 9;
+
+  // The last element counts the values above the largest bound
+  private final LongAdder[] buckets = new LongAdder[BUCKET_COUNT + 1];
+  private final LongAdder sumNanos = new LongAdder();
+
+  /**
+   * Create an empty histogram.
+   */
+  public Histogram() {
+    for (int i = 0; i < buckets.length; ++i) {
+      buckets[i] = new LongAdder();
+    }
+  }
+
+  /**
+   * Record a duration.
+   *
+   * @param nanos The duration, in nanoseconds
+   */
+  public void observeNanos(long nanos) {
+    buckets[getBucketIndex(nanos)].increment();
+    sumNanos.add(Math.max(nanos, 0));
+  }
+
+  /**
+   * Get the index of the bucket for a duration.
+   *
+   * @param nanos The duration, in nanoseconds
+   * @return The index of the smallest bucket whose upper bound is not less than the duration
+   */
+  static int getBucketIndex(long nanos) {
+    long micros = (nanos + NANOS_PER_MICRO - 1) / NANOS_PER_MICRO;
+    if (micros <= 1) {
+      return 0;
+    }
+    return Math.min(Long.SIZE - Long.numberOfLeadingZeros(micros - 1), BUCKET_COUNT);
+  }
+
+  /**
+   * Get the upper bound of a bucket.
+   *
+   * @param index The bucket index
+   * @return The upper bound, in nanoseconds
+   */
+  static long getUpperBoundNanos(int index) {
+    return NANOS_PER_MICRO << index;
+  }
+
+  /**
+   * Get the number of recorded values.
+   *
+   * @return The count
+   */
+  public long getCount() {
+    long count = 0;
+    for (LongAdder bucket : buckets) {
+      count += bucket.sum();
+    }
+    return count;
+  }
+
+  @Override
+  public void writeSamples(StringBuilder out, String name, String labels) {
+    String labelPrefix = labels.isEmpty() ? "" : labels + ",";
+    long cumulative = 0;
+    for (int i = 0; i < BUCKET_COUNT; ++i) {
+      cumulative += buckets[i].sum();
+      String bound = BigDecimal.valueOf(getUpperBoundNanos(i), NANOS_SCALE)
+          .stripTrailingZeros().toPlainString();
+      Metric.writeSample(out, name + "_bucket", labelPrefix + "le=\"" + bound + "\"",
+          Long.toString(cumulative));
+    }
+    cumulative += buckets[BUCKET_COUNT].sum();
+    Metric.writeSample(out, name + "_bucket", labelPrefix + "le=\"+Inf\"",
+        Long.toString(cumulative));
+    Metric.writeSample(out, name + "_sum", labels,
+        BigDecimal.valueOf(sumNanos.sum(), NANOS_SCALE).toPlainString());
+    Metric.writeSample(out, name + "_count", labels, Long.toString(cumulative));
+  }
+}
@@ -0,0 +1,26 @@
+package no.strazdins.metrics;
+
+/**
+ * A metric which can be written in the Prometheus text exposition format.
+ */
+interface Metric {
+  /**
+   * Write the samples of this metric.
+   *
+   * @param out    Where to write the samples
+   * @param name   Name of the metric family
+   * @param labels The labels of this metric, in the form `name="value"`, empty if none
+   */
+  void writeSamples(StringBuilder out, String name, String labels);
+
+  /**
+   * Write one sample line.
+   */
+  static void writeSample(StringBuilder out, String name, String labels, String value) {
+    out.append(name);
+    if (!labels.isEmpty()) {
+      out.append('{').append(labels).append('}');
+    }
+    out.append(' ').append(value).append('\n');
+  }
+}
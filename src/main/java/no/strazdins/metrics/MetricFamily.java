@@ -0,0 +1,82 @@
+package no.strazdins.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Metrics with the same name, one for each value of the label (such as the transaction type).
+ * A family without a label has a single metric.
+ *
+ * @param <T> The type of the metrics
+ */
+public final class MetricFamily<T extends Metric> {
+  private final String name;
+  private final String help;
+  private final String type;
+  private final String labelName;
+  private final Supplier<T> factory;
+  private final Map<String, T> metrics = new ConcurrentHashMap<>();
+
+  MetricFamily(String name, String help, String type, String labelName, Supplier<T> factory) {
+    this.name = name;
+    this.help = help;
+    this.type = type;
+    this.labelName = labelName;
+    this.factory = factory;
+  }
+
+  /**
+   * Get the metric of a family without a label.
+   *
+   * @return The metric
+   */
+  public T get() {
+    return labels("");
+  }
+
+  /**
+   * Get the metric for the given label value, create it if it does not exist yet.
+   *
+   * @param labelValue The value of the label
+   * @return The metric
+   */
+  public T labels(String labelValue) {
+    T metric = metrics.get(labelValue);
+    if (metric == null) {
+      metric = metrics.computeIfAbsent(labelValue, value -> factory.get());
+    }
+    return metric;
+  }
+
+  /**
+   * Register an existing metric for the given label value, such as a {@link FunctionMetric}.
+   *
+   * @param labelValue The value of the label
+   * @param metric     The metric
+   */
+  public void register(String labelValue, T metric) {
+    metrics.put(labelValue, metric);
+  }
+
+  /**
+   * Write the family in the Prometheus text format: the HELP and TYPE lines, then the samples
+   * of all the metrics, ordered by the label value.
+   *
+   * @param out Where to write
+   */
+  void write(StringBuilder out) {
+    out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+    out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    for (Map.Entry<String, T> entry : new TreeMap<>(metrics).entrySet()) {
+      String labels = labelName != null
+          ? labelName + "=\"" + escapeLabelValue(entry.getKey()) + "\"" : "";
+      entry.getValue().writeSamples(out, name, labels);
+    }
+  }
+
+  private static String escapeLabelValue(String value) {
+    return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+  }
+}
@@ -0,0 +1,104 @@
+package no.strazdins.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.DoubleSupplier;
+
+/**
+ * A set of metric families which can be scraped in the Prometheus text exposition format.
+ * Registration and scraping are thread-safe; updating a metric does not lock.
+ */
+public final class MetricsRegistry {
+  private final List<MetricFamily<?>> families = new ArrayList<>();
+
+  /**
+   * Register a counter without labels.
+   *
+   * @param name Name of the metric, should end with _total
+   * @param help Description of the metric
+   * @return The counter family
+   */
+  public MetricFamily<Counter> counter(String name, String help) {
+    return counter(name, help, null);
+  }
+
+  /**
+   * Register a family of counters.
+   *
+   * @param name      Name of the metric, should end with _total
+   * @param help      Description of the metric
+   * @param labelName Name of the label distinguishing the counters, null if none
+   * @return The counter family
+   */
+  public MetricFamily<Counter> counter(String name, String help, String labelName) {
+    return register(new MetricFamily<>(name, help, "counter", labelName, Counter::new));
+  }
+
+  /**
+   * Register a gauge without labels.
+   *
+   * @param name Name of the metric
+   * @param help Description of the metric
+   * @return The gauge family
+   */
+  public MetricFamily<Gauge> gauge(String name, String help) {
+    return register(new MetricFamily<>(name, help, "gauge", null, Gauge::new));
+  }
+
+  /**
+   * Register a gauge whose value is computed when scraped.
+   *
+   * @param name     Name of the metric
+   * @param help     Description of the metric
+   * @param supplier Supplies the value
+   */
+  public void gauge(String name, String help, DoubleSupplier supplier) {
+    MetricFamily<FunctionMetric> family = new MetricFamily<>(name, help, "gauge", null, null);
+    family.register("", new FunctionMetric(supplier));
+    register(family);
+  }
+
+  /**
+   * Register a family of counters whose values are computed when scraped. Add the counters
+   * with {@link MetricFamily#register(String, Metric)}.
+   *
+   * @param name      Name of the metric, should end with _total
+   * @param help      Description of the metric
+   * @param labelName Name of the label distinguishing the counters
+   * @return The counter family
+   */
+  public MetricFamily<FunctionMetric> functionCounter(String name, String help,
+                                                      String labelName) {
+    return register(new MetricFamily<>(name, help, "counter", labelName, null));
+  }
+
+  /**
+   * Register a family of duration histograms.
+   *
+   * @param name      Name of the metric, should end with _seconds
+   * @param help      Description of the metric
+   * @param labelName Name of the label distinguishing the histograms, null if none
+   * @return The histogram family
+   */
+  public MetricFamily<Histogram> histogram(String name, String help, String labelName) {
+    return register(new MetricFamily<>(name, help, "histogram", labelName, Histogram::new));
+  }
+
+  private synchronized <T extends Metric> MetricFamily<T> register(MetricFamily<T> family) {
+    families.add(family);
+    return family;
+  }
+
+  /**
+   * Get all the metrics in the Prometheus text exposition format.
+   *
+   * @return The text, in the order the families were registered
+   */
+  public synchronized String scrape() {
+    StringBuilder out = new StringBuilder();
+    for (MetricFamily<?> family : families) {
+      family.write(out);
+    }
+    return out.toString();
+  }
+}
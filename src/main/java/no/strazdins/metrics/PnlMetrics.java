@@ -0,0 +1,68 @@
+package no.strazdins.metrics;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import no.strazdins.jfr.PriceLookupEvent;
+
+/**
+ * The live metrics of the application, shared by all the report generations in the JVM. Meant
+ * for the long-running modes (batch and server), where they are exposed in the Prometheus
+ * format, see {@link MetricsHandler}.
+ */
+public final class PnlMetrics {
+  /**
+   * The registry with all the metrics below.
+   */
+  public static final MetricsRegistry REGISTRY = new MetricsRegistry();
+
+  public static final MetricFamily<Gauge> JOBS_IN_FLIGHT = REGISTRY.gauge(
+      "pnl_jobs_in_flight", "Report generation jobs currently running");
+  public static final MetricFamily<Gauge> QUEUE_DEPTH = REGISTRY.gauge(
+      "pnl_queue_depth", "Report generation jobs waiting for a worker");
+  public static final MetricFamily<Counter> JOBS = REGISTRY.counter(
+      "pnl_jobs_total", "Finished report generation jobs", "result");
+  public static final MetricFamily<Counter> ROWS_READ = REGISTRY.counter(
+      "pnl_rows_read_total", "Account changes read from the input files");
+  public static final MetricFamily<Histogram> TRANSACTION_PROCESS_SECONDS = REGISTRY.histogram(
+      "pnl_transaction_process_seconds", "Processing time of one transaction", "type");
+  public static final MetricFamily<Counter> PRICE_LOOKUPS = REGISTRY.counter(
+      "pnl_price_lookups_total", "Asset price lookups by the source of the price: fixed, "
+          + "extra-info or api", "source");
+  public static final MetricFamily<Counter> API_REQUESTS = REGISTRY.counter(
+      "pnl_binance_api_requests_total", "Requests sent to the Binance REST API");
+  public static final MetricFamily<Histogram> API_REQUEST_SECONDS = REGISTRY.histogram(
+      "pnl_binance_api_request_seconds", "Duration of the Binance REST API requests", null);
+  public static final MetricFamily<Gauge> API_USED_WEIGHT = REGISTRY.gauge(
+      "pnl_binance_api_used_weight", "Binance API request weight used in the current minute, "
+          + "as reported in the last response");
+  public static final MetricFamily<Counter> ROWS_WRITTEN = REGISTRY.counter(
+      "pnl_output_rows_written_total", "Rows written to the output CSV files");
+  public static final MetricFamily<Counter> BYTES_WRITTEN = REGISTRY.counter(
+      "pnl_output_bytes_written_total", "Bytes written to the output CSV files");
+
+  static {
+    REGISTRY.gauge("pnl_price_cache_hit_ratio",
+        "Share of the price lookups answered without a Binance API call", () -> {
+          double hits = PRICE_LOOKUPS.labels(PriceLookupEvent.SOURCE_FIXED).get()
+              + PRICE_LOOKUPS.labels(PriceLookupEvent.SOURCE_EXTRA_INFO).get();
+          double total = hits + PRICE_LOOKUPS.labels(PriceLookupEvent.SOURCE_API).get();
+          return total > 0 ? hits / total : Double.NaN;
+        });
+    MetricFamily<FunctionMetric> gcSeconds = REGISTRY.functionCounter(
+        "pnl_gc_pause_seconds_total", "Total time spent in garbage collection", "gc");
+    MetricFamily<FunctionMetric> gcCount = REGISTRY.functionCounter(
+        "pnl_gc_collections_total", "Number of garbage collections", "gc");
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+      gcSeconds.register(gc.getName(),
+          new FunctionMetric(() -> Math.max(gc.getCollectionTime(), 0) / 1000.0));
+      gcCount.register(gc.getName(),
+          new FunctionMetric(() -> Math.max(gc.getCollectionCount(), 0)));
+    }
+  }
+
+  /**
+   * Not allowed to create instances of this class.
+   */
+  private PnlMetrics() {
+  }
+}
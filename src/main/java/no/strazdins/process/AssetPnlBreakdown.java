@@ -0,0 +1,130 @@
+package no.strazdins.process;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import no.strazdins.data.AssetSymbols;
+import no.strazdins.data.Decimal;
+import no.strazdins.tool.TimeConverter;
+
+/**
+ * Realized PNL per asset and per year, accumulated while the transactions are processed.
+ * The PNL of each year is kept in a primitive array indexed by the asset IDs of
+ * {@link AssetSymbols}, as longs scaled by 10^8 (the Decimal scale); the (unrealistic) sums
+ * which don't fit in a long are moved to a separate map.
+ */
+public class AssetPnlBreakdown {
+  private final TreeMap<Integer, YearPnl> years = new TreeMap<>();
+  // The year of the last added PNL, to avoid the year calculation for each transaction
+  private YearPnl currentYear;
+  private long currentYearStart = Long.MAX_VALUE;
+  private long currentYearEnd = Long.MIN_VALUE;
+
+  /**
+   * Realized PNL of one asset within one year.
+   *
+   * @param year   The year
+   * @param asset  The asset
+   * @param pnlUsd The realized PNL, in USD
+   */
+  public record Entry(int year, String asset, Decimal pnlUsd) {
+  }
+
+  /**
+   * The PNL sums of one year.
+   */
+  private static final class YearPnl {
+    private long[] scaledPnl = new long[0];
+    private final BitSet assetIds = new BitSet();
+    private final Map<Integer, Decimal> overflowPnl = new HashMap<>();
+
+    private void add(int assetId, Decimal pnl) {
+      if (assetId >= scaledPnl.length) {
+        scaledPnl = Arrays.copyOf(scaledPnl, Math.max(assetId + 1, scaledPnl.length * 2));
+      }
+      assetIds.set(assetId);
+      Decimal overflow = overflowPnl.get(assetId);
+      if (overflow == null) {
+        try {
+          scaledPnl[assetId] = Math.addExact(scaledPnl[assetId], pnl.toScaledLong());
+          return;
+        } catch (ArithmeticException e) {
+          overflow = Decimal.fromScaledLong(scaledPnl[assetId]);
+        }
+      }
+      overflowPnl.put(assetId, overflow.add(pnl));
+    }
+
+    private Decimal get(int assetId) {
+      Decimal overflow = overflowPnl.get(assetId);
+      return overflow != null ? overflow : Decimal.fromScaledLong(scaledPnl[assetId]);
+    }
+  }
+
+  /**
+   * Add realized PNL of a transaction.
+   *
+   * @param utcTime Time of the transaction
+   * @param asset   The asset which was sold (or otherwise realized)
+   * @param pnl     PNL of the transaction, in USD
+   */
+  public void add(long utcTime, String asset, Decimal pnl) {
+    if (utcTime < currentYearStart || utcTime > currentYearEnd) {
+      int year = TimeConverter.getUtcYear(utcTime);
+      currentYear = years.computeIfAbsent(year, y -> new YearPnl());
+      currentYearStart = TimeConverter.getYearEndTimestamp(year - 1) + 1000;
+      currentYearEnd = TimeConverter.getYearEndTimestamp(year) + 999;
+    }
+    currentYear.add(AssetSymbols.intern(asset), pnl);
+  }
+
+  /**
+   * Add realized PNL of an asset within a year, such as an entry of another breakdown.
+   *
+   * @param entry The PNL to add
+   */
+  public void add(Entry entry) {
+    add(TimeConverter.getYearEndTimestamp(entry.year()), entry.asset(), entry.pnlUsd());
+  }
+
+  /**
+   * Get the realized PNL of an asset within a year.
+   *
+   * @param year  The year
+   * @param asset The asset
+   * @return The PNL in USD, zero if the asset was not realized within the year
+   */
+  public Decimal getPnl(int year, String asset) {
+    YearPnl yearPnl = years.get(year);
+    int assetId = AssetSymbols.getId(asset);
+    if (yearPnl == null || assetId == AssetSymbols.NO_ID || !yearPnl.assetIds.get(assetId)) {
+      return Decimal.ZERO;
+    }
+    return yearPnl.get(assetId);
+  }
+
+  /**
+   * Get all the accumulated PNL values.
+   *
+   * @return The PNL of each year and asset, ordered by year, then by asset
+   */
+  public List<Entry> getEntries() {
+    List<Entry> entries = new ArrayList<>();
+    for (Map.Entry<Integer, YearPnl> year : years.entrySet()) {
+      List<Entry> yearEntries = new ArrayList<>();
+      YearPnl yearPnl = year.getValue();
+      for (int id = yearPnl.assetIds.nextSetBit(0); id >= 0;
+           id = yearPnl.assetIds.nextSetBit(id + 1)) {
+        yearEntries.add(new Entry(year.getKey(), AssetSymbols.getSymbol(id), yearPnl.get(id)));
+      }
+      yearEntries.sort(Comparator.comparing(Entry::asset));
+      entries.addAll(yearEntries);
+    }
+    return entries;
+  }
+}
@@ -0,0 +1,15 @@
+package no.strazdins.process;
+
+import java.util.Set;
+
+/**
+ * State of the auto-invest detection at the start of an auto-invest round - the moment when the
+ * spend operation of the round is seen and the subscription of the round is decided.
+ *
+ * @param utcTime       UTC timestamp of the transaction containing the spend operation
+ * @param previousCoins The coins of the previous round, used to detect subscription changes
+ * @param subscription  The subscription to which the round belongs
+ */
+public record AutoInvestRound(long utcTime, Set<String> previousCoins,
+                              AutoInvestSubscription subscription) {
+}
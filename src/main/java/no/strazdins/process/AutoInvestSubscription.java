@@ -1,5 +1,6 @@
 package no.strazdins.process;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -37,6 +38,18 @@ public class AutoInvestSubscription {
     this.investmentAmount = investmentAmount;
   }
 
+  /**
+   * Create a copy of an auto-invest subscription, with the same proportions and acquired assets.
+   *
+   * @param subscription The subscription to copy
+   */
+  public AutoInvestSubscription(AutoInvestSubscription subscription) {
+    this.utcTime = subscription.utcTime;
+    this.investmentAmount = subscription.investmentAmount;
+    this.assetProportions.putAll(subscription.assetProportions);
+    this.acquiredAssets.addAll(subscription.acquiredAssets);
+  }
+
   /**
    * Register what proportion of the investment will be used to acquire the given asset.
    *
@@ -80,6 +93,24 @@ public class AutoInvestSubscription {
     return utcTime;
   }
 
+  /**
+   * Get the registered proportions of the investment for each asset.
+   *
+   * @return Unmodifiable map asset -&gt; proportion
+   */
+  public Map<String, Decimal> getAssetProportions() {
+    return Collections.unmodifiableMap(assetProportions);
+  }
+
+  /**
+   * Get the assets acquired in the transactions belonging to this subscription.
+   *
+   * @return Unmodifiable set of the acquired assets
+   */
+  public Set<String> getAcquiredAssets() {
+    return Collections.unmodifiableSet(acquiredAssets);
+  }
+
   private boolean allProportionsSumUpToOne() {
     Decimal proportionSum = Decimal.ZERO;
     for (Decimal proportion : assetProportions.values()) {
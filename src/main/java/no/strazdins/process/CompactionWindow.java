@@ -0,0 +1,53 @@
+package no.strazdins.process;
+
+import java.io.IOException;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Time windows within which interest credits can be merged by the {@link InterestCompactor}.
+ * A window never crosses a month boundary, so that the annual reports and the month, quarter
+ * and year period reports stay the same.
+ */
+public enum CompactionWindow {
+  DAY, WEEK, MONTH;
+
+  /**
+   * Create the enum from a string (case-insensitive).
+   *
+   * @param s The window name, as used in the command-line flag: day, week or month
+   * @return Corresponding Enum value
+   * @throws IOException When an unexpected s value is provided
+   */
+  public static CompactionWindow fromString(String s) throws IOException {
+    return switch (s.toUpperCase()) {
+      case "DAY" -> DAY;
+      case "WEEK" -> WEEK;
+      case "MONTH" -> MONTH;
+      default -> throw new IOException("Invalid interest compaction window: " + s);
+    };
+  }
+
+  /**
+   * Get the first day of the window containing the given time.
+   *
+   * @param utcTime UTC timestamp, including milliseconds
+   * @return The first day of the window, as the number of days since 1970-01-01. Two timestamps
+   *     belong to the same window if and only if this number is the same for both.
+   */
+  public long getWindowStart(long utcTime) {
+    LocalDate day = Instant.ofEpochMilli(utcTime).atOffset(ZoneOffset.UTC).toLocalDate();
+    LocalDate start = switch (this) {
+      case DAY -> day;
+      case WEEK -> day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+      case MONTH -> day.withDayOfMonth(1);
+    };
+    if (start.getMonth() != day.getMonth()) {
+      start = day.withDayOfMonth(1);
+    }
+    return start.toEpochDay();
+  }
+}
@@ -0,0 +1,191 @@
+package no.strazdins.process;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import no.strazdins.data.AssetSymbols;
+import no.strazdins.data.Decimal;
+import no.strazdins.data.ExtraInfo;
+import no.strazdins.data.ExtraInfoEntry;
+import no.strazdins.data.ExtraInfoType;
+import no.strazdins.data.Wallet;
+import no.strazdins.data.WalletSnapshot;
+import no.strazdins.tool.BinanceApiClient;
+import no.strazdins.tool.TimeConverter;
+import no.strazdins.transaction.Transaction;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Values the wallet at the end of each day, from the day of the first snapshot to the day of
+ * the last one. The days and the snapshots are walked together in one pass, the holdings at a
+ * day end are those of the last snapshot before it.
+ *
+ * <p>The prices of each asset are kept in a column with one element per day, loaded when the
+ * asset is first seen in the wallet: from the extra info entries at the day ends, the missing
+ * days with one Binance API request per {@link BinanceApiClient#MAX_CANDLES_PER_REQUEST} days.
+ * The HC/USD exchange rate of a day is the one provided in the extra info at the end of that
+ * day (such as a year end or a period end). An older rate is never used: the HC value of a day
+ * without its own rate is left unknown.</p>
+ *
+ * <p>When the price of a held asset is not found for a day, the value of that day is left
+ * unknown and a warning is logged, once per asset. The days without an exchange rate are
+ * counted in one warning.</p>
+ */
+public class DailyValuation {
+  private static final Logger logger = LogManager.getLogger(DailyValuation.class);
+  private static final long DAY_MS = 86_400_000L;
+  // 23:59:59.000, the same as for the annual and period reports
+  private static final long DAY_END_OFFSET = DAY_MS - 1000;
+
+  private final ExtraInfo extraInfo;
+  private final BinanceApiClient apiClient;
+  private final Map<Long, Decimal> exchangeRates = new HashMap<>();
+  private final Set<String> assetsWithMissingPrices = new HashSet<>();
+  private Decimal[][] priceColumns = new Decimal[0][];
+  private long firstDayStart;
+  private int dayCount;
+
+  /**
+   * Create a valuation engine.
+   *
+   * @param extraInfo    The extra info with the exchange rates and the known asset prices
+   * @param homeCurrency The Home currency
+   * @param apiClient    The client for fetching the asset prices missing in the extra info
+   */
+  public DailyValuation(ExtraInfo extraInfo, String homeCurrency, BinanceApiClient apiClient) {
+    this.extraInfo = extraInfo;
+    this.apiClient = apiClient;
+    for (ExtraInfoEntry entry : extraInfo) {
+      if (entry.type() == ExtraInfoType.ASSET_PRICE && entry.asset().equals(homeCurrency)
+          && Math.floorMod(entry.utcTimestamp(), DAY_MS) == DAY_END_OFFSET) {
+        exchangeRates.put(entry.utcTimestamp(), new Decimal(entry.value()));
+      }
+    }
+  }
+
+  /**
+   * Create the daily valuation series.
+   *
+   * @param snapshots The wallet snapshots, ordered chronologically
+   * @return The value at the end of each day, an empty list if there are no snapshots
+   */
+  public List<DailyValue> createSeries(List<WalletSnapshot> snapshots) {
+    if (snapshots.isEmpty()) {
+      return new ArrayList<>();
+    }
+    firstDayStart = getDayStart(snapshots.get(0).getTimestamp());
+    long lastDayStart = getDayStart(snapshots.get(snapshots.size() - 1).getTimestamp());
+    dayCount = (int) ((lastDayStart - firstDayStart) / DAY_MS) + 1;
+
+    List<DailyValue> series = new ArrayList<>(dayCount);
+    Iterator<WalletSnapshot> it = snapshots.iterator();
+    WalletSnapshot next = it.next();
+    Wallet holdings = null;
+    int daysWithoutRate = 0;
+    for (int day = 0; day < dayCount; ++day) {
+      long dayEnd = getDayEnd(day);
+      while (next != null && next.getTimestamp() <= dayEnd) {
+        holdings = next.getWallet();
+        next = it.hasNext() ? it.next() : null;
+      }
+      Decimal valueUsd = Decimal.ZERO;
+      if (holdings != null) {
+        for (String asset : holdings) {
+          Decimal price = getPrice(asset, day);
+          if (price == null) {
+            valueUsd = null;
+            break;
+          }
+          valueUsd = valueUsd.add(holdings.getAssetAmount(asset).multiply(price));
+        }
+      }
+      Decimal exchangeRate = exchangeRates.get(dayEnd);
+      if (exchangeRate == null) {
+        daysWithoutRate++;
+      }
+      Decimal valueHc = valueUsd != null && exchangeRate != null
+          ? valueUsd.multiply(exchangeRate) : null;
+      series.add(new DailyValue(dayEnd, valueUsd, exchangeRate, valueHc));
+    }
+    if (daysWithoutRate > 0) {
+      logger.warn("No HC/USD exchange rate in the extra info for {} of {} days, their value in"
+          + " the home currency is left empty", daysWithoutRate, dayCount);
+    }
+    return series;
+  }
+
+  /**
+   * Get the price of an asset at the end of a day.
+   *
+   * @param asset The asset
+   * @param day   Index of the day
+   * @return The price in USD, null if it is not known
+   */
+  private Decimal getPrice(String asset, int day) {
+    if (asset.equals(Transaction.QUOTE_CURR)) {
+      return Decimal.ONE;
+    }
+    int assetId = AssetSymbols.intern(asset);
+    if (assetId >= priceColumns.length) {
+      priceColumns = Arrays.copyOf(priceColumns, Math.max(assetId + 1, priceColumns.length * 2));
+    }
+    Decimal[] column = priceColumns[assetId];
+    if (column == null) {
+      column = loadPriceColumn(asset, day);
+      priceColumns[assetId] = column;
+    }
+    if (column[day] == null && assetsWithMissingPrices.add(asset)) {
+      logger.warn("Missing {} price at {}, the wallet value is left empty for the days"
+          + " without it", asset, TimeConverter.utcTimeToString(getDayEnd(day)));
+    }
+    return column[day];
+  }
+
+  /**
+   * Load the prices of an asset for the given day and all the following days.
+   *
+   * @param asset    The asset
+   * @param firstDay Index of the first day
+   * @return The price column, null for the days before the first day
+   */
+  private Decimal[] loadPriceColumn(String asset, int firstDay) {
+    Decimal[] column = new Decimal[dayCount];
+    int firstMissing = -1;
+    int lastMissing = -1;
+    for (int day = firstDay; day < dayCount; ++day) {
+      column[day] = extraInfo.getAssetPriceAtTime(getDayEnd(day), asset);
+      if (column[day] == null) {
+        if (firstMissing < 0) {
+          firstMissing = day;
+        }
+        lastMissing = day;
+      }
+    }
+    if (firstMissing >= 0) {
+      logger.info("Fetching {} daily prices for {} days from Binance REST API", asset,
+          lastMissing - firstMissing + 1);
+      Map<Long, Decimal> closePrices = apiClient.getDailyClosePrices(asset,
+          getDayEnd(firstMissing), getDayEnd(lastMissing));
+      for (int day = firstMissing; day <= lastMissing; ++day) {
+        if (column[day] == null) {
+          column[day] = closePrices.get(firstDayStart + day * DAY_MS);
+        }
+      }
+    }
+    return column;
+  }
+
+  private long getDayEnd(int day) {
+    return firstDayStart + day * DAY_MS + DAY_END_OFFSET;
+  }
+
+  private static long getDayStart(long utcTime) {
+    return Math.floorDiv(utcTime, DAY_MS) * DAY_MS;
+  }
+}
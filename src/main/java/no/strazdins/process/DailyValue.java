@@ -0,0 +1,18 @@
+package no.strazdins.process;
+
+import no.strazdins.data.Decimal;
+
+/**
+ * Mark-to-market value of the wallet at the end of one day.
+ *
+ * @param timestamp      Timestamp of the day end, 23:59:59.000
+ * @param walletValueUsd Wallet value in USD, at the daily close prices, null when the price of
+ *                       a held asset is missing
+ * @param exchangeRate   Exchange rate HomeCurrency/USD at the end of the day, null when it is
+ *                       not provided in the extra info
+ * @param walletValueHc  Wallet value in Home currency, null when the USD value or the exchange
+ *                       rate is unknown
+ */
+public record DailyValue(long timestamp, Decimal walletValueUsd, Decimal exchangeRate,
+                         Decimal walletValueHc) {
+}
@@ -0,0 +1,127 @@
+package no.strazdins.process;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import no.strazdins.data.Decimal;
+import no.strazdins.data.WalletDiff;
+
+/**
+ * Aggregated statistics of wallet-change verification, per transaction type: how many
+ * transactions were checked, how many of them had a discrepancy between the wallet changes and
+ * the raw operation changes, and how large the discrepancies were. The magnitudes are kept per
+ * asset, in the units of that asset - the amounts of different assets can't be added up.
+ */
+public class DiscrepancyStatistics {
+  private final Map<String, TypeStatistics> statistics = new TreeMap<>();
+
+  /**
+   * Register a verified transaction.
+   *
+   * @param type          Type of the transaction
+   * @param snapshotDiff  The changes in the wallet made by the transaction
+   * @param operationDiff The changes according to the raw operations of the transaction
+   * @return True if there is a discrepancy between the two diffs
+   */
+  public boolean register(String type, WalletDiff snapshotDiff, WalletDiff operationDiff) {
+    TypeStatistics typeStatistics = statistics.computeIfAbsent(type,
+        t -> new TypeStatistics());
+    typeStatistics.checkedCount++;
+    if (snapshotDiff.equals(operationDiff)) {
+      return false;
+    }
+    Set<String> assets = new HashSet<>(snapshotDiff.getAssets());
+    assets.addAll(operationDiff.getAssets());
+    for (String asset : assets) {
+      Decimal magnitude = snapshotDiff.getAmount(asset)
+          .subtract(operationDiff.getAmount(asset)).abs();
+      if (!magnitude.isZero()) {
+        typeStatistics.assetMagnitudes.computeIfAbsent(asset, a -> new AssetMagnitude())
+            .add(magnitude);
+      }
+    }
+    typeStatistics.discrepancyCount++;
+    return true;
+  }
+
+  /**
+   * Get the number of verified transactions of the given type.
+   *
+   * @param type The transaction type
+   * @return The number of verified transactions
+   */
+  public long getCheckedCount(String type) {
+    TypeStatistics s = statistics.get(type);
+    return s != null ? s.checkedCount : 0;
+  }
+
+  /**
+   * Get the number of transactions of the given type with a discrepancy.
+   *
+   * @param type The transaction type
+   * @return The number of transactions with a discrepancy
+   */
+  public long getDiscrepancyCount(String type) {
+    TypeStatistics s = statistics.get(type);
+    return s != null ? s.discrepancyCount : 0;
+  }
+
+  /**
+   * Get the sum of all discrepancies of one asset for the given transaction type. A
+   * discrepancy of one transaction is the absolute difference of the two asset changes.
+   *
+   * @param type  The transaction type
+   * @param asset The asset
+   * @return The total discrepancy magnitude, in units of the asset
+   */
+  public Decimal getTotalMagnitude(String type, String asset) {
+    TypeStatistics s = statistics.get(type);
+    AssetMagnitude magnitude = s != null ? s.assetMagnitudes.get(asset) : null;
+    return magnitude != null ? magnitude.total : Decimal.ZERO;
+  }
+
+  /**
+   * Get a human-readable summary, one line per transaction type.
+   *
+   * @return The summary lines, ordered by transaction type
+   */
+  public List<String> getSummary() {
+    List<String> lines = new ArrayList<>();
+    for (Map.Entry<String, TypeStatistics> entry : statistics.entrySet()) {
+      TypeStatistics s = entry.getValue();
+      StringBuilder line = new StringBuilder(entry.getKey() + ": " + s.checkedCount
+          + " checked, " + s.discrepancyCount + " with discrepancies");
+      String separator = ", total magnitude ";
+      for (Map.Entry<String, AssetMagnitude> asset : s.assetMagnitudes.entrySet()) {
+        AssetMagnitude magnitude = asset.getValue();
+        line.append(separator).append(magnitude.total.getNiceString()).append(" ")
+            .append(asset.getKey()).append(" (max ").append(magnitude.max.getNiceString())
+            .append(")");
+        separator = ", ";
+      }
+      lines.add(line.toString());
+    }
+    return lines;
+  }
+
+  private static class TypeStatistics {
+    private long checkedCount;
+    private long discrepancyCount;
+    private final Map<String, AssetMagnitude> assetMagnitudes = new TreeMap<>();
+  }
+
+  private static class AssetMagnitude {
+    private Decimal total = Decimal.ZERO;
+    private Decimal max = Decimal.ZERO;
+
+    private void add(Decimal magnitude) {
+      total = total.add(magnitude);
+      if (magnitude.isGreaterThan(max)) {
+        max = magnitude;
+      }
+    }
+  }
+}
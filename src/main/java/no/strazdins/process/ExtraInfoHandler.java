@@ -21,6 +21,10 @@ public class ExtraInfoHandler {
 
   private final String homeCurrency;
 
+  private List<PeriodDefinition> periods = List.of();
+
+  private List<String> additionalHomeCurrencies = List.of();
+
   /**
    * Create a new ExtraInfoHandler.
    *
@@ -34,6 +38,26 @@ public class ExtraInfoHandler {
     readUserProvidedExtraInfo();
   }
 
+  /**
+   * Set the report periods. The HC/USD exchange rate is then necessary at the end of each
+   * period covering the transactions.
+   *
+   * @param periods The period definitions
+   */
+  public void setPeriods(List<PeriodDefinition> periods) {
+    this.periods = periods;
+  }
+
+  /**
+   * Set the additional home currencies, for which annual reports are created as well. The
+   * HC/USD exchange rate at the end of each year is then necessary for these currencies too.
+   *
+   * @param currencies The additional home currencies
+   */
+  public void setAdditionalHomeCurrencies(List<String> currencies) {
+    this.additionalHomeCurrencies = currencies;
+  }
+
   private void readUserProvidedExtraInfo() throws IOException {
     CsvFileParser csvParser = new CsvFileParser(extraFilePath);
     userProvidedInfo = new ExtraInfo();
@@ -52,16 +76,28 @@ public class ExtraInfoHandler {
     ExtraInfo necessaryInfo = detectNecessaryExtraInfo(transactions);
     ExtraInfo missingInfo = new ExtraInfo();
     for (ExtraInfoEntry necessaryEntry : necessaryInfo.getAllEntries()) {
-      if (!userProvidedInfo.contains(necessaryEntry)) {
+      if (!isProvided(necessaryEntry)) {
         missingInfo.add(necessaryEntry);
       }
     }
     return missingInfo;
   }
 
+  private boolean isProvided(ExtraInfoEntry necessaryEntry) {
+    // Exchange rates of several currencies are necessary at the same year end
+    if (!additionalHomeCurrencies.isEmpty()
+        && (homeCurrency.equals(necessaryEntry.asset())
+        || additionalHomeCurrencies.contains(necessaryEntry.asset()))) {
+      return userProvidedInfo.getAssetPriceAtTime(necessaryEntry.utcTimestamp(),
+          necessaryEntry.asset()) != null;
+    }
+    return userProvidedInfo.contains(necessaryEntry);
+  }
+
   private ExtraInfo detectNecessaryExtraInfo(List<Transaction> transactions) {
     ExtraInfo extraInfo = getNecessaryTransactionExtraInfo(transactions);
     getNecessaryYearEndInfo(extraInfo, getTransactionYears(transactions));
+    getNecessaryPeriodEndInfo(extraInfo, transactions);
     return extraInfo;
   }
 
@@ -99,14 +135,46 @@ public class ExtraInfoHandler {
    */
   private void getNecessaryYearEndInfo(ExtraInfo extraInfo, Set<Integer> years) {
     for (int year : years) {
-      extraInfo.add(getYearEndExchangeRateInfo(year));
+      extraInfo.add(getYearEndExchangeRateInfo(year, homeCurrency));
+      for (String currency : additionalHomeCurrencies) {
+        extraInfo.add(getYearEndExchangeRateInfo(year, currency));
+      }
     }
   }
 
-  private ExtraInfoEntry getYearEndExchangeRateInfo(int year) {
+  private static ExtraInfoEntry getYearEndExchangeRateInfo(int year, String currency) {
     long yearEndTimestamp = TimeConverter.getYearEndTimestamp(year);
-    return new ExtraInfoEntry(yearEndTimestamp, ExtraInfoType.ASSET_PRICE, homeCurrency,
-        "<" + homeCurrency + "/USD exchange rate at the end of year " + year + ">");
+    return new ExtraInfoEntry(yearEndTimestamp, ExtraInfoType.ASSET_PRICE, currency,
+        "<" + currency + "/USD exchange rate at the end of year " + year + ">");
+  }
+
+  /**
+   * Get the necessary extra information for the end of each report period, from the period of
+   * the first transaction to the period of the last transaction. Period ends which coincide with
+   * year ends are not duplicated.
+   *
+   * @param extraInfo    The necessary period-end info will be added to this extraInfo object
+   * @param transactions The transactions, sorted by time
+   */
+  private void getNecessaryPeriodEndInfo(ExtraInfo extraInfo, List<Transaction> transactions) {
+    if (transactions.isEmpty()) {
+      return;
+    }
+    long firstTime = transactions.get(0).getUtcTime();
+    long lastTime = transactions.get(transactions.size() - 1).getUtcTime();
+    for (PeriodDefinition period : periods) {
+      long lastEnd = period.getPeriodEnd(lastTime);
+      long end = period.getPeriodEnd(firstTime);
+      while (end <= lastEnd && end != PeriodDefinition.NO_END) {
+        ExtraInfoEntry entry = new ExtraInfoEntry(end, ExtraInfoType.ASSET_PRICE, homeCurrency,
+            "<" + homeCurrency + "/USD exchange rate at " + TimeConverter.utcTimeToString(end)
+                + ">");
+        if (!extraInfo.contains(entry)) {
+          extraInfo.add(entry);
+        }
+        end = period.getPeriodEnd(end + 1000);
+      }
+    }
   }
 
   private ExtraInfoEntry createExtraInfoEntryFromCsvRow(String[] csvRow) throws IOException {
@@ -0,0 +1,123 @@
+package no.strazdins.process;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import no.strazdins.transaction.SavingsInterestTransaction;
+import no.strazdins.transaction.Transaction;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Merges runs of Simple Earn interest credits of the same asset within a time window into a
+ * single interest transaction. Accounts with daily interest in many assets get tens of
+ * thousands of interest transactions, each of which costs a wallet copy when processed.
+ *
+ * <p>A run of credits is merged only if no other transaction touches the same asset between
+ * them, hence the asset amount and the average obtain price are the same as without
+ * compaction whenever that asset is used by another transaction (up to rounding of the
+ * intermediate average prices to 8 decimal places). The merged transaction is placed at the
+ * position (and timestamp) of the last credit in the run.</p>
+ */
+public class InterestCompactor {
+  private static final Logger logger = LogManager.getLogger(InterestCompactor.class);
+  private final CompactionWindow window;
+
+  /**
+   * Create an interest compactor.
+   *
+   * @param window The time window within which the interest credits can be merged
+   */
+  public InterestCompactor(CompactionWindow window) {
+    this.window = Objects.requireNonNull(window);
+  }
+
+  /**
+   * Merge the interest credits in a list of transactions.
+   *
+   * @param transactions Clarified transactions, ordered by time
+   * @return A new list of transactions, where runs of interest credits are merged
+   */
+  public List<Transaction> compact(List<Transaction> transactions) {
+    List<Transaction> result = new ArrayList<>(transactions.size());
+    Map<String, InterestRun> openRuns = new HashMap<>();
+    int mergedRunCount = 0;
+    for (Transaction transaction : transactions) {
+      if (isCompactable(transaction)) {
+        SavingsInterestTransaction credit = (SavingsInterestTransaction) transaction;
+        long windowStart = window.getWindowStart(credit.getUtcTime());
+        InterestRun run = openRuns.get(credit.getBaseCurrency());
+        if (run != null && run.windowStart != windowStart) {
+          mergedRunCount += run.closeInto(result);
+          run = null;
+        }
+        if (run == null) {
+          run = new InterestRun(windowStart);
+          openRuns.put(credit.getBaseCurrency(), run);
+        } else {
+          // The run moves to the position of its latest credit
+          result.set(run.resultIndex, null);
+        }
+        run.credits.add(credit);
+        run.resultIndex = result.size();
+        result.add(credit);
+      } else {
+        for (String asset : transaction.getInvolvedAssets()) {
+          InterestRun run = openRuns.remove(asset);
+          if (run != null) {
+            mergedRunCount += run.closeInto(result);
+          }
+        }
+        result.add(transaction);
+      }
+    }
+    for (InterestRun run : openRuns.values()) {
+      mergedRunCount += run.closeInto(result);
+    }
+    result.removeIf(Objects::isNull);
+    logger.info("Interest compaction: {} transactions reduced to {}, {} runs merged",
+        transactions.size(), result.size(), mergedRunCount);
+    return result;
+  }
+
+  /**
+   * Check whether the transaction is a plain interest credit which can be merged with others.
+   * Subclasses (staking rewards, etc.) are left as they are.
+   *
+   * @param transaction The transaction to check
+   * @return True if the transaction can be merged
+   */
+  private static boolean isCompactable(Transaction transaction) {
+    return transaction.getClass() == SavingsInterestTransaction.class
+        && transaction.getTotalOperationCount() == 1;
+  }
+
+  /**
+   * A run of mergeable interest credits of one asset.
+   */
+  private static class InterestRun {
+    private final long windowStart;
+    private final List<SavingsInterestTransaction> credits = new ArrayList<>();
+    private int resultIndex;
+
+    InterestRun(long windowStart) {
+      this.windowStart = windowStart;
+    }
+
+    /**
+     * Store the merged transaction at the position of the last credit.
+     *
+     * @param result The resulting transaction list
+     * @return 1 if several credits were merged, 0 if the run contained a single credit
+     */
+    int closeInto(List<Transaction> result) {
+      if (credits.size() < 2) {
+        return 0;
+      }
+      result.set(resultIndex, SavingsInterestTransaction.merge(credits));
+      return 1;
+    }
+  }
+}
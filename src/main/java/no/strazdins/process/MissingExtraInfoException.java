@@ -0,0 +1,33 @@
+package no.strazdins.process;
+
+import java.io.IOException;
+import no.strazdins.data.ExtraInfo;
+
+/**
+ * Thrown when the extra-info file does not contain all the information necessary to generate
+ * the report.
+ */
+public class MissingExtraInfoException extends IOException {
+  private static final long serialVersionUID = 1L;
+
+  private final transient ExtraInfo missingInfo;
+
+  /**
+   * Create the exception.
+   *
+   * @param missingInfo The extra info which the user must provide
+   */
+  public MissingExtraInfoException(ExtraInfo missingInfo) {
+    super("Some information missing, can't generate the report");
+    this.missingInfo = missingInfo;
+  }
+
+  /**
+   * Get the missing extra info.
+   *
+   * @return The entries which must be added to the extra-info file
+   */
+  public ExtraInfo getMissingInfo() {
+    return missingInfo;
+  }
+}
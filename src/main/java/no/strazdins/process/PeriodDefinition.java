@@ -0,0 +1,136 @@
+package no.strazdins.process;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Arrays;
+
+/**
+ * Definition of report periods: calendar months, quarters, years, or custom periods ending at
+ * the given dates. As with the annual reports, a period ends at 23:59:59 UTC of its last day.
+ */
+public final class PeriodDefinition {
+  /**
+   * The period end returned for times after the last custom period.
+   */
+  public static final long NO_END = Long.MAX_VALUE;
+
+  private static final String CUSTOM_PREFIX = "custom:";
+  private static final LocalTime END_OF_DAY = LocalTime.of(23, 59, 59);
+
+  private final String name;
+  private final int months;
+  private final long[] customEnds;
+
+  /**
+   * Calendar months.
+   */
+  public static final PeriodDefinition MONTH = new PeriodDefinition("month", 1, null);
+  /**
+   * Calendar quarters.
+   */
+  public static final PeriodDefinition QUARTER = new PeriodDefinition("quarter", 3, null);
+  /**
+   * Calendar years.
+   */
+  public static final PeriodDefinition YEAR = new PeriodDefinition("year", 12, null);
+
+  private PeriodDefinition(String name, int months, long[] customEnds) {
+    this.name = name;
+    this.months = months;
+    this.customEnds = customEnds;
+  }
+
+  /**
+   * Create custom periods. The first period starts with the first transaction, each period
+   * ends at the end of the given day. Transactions after the last day are not in any period.
+   *
+   * @param lastDays The last day of each period
+   * @return The period definition
+   */
+  public static PeriodDefinition custom(LocalDate... lastDays) {
+    long[] ends = Arrays.stream(lastDays).mapToLong(PeriodDefinition::getEndOfDay)
+        .sorted().distinct().toArray();
+    return new PeriodDefinition("custom", 0, ends);
+  }
+
+  /**
+   * Create the period definition from a string (case-insensitive).
+   *
+   * @param s The definition, as used in the command-line flag: month, quarter, year, or
+   *          custom:yyyy-MM-dd|yyyy-MM-dd|... with the last day of each custom period
+   * @return The period definition
+   * @throws IOException When the definition is invalid
+   */
+  public static PeriodDefinition fromString(String s) throws IOException {
+    String lowerCase = s.toLowerCase();
+    if (lowerCase.startsWith(CUSTOM_PREFIX)) {
+      try {
+        LocalDate[] days = Arrays.stream(s.substring(CUSTOM_PREFIX.length()).split("\\|"))
+            .map(String::trim).map(LocalDate::parse).toArray(LocalDate[]::new);
+        return custom(days);
+      } catch (DateTimeParseException e) {
+        throw new IOException("Invalid custom period end date: " + e.getParsedString());
+      }
+    }
+    return switch (lowerCase) {
+      case "month" -> MONTH;
+      case "quarter" -> QUARTER;
+      case "year" -> YEAR;
+      default -> throw new IOException("Invalid report period: " + s);
+    };
+  }
+
+  /**
+   * Get the name of the periods, used in the names of the output files.
+   *
+   * @return The name: month, quarter, year or custom
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Check whether these are custom periods, which may end on any day.
+   *
+   * @return True for custom periods, false for the calendar ones
+   */
+  public boolean isCustom() {
+    return customEnds != null;
+  }
+
+  /**
+   * Get the end of the period containing the given time.
+   *
+   * @param utcTime UTC timestamp, including milliseconds
+   * @return Timestamp of 23:59:59 of the last day of the period; {@link #NO_END} when the time
+   *     is after the last custom period
+   */
+  public long getPeriodEnd(long utcTime) {
+    LocalDate day = LocalDate.ofEpochDay(Math.floorDiv(utcTime, 86_400_000L));
+    if (customEnds != null) {
+      long dayEnd = getEndOfDay(day);
+      for (long end : customEnds) {
+        if (end >= dayEnd) {
+          return end;
+        }
+      }
+      return NO_END;
+    }
+    int lastMonth = ((day.getMonthValue() - 1) / months + 1) * months;
+    LocalDate lastDay = day.withMonth(lastMonth).with(TemporalAdjusters.lastDayOfMonth());
+    return getEndOfDay(lastDay);
+  }
+
+  private static long getEndOfDay(LocalDate day) {
+    return day.atTime(END_OF_DAY).toInstant(ZoneOffset.UTC).toEpochMilli();
+  }
+
+  @Override
+  public String toString() {
+    return name;
+  }
+}
@@ -0,0 +1,20 @@
+package no.strazdins.process;
+
+import no.strazdins.data.Decimal;
+
+/**
+ * Contains the information necessary for presenting the Profit-and-loss (PNL) report of one
+ * period, such as a month or a quarter.
+ *
+ * @param timestamp      Timestamp of the period end, 23:59:59.000 of the last day
+ * @param periodPnlUsd   PNL within the period, in USD
+ * @param runningPnlUsd  Running PNL at the end of the period, in USD
+ * @param exchangeRate   Exchange rate HomeCurrency/USD at the end of the period
+ * @param periodPnlHc    PNL within the period, in Home currency
+ * @param walletValueUsd Wallet value in USD at the end of the period
+ * @param walletValueHc  Wallet value in Home currency at the end of the period
+ */
+public record PeriodReport(long timestamp, Decimal periodPnlUsd, Decimal runningPnlUsd,
+                           Decimal exchangeRate, Decimal periodPnlHc, Decimal walletValueUsd,
+                           Decimal walletValueHc) {
+}
@@ -0,0 +1,207 @@
+package no.strazdins.process;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Tracks the progress of a long report generation: the bytes of the input file parsed, then
+ * the transactions processed. The progress is published to the listener at most once per
+ * interval, and when a phase finishes. The last published progress can be read from any
+ * thread with {@link #getProgress()}. Stalled jobs can be detected with
+ * {@link #isStalled(long)}, which checks the time of the last update, not of the last
+ * notification.
+ *
+ * <p>The tracker is updated by one thread - the one generating the report.</p>
+ */
+public class ProgressTracker {
+  /**
+   * The default interval between two progress notifications.
+   */
+  public static final long DEFAULT_INTERVAL_MILLIS = 10_000;
+
+  private static final Logger logger = LogManager.getLogger(ProgressTracker.class);
+  private static final long NANOS_PER_MILLI = 1_000_000;
+
+  private final long intervalNanos;
+  private final Listener listener;
+  private final LongSupplier nanoClock;
+
+  private String phase = "";
+  private String unit = "";
+  private long total;
+  private long done;
+  private long phaseStartNanos;
+  private long lastPublishedNanos;
+  private long lastPublishedDone;
+  private volatile Progress progress;
+  private volatile long lastActivityNanos;
+
+  /**
+   * Receives the progress notifications.
+   */
+  @FunctionalInterface
+  public interface Listener {
+    /**
+     * Called with the current progress, in the thread generating the report.
+     *
+     * @param progress The progress
+     */
+    void onProgress(Progress progress);
+  }
+
+  /**
+   * Progress of a phase.
+   *
+   * @param phase         Name of the phase: read-input or process
+   * @param unit          The unit of work in the phase: bytes or transactions
+   * @param done          Units done
+   * @param total         Units in total, 0 if unknown
+   * @param percent       Percent done, -1 if the total is unknown
+   * @param ratePerSecond Units done per second since the previous notification
+   * @param etaMillis     Estimated time until the phase is done, based on the average rate of
+   *                      the phase; -1 if unknown
+   * @param finished      True when the phase is finished
+   */
+  public record Progress(String phase, String unit, long done, long total, double percent,
+                         double ratePerSecond, long etaMillis, boolean finished) {
+    @Override
+    public String toString() {
+      String eta = etaMillis >= 0 ? ", ETA " + formatDuration(etaMillis) : "";
+      String percentDone = percent >= 0 ? String.format("%.1f%% ", percent) : "";
+      return String.format("%s %s(%d/%d %s), %.0f %s/s%s", phase, percentDone, done, total,
+          unit, ratePerSecond, unit, finished ? ", done" : eta);
+    }
+  }
+
+  /**
+   * Create a progress tracker.
+   *
+   * @param intervalMillis The minimum interval between two notifications, in milliseconds
+   * @param listener       The listener of the progress notifications
+   */
+  public ProgressTracker(long intervalMillis, Listener listener) {
+    this(intervalMillis, listener, System::nanoTime);
+  }
+
+  ProgressTracker(long intervalMillis, Listener listener, LongSupplier nanoClock) {
+    this.intervalNanos = intervalMillis * NANOS_PER_MILLI;
+    this.listener = listener;
+    this.nanoClock = nanoClock;
+    this.lastActivityNanos = nanoClock.getAsLong();
+  }
+
+  /**
+   * Create a progress tracker which logs the progress.
+   *
+   * @param intervalMillis The minimum interval between two log lines, in milliseconds
+   * @return The progress tracker
+   */
+  public static ProgressTracker createLogging(long intervalMillis) {
+    return new ProgressTracker(intervalMillis, p -> logger.info("Progress: {}", p));
+  }
+
+  /**
+   * Start a new phase.
+   *
+   * @param phase Name of the phase
+   * @param unit  The unit of work
+   * @param total The total number of units in the phase, 0 if unknown
+   */
+  public void startPhase(String phase, String unit, long total) {
+    this.phase = phase;
+    this.unit = unit;
+    this.total = total;
+    this.done = 0;
+    this.phaseStartNanos = nanoClock.getAsLong();
+    this.lastPublishedNanos = phaseStartNanos;
+    this.lastPublishedDone = 0;
+    this.progress = createProgress(phaseStartNanos, false);
+    this.lastActivityNanos = phaseStartNanos;
+  }
+
+  /**
+   * Set the number of units done in the current phase.
+   *
+   * @param done The number of units done since the start of the phase
+   */
+  public void update(long done) {
+    this.done = done;
+    long now = nanoClock.getAsLong();
+    lastActivityNanos = now;
+    if (now - lastPublishedNanos >= intervalNanos) {
+      publish(now, false);
+    }
+  }
+
+  /**
+   * Register more units done in the current phase.
+   *
+   * @param count The number of units done since the last update
+   */
+  public void advance(long count) {
+    update(done + count);
+  }
+
+  /**
+   * Finish the current phase, notify the listener.
+   */
+  public void finishPhase() {
+    if (total > 0) {
+      done = Math.max(done, total);
+    }
+    publish(nanoClock.getAsLong(), true);
+  }
+
+  /**
+   * Get the last published progress.
+   *
+   * @return The progress, null if no phase has been started
+   */
+  public Progress getProgress() {
+    return progress;
+  }
+
+  /**
+   * Check whether the progress was not updated for the given time. The updates count even
+   * when they are not published, hence the threshold may be shorter than the notification
+   * interval. Note: stages which are not tracked (for example, the grouping of transactions)
+   * don't update the progress.
+   *
+   * @param thresholdMillis The maximum time without progress, in milliseconds
+   * @return True when the last update is older than the threshold
+   */
+  public boolean isStalled(long thresholdMillis) {
+    return (nanoClock.getAsLong() - lastActivityNanos) / NANOS_PER_MILLI > thresholdMillis;
+  }
+
+  private void publish(long now, boolean finished) {
+    Progress current = createProgress(now, finished);
+    lastPublishedNanos = now;
+    lastPublishedDone = done;
+    progress = current;
+    lastActivityNanos = now;
+    listener.onProgress(current);
+  }
+
+  private Progress createProgress(long now, boolean finished) {
+    double percent = total > 0 ? Math.min(100.0 * done / total, 100.0) : -1;
+    long sinceLastNanos = now - lastPublishedNanos;
+    double rate = sinceLastNanos > 0
+        ? (done - lastPublishedDone) * 1e9 / sinceLastNanos : 0;
+    long phaseNanos = now - phaseStartNanos;
+    long eta = -1;
+    if (total > 0 && done > 0 && phaseNanos > 0) {
+      eta = (long) ((double) (total - done) * phaseNanos / done / NANOS_PER_MILLI);
+    }
+    return new Progress(phase, unit, done, total, percent, rate, Math.max(eta, -1), finished);
+  }
+
+  private static String formatDuration(long millis) {
+    Duration duration = Duration.ofMillis(millis);
+    return duration.toHours() > 0
+        ? String.format("%dh %dm", duration.toHours(), duration.toMinutesPart())
+        : String.format("%dm %ds", duration.toMinutes(), duration.toSecondsPart());
+  }
+}
@@ -0,0 +1,19 @@
+package no.strazdins.process;
+
+import no.strazdins.data.Decimal;
+
+/**
+ * Realized gain of one lot (or a part of it) in a sell or withdraw transaction, with the FIFO
+ * cost basis.
+ *
+ * @param realizationTime Time of the sell or withdraw transaction
+ * @param asset           The realized asset
+ * @param obtainTime      Time when the lot was obtained, 0 if unknown
+ * @param amount          The realized amount of the lot
+ * @param costUsd         The cost of the realized amount, in USD
+ * @param proceedsUsd     The share of the transaction proceeds (net of fees), in USD
+ * @param gainUsd         The realized gain (negative for a loss), in USD
+ */
+public record RealizedLot(long realizationTime, String asset, long obtainTime, Decimal amount,
+                          Decimal costUsd, Decimal proceedsUsd, Decimal gainUsd) {
+}
@@ -0,0 +1,161 @@
+package no.strazdins.process;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import no.strazdins.data.CostBasisStrategy;
+import no.strazdins.data.ExtraInfo;
+import no.strazdins.data.ExtraInfoEntry;
+
+/**
+ * State stored after a run, used to recompute only a part of the report when the extra info
+ * is corrected later. Contains the extra info used in the run and wallet checkpoints taken
+ * periodically, by default at every {@link #CHECKPOINT_INTERVAL}-th transaction. When only the
+ * extra info has changed, the report is recomputed from the last checkpoint before the earliest
+ * changed extra-info entry - no transaction before an entry depends on it.
+ *
+ * <p>Unlike the checkpoint of an appended input (see {@link ReportCheckpoint}), the whole input
+ * is grouped again, the transactions before the checkpoint are only skipped. Therefore the
+ * stored auto-invest state is not needed, and the input file must be the same.</p>
+ */
+public class RecomputationState {
+  /**
+   * By default, a wallet checkpoint is stored after this many transactions.
+   */
+  public static final int CHECKPOINT_INTERVAL = 1000;
+
+  private static final int FORMAT_VERSION = 2;
+  private static final Gson gson = new Gson();
+
+  private final int version;
+  private final long inputSize;
+  private final long inputModified;
+  private final String homeCurrency;
+  private final String compactionWindow;
+  private final String costBasisStrategy;
+  private final List<ExtraInfoEntry> extraInfo;
+  private final List<ReportCheckpoint> checkpoints;
+
+  /**
+   * Create the state of a finished run.
+   *
+   * @param inputFilePath    Path to the input file of the run
+   * @param homeCurrency     The home currency of the run
+   * @param compactionWindow The interest compaction window used in the run, null if none
+   * @param costBasis        The cost basis strategy used in the run
+   * @param extraInfo        The extra info used in the run, including the fetched prices
+   * @param checkpoints      The wallet checkpoints, ordered by time
+   * @throws IOException When the input file can't be accessed
+   */
+  RecomputationState(String inputFilePath, String homeCurrency,
+                     CompactionWindow compactionWindow, CostBasisStrategy costBasis,
+                     ExtraInfo extraInfo,
+                     List<ReportCheckpoint> checkpoints) throws IOException {
+    Path inputPath = Path.of(inputFilePath);
+    this.version = FORMAT_VERSION;
+    this.inputSize = Files.size(inputPath);
+    this.inputModified = Files.getLastModifiedTime(inputPath).toMillis();
+    this.homeCurrency = homeCurrency;
+    this.compactionWindow = compactionWindow != null ? compactionWindow.name() : null;
+    this.costBasisStrategy = costBasis.name();
+    this.extraInfo = new ArrayList<>(extraInfo.getAllEntries());
+    this.checkpoints = new ArrayList<>(checkpoints);
+  }
+
+  /**
+   * Read the state from a JSON file.
+   *
+   * @param filePath Path to the state file
+   * @return The state
+   * @throws IOException When the file can't be read or does not contain a valid state
+   */
+  public static RecomputationState readFromFile(String filePath) throws IOException {
+    RecomputationState state;
+    try {
+      String json = Files.readString(Path.of(filePath), StandardCharsets.UTF_8);
+      state = gson.fromJson(json, RecomputationState.class);
+    } catch (JsonParseException e) {
+      throw new IOException("Invalid state file " + filePath + ": " + e.getMessage());
+    }
+    if (state == null || state.version != FORMAT_VERSION || state.extraInfo == null
+        || state.checkpoints == null || state.checkpoints.isEmpty()) {
+      throw new IOException("Invalid state file " + filePath);
+    }
+    return state;
+  }
+
+  /**
+   * Write the state to a JSON file. The file is replaced atomically.
+   *
+   * @param filePath Path to the state file
+   * @throws IOException When writing the file fails
+   */
+  public void writeToFile(String filePath) throws IOException {
+    Path tmpPath = Path.of(filePath + ".tmp");
+    Files.writeString(tmpPath, gson.toJson(this), StandardCharsets.UTF_8);
+    Files.move(tmpPath, Path.of(filePath), StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Check whether the state was stored for a run with the same input file and options.
+   *
+   * @param inputFilePath    Path to the input file
+   * @param homeCurrency     The home currency
+   * @param compactionWindow The interest compaction window, null if none
+   * @param costBasis        The cost basis strategy
+   * @return True if the state can be used for recomputation with these parameters
+   * @throws IOException When the input file can't be accessed
+   */
+  public boolean matches(String inputFilePath, String homeCurrency,
+                         CompactionWindow compactionWindow, CostBasisStrategy costBasis)
+      throws IOException {
+    Path inputPath = Path.of(inputFilePath);
+    return Files.size(inputPath) == inputSize
+        && Files.getLastModifiedTime(inputPath).toMillis() == inputModified
+        && Objects.equals(this.homeCurrency, homeCurrency)
+        && Objects.equals(this.compactionWindow,
+        compactionWindow != null ? compactionWindow.name() : null)
+        && costBasis.name().equals(this.costBasisStrategy);
+  }
+
+  /**
+   * Find the checkpoint from which the report must be recomputed with the new extra info:
+   * the last checkpoint before the earliest changed entry.
+   *
+   * @param newExtraInfo The extra info for the new run
+   * @return The checkpoint; the first checkpoint (before any transaction) when the very first
+   *     transactions are affected
+   */
+  public ReportCheckpoint findCheckpoint(ExtraInfo newExtraInfo) {
+    ExtraInfo oldExtraInfo = new ExtraInfo();
+    for (ExtraInfoEntry entry : extraInfo) {
+      oldExtraInfo.add(entry);
+    }
+    long earliestChange = oldExtraInfo.getEarliestDifference(newExtraInfo);
+    ReportCheckpoint found = checkpoints.get(0);
+    for (ReportCheckpoint checkpoint : checkpoints) {
+      if (checkpoint.getResumeTime() <= earliestChange) {
+        found = checkpoint;
+      }
+    }
+    return found;
+  }
+
+  /**
+   * Get the stored checkpoints up to the given one, inclusive.
+   *
+   * @param rowCount The row count of the last checkpoint to include
+   * @return The checkpoints with row count up to the given one, ordered by time
+   */
+  List<ReportCheckpoint> getCheckpointsUpTo(int rowCount) {
+    return checkpoints.stream().filter(c -> c.getRowCount() <= rowCount).toList();
+  }
+}
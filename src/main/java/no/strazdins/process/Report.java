@@ -1,21 +1,30 @@
 package no.strazdins.process;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import no.strazdins.data.CostBasisStrategy;
 import no.strazdins.data.Decimal;
 import no.strazdins.data.ExtraInfo;
 import no.strazdins.data.ExtraInfoEntry;
 import no.strazdins.data.ExtraInfoType;
+import no.strazdins.data.LotPortion;
 import no.strazdins.data.Wallet;
 import no.strazdins.data.WalletDiff;
 import no.strazdins.data.WalletSnapshot;
+import no.strazdins.jfr.DiffVerificationEvent;
+import no.strazdins.jfr.PriceLookupEvent;
+import no.strazdins.jfr.TransactionProcessEvent;
+import no.strazdins.metrics.PnlMetrics;
 import no.strazdins.tool.BinanceApiClient;
 import no.strazdins.tool.ReportHelper;
 import no.strazdins.tool.TimeConverter;
 import no.strazdins.transaction.AutoInvestTransaction;
-import no.strazdins.transaction.SavingsRedemptionTransaction;
-import no.strazdins.transaction.SavingsSubscriptionTransaction;
 import no.strazdins.transaction.Transaction;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -29,13 +38,103 @@ public class Report implements Iterable<WalletSnapshot> {
   private final ExtraInfo extraInfo;
   private boolean extraInfoUpdated = false;
   private final List<WalletSnapshot> walletSnapshots = new LinkedList<>();
+  private final WalletSnapshot initialSnapshot;
   private WalletSnapshot currentWalletSnapshot;
+  private VerificationPolicy verificationPolicy = VerificationPolicy.full();
+  private final DiscrepancyStatistics discrepancyStatistics = new DiscrepancyStatistics();
+  private long processedCount = 0;
+  private ProgressTracker progressTracker;
+  private final List<PeriodState> periodStates = new ArrayList<>();
+  private final AssetPnlBreakdown assetPnl = new AssetPnlBreakdown();
+  private boolean dailyValuesEnabled = false;
+  private final List<RealizedLot> realizedLots = new ArrayList<>();
 
-  private final BinanceApiClient apiClient = new BinanceApiClient();
+  private final BinanceApiClient apiClient;
+
+  /**
+   * The wallet snapshot at the end of a period.
+   *
+   * @param timestamp Timestamp of the period end
+   * @param snapshot  The snapshot after the last transaction before the period end
+   */
+  private record PeriodEnd(long timestamp, WalletSnapshot snapshot) {
+  }
+
+  /**
+   * The period-end snapshots of one period definition, captured while the transactions are
+   * processed.
+   */
+  private static final class PeriodState {
+    private static final long NOT_STARTED = Long.MIN_VALUE;
+    private static final long ONE_SECOND_MS = 1000;
+
+    private final PeriodDefinition definition;
+    private final List<PeriodEnd> completedPeriods = new ArrayList<>();
+    private long currentEnd = NOT_STARTED;
+
+    private PeriodState(PeriodDefinition definition) {
+      this.definition = definition;
+    }
+
+    /**
+     * Move to the period of the given time. All the periods which end before the time are
+     * completed with the given snapshot, including those without any transactions.
+     *
+     * @param utcTime      Time of the next transaction
+     * @param lastSnapshot The snapshot after the last transaction before the given time
+     */
+    private void advanceTo(long utcTime, WalletSnapshot lastSnapshot) {
+      if (utcTime <= currentEnd) {
+        return;
+      }
+      long end = definition.getPeriodEnd(utcTime);
+      if (currentEnd != NOT_STARTED) {
+        while (currentEnd < end) {
+          completedPeriods.add(new PeriodEnd(currentEnd, lastSnapshot));
+          currentEnd = definition.getPeriodEnd(currentEnd + ONE_SECOND_MS);
+        }
+      }
+      currentEnd = end;
+    }
+
+    private List<PeriodEnd> getPeriodEnds(WalletSnapshot lastSnapshot) {
+      List<PeriodEnd> periodEnds = new ArrayList<>(completedPeriods);
+      if (currentEnd != NOT_STARTED && currentEnd != PeriodDefinition.NO_END) {
+        periodEnds.add(new PeriodEnd(currentEnd, lastSnapshot));
+      }
+      return periodEnds;
+    }
+  }
 
   public Report(ExtraInfo extraInfo) {
+    this(extraInfo, WalletSnapshot.createEmpty());
+  }
+
+  /**
+   * Create a report which continues from the given wallet state.
+   *
+   * @param extraInfo       The extra information provided by the user
+   * @param initialSnapshot The wallet state before the first transaction of this report
+   */
+  public Report(ExtraInfo extraInfo, WalletSnapshot initialSnapshot) {
+    this(extraInfo, initialSnapshot, new BinanceApiClient());
+  }
+
+  Report(ExtraInfo extraInfo, WalletSnapshot initialSnapshot, BinanceApiClient apiClient) {
     this.extraInfo = extraInfo;
-    this.currentWalletSnapshot = WalletSnapshot.createEmpty();
+    this.initialSnapshot = initialSnapshot;
+    this.currentWalletSnapshot = initialSnapshot;
+    this.apiClient = apiClient;
+  }
+
+  /**
+   * Get the wallet state before the first transaction of this report.
+   *
+   * @return The initial snapshot - an empty wallet unless the report is continued from an
+   *     earlier run
+   */
+  public WalletSnapshot getInitialSnapshot() {
+    return initialSnapshot;
   }
 
   /**
@@ -44,11 +143,240 @@ public class Report implements Iterable<WalletSnapshot> {
    * @param transaction The transaction to process
    */
   public void process(Transaction transaction) {
+    for (PeriodState periodState : periodStates) {
+      periodState.advanceTo(transaction.getUtcTime(), currentWalletSnapshot);
+    }
+    TransactionProcessEvent event = new TransactionProcessEvent();
+    event.begin();
+    long startNanos = System.nanoTime();
     WalletSnapshot newSnapshot = transaction.process(currentWalletSnapshot,
         getExtraInfo(transaction));
-    WalletDiff snapshotDiff = newSnapshot.getDiffFrom(currentWalletSnapshot);
+    PnlMetrics.TRANSACTION_PROCESS_SECONDS.labels(transaction.getType())
+        .observeNanos(System.nanoTime() - startNanos);
+    event.end();
+    if (event.shouldCommit()) {
+      event.transactionType = transaction.getClass();
+      event.transactionTime = transaction.getUtcTime();
+      event.operationCount = transaction.getTotalOperationCount();
+      event.commit();
+    }
+    // Wallet-neutral transactions (such as moving assets between Spot and Earn) share the
+    // wallet with the previous snapshot, their raw operations are allowed to differ
+    if (!newSnapshot.isWalletNeutral()
+        && verificationPolicy.shouldVerify(transaction, processedCount)) {
+      verifyWalletChanges(transaction, newSnapshot);
+    }
+    if (!transaction.getPnl().isZero()) {
+      assetPnl.add(transaction.getUtcTime(), transaction.getBaseCurrency(), transaction.getPnl());
+    }
+    if (!transaction.getRealizedLots().isEmpty()) {
+      addRealizedLots(transaction);
+    }
+    walletSnapshots.add(newSnapshot);
+    currentWalletSnapshot = newSnapshot;
+    processedCount++;
+    if (progressTracker != null) {
+      progressTracker.advance(1);
+    }
+  }
+
+  /**
+   * Split the proceeds of a sell or withdraw transaction between the realized lots, in
+   * proportion to their amounts. The last lot gets the rounding remainder, hence the gains
+   * add up to the PNL of the transaction.
+   *
+   * @param transaction The transaction which realized the lots
+   */
+  private void addRealizedLots(Transaction transaction) {
+    List<LotPortion> portions = transaction.getRealizedLots();
+    Decimal totalCost = Decimal.ZERO;
+    Decimal totalAmount = Decimal.ZERO;
+    for (LotPortion portion : portions) {
+      totalCost = totalCost.add(portion.getCost());
+      totalAmount = totalAmount.add(portion.amount());
+    }
+    Decimal proceeds = transaction.getPnl().add(totalCost);
+    Decimal proceedsLeft = proceeds;
+    for (int i = 0; i < portions.size(); ++i) {
+      LotPortion portion = portions.get(i);
+      Decimal lotProceeds = i < portions.size() - 1
+          ? proceeds.multiply(portion.amount()).divide(totalAmount) : proceedsLeft;
+      proceedsLeft = proceedsLeft.subtract(lotProceeds);
+      Decimal cost = portion.getCost();
+      realizedLots.add(new RealizedLot(transaction.getUtcTime(), transaction.getBaseCurrency(),
+          portion.obtainTime(), portion.amount(), cost, lotProceeds, lotProceeds.subtract(cost)));
+    }
+  }
+
+  /**
+   * Skip a transaction for which the wallet state is restored from a checkpoint - no snapshot
+   * is created, only the state shared with later transactions is prepared.
+   *
+   * @param transaction The skipped transaction
+   */
+  public void skip(Transaction transaction) {
+    transaction.skipProcessing(getExtraInfo(transaction));
+    if (progressTracker != null) {
+      progressTracker.advance(1);
+    }
+  }
+
+  /**
+   * Set the tracker which is advanced for every processed or skipped transaction.
+   *
+   * @param progressTracker The progress tracker, null to disable tracking (the default)
+   */
+  public void setProgressTracker(ProgressTracker progressTracker) {
+    this.progressTracker = progressTracker;
+  }
+
+  /**
+   * Set the periods for which the period reports are created, in addition to the annual
+   * reports. Must be set before the transactions are processed.
+   *
+   * @param periods The period definitions, see {@link #createPeriodReports()}
+   */
+  public void setPeriods(List<PeriodDefinition> periods) {
+    periodStates.clear();
+    for (PeriodDefinition period : periods) {
+      periodStates.add(new PeriodState(period));
+    }
+  }
+
+  /**
+   * Get the realized PNL per asset and per year, of the processed transactions.
+   *
+   * @return The PNL breakdown
+   */
+  public AssetPnlBreakdown getAssetPnlBreakdown() {
+    return assetPnl;
+  }
+
+  /**
+   * Set the cost basis strategy. Must be set before the transactions are processed.
+   *
+   * @param strategy The cost basis strategy, see {@link CostBasisStrategy}
+   */
+  public void setCostBasisStrategy(CostBasisStrategy strategy) {
+    currentWalletSnapshot.getWallet().setCostBasisStrategy(strategy);
+  }
+
+  /**
+   * Get the cost basis strategy used in this report.
+   *
+   * @return The cost basis strategy
+   */
+  public CostBasisStrategy getCostBasisStrategy() {
+    return currentWalletSnapshot.getWallet().getCostBasisStrategy();
+  }
+
+  /**
+   * Get the realized gains of the lots in the sell and withdraw transactions, with the FIFO
+   * cost basis.
+   *
+   * @return The realized lots, in the order of the transactions; empty with the average cost
+   *     basis
+   */
+  public List<RealizedLot> getRealizedLots() {
+    return realizedLots;
+  }
+
+  /**
+   * Enable the daily valuation series, see {@link #createDailyValues(String)}.
+   *
+   * @param enabled When true, the series is created with the other reports
+   */
+  public void setDailyValuesEnabled(boolean enabled) {
+    this.dailyValuesEnabled = enabled;
+  }
+
+  /**
+   * Check whether the daily valuation series is created with the other reports.
+   *
+   * @return True when enabled
+   */
+  public boolean isDailyValuesEnabled() {
+    return dailyValuesEnabled;
+  }
+
+  /**
+   * Create the mark-to-market value of the wallet at the end of each day, from the day of the
+   * first processed transaction to the day of the last one.
+   *
+   * @param homeCurrency The Home currency
+   * @return The daily values, see {@link DailyValuation}
+   */
+  public List<DailyValue> createDailyValues(String homeCurrency) {
+    return new DailyValuation(extraInfo, homeCurrency, apiClient).createSeries(walletSnapshots);
+  }
+
+  /**
+   * Get the periods for which the period reports are created.
+   *
+   * @return The period definitions, empty if none
+   */
+  public List<PeriodDefinition> getPeriods() {
+    return periodStates.stream().map(state -> state.definition).toList();
+  }
+
+  /**
+   * Set the policy deciding which transactions are verified - whether the wallet changes
+   * correspond to the raw operation changes.
+   *
+   * @param verificationPolicy The verification policy, the default is to verify all
+   */
+  public void setVerificationPolicy(VerificationPolicy verificationPolicy) {
+    this.verificationPolicy = verificationPolicy;
+  }
+
+  /**
+   * Get the statistics of the wallet-change discrepancies found so far.
+   *
+   * @return The discrepancy statistics, per transaction type
+   */
+  public DiscrepancyStatistics getDiscrepancyStatistics() {
+    return discrepancyStatistics;
+  }
+
+  /**
+   * Log the summary of the wallet-change verification.
+   */
+  public void logVerificationSummary() {
+    if (verificationPolicy.isOff()) {
+      logger.info("Wallet change verification was switched off");
+      return;
+    }
+    logger.info("Wallet change verification ({}) summary:", verificationPolicy);
+    for (String line : discrepancyStatistics.getSummary()) {
+      logger.info("   {}", line);
+    }
+  }
+
+  /**
+   * Check whether the wallet changes made by the transaction correspond to the sum of its raw
+   * operation changes, log a warning if they don't. Only the assets touched by the transaction
+   * and the assets in its raw operations are compared - all the other assets are the same in
+   * both wallets, because the new wallet is a copy of the previous one.
+   *
+   * @param transaction The processed transaction
+   * @param newSnapshot The wallet snapshot after the transaction
+   */
+  private void verifyWalletChanges(Transaction transaction, WalletSnapshot newSnapshot) {
+    DiffVerificationEvent event = new DiffVerificationEvent();
+    event.begin();
     WalletDiff rawOperationDiff = transaction.getOperationDiff();
-    if (!snapshotDiff.equals(rawOperationDiff) && !isDiffDiscrepancyAllowed(transaction)) {
+    WalletDiff snapshotDiff = newSnapshot.getWallet().getTouchedDiffFrom(
+        currentWalletSnapshot.getWallet(), rawOperationDiff.getAssetIds());
+    boolean discrepancy = discrepancyStatistics.register(transaction.getType(), snapshotDiff,
+        rawOperationDiff);
+    event.end();
+    if (event.shouldCommit()) {
+      event.transactionType = transaction.getClass();
+      event.assetCount = snapshotDiff.getAssetIds().cardinality();
+      event.discrepancy = discrepancy;
+      event.commit();
+    }
+    if (discrepancy) {
       if (transaction instanceof AutoInvestTransaction) {
         logger.debug("Wallet changes for {} differ from operation changes:", transaction);
         logger.debug("   Operation diff: {}", rawOperationDiff);
@@ -59,26 +387,28 @@ public class Report implements Iterable<WalletSnapshot> {
         logger.warn("   Snapshot  diff: {}", snapshotDiff);
       }
     }
-    walletSnapshots.add(newSnapshot);
-    currentWalletSnapshot = newSnapshot;
+  }
+
+  private ExtraInfoEntry getExtraInfo(Transaction transaction) {
+    return extraInfo.getAtTime(transaction.getUtcTime());
   }
 
   /**
-   * Return true if it is OK for the transaction to have a wallet diff other than the sum of
-   * raw operation changes. This can be OK, for example, for savings subscriptions and
-   * savings withdrawals operations.
+   * Get the number of wallet snapshots - one per processed transaction.
    *
-   * @param transaction The transaction to check
-   * @return true if it is OK for this transaction to have a diff which is not the same as sum
-   *     of individual operation diffs
+   * @return The number of snapshots in the report
    */
-  private boolean isDiffDiscrepancyAllowed(Transaction transaction) {
-    return transaction instanceof SavingsSubscriptionTransaction
-        || transaction instanceof SavingsRedemptionTransaction;
+  public int getSnapshotCount() {
+    return walletSnapshots.size();
   }
 
-  private ExtraInfoEntry getExtraInfo(Transaction transaction) {
-    return extraInfo.getAtTime(transaction.getUtcTime());
+  /**
+   * Get the list of the wallet snapshots, for the heap footprint estimation.
+   *
+   * @return The snapshot list of the report
+   */
+  List<WalletSnapshot> getWalletSnapshots() {
+    return walletSnapshots;
   }
 
   @Override
@@ -88,9 +418,131 @@ public class Report implements Iterable<WalletSnapshot> {
 
   public List<AnnualReport> createAnnualReports() {
     List<WalletSnapshot> yearEndSnapshots = getYearEndSnapshots();
+    prefetchAssetPrices(yearEndSnapshots.stream().map(snapshot -> new PeriodEnd(
+        TimeConverter.getYearEndTimestamp(snapshot.getYear()), snapshot)).toList());
     return yearEndSnapshots.stream().map(this::createYearEndReport).toList();
   }
 
+  /**
+   * Create the annual reports in several home currencies. The year-end snapshots are found
+   * and valued in USD once, the exchange rates of all the currencies are found with one
+   * lookup, hence each additional currency costs only the conversion.
+   *
+   * @param homeCurrencies The home currencies
+   * @return The annual reports of each currency, in the order of the given currencies
+   * @throws IllegalStateException When an exchange rate or an asset price is not found
+   */
+  public Map<String, List<AnnualReport>> createAnnualReports(List<String> homeCurrencies)
+      throws IllegalStateException {
+    List<WalletSnapshot> yearEndSnapshots = getYearEndSnapshots();
+    long[] yearEnds = yearEndSnapshots.stream()
+        .mapToLong(snapshot -> TimeConverter.getYearEndTimestamp(snapshot.getYear())).toArray();
+    List<PeriodEnd> periodEnds = new ArrayList<>();
+    for (int j = 0; j < yearEnds.length; ++j) {
+      periodEnds.add(new PeriodEnd(yearEnds[j], yearEndSnapshots.get(j)));
+    }
+    prefetchAssetPrices(periodEnds);
+    Decimal[][] exchangeRates = extraInfo.getAssetPricesAtTimes(homeCurrencies, yearEnds);
+
+    Map<String, List<AnnualReport>> reports = new LinkedHashMap<>();
+    for (String currency : homeCurrencies) {
+      reports.put(currency, new ArrayList<>());
+    }
+    for (int j = 0; j < yearEnds.length; ++j) {
+      WalletSnapshot snapshot = yearEndSnapshots.get(j);
+      Decimal pnlUsd = snapshot.getPnl();
+      Decimal walletValueUsd = getTotalWalletValueAt(snapshot.getWallet(), yearEnds[j]);
+      for (int i = 0; i < homeCurrencies.size(); ++i) {
+        Decimal exchangeRate = exchangeRates[i][j];
+        if (exchangeRate == null) {
+          throw new IllegalStateException("Did not find " + homeCurrencies.get(i)
+              + " exchange rate at " + TimeConverter.utcTimeToString(yearEnds[j]));
+        }
+        reports.get(homeCurrencies.get(i)).add(new AnnualReport(yearEnds[j], pnlUsd,
+            exchangeRate, pnlUsd.multiply(exchangeRate), walletValueUsd,
+            walletValueUsd.multiply(exchangeRate)));
+      }
+    }
+    return reports;
+  }
+
+  /**
+   * Create the reports of the periods set with {@link #setPeriods(List)}. The period ends were
+   * detected while processing the transactions, from the period of the first processed
+   * transaction to the period of the last one (which may still be in progress). Periods without
+   * transactions are included. The missing asset prices for all the period ends are fetched
+   * together, see {@link #prefetchAssetPrices(List)}.
+   *
+   * @return The reports of each period definition, keyed by the name of the definition
+   */
+  public Map<String, List<PeriodReport>> createPeriodReports() {
+    Map<String, List<PeriodEnd>> periodEnds = new LinkedHashMap<>();
+    for (PeriodState periodState : periodStates) {
+      periodEnds.put(periodState.definition.getName(),
+          periodState.getPeriodEnds(currentWalletSnapshot));
+    }
+    prefetchAssetPrices(periodEnds.values().stream().flatMap(List::stream).toList());
+    Map<String, List<PeriodReport>> reports = new LinkedHashMap<>();
+    for (Map.Entry<String, List<PeriodEnd>> entry : periodEnds.entrySet()) {
+      List<PeriodReport> periodReports = new ArrayList<>();
+      Decimal previousPnl = initialSnapshot.getPnl();
+      for (PeriodEnd periodEnd : entry.getValue()) {
+        periodReports.add(createPeriodReport(periodEnd, previousPnl));
+        previousPnl = periodEnd.snapshot().getPnl();
+      }
+      reports.put(entry.getKey(), periodReports);
+    }
+    return reports;
+  }
+
+  private PeriodReport createPeriodReport(PeriodEnd periodEnd, Decimal previousPnl) {
+    Decimal exchangeRate = getExchangeRateAt(periodEnd.timestamp());
+    Decimal runningPnlUsd = periodEnd.snapshot().getPnl();
+    Decimal periodPnlUsd = runningPnlUsd.subtract(previousPnl);
+    Decimal walletValueUsd = getTotalWalletValueAt(periodEnd.snapshot().getWallet(),
+        periodEnd.timestamp());
+    return new PeriodReport(periodEnd.timestamp(), periodPnlUsd, runningPnlUsd, exchangeRate,
+        periodPnlUsd.multiply(exchangeRate), walletValueUsd, walletValueUsd.multiply(exchangeRate));
+  }
+
+  /**
+   * Fetch the prices of the assets held at the period ends which are missing in the extra
+   * info. The daily candles of each asset are fetched with one request for up to
+   * {@link BinanceApiClient#MAX_CANDLES_PER_REQUEST} days, instead of one request per period
+   * end. The fetched prices are added to the extra info; an asset with a single missing price
+   * is left to the lookup of that price.
+   *
+   * @param periodEnds The period ends, with the snapshots to value
+   */
+  private void prefetchAssetPrices(List<PeriodEnd> periodEnds) {
+    Map<String, TreeSet<Long>> missingPrices = new TreeMap<>();
+    for (PeriodEnd periodEnd : periodEnds) {
+      for (String asset : periodEnd.snapshot().getWallet()) {
+        if (!asset.equals(Transaction.QUOTE_CURR)
+            && extraInfo.getAssetPriceAtTime(periodEnd.timestamp(), asset) == null) {
+          missingPrices.computeIfAbsent(asset, a -> new TreeSet<>()).add(periodEnd.timestamp());
+        }
+      }
+    }
+    for (Map.Entry<String, TreeSet<Long>> entry : missingPrices.entrySet()) {
+      String asset = entry.getKey();
+      TreeSet<Long> times = entry.getValue();
+      if (times.size() < 2) {
+        continue;
+      }
+      logger.info("Fetching {} prices for {} period ends from Binance REST API", asset,
+          times.size());
+      Map<Long, Decimal> dailyPrices = apiClient.getDailyClosePrices(asset, times.first(),
+          times.last());
+      for (long time : times) {
+        Decimal price = dailyPrices.get(TimeConverter.getDayStart(time));
+        if (price != null) {
+          appendPriceToExtraInfo(time, asset, price);
+        }
+      }
+    }
+  }
+
   private List<WalletSnapshot> getYearEndSnapshots() {
     return ReportHelper.filterYearEndSnapshots(walletSnapshots);
   }
@@ -123,22 +575,38 @@ public class Report implements Iterable<WalletSnapshot> {
   }
 
   private Decimal getAssetPriceAt(String asset, long timestamp) {
+    PriceLookupEvent event = new PriceLookupEvent();
+    event.begin();
     Decimal assetPrice;
+    String source;
 
     if (asset.equals("USDT")) {
       assetPrice = Decimal.ONE;
+      source = PriceLookupEvent.SOURCE_FIXED;
     } else {
       assetPrice = extraInfo.getAssetPriceAtTime(timestamp, asset);
+      source = PriceLookupEvent.SOURCE_EXTRA_INFO;
     }
 
     if (assetPrice == null) {
       logger.info("No {} price found in extra info, checking Binance REST API", asset);
       assetPrice = apiClient.getDailyClosePrice(asset, timestamp);
+      source = PriceLookupEvent.SOURCE_API;
       if (assetPrice != null) {
         appendPriceToExtraInfo(timestamp, asset, assetPrice);
       }
     }
 
+    PnlMetrics.PRICE_LOOKUPS.labels(source).inc();
+    event.end();
+    if (event.shouldCommit()) {
+      event.asset = asset;
+      event.priceTime = timestamp;
+      event.found = assetPrice != null;
+      event.source = source;
+      event.commit();
+    }
+
     if (assetPrice == null) {
       throw new IllegalStateException("Missing " + asset + " price at " + timestamp
           + " (" + TimeConverter.utcTimeToString(timestamp) + ")");
@@ -162,6 +630,15 @@ public class Report implements Iterable<WalletSnapshot> {
     return new Decimal(ei.value());
   }
 
+  /**
+   * Get the durations of the Binance API calls made while creating this report.
+   *
+   * @return Duration of each call, in nanoseconds
+   */
+  public List<Long> getApiCallDurations() {
+    return apiClient.getRequestDurations();
+  }
+
   /**
    * Get the extra provided information (not part of Binance transaction CSV).
    *
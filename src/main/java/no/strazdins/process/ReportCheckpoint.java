@@ -0,0 +1,265 @@
+package no.strazdins.process;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import no.strazdins.data.Decimal;
+import no.strazdins.data.Wallet;
+import no.strazdins.data.WalletSnapshot;
+import no.strazdins.tool.TimeConverter;
+
+/**
+ * State of a finished report generation, stored in a JSON file, from which a later run can
+ * continue when the input file has been extended with newer transactions. The checkpoint
+ * contains the wallet, the running PNL and the realized PNL per asset after all the
+ * transactions before the resume time, the state of the auto-invest detection and the annual
+ * reports.
+ *
+ * <p>The resume time is normally right after the last processed transaction. When the input
+ * contains auto-invest transactions, the last auto-invest round is not final - the next round
+ * may reveal that the subscription had changed - therefore the resume time is the start of the
+ * last auto-invest round, and that round is processed again in the continued run.</p>
+ */
+public class ReportCheckpoint {
+  private static final int FORMAT_VERSION = 2;
+  private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+
+  private final int version;
+  private final long resumeTime;
+  private final long lastTimestamp;
+  private final int rowCount;
+  private final String pnl;
+  private final List<BalanceState> wallet;
+  private final AutoInvestState autoInvest;
+  private final List<AnnualReportState> annualReports;
+  private final List<AssetPnlState> assetPnl;
+
+  record BalanceState(String asset, String amount, String obtainPrice) {
+  }
+
+  record AutoInvestState(long roundTime, List<String> previousCoins, long subscriptionTime,
+                         String investmentAmount, Map<String, String> proportions,
+                         List<String> acquiredAssets) {
+  }
+
+  record AnnualReportState(long timestamp, String pnlUsd, String exchangeRate, String pnlHc,
+                           String walletValueUsd, String walletValueHc) {
+  }
+
+  record AssetPnlState(int year, String asset, String pnlUsd) {
+  }
+
+  /**
+   * Create a checkpoint.
+   *
+   * @param snapshot      The wallet state after all the transactions before the resume time
+   * @param resumeTime    UTC timestamp from which the transactions are processed in a
+   *                      continued run
+   * @param lastTimestamp UTC timestamp of the last transaction in the input
+   * @param rowCount      The number of rows in the output logs (one per transaction) written
+   *                      for the transactions before the resume time
+   * @param round         The last auto-invest round, null if there is none
+   * @param reports       The annual reports, ordered chronologically
+   * @param assetPnl      The realized PNL per asset of the transactions before the resume time
+   */
+  ReportCheckpoint(WalletSnapshot snapshot, long resumeTime, long lastTimestamp, int rowCount,
+                   AutoInvestRound round, List<AnnualReport> reports,
+                   AssetPnlBreakdown assetPnl) {
+    this.version = FORMAT_VERSION;
+    this.resumeTime = resumeTime;
+    this.lastTimestamp = lastTimestamp;
+    this.rowCount = rowCount;
+    this.pnl = snapshot.getPnl().getNiceString();
+    this.wallet = new ArrayList<>();
+    Wallet w = snapshot.getWallet();
+    for (String asset : w) {
+      wallet.add(new BalanceState(asset, w.getAssetAmount(asset).getNiceString(),
+          w.getAvgObtainPrice(asset).getNiceString()));
+    }
+    this.autoInvest = round != null ? createAutoInvestState(round) : null;
+    this.annualReports = reports.stream().map(r -> new AnnualReportState(r.timestamp(),
+        r.pnlUsd().getNiceString(), r.exchangeRate().getNiceString(), r.pnlHc().getNiceString(),
+        r.walletValueUsd().getNiceString(), r.walletValueHc().getNiceString())).toList();
+    this.assetPnl = assetPnl.getEntries().stream().map(e -> new AssetPnlState(e.year(),
+        e.asset(), e.pnlUsd().getNiceString())).toList();
+  }
+
+  private static AutoInvestState createAutoInvestState(AutoInvestRound round) {
+    AutoInvestSubscription subscription = round.subscription();
+    Map<String, String> proportions = new TreeMap<>();
+    for (Map.Entry<String, Decimal> entry : subscription.getAssetProportions().entrySet()) {
+      proportions.put(entry.getKey(), entry.getValue().getNiceString());
+    }
+    return new AutoInvestState(round.utcTime(), new ArrayList<>(round.previousCoins()),
+        subscription.getUtcTime(), subscription.getInvestmentAmount().getNiceString(),
+        proportions, new ArrayList<>(subscription.getAcquiredAssets()));
+  }
+
+  /**
+   * Read a checkpoint from a JSON file.
+   *
+   * @param filePath Path to the checkpoint file
+   * @return The checkpoint
+   * @throws IOException When the file can't be read or does not contain a valid checkpoint
+   */
+  public static ReportCheckpoint readFromFile(String filePath) throws IOException {
+    ReportCheckpoint checkpoint;
+    try {
+      String json = Files.readString(Path.of(filePath), StandardCharsets.UTF_8);
+      checkpoint = gson.fromJson(json, ReportCheckpoint.class);
+    } catch (JsonParseException e) {
+      throw new IOException("Invalid checkpoint file " + filePath + ": " + e.getMessage());
+    }
+    if (checkpoint == null || checkpoint.version != FORMAT_VERSION || checkpoint.pnl == null
+        || checkpoint.wallet == null || checkpoint.annualReports == null
+        || checkpoint.assetPnl == null) {
+      throw new IOException("Invalid checkpoint file " + filePath);
+    }
+    return checkpoint;
+  }
+
+  /**
+   * Write the checkpoint to a JSON file. The file is replaced atomically.
+   *
+   * @param filePath Path to the checkpoint file
+   * @throws IOException When writing the file fails
+   */
+  public void writeToFile(String filePath) throws IOException {
+    Path path = Path.of(filePath);
+    Path tmpPath = Path.of(filePath + ".tmp");
+    Files.writeString(tmpPath, gson.toJson(this), StandardCharsets.UTF_8);
+    Files.move(tmpPath, path, StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Get the time from which the transactions must be processed in a continued run.
+   *
+   * @return UTC timestamp, with milliseconds
+   */
+  public long getResumeTime() {
+    return resumeTime;
+  }
+
+  /**
+   * Get the timestamp of the last transaction in the input of the checkpointed run.
+   *
+   * @return UTC timestamp, with milliseconds
+   */
+  public long getLastTimestamp() {
+    return lastTimestamp;
+  }
+
+  /**
+   * Get the number of rows in the output logs which stay unchanged in a continued run.
+   *
+   * @return The number of rows (not counting the header)
+   */
+  public int getRowCount() {
+    return rowCount;
+  }
+
+  /**
+   * Create the wallet snapshot from which a continued run starts.
+   *
+   * @return A snapshot with the stored wallet and the running PNL
+   */
+  public WalletSnapshot createInitialSnapshot() {
+    Wallet w = new Wallet();
+    for (BalanceState balance : wallet) {
+      w.addAsset(balance.asset(), new Decimal(balance.amount()),
+          new Decimal(balance.obtainPrice()));
+    }
+    return WalletSnapshot.createInitial(w, new Decimal(pnl));
+  }
+
+  /**
+   * Get the stored auto-invest round, from which the auto-invest detection continues.
+   *
+   * @return The auto-invest round, with a new subscription object, null if the checkpointed
+   *     run had no auto-invest transactions
+   */
+  public AutoInvestRound getAutoInvestRound() {
+    if (autoInvest == null) {
+      return null;
+    }
+    AutoInvestSubscription subscription = new AutoInvestSubscription(
+        autoInvest.subscriptionTime(), new Decimal(autoInvest.investmentAmount()));
+    for (Map.Entry<String, String> entry : autoInvest.proportions().entrySet()) {
+      subscription.addAssetProportion(entry.getKey(), new Decimal(entry.getValue()));
+    }
+    for (String asset : autoInvest.acquiredAssets()) {
+      subscription.registerAcquiredAsset(asset);
+    }
+    return new AutoInvestRound(autoInvest.roundTime(),
+        new HashSet<>(autoInvest.previousCoins()), subscription);
+  }
+
+  /**
+   * Get the stored annual reports.
+   *
+   * @return The annual reports, ordered chronologically
+   */
+  public List<AnnualReport> getAnnualReports() {
+    return annualReports.stream().map(r -> new AnnualReport(r.timestamp(),
+        new Decimal(r.pnlUsd()), new Decimal(r.exchangeRate()), new Decimal(r.pnlHc()),
+        new Decimal(r.walletValueUsd()), new Decimal(r.walletValueHc()))).toList();
+  }
+
+  /**
+   * Combine the stored annual reports with the reports of a continued run. A report of the
+   * continued run replaces the stored report for the same year.
+   *
+   * @param newReports Annual reports of the continued run
+   * @return All the annual reports, ordered chronologically
+   */
+  public List<AnnualReport> mergeAnnualReports(List<AnnualReport> newReports) {
+    Map<Integer, AnnualReport> reportsByYear = new TreeMap<>();
+    for (AnnualReport report : getAnnualReports()) {
+      reportsByYear.put(TimeConverter.getUtcYear(report.timestamp()), report);
+    }
+    for (AnnualReport report : newReports) {
+      reportsByYear.put(TimeConverter.getUtcYear(report.timestamp()), report);
+    }
+    return new ArrayList<>(reportsByYear.values());
+  }
+
+  /**
+   * Get the stored realized PNL per asset, of the transactions before the resume time.
+   *
+   * @return A new breakdown with the stored PNL
+   */
+  public AssetPnlBreakdown getAssetPnlBreakdown() {
+    AssetPnlBreakdown breakdown = new AssetPnlBreakdown();
+    for (AssetPnlState state : assetPnl) {
+      breakdown.add(new AssetPnlBreakdown.Entry(state.year(), state.asset(),
+          new Decimal(state.pnlUsd())));
+    }
+    return breakdown;
+  }
+
+  /**
+   * Combine the stored realized PNL per asset with the PNL of a continued run, which contains
+   * only the transactions from the resume time on.
+   *
+   * @param newPnl Realized PNL per asset of the continued run
+   * @return A new breakdown with the PNL of all the transactions
+   */
+  public AssetPnlBreakdown mergeAssetPnl(AssetPnlBreakdown newPnl) {
+    AssetPnlBreakdown breakdown = getAssetPnlBreakdown();
+    for (AssetPnlBreakdown.Entry entry : newPnl.getEntries()) {
+      breakdown.add(entry);
+    }
+    return breakdown;
+  }
+}
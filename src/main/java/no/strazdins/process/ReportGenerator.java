@@ -1,11 +1,22 @@
 package no.strazdins.process;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import no.strazdins.data.CostBasisStrategy;
 import no.strazdins.data.ExtraInfo;
 import no.strazdins.data.ExtraInfoEntry;
-import no.strazdins.data.RawAccountChange;
+import no.strazdins.data.RawAccountChangeStore;
+import no.strazdins.data.WalletSnapshot;
+import no.strazdins.file.ParsedInputCache;
 import no.strazdins.file.TransactionFileReader;
+import no.strazdins.jfr.ClassifyTransactionsEvent;
+import no.strazdins.jfr.GroupTransactionsEvent;
+import no.strazdins.jfr.ProcessTransactionsEvent;
+import no.strazdins.metrics.PnlMetrics;
+import no.strazdins.tool.HeapEstimator;
 import no.strazdins.tool.TimeConverter;
 import no.strazdins.transaction.Transaction;
 import org.apache.logging.log4j.Level;
@@ -18,6 +29,156 @@ import org.apache.logging.log4j.Logger;
  */
 public class ReportGenerator {
   private static final Logger logger = LogManager.getLogger(ReportGenerator.class);
+  private static final String RAW_ACCOUNT_CHANGES = "raw-account-changes";
+  private static final String TRANSACTIONS = "transactions";
+  private static final String EXTRA_INFO = "extra-info";
+  private CompactionWindow interestCompactionWindow;
+  private VerificationPolicy verificationPolicy = VerificationPolicy.full();
+  private boolean inputCacheEnabled = false;
+  private ReportLogic logic;
+  private ReportCheckpoint resumedCheckpoint;
+  private RecomputationState previousState;
+  private int checkpointInterval = RecomputationState.CHECKPOINT_INTERVAL;
+  private long lastTimestamp;
+  private RunMetrics metrics = new RunMetrics();
+  private boolean heapReportEnabled = false;
+  private ProgressTracker progressTracker;
+  private List<PeriodDefinition> periods = List.of();
+  private boolean dailyValuesEnabled = false;
+  private CostBasisStrategy costBasisStrategy = CostBasisStrategy.AVERAGE;
+  private List<String> additionalHomeCurrencies = List.of();
+
+  /**
+   * A data structure for the heap report.
+   *
+   * @param name  Name of the structure
+   * @param roots The objects from which the structure is reachable
+   */
+  private record HeapStructure(String name, Iterable<?> roots) {
+    static HeapStructure of(String name, Object root) {
+      return new HeapStructure(name, Collections.singletonList(root));
+    }
+  }
+
+  /**
+   * Enable merging of interest credits within a time window, see {@link InterestCompactor}.
+   *
+   * @param window The window within which interest credits are merged, null to disable the
+   *               compaction (the default)
+   */
+  public void setInterestCompactionWindow(CompactionWindow window) {
+    this.interestCompactionWindow = window;
+  }
+
+  /**
+   * Check that the options of the generator can be used together. The merged interest
+   * credits, dated at the last merged credit, must not move holdings across the end of a
+   * reported day or period: the compaction windows never cross a month boundary, but the
+   * daily values and the custom periods need windows of one day. Called before each report
+   * generation, it can also be called after configuring the generator to fail early.
+   *
+   * @throws IOException When the compaction window is too wide for the requested outputs
+   */
+  public void checkOptions() throws IOException {
+    if (interestCompactionWindow == null || interestCompactionWindow == CompactionWindow.DAY) {
+      return;
+    }
+    if (dailyValuesEnabled) {
+      throw new IOException("Daily values can only be combined with interest compaction "
+          + "within a day");
+    }
+    if (periods.stream().anyMatch(PeriodDefinition::isCustom)) {
+      throw new IOException("Custom periods can only be combined with interest compaction "
+          + "within a day");
+    }
+  }
+
+  /**
+   * Set the policy deciding which transactions are verified during the report generation.
+   *
+   * @param verificationPolicy The verification policy, the default is to verify all
+   */
+  public void setVerificationPolicy(VerificationPolicy verificationPolicy) {
+    this.verificationPolicy = verificationPolicy;
+  }
+
+  /**
+   * Enable or disable the parsed-input cache, see {@link ParsedInputCache}.
+   *
+   * @param enabled When true, the parsed input is cached next to the input file and the cache
+   *                is used in later runs
+   */
+  public void setInputCacheEnabled(boolean enabled) {
+    this.inputCacheEnabled = enabled;
+  }
+
+  /**
+   * Enable or disable the heap report: an estimate of the heap footprint of the main data
+   * structures at the end of each stage, logged and added to the run metrics. The estimation
+   * walks all the structures, therefore it slows down the run considerably.
+   *
+   * @param enabled When true, the heap report is created
+   */
+  public void setHeapReportEnabled(boolean enabled) {
+    this.heapReportEnabled = enabled;
+  }
+
+  /**
+   * Set the tracker of the progress: the bytes of the input file parsed, then the
+   * transactions processed.
+   *
+   * @param progressTracker The progress tracker, null to disable tracking (the default)
+   */
+  public void setProgressTracker(ProgressTracker progressTracker) {
+    this.progressTracker = progressTracker;
+  }
+
+  /**
+   * Set the periods for which the period reports are created, in addition to the annual
+   * reports. The HC/USD exchange rate is required at the end of each period.
+   *
+   * @param periods The period definitions, empty for none (the default)
+   */
+  public void setPeriods(List<PeriodDefinition> periods) {
+    this.periods = List.copyOf(periods);
+  }
+
+  /**
+   * Enable the daily mark-to-market valuation series of the generated reports.
+   *
+   * @param enabled When true, the series is created with the other reports
+   */
+  public void setDailyValuesEnabled(boolean enabled) {
+    this.dailyValuesEnabled = enabled;
+  }
+
+  /**
+   * Set the cost basis strategy of the generated reports.
+   *
+   * @param costBasisStrategy The cost basis strategy, AVERAGE by default
+   */
+  public void setCostBasisStrategy(CostBasisStrategy costBasisStrategy) {
+    this.costBasisStrategy = costBasisStrategy;
+  }
+
+  /**
+   * Set the additional home currencies: the year-end exchange rates of these currencies are
+   * required in the extra info too, see {@link Report#createAnnualReports(List)}.
+   *
+   * @param currencies The home currencies in addition to the main one
+   */
+  public void setAdditionalHomeCurrencies(List<String> currencies) {
+    this.additionalHomeCurrencies = List.copyOf(currencies);
+  }
+
+  /**
+   * Set the number of transactions between the checkpoints stored in the recomputation state.
+   *
+   * @param checkpointInterval The number of transactions between two checkpoints
+   */
+  void setCheckpointInterval(int checkpointInterval) {
+    this.checkpointInterval = checkpointInterval;
+  }
 
   /**
    * Analyze Transaction CSV file exported from Binance, generate a report, write it in
@@ -28,32 +189,398 @@ public class ReportGenerator {
    */
   public Report createReport(String inputFilePath, String extraFilePath, String homeCurrency)
       throws IOException {
+    return resumeReport(inputFilePath, extraFilePath, homeCurrency, null);
+  }
+
+  /**
+   * Continue the report generation from a checkpoint of an earlier run: only the transactions
+   * from the resume time of the checkpoint are processed, starting with the stored wallet.
+   *
+   * @param inputFilePath Path to the CVS input file (exported from Binance), containing all
+   *                      the transactions of the earlier run and possibly newer transactions
+   * @param extraFilePath Path to a CSV file where necessary extra information is stored
+   * @param homeCurrency  The home currency of the user
+   * @param checkpoint    The checkpoint from which to continue, null to process the whole input
+   * @return The report, containing the snapshots only for the processed transactions
+   * @throws IOException When the input can't be read, when it does not contain all the
+   *                     transactions of the checkpointed run, when some extra info is missing
+   *                     or when a checkpoint is given with the FIFO cost basis or with
+   *                     additional home currencies (the lots and the reports in the other
+   *                     currencies are not stored in the checkpoint). See also
+   *                     {@link #checkOptions()}
+   */
+  public Report resumeReport(String inputFilePath, String extraFilePath, String homeCurrency,
+                             ReportCheckpoint checkpoint) throws IOException {
+    checkOptions();
+    if (checkpoint != null) {
+      checkResumable();
+    }
+    resumedCheckpoint = checkpoint;
+    previousState = null;
+    metrics = new RunMetrics();
+    List<Transaction> transactions = readTransactions(inputFilePath);
+    ExtraInfo extraInfo = readExtraInfo(transactions, extraFilePath, homeCurrency);
+    return generateReport(transactions, extraInfo, 0);
+  }
+
+  /**
+   * Generate the report, recomputing only the part which may be affected by changes in the
+   * extra info since the run which stored the given state. The report is recomputed from the
+   * last stored checkpoint before the earliest changed extra-info entry. The whole report is
+   * generated when the state does not match the input file or the options.
+   *
+   * @param inputFilePath Path to the CVS input file (exported from Binance)
+   * @param extraFilePath Path to a CSV file where necessary extra information is stored
+   * @param homeCurrency  The home currency of the user
+   * @param state         State of an earlier run, null to generate the whole report
+   * @return The report, containing the snapshots only for the recomputed transactions, see
+   *     {@link #getResumedCheckpoint()}
+   * @throws IOException When the input can't be read, when some extra info is missing or
+   *                     when a state is given with the FIFO cost basis or with additional
+   *                     home currencies (the lots and the reports in the other currencies
+   *                     are not stored in the state). See also {@link #checkOptions()}
+   */
+  public Report recomputeReport(String inputFilePath, String extraFilePath, String homeCurrency,
+                                RecomputationState state) throws IOException {
+    checkOptions();
+    if (state != null) {
+      checkResumable();
+    }
+    resumedCheckpoint = null;
+    previousState = null;
+    metrics = new RunMetrics();
     List<Transaction> transactions = readTransactions(inputFilePath);
+    ExtraInfo extraInfo = readExtraInfo(transactions, extraFilePath, homeCurrency);
+    int skippedCount = 0;
+    if (state != null && state.matches(inputFilePath, homeCurrency, interestCompactionWindow,
+        costBasisStrategy)) {
+      ReportCheckpoint checkpoint = state.findCheckpoint(extraInfo);
+      if (isCheckpointFor(checkpoint, transactions)) {
+        resumedCheckpoint = checkpoint;
+        previousState = state;
+        skippedCount = checkpoint.getRowCount();
+        logger.info("Recomputing the report from transaction #{} at {}", skippedCount,
+            TimeConverter.utcTimeToString(checkpoint.getResumeTime()));
+      } else {
+        logger.warn("The stored state does not match the transactions, recomputing all");
+      }
+    }
+    return generateReport(transactions, extraInfo, skippedCount);
+  }
+
+  /**
+   * Parse and classify the transactions and read the extra info once, for evaluation of
+   * several what-if scenarios. The interest compaction, the verification policy and the cost
+   * basis strategy of this generator are used.
+   *
+   * @param inputFilePath Path to the CVS input file (exported from Binance)
+   * @param extraFilePath Path to a CSV file where necessary extra information is stored
+   * @param homeCurrency  The home currency of the user
+   * @return The scenario runner
+   * @throws IOException When the input can't be read or when some extra info is missing
+   */
+  public ScenarioRunner createScenarioRunner(String inputFilePath, String extraFilePath,
+                                             String homeCurrency) throws IOException {
+    resumedCheckpoint = null;
+    previousState = null;
+    metrics = new RunMetrics();
+    List<Transaction> transactions = readTransactions(inputFilePath);
+    ExtraInfo extraInfo = readExtraInfo(transactions, extraFilePath, homeCurrency);
+    return new ScenarioRunner(transactions, extraInfo, verificationPolicy, costBasisStrategy);
+  }
+
+  private void checkResumable() throws IOException {
+    if (costBasisStrategy == CostBasisStrategy.FIFO) {
+      throw new IOException("The FIFO cost basis can't be continued from a checkpoint or a "
+          + "state file, the lots are not stored");
+    }
+    if (!additionalHomeCurrencies.isEmpty()) {
+      throw new IOException("Several home currencies can't be continued from a checkpoint or "
+          + "a state file, only the reports in the main currency are stored");
+    }
+  }
+
+  private static boolean isCheckpointFor(ReportCheckpoint checkpoint,
+                                         List<Transaction> transactions) {
+    int rowCount = checkpoint.getRowCount();
+    return rowCount < transactions.size()
+        && transactions.get(rowCount).getUtcTime() == checkpoint.getResumeTime();
+  }
+
+  /**
+   * Get the performance metrics of the last report generation. The caller may add the metrics
+   * of the later stages, such as writing of the output files.
+   *
+   * @return The metrics of the stages run by this generator
+   */
+  public RunMetrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * Get the checkpoint from which the last report was continued or recomputed.
+   *
+   * @return The checkpoint, null when the whole report was generated. The report contains
+   *     the snapshots only for the transactions after the checkpoint
+   */
+  public ReportCheckpoint getResumedCheckpoint() {
+    return resumedCheckpoint;
+  }
+
+  /**
+   * Create the state of the last report generated by this generator, from which a later run
+   * can recompute the part of the report affected by changes in the extra info.
+   *
+   * @param report        The generated report
+   * @param annualReports All the annual reports, including those of the resumed checkpoint
+   * @param inputFilePath Path to the input file of the report
+   * @param homeCurrency  The home currency of the report
+   * @return The state
+   * @throws IOException When the input file can't be accessed, or when the FIFO cost basis
+   *                     or additional home currencies are used - the lots and the reports in
+   *                     the other currencies are not stored
+   */
+  public RecomputationState createRecomputationState(Report report,
+                                                     List<AnnualReport> annualReports,
+                                                     String inputFilePath, String homeCurrency)
+      throws IOException {
+    checkResumable();
+    List<ReportCheckpoint> checkpoints = new ArrayList<>();
+    int firstRow = 0;
+    AssetPnlBreakdown assetPnl = new AssetPnlBreakdown();
+    if (previousState != null) {
+      firstRow = resumedCheckpoint.getRowCount();
+      checkpoints.addAll(previousState.getCheckpointsUpTo(firstRow));
+      assetPnl = resumedCheckpoint.getAssetPnlBreakdown();
+    }
+    WalletSnapshot previous = report.getInitialSnapshot();
+    int row = firstRow;
+    for (WalletSnapshot snapshot : report) {
+      if (row % checkpointInterval == 0
+          && (row > firstRow || previousState == null)) {
+        checkpoints.add(createPeriodicCheckpoint(previous, snapshot.getTimestamp(), row,
+            annualReports, assetPnl));
+      }
+      addAssetPnl(assetPnl, snapshot);
+      previous = snapshot;
+      row++;
+    }
+    return new RecomputationState(inputFilePath, homeCurrency, interestCompactionWindow,
+        costBasisStrategy, report.getExtras(), checkpoints);
+  }
+
+  private ReportCheckpoint createPeriodicCheckpoint(WalletSnapshot snapshot, long resumeTime,
+                                                    int rowCount,
+                                                    List<AnnualReport> annualReports,
+                                                    AssetPnlBreakdown assetPnl) {
+    // Reports of the years from the resume time on are created from the recomputed snapshots
+    int resumeYear = TimeConverter.getUtcYear(resumeTime);
+    List<AnnualReport> completedYears = annualReports.stream()
+        .filter(r -> TimeConverter.getUtcYear(r.timestamp()) < resumeYear).toList();
+    return new ReportCheckpoint(snapshot, resumeTime, lastTimestamp, rowCount, null,
+        completedYears, assetPnl);
+  }
+
+  private static void addAssetPnl(AssetPnlBreakdown assetPnl, WalletSnapshot snapshot) {
+    Transaction transaction = snapshot.getTransaction();
+    if (!transaction.getPnl().isZero()) {
+      assetPnl.add(transaction.getUtcTime(), transaction.getBaseCurrency(),
+          transaction.getPnl());
+    }
+  }
+
+  private ExtraInfo readExtraInfo(List<Transaction> transactions, String extraFilePath,
+                                  String homeCurrency) throws IOException {
+    RunMetrics.Stage stage = metrics.startStage("extra-info");
     ExtraInfoHandler extraInfoHandler = new ExtraInfoHandler(extraFilePath, homeCurrency);
+    extraInfoHandler.setPeriods(periods);
+    extraInfoHandler.setAdditionalHomeCurrencies(additionalHomeCurrencies);
+    metrics.addBytesRead(new File(extraFilePath).length());
     ExtraInfo missingInfo = extraInfoHandler.detectMissingInfo(transactions);
+    stage.finish(transactions.size());
     if (!missingInfo.isEmpty()) {
       printMissingInfoRequirement(missingInfo, extraFilePath);
-      throw new IOException("Some information missing, can't generate the report");
+      throw new MissingExtraInfoException(missingInfo);
     }
-    return generateReport(transactions, extraInfoHandler.getUserProvidedInfo());
+    ExtraInfo extraInfo = extraInfoHandler.getUserProvidedInfo();
+    reportHeap("extra-info", HeapStructure.of(TRANSACTIONS, transactions),
+        HeapStructure.of(EXTRA_INFO, extraInfo));
+    return extraInfo;
+  }
+
+  /**
+   * Create a checkpoint of the last report generated by this generator, from which a later
+   * run can continue with an extended input.
+   *
+   * @param report        The generated report
+   * @param annualReports All the annual reports, including those of the resumed checkpoint
+   * @return The checkpoint
+   * @throws IllegalStateException When interest compaction is enabled - merged interest
+   *                               credits may span the resume time, or when the FIFO cost
+   *                               basis or additional home currencies are used - the lots
+   *                               and the reports in the other currencies are not stored
+   */
+  public ReportCheckpoint createCheckpoint(Report report, List<AnnualReport> annualReports)
+      throws IllegalStateException {
+    if (interestCompactionWindow != null) {
+      throw new IllegalStateException("Checkpoints can't be used with interest compaction");
+    }
+    if (costBasisStrategy == CostBasisStrategy.FIFO) {
+      throw new IllegalStateException("Checkpoints can't be used with the FIFO cost basis");
+    }
+    if (!additionalHomeCurrencies.isEmpty()) {
+      throw new IllegalStateException("Checkpoints can't be used with several home currencies");
+    }
+    AutoInvestRound round = logic.getLastAutoInvestRound();
+    if (round == null && resumedCheckpoint != null) {
+      // No auto-invest round seen after the resume time (the resumed one is not reached)
+      round = resumedCheckpoint.getAutoInvestRound();
+    }
+    long resumeTime = round != null ? round.utcTime() : lastTimestamp + 1;
+    WalletSnapshot lastSnapshot = report.getInitialSnapshot();
+    int rowCount = resumedCheckpoint != null ? resumedCheckpoint.getRowCount() : 0;
+    AssetPnlBreakdown assetPnl = resumedCheckpoint != null
+        ? resumedCheckpoint.getAssetPnlBreakdown() : new AssetPnlBreakdown();
+    for (WalletSnapshot snapshot : report) {
+      if (snapshot.getTimestamp() >= resumeTime) {
+        break;
+      }
+      addAssetPnl(assetPnl, snapshot);
+      lastSnapshot = snapshot;
+      rowCount++;
+    }
+    return new ReportCheckpoint(lastSnapshot, resumeTime, lastTimestamp, rowCount, round,
+        annualReports, assetPnl);
   }
 
   private List<Transaction> readTransactions(String inputFilePath) throws IOException {
-    List<RawAccountChange> accountChanges = TransactionFileReader.readAccountChanges(inputFilePath);
-    ReportLogic logic = new ReportLogic();
+    RunMetrics.Stage readStage = metrics.startStage("read-input");
+    if (progressTracker != null) {
+      progressTracker.startPhase("read-input", "bytes", new File(inputFilePath).length());
+    }
+    RawAccountChangeStore accountChanges = inputCacheEnabled
+        ? ParsedInputCache.readAccountChanges(inputFilePath, progressTracker)
+        : TransactionFileReader.readAccountChangeStore(inputFilePath, progressTracker);
+    if (progressTracker != null) {
+      progressTracker.finishPhase();
+    }
+    lastTimestamp = accountChanges.size() > 0
+        ? accountChanges.getUtcTime(accountChanges.size() - 1) : 0;
+    readStage.finish(accountChanges.size());
+    reportHeap("read-input", HeapStructure.of(RAW_ACCOUNT_CHANGES, accountChanges));
+    PnlMetrics.ROWS_READ.get().add(accountChanges.size());
+    metrics.addBytesRead(new File(inputFilePath).length());
+    logic = new ReportLogic();
+    if (resumedCheckpoint != null) {
+      if (lastTimestamp < resumedCheckpoint.getLastTimestamp()) {
+        throw new IOException("The input file ends before the last transaction of the "
+            + "checkpoint, can't continue");
+      }
+      accountChanges = accountChanges.tailFrom(resumedCheckpoint.getResumeTime());
+      AutoInvestRound round = resumedCheckpoint.getAutoInvestRound();
+      if (round != null) {
+        logic.resumeAutoInvestRound(round);
+      }
+      logger.info("Continuing from checkpoint, {} account changes from {}",
+          accountChanges.size(), TimeConverter.utcTimeToString(resumedCheckpoint.getResumeTime()));
+    }
     logic.updateLendingAssets(accountChanges);
+    RunMetrics.Stage groupStage = metrics.startStage("group");
+    GroupTransactionsEvent groupEvent = new GroupTransactionsEvent();
+    groupEvent.begin();
     List<Transaction> rawTransactions = logic.groupTransactionsByTimestamp(accountChanges);
-    return logic.clarifyTransactionTypes(rawTransactions);
+    groupEvent.accountChangeCount = accountChanges.size();
+    groupEvent.transactionCount = rawTransactions.size();
+    groupEvent.commit();
+    groupStage.finish(accountChanges.size());
+    reportHeap("group", HeapStructure.of(RAW_ACCOUNT_CHANGES, accountChanges),
+        HeapStructure.of(TRANSACTIONS, rawTransactions));
+    RunMetrics.Stage classifyStage = metrics.startStage("classify");
+    ClassifyTransactionsEvent classifyEvent = new ClassifyTransactionsEvent();
+    classifyEvent.begin();
+    List<Transaction> transactions = logic.clarifyTransactionTypes(rawTransactions);
+    classifyEvent.transactionCount = transactions.size();
+    classifyEvent.commit();
+    classifyStage.finish(transactions.size());
+    reportHeap("classify", HeapStructure.of(RAW_ACCOUNT_CHANGES, accountChanges),
+        HeapStructure.of(TRANSACTIONS, transactions));
+    if (interestCompactionWindow != null) {
+      RunMetrics.Stage compactStage = metrics.startStage("compact-interest");
+      transactions = new InterestCompactor(interestCompactionWindow).compact(transactions);
+      compactStage.finish(transactions.size());
+      reportHeap("compact-interest", HeapStructure.of(TRANSACTIONS, transactions));
+    }
+    return transactions;
   }
 
-  private static Report generateReport(List<Transaction> transactions, ExtraInfo extraUserInfo) {
-    Report report = new Report(extraUserInfo);
+  private Report generateReport(List<Transaction> transactions, ExtraInfo extraUserInfo,
+                                int skippedCount) {
+    Report report = resumedCheckpoint != null
+        ? new Report(extraUserInfo, resumedCheckpoint.createInitialSnapshot())
+        : new Report(extraUserInfo);
+    report.setVerificationPolicy(verificationPolicy);
+    report.setPeriods(periods);
+    report.setDailyValuesEnabled(dailyValuesEnabled);
+    report.setCostBasisStrategy(costBasisStrategy);
+    if (progressTracker != null) {
+      progressTracker.startPhase("process", "transactions", transactions.size());
+      report.setProgressTracker(progressTracker);
+    }
+    RunMetrics.Stage stage = metrics.startStage("process");
+    ProcessTransactionsEvent event = new ProcessTransactionsEvent();
+    event.begin();
+    int index = 0;
     for (Transaction transaction : transactions) {
-      report.process(transaction);
+      if (index++ < skippedCount) {
+        report.skip(transaction);
+      } else {
+        report.process(transaction);
+      }
+    }
+    event.transactionCount = Math.max(transactions.size() - skippedCount, 0);
+    event.skippedCount = Math.min(skippedCount, transactions.size());
+    event.commit();
+    stage.finish(event.transactionCount);
+    if (progressTracker != null) {
+      progressTracker.finishPhase();
+      report.setProgressTracker(null);
+    }
+    report.logVerificationSummary();
+    if (heapReportEnabled) {
+      List<WalletSnapshot> snapshots = report.getWalletSnapshots();
+      reportHeap("process", HeapStructure.of(TRANSACTIONS, transactions),
+          HeapStructure.of(EXTRA_INFO, report.getExtras()),
+          new HeapStructure("wallets", snapshots.stream().map(WalletSnapshot::getWallet).toList()),
+          HeapStructure.of("wallet-snapshots", snapshots));
     }
     return report;
   }
 
+  /**
+   * Estimate the heap footprint of the data structures alive after a stage, when the heap
+   * report is enabled. An object shared by several structures is attributed to the first of
+   * them, hence the order matters: for example, the transactions before the snapshots which
+   * refer to them.
+   *
+   * @param stage      Name of the finished stage
+   * @param structures The structures to estimate
+   */
+  private void reportHeap(String stage, HeapStructure... structures) {
+    if (!heapReportEnabled) {
+      return;
+    }
+    HeapEstimator estimator = new HeapEstimator();
+    long totalBytes = 0;
+    for (HeapStructure structure : structures) {
+      HeapEstimator.Estimate estimate = estimator.estimateAll(structure.roots());
+      metrics.addHeapEstimate(stage, structure.name(), estimate.objectCount(), estimate.bytes());
+      totalBytes += estimate.bytes();
+      logger.info("Heap after {}: {} ~ {} KB in {} objects", stage, structure.name(),
+          estimate.bytes() / 1024, estimate.objectCount());
+    }
+    logger.info("Heap after {}: total ~ {} KB", stage, totalBytes / 1024);
+  }
+
   private static void printMissingInfoRequirement(ExtraInfo missingInfo, String extraFilePath) {
     logger.error("Provide the necessary information in the extra-info file `{}`:", extraFilePath);
     if (logger.isEnabled(Level.ERROR)) {
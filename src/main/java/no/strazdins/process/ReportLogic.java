@@ -5,8 +5,10 @@ import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import no.strazdins.data.AssetSymbols;
 import no.strazdins.data.Operation;
 import no.strazdins.data.RawAccountChange;
+import no.strazdins.data.RawAccountChangeStore;
 import no.strazdins.transaction.AutoInvestTransaction;
 import no.strazdins.transaction.Transaction;
 import org.apache.logging.log4j.LogManager;
@@ -20,7 +22,33 @@ public class ReportLogic {
 
   private AutoInvestSubscription autoInvestSubscription;
   private final List<AutoInvestTransaction> autoInvestTransactions = new LinkedList<>();
-  private final List<AutoInvestTransaction> previousAutoInvestTransactions = new LinkedList<>();
+  private Set<String> previousAutoInvestCoins = new HashSet<>();
+  private AutoInvestRound lastAutoInvestRound;
+  private AutoInvestRound resumedAutoInvestRound;
+
+  /**
+   * Continue the auto-invest detection from a round seen in an earlier run. The changes passed
+   * to the grouping must start with the transaction of that round containing the spend
+   * operation; the subscription of the round is not decided again.
+   *
+   * @param round The round to resume from, see {@link #getLastAutoInvestRound()}
+   */
+  public void resumeAutoInvestRound(AutoInvestRound round) {
+    this.resumedAutoInvestRound = round;
+    this.autoInvestSubscription = round.subscription();
+  }
+
+  /**
+   * Get the state of the auto-invest detection at the start of the last auto-invest round seen
+   * so far. The subscription of the last round may still be replaced when the next round
+   * reveals a change in the subscription, therefore transactions from this round on must be
+   * grouped again when the processing is continued later.
+   *
+   * @return The last auto-invest round, null if no auto-invest transactions are seen
+   */
+  public AutoInvestRound getLastAutoInvestRound() {
+    return lastAutoInvestRound;
+  }
 
   /**
    * Check all the raw account changes, group those by timestamp, merge as transactions.
@@ -51,16 +79,54 @@ public class ReportLogic {
     return transactions;
   }
 
+  /**
+   * Group the raw account changes in a columnar store by timestamp, merge as transactions.
+   * The transaction boundaries are found on the primitive columns, each change is
+   * materialized as an object only once - when it is appended to its transaction.
+   *
+   * @param store Raw account changes. It is assumed that the timestamps are in
+   *              increasing order
+   * @return List of higher-level transactions, also ordered by timestamp
+   */
+  public List<Transaction> groupTransactionsByTimestamp(RawAccountChangeStore store) {
+    Transaction transaction = null;
+    List<Transaction> transactions = new ArrayList<>();
+    RawAccountChangeStore.Cursor cursor = store.cursor();
+    while (cursor.next()) {
+      long time = cursor.getUtcTime();
+      if (transaction == null || transaction.getUtcTime() != time) {
+        transaction = new Transaction(time);
+        transactions.add(transaction);
+      }
+      RawAccountChange change = cursor.get();
+      if (AutoInvestTransaction.isAutoInvestOperation(change)) {
+        Transaction updatedTransaction = updateAutoInvest(change, transaction);
+        if (updatedTransaction != transaction) {
+          replaceLastTransactionWith(transactions, updatedTransaction);
+          transaction = updatedTransaction;
+        }
+      }
+      transaction.append(change);
+    }
+    return transactions;
+  }
+
   private Transaction updateAutoInvest(RawAccountChange change,
                                        Transaction transaction) {
     if (isAutoInvestSpendOperation(change)) {
-      if (isNewAutoInvestSubscription()) {
-        autoInvestSubscription = new AutoInvestSubscription(
-            getTimestampOfFirstCachedAutoInvestOrDefault(transaction.getUtcTime()),
-            change.getAmount().negate());
-        updateSubscriptionForCachedAutoInvestTransactions();
+      if (resumedAutoInvestRound != null) {
+        continueResumedAutoInvestRound(transaction);
+      } else {
+        if (isNewAutoInvestSubscription()) {
+          autoInvestSubscription = new AutoInvestSubscription(
+              getTimestampOfFirstCachedAutoInvestOrDefault(transaction.getUtcTime()),
+              change.getAmount().negate());
+          updateSubscriptionForCachedAutoInvestTransactions();
+        }
+        rememberLastAutoInvestTransactions();
       }
-      rememberLastAutoInvestTransactions();
+      lastAutoInvestRound = new AutoInvestRound(transaction.getUtcTime(),
+          Set.copyOf(previousAutoInvestCoins), autoInvestSubscription);
     } else if (!isAutoInvestAcquireOperation(change)) {
       throw new IllegalStateException("Auto-invest but neither invest, nor acquire: " + change);
     }
@@ -84,9 +150,20 @@ public class ReportLogic {
   }
 
   private void rememberLastAutoInvestTransactions() {
-    previousAutoInvestTransactions.clear();
-    previousAutoInvestTransactions.addAll(autoInvestTransactions);
+    previousAutoInvestCoins = getCoinsForComparison(autoInvestTransactions);
+    autoInvestTransactions.clear();
+  }
+
+  private void continueResumedAutoInvestRound(Transaction transaction) {
+    if (transaction.getUtcTime() != resumedAutoInvestRound.utcTime()) {
+      throw new IllegalStateException("Expected the resumed auto-invest round at "
+          + resumedAutoInvestRound.utcTime() + ", found " + transaction);
+    }
+    // The subscription of this round was decided in the earlier run, where any auto-invest
+    // changes cached so far belonged to the previous round
+    previousAutoInvestCoins = new HashSet<>(resumedAutoInvestRound.previousCoins());
     autoInvestTransactions.clear();
+    resumedAutoInvestRound = null;
   }
 
   private void updateSubscriptionForCachedAutoInvestTransactions() {
@@ -105,12 +182,11 @@ public class ReportLogic {
     if (autoInvestSubscription == null) {
       return true;
     }
-    if (previousAutoInvestTransactions.isEmpty()) {
+    if (previousAutoInvestCoins.isEmpty()) {
       return false;
     }
-    Set<String> prevCoins = getCoinsForComparison(previousAutoInvestTransactions);
     Set<String> currentCoins = getCoinsForComparison(autoInvestTransactions);
-    return !prevCoins.equals(currentCoins);
+    return !previousAutoInvestCoins.equals(currentCoins);
   }
 
   /**
@@ -174,6 +250,21 @@ public class ReportLogic {
     return transactions;
   }
 
+  /**
+   * Check all the assets, rename all the LDxxx assets to xxx
+   * (example: LDUSDT -> USDT, LDBTC -> BTC).
+   *
+   * @param changes Columnar store of raw account changes to check and update in-place
+   */
+  public void updateLendingAssets(RawAccountChangeStore changes) {
+    for (int i = 0; i < changes.size(); ++i) {
+      int assetId = changes.getAssetId(i);
+      if (AssetSymbols.isLendingAsset(assetId)) {
+        changes.setAssetId(i, AssetSymbols.getUnderlyingId(assetId));
+      }
+    }
+  }
+
   /**
    * Check all the assets, rename all the LDxxx assets to xxx
    * (example: LDUSDT -> USDT, LDBTC -> BTC).
@@ -182,9 +273,9 @@ public class ReportLogic {
    */
   public void updateLendingAssets(List<RawAccountChange> changes) {
     for (RawAccountChange change : changes) {
-      String asset = change.getAsset();
-      if (asset != null && asset.length() >= 3 && asset.startsWith("LD")) {
-        change.setAsset(asset.substring(2));
+      int assetId = change.getAssetId();
+      if (AssetSymbols.isLendingAsset(assetId)) {
+        change.setAssetId(AssetSymbols.getUnderlyingId(assetId));
       }
     }
   }
@@ -0,0 +1,256 @@
+package no.strazdins.process;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Performance metrics of one report generation run: wall time, CPU time, allocated bytes and
+ * throughput of each stage, bytes read and written, heap usage and the latency of the
+ * Binance API calls. CPU time and allocations are measured for the thread which runs the
+ * stage; -1 is reported when the JVM does not support the measurement. The heap usage (of the
+ * whole JVM) is sampled at the start and end of each stage, the maximum of the samples is a
+ * lower bound of the real peak, which may be reached between the samples. When the heap report
+ * is enabled, the estimated footprint of the main data structures after the stages is included.
+ */
+public class RunMetrics {
+  private static final Logger logger = LogManager.getLogger(RunMetrics.class);
+  private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+  private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+  private final List<StageMetrics> stages = new ArrayList<>();
+  private final List<Long> apiCallNanos = new ArrayList<>();
+  private final List<HeapEstimate> heapEstimates = new ArrayList<>();
+  private long bytesRead = 0;
+  private long bytesWritten = 0;
+  private long maxSampledHeapBytes = 0;
+
+  /**
+   * Metrics of one stage.
+   *
+   * @param name           Name of the stage
+   * @param wallMillis     Elapsed time, in milliseconds
+   * @param cpuMillis      CPU time of the thread, in milliseconds
+   * @param allocatedBytes Bytes allocated by the thread
+   * @param rowCount       The number of rows (account changes, transactions) handled
+   * @param rowsPerSecond  The throughput
+   * @param heapUsedBytes  Heap usage of the JVM at the end of the stage
+   */
+  record StageMetrics(String name, double wallMillis, double cpuMillis, long allocatedBytes,
+                      long rowCount, double rowsPerSecond, long heapUsedBytes) {
+  }
+
+  /**
+   * Latency summary of the API calls.
+   */
+  record ApiCallMetrics(int count, double totalMillis, double p50Millis, double p90Millis,
+                        double p99Millis, double maxMillis) {
+  }
+
+  /**
+   * Estimated heap footprint of a data structure at the end of a stage.
+   *
+   * @param stage       Name of the stage
+   * @param structure   Name of the data structure
+   * @param objectCount The number of objects in the structure
+   * @param bytes       The estimated size, in bytes
+   */
+  record HeapEstimate(String stage, String structure, long objectCount, long bytes) {
+  }
+
+  /**
+   * The JSON document written to the metrics file.
+   */
+  record Summary(double totalWallMillis, double totalCpuMillis, long totalAllocatedBytes,
+                 long bytesRead, long bytesWritten, long maxSampledHeapBytes,
+                 List<StageMetrics> stages, ApiCallMetrics apiCalls,
+                 List<HeapEstimate> heapEstimates) {
+  }
+
+  /**
+   * A stage in progress, see {@link #startStage(String)}.
+   */
+  public final class Stage {
+    private final String name;
+    private final long startNanos;
+    private final long startCpuNanos;
+    private final long startAllocatedBytes;
+
+    private Stage(String name) {
+      this.name = name;
+      this.startNanos = System.nanoTime();
+      this.startCpuNanos = getThreadCpuNanos();
+      this.startAllocatedBytes = getThreadAllocatedBytes();
+      sampleHeapUsage();
+    }
+
+    /**
+     * Finish the stage, record its metrics. Must be called in the thread which started it.
+     *
+     * @param rowCount The number of rows handled in the stage
+     */
+    public void finish(long rowCount) {
+      long wallNanos = System.nanoTime() - startNanos;
+      long cpuNanos = getThreadCpuNanos();
+      long allocatedBytes = getThreadAllocatedBytes();
+      double rowsPerSecond = wallNanos > 0 ? rowCount * 1e9 / wallNanos : 0;
+      stages.add(new StageMetrics(name, wallNanos / NANOS_PER_MILLI,
+          cpuNanos >= 0 && startCpuNanos >= 0
+              ? (cpuNanos - startCpuNanos) / NANOS_PER_MILLI : -1,
+          allocatedBytes >= 0 && startAllocatedBytes >= 0
+              ? allocatedBytes - startAllocatedBytes : -1,
+          rowCount, rowsPerSecond, sampleHeapUsage()));
+    }
+  }
+
+  /**
+   * Start measuring a stage.
+   *
+   * @param name Name of the stage
+   * @return The stage, call {@link Stage#finish(long)} when it is done
+   */
+  public Stage startStage(String name) {
+    return new Stage(name);
+  }
+
+  /**
+   * Register bytes read from input files.
+   *
+   * @param byteCount The number of bytes read
+   */
+  public void addBytesRead(long byteCount) {
+    bytesRead += byteCount;
+  }
+
+  /**
+   * Register bytes written to output files.
+   *
+   * @param byteCount The number of bytes written
+   */
+  public void addBytesWritten(long byteCount) {
+    bytesWritten += byteCount;
+  }
+
+  /**
+   * Register the durations of API calls.
+   *
+   * @param durationsNanos Duration of each call, in nanoseconds
+   */
+  public void addApiCalls(List<Long> durationsNanos) {
+    apiCallNanos.addAll(durationsNanos);
+  }
+
+  /**
+   * Register the estimated heap footprint of a data structure.
+   *
+   * @param stage       The stage after which the footprint was estimated
+   * @param structure   Name of the data structure
+   * @param objectCount The number of objects in the structure
+   * @param bytes       The estimated size, in bytes
+   */
+  public void addHeapEstimate(String stage, String structure, long objectCount, long bytes) {
+    heapEstimates.add(new HeapEstimate(stage, structure, objectCount, bytes));
+  }
+
+  /**
+   * Get the names of the measured stages.
+   *
+   * @return Stage names, in the order they were finished
+   */
+  public List<String> getStageNames() {
+    return stages.stream().map(StageMetrics::name).toList();
+  }
+
+  /**
+   * Create the summary of the metrics.
+   *
+   * @return The summary, as written to the JSON file
+   */
+  Summary createSummary() {
+    double wallMillis = 0;
+    double cpuMillis = 0;
+    long allocatedBytes = 0;
+    for (StageMetrics stage : stages) {
+      wallMillis += stage.wallMillis();
+      cpuMillis += Math.max(stage.cpuMillis(), 0);
+      allocatedBytes += Math.max(stage.allocatedBytes(), 0);
+    }
+    return new Summary(wallMillis, cpuMillis, allocatedBytes, bytesRead, bytesWritten,
+        maxSampledHeapBytes, new ArrayList<>(stages), createApiCallMetrics(),
+        new ArrayList<>(heapEstimates));
+  }
+
+  private ApiCallMetrics createApiCallMetrics() {
+    List<Long> sorted = apiCallNanos.stream().sorted().toList();
+    long total = sorted.stream().mapToLong(Long::longValue).sum();
+    return new ApiCallMetrics(sorted.size(), total / NANOS_PER_MILLI,
+        getPercentile(sorted, 50), getPercentile(sorted, 90), getPercentile(sorted, 99),
+        getPercentile(sorted, 100));
+  }
+
+  /**
+   * Get a percentile with the nearest-rank method.
+   */
+  private static double getPercentile(List<Long> sortedNanos, int percentile) {
+    if (sortedNanos.isEmpty()) {
+      return 0;
+    }
+    int rank = (int) Math.ceil(percentile / 100.0 * sortedNanos.size());
+    return sortedNanos.get(Math.max(rank, 1) - 1) / NANOS_PER_MILLI;
+  }
+
+  /**
+   * Write the metrics to a JSON file.
+   *
+   * @param filePath Path to the JSON file
+   * @throws IOException When writing the file fails
+   */
+  public void writeToFile(String filePath) throws IOException {
+    Summary summary = createSummary();
+    Files.writeString(Path.of(filePath), gson.toJson(summary), StandardCharsets.UTF_8);
+    if (logger.isInfoEnabled()) {
+      for (StageMetrics stage : summary.stages()) {
+        logger.info("Stage {}: {} ms, {} rows/s", stage.name(),
+            String.format("%.1f", stage.wallMillis()),
+            String.format("%.0f", stage.rowsPerSecond()));
+      }
+    }
+  }
+
+  private static long getThreadCpuNanos() {
+    ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    return threadBean.isCurrentThreadCpuTimeSupported()
+        ? threadBean.getCurrentThreadCpuTime() : -1;
+  }
+
+  private static long getThreadAllocatedBytes() {
+    if (ManagementFactory.getThreadMXBean()
+        instanceof com.sun.management.ThreadMXBean threadBean
+        && threadBean.isThreadAllocatedMemorySupported()
+        && threadBean.isThreadAllocatedMemoryEnabled()) {
+      return threadBean.getCurrentThreadAllocatedBytes();
+    }
+    return -1;
+  }
+
+  /**
+   * Sample the current heap usage of the JVM (including the objects of other runs in batch and
+   * server mode), update the maximum of the run.
+   *
+   * @return The heap usage, in bytes
+   */
+  private long sampleHeapUsage() {
+    long used = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    maxSampledHeapBytes = Math.max(maxSampledHeapBytes, used);
+    return used;
+  }
+}
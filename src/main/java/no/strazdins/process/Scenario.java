@@ -0,0 +1,13 @@
+package no.strazdins.process;
+
+import no.strazdins.data.ExtraInfo;
+
+/**
+ * A what-if scenario: alternative extra info, such as other deposit prices or auto-invest
+ * proportions, which overrides the user-provided extra info.
+ *
+ * @param name      Name of the scenario
+ * @param overrides The overriding extra info entries, see {@link ExtraInfo#withOverrides}
+ */
+public record Scenario(String name, ExtraInfo overrides) {
+}
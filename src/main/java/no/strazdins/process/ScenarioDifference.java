@@ -0,0 +1,18 @@
+package no.strazdins.process;
+
+import no.strazdins.data.Decimal;
+
+/**
+ * Difference between the annual report of a scenario and the annual report of the baseline
+ * (the scenario value minus the baseline value) for one year.
+ *
+ * @param scenario       Name of the scenario
+ * @param timestamp      Timestamp of the year end
+ * @param pnlUsd         Difference of the PNL, in USD
+ * @param pnlHc          Difference of the PNL, in Home currency
+ * @param walletValueUsd Difference of the year-end wallet value, in USD
+ * @param walletValueHc  Difference of the year-end wallet value, in Home currency
+ */
+public record ScenarioDifference(String scenario, long timestamp, Decimal pnlUsd, Decimal pnlHc,
+                                 Decimal walletValueUsd, Decimal walletValueHc) {
+}
@@ -0,0 +1,43 @@
+package no.strazdins.process;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The annual reports of one evaluated scenario.
+ *
+ * @param name          Name of the scenario
+ * @param annualReports The annual reports
+ */
+public record ScenarioResult(String name, List<AnnualReport> annualReports) {
+  /**
+   * Compare this scenario with the baseline.
+   *
+   * @param baseline The result of the baseline scenario
+   * @return The difference for each year
+   * @throws IllegalArgumentException When the results cover different years
+   */
+  public List<ScenarioDifference> getDifferences(ScenarioResult baseline)
+      throws IllegalArgumentException {
+    List<AnnualReport> baselineReports = baseline.annualReports();
+    if (baselineReports.size() != annualReports.size()) {
+      throw new IllegalArgumentException("Scenario " + name + " has " + annualReports.size()
+          + " annual reports, the baseline has " + baselineReports.size());
+    }
+    List<ScenarioDifference> differences = new ArrayList<>();
+    for (int i = 0; i < annualReports.size(); ++i) {
+      AnnualReport report = annualReports.get(i);
+      AnnualReport baselineReport = baselineReports.get(i);
+      if (report.timestamp() != baselineReport.timestamp()) {
+        throw new IllegalArgumentException("Scenario " + name
+            + " covers different years than the baseline");
+      }
+      differences.add(new ScenarioDifference(name, report.timestamp(),
+          report.pnlUsd().subtract(baselineReport.pnlUsd()),
+          report.pnlHc().subtract(baselineReport.pnlHc()),
+          report.walletValueUsd().subtract(baselineReport.walletValueUsd()),
+          report.walletValueHc().subtract(baselineReport.walletValueHc())));
+    }
+    return differences;
+  }
+}
@@ -0,0 +1,146 @@
+package no.strazdins.process;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Supplier;
+import no.strazdins.data.CostBasisStrategy;
+import no.strazdins.data.ExtraInfo;
+import no.strazdins.data.WalletSnapshot;
+import no.strazdins.tool.BinanceApiClient;
+import no.strazdins.transaction.AutoInvestTransaction;
+import no.strazdins.transaction.Transaction;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Evaluates what-if scenarios on the same transactions: the input is parsed and classified
+ * once, then each scenario is processed with its own extra info and its own report. The
+ * classified transactions are never processed themselves - each scenario processes unprocessed
+ * copies, which share the raw account changes. The scenarios run in parallel on a fork-join
+ * pool. The baseline is evaluated first, the asset prices it fetches from Binance API are
+ * reused by the scenarios. Create the runner with {@link ReportGenerator#createScenarioRunner}.
+ */
+public class ScenarioRunner {
+  private static final Logger logger = LogManager.getLogger(ScenarioRunner.class);
+
+  /**
+   * Name of the scenario with the user-provided extra info, without overrides.
+   */
+  public static final String BASELINE = "baseline";
+
+  private final List<Transaction> transactions;
+  private final ExtraInfo extraInfo;
+  private final VerificationPolicy verificationPolicy;
+  private final CostBasisStrategy costBasisStrategy;
+  private Supplier<BinanceApiClient> apiClientFactory = BinanceApiClient::new;
+
+  ScenarioRunner(List<Transaction> transactions, ExtraInfo extraInfo,
+                 VerificationPolicy verificationPolicy, CostBasisStrategy costBasisStrategy) {
+    this.transactions = List.copyOf(transactions);
+    this.extraInfo = extraInfo;
+    this.verificationPolicy = verificationPolicy;
+    this.costBasisStrategy = costBasisStrategy;
+  }
+
+  /**
+   * Set the factory of the API clients used by the reports of the scenarios.
+   *
+   * @param apiClientFactory Creates a new API client for each report
+   */
+  void setApiClientFactory(Supplier<BinanceApiClient> apiClientFactory) {
+    this.apiClientFactory = apiClientFactory;
+  }
+
+  /**
+   * Evaluate the scenarios on the common fork-join pool.
+   *
+   * @param scenarios The scenarios
+   * @return The result of the baseline, followed by the results of the scenarios
+   * @throws IllegalStateException When processing of a scenario fails
+   */
+  public List<ScenarioResult> run(List<Scenario> scenarios) throws IllegalStateException {
+    return run(scenarios, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Evaluate the baseline, then the scenarios in parallel. The baseline is evaluated in the
+   * calling thread, with its own copy of the extra info; the prices it adds to the copy
+   * (fetched from Binance API) are then used by all the scenarios, instead of each scenario
+   * fetching the same prices. The extra info of each scenario is created before the scenarios
+   * are started, hence the tasks share no mutable state.
+   *
+   * @param scenarios The scenarios
+   * @param pool      The pool where the scenarios are evaluated
+   * @return The result of the baseline, followed by the results of the scenarios
+   * @throws IllegalStateException When processing of a scenario fails
+   */
+  public List<ScenarioResult> run(List<Scenario> scenarios, ForkJoinPool pool)
+      throws IllegalStateException {
+    ExtraInfo baselineInfo = extraInfo.withOverrides(new ExtraInfo());
+    ScenarioResult baseline = evaluate(BASELINE, baselineInfo);
+    List<ForkJoinTask<ScenarioResult>> tasks = new ArrayList<>();
+    for (Scenario scenario : scenarios) {
+      ExtraInfo scenarioInfo = baselineInfo.withOverrides(scenario.overrides());
+      tasks.add(pool.submit(() -> evaluate(scenario.name(), scenarioInfo)));
+    }
+    List<ScenarioResult> results = new ArrayList<>();
+    results.add(baseline);
+    for (ForkJoinTask<ScenarioResult> task : tasks) {
+      results.add(task.join());
+    }
+    return results;
+  }
+
+  /**
+   * Evaluate the scenarios and compare each of them with the baseline.
+   *
+   * @param scenarios The scenarios
+   * @return The differences of the annual reports, ordered by scenario, then by year
+   * @throws IllegalStateException When processing of a scenario fails
+   */
+  public List<ScenarioDifference> compare(List<Scenario> scenarios)
+      throws IllegalStateException {
+    List<ScenarioResult> results = run(scenarios);
+    ScenarioResult baseline = results.get(0);
+    List<ScenarioDifference> differences = new ArrayList<>();
+    for (ScenarioResult result : results.subList(1, results.size())) {
+      differences.addAll(result.getDifferences(baseline));
+    }
+    return differences;
+  }
+
+  private ScenarioResult evaluate(String name, ExtraInfo scenarioInfo) {
+    long startTime = System.nanoTime();
+    Report report = new Report(scenarioInfo, WalletSnapshot.createEmpty(),
+        apiClientFactory.get());
+    report.setVerificationPolicy(verificationPolicy);
+    report.setCostBasisStrategy(costBasisStrategy);
+    for (Transaction transaction : copyTransactions()) {
+      report.process(transaction);
+    }
+    List<AnnualReport> annualReports = report.createAnnualReports();
+    logger.info("Scenario {} evaluated in {} ms", name,
+        (System.nanoTime() - startTime) / 1_000_000);
+    return new ScenarioResult(name, annualReports);
+  }
+
+  private List<Transaction> copyTransactions() {
+    List<Transaction> copies = new ArrayList<>(transactions.size());
+    // Auto-invest transactions of one round share the subscription, which is configured
+    // while processing - hence each scenario needs its own subscription copies
+    Map<AutoInvestSubscription, AutoInvestSubscription> subscriptions = new IdentityHashMap<>();
+    for (Transaction transaction : transactions) {
+      Transaction copy = transaction.copy();
+      if (copy instanceof AutoInvestTransaction invest && invest.getSubscription() != null) {
+        invest.setSubscription(subscriptions.computeIfAbsent(invest.getSubscription(),
+            AutoInvestSubscription::new));
+      }
+      copies.add(copy);
+    }
+    return copies;
+  }
+}
@@ -0,0 +1,144 @@
+package no.strazdins.process;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+import no.strazdins.transaction.Transaction;
+
+/**
+ * Decides for which transactions the report checks that the wallet changes correspond to the
+ * raw operations of the transaction. Checking every transaction is the safest option (for
+ * example, in tests), while trusted repeated runs can sample the transactions or skip the
+ * check completely.
+ */
+public class VerificationPolicy {
+  private static final String SAMPLED_PREFIX = "sample:";
+  private static final String TYPES_PREFIX = "types:";
+
+  private final int sampleInterval;
+  private final Set<String> types;
+
+  /**
+   * Create a verification policy.
+   *
+   * @param sampleInterval Check every n-th transaction, 0 to check none
+   * @param types          Check only transactions of these types (as returned by
+   *                       {@link Transaction#getType()}), null to check all types
+   */
+  private VerificationPolicy(int sampleInterval, Set<String> types) {
+    this.sampleInterval = sampleInterval;
+    this.types = types;
+  }
+
+  /**
+   * Check every transaction. This is the default policy.
+   *
+   * @return The verification policy
+   */
+  public static VerificationPolicy full() {
+    return new VerificationPolicy(1, null);
+  }
+
+  /**
+   * Don't check any transactions.
+   *
+   * @return The verification policy
+   */
+  public static VerificationPolicy off() {
+    return new VerificationPolicy(0, null);
+  }
+
+  /**
+   * Check every n-th transaction.
+   *
+   * @param n The sampling interval, must be positive
+   * @return The verification policy
+   * @throws IllegalArgumentException When n is not positive
+   */
+  public static VerificationPolicy sampled(int n) throws IllegalArgumentException {
+    if (n <= 0) {
+      throw new IllegalArgumentException("Sampling interval must be positive: " + n);
+    }
+    return new VerificationPolicy(n, null);
+  }
+
+  /**
+   * Check only transactions of the given types.
+   *
+   * @param types Transaction types, as returned by {@link Transaction#getType()}
+   * @return The verification policy
+   */
+  public static VerificationPolicy types(Set<String> types) {
+    return new VerificationPolicy(1, Set.copyOf(types));
+  }
+
+  /**
+   * Create the policy from a string, as used in the command-line flag.
+   *
+   * @param s One of: full, off, sample:N (check every N-th transaction),
+   *          types:Type1,Type2 (check only the given transaction types)
+   * @return The verification policy
+   * @throws IOException When the string is not a valid policy
+   */
+  public static VerificationPolicy fromString(String s) throws IOException {
+    String lowerCase = s.toLowerCase();
+    if (lowerCase.equals("full")) {
+      return full();
+    } else if (lowerCase.equals("off")) {
+      return off();
+    } else if (lowerCase.startsWith(SAMPLED_PREFIX)) {
+      try {
+        return sampled(Integer.parseInt(s.substring(SAMPLED_PREFIX.length())));
+      } catch (IllegalArgumentException e) {
+        throw new IOException("Invalid verification sampling interval: " + s);
+      }
+    } else if (lowerCase.startsWith(TYPES_PREFIX)) {
+      Set<String> typeSet = Arrays.stream(s.substring(TYPES_PREFIX.length()).split(","))
+          .map(String::trim)
+          .filter(type -> !type.isEmpty())
+          .collect(Collectors.toSet());
+      if (typeSet.isEmpty()) {
+        throw new IOException("No transaction types specified for verification: " + s);
+      }
+      return types(typeSet);
+    } else {
+      throw new IOException("Invalid verification policy: " + s);
+    }
+  }
+
+  /**
+   * Check whether the given transaction must be verified.
+   *
+   * @param transaction The transaction
+   * @param index       Index of the transaction in the report, starting from zero
+   * @return True if the wallet changes of the transaction must be verified
+   */
+  public boolean shouldVerify(Transaction transaction, long index) {
+    return sampleInterval > 0
+        && index % sampleInterval == 0
+        && (types == null || types.contains(transaction.getType()));
+  }
+
+  /**
+   * Check whether this policy never verifies any transactions.
+   *
+   * @return True if verification is switched off
+   */
+  public boolean isOff() {
+    return sampleInterval == 0;
+  }
+
+  @Override
+  public String toString() {
+    if (sampleInterval == 0) {
+      return "off";
+    } else if (types != null) {
+      return TYPES_PREFIX + String.join(",", types);
+    } else if (sampleInterval > 1) {
+      return SAMPLED_PREFIX + sampleInterval;
+    } else {
+      return "full";
+    }
+  }
+}
@@ -2,8 +2,12 @@ package no.strazdins.tool;
 
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import no.strazdins.data.Decimal;
+import no.strazdins.metrics.PnlMetrics;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -11,15 +15,31 @@ import org.apache.logging.log4j.Logger;
  * Handles Binance REST API.
  */
 public class BinanceApiClient {
+  /**
+   * The maximum number of candles returned by one klines request.
+   */
+  public static final int MAX_CANDLES_PER_REQUEST = 1000;
+
   private static final Logger logger = LogManager.getLogger(BinanceApiClient.class);
   private static final String API_BASE_URL = "https://api.binance.com/api/v3";
   private static final long DELAY_AFTER_REQUEST_MS = 500;
   private static final String DEFAULT_QUOTE_CURR = "USDC";
+  private static final String USED_WEIGHT_HEADER = "X-MBX-USED-WEIGHT-1M";
+  private static final long DAY_MS = 24 * 3600 * 1000L;
 
   private final RestApiClient client = new RestApiClient(API_BASE_URL);
 
   private final Gson gson = new Gson();
 
+  private final List<Long> requestDurations = new ArrayList<>();
+
+  /**
+   * Create the API client.
+   */
+  public BinanceApiClient() {
+    client.trackResponseHeader(USED_WEIGHT_HEADER);
+  }
+
   /**
    * Get daily close price for a given asset, in the USDT market.
    *
@@ -30,11 +50,76 @@ public class BinanceApiClient {
   public Decimal getDailyClosePrice(String asset, long timestamp) {
     String requestUrl = "/klines?symbol=" + (asset + DEFAULT_QUOTE_CURR)
         + "&limit=1&interval=1d&startTime=" + TimeConverter.getDayStart(timestamp);
+    return getClosePriceFromSingleCandleArray(requestKlines(requestUrl));
+  }
+
+  /**
+   * Get the daily close prices for a given asset within a time range, in the USDT market.
+   * One request returns up to {@link #MAX_CANDLES_PER_REQUEST} days.
+   *
+   * @param asset     The asset of interest
+   * @param startTime The start of the time range, somewhere inside the first day of interest
+   * @param endTime   The end of the time range, somewhere inside the last day of interest
+   * @return Close price of each day for which a candle was found, keyed by the timestamp of
+   *     the start of the day
+   */
+  public Map<Long, Decimal> getDailyClosePrices(String asset, long startTime, long endTime) {
+    Map<Long, Decimal> prices = new HashMap<>();
+    long dayStart = TimeConverter.getDayStart(startTime);
+    long lastDayStart = TimeConverter.getDayStart(endTime);
+    while (dayStart <= lastDayStart) {
+      long days = Math.min((lastDayStart - dayStart) / DAY_MS + 1, MAX_CANDLES_PER_REQUEST);
+      String requestUrl = "/klines?symbol=" + (asset + DEFAULT_QUOTE_CURR)
+          + "&limit=" + days + "&interval=1d&startTime=" + dayStart
+          + "&endTime=" + (dayStart + days * DAY_MS - 1);
+      List<List<Object>> candles = requestKlines(requestUrl);
+      if (candles == null) {
+        logger.error("No daily candles received for {}", asset);
+        break;
+      }
+      for (List<Object> candle : candles) {
+        if (candle.size() == 12 && candle.get(0) instanceof Number openTime
+            && candle.get(4) instanceof String closePrice) {
+          prices.put(openTime.longValue(), new Decimal(closePrice));
+        }
+      }
+      dayStart += days * DAY_MS;
+    }
+    return prices;
+  }
+
+  private List<List<Object>> requestKlines(String requestUrl) {
+    long start = System.nanoTime();
     List<List<Object>> rawResponse = client.get(requestUrl,
         new TypeToken<List<List<Object>>>() {
         }.getType());
+    long duration = System.nanoTime() - start;
+    requestDurations.add(duration);
+    PnlMetrics.API_REQUESTS.get().inc();
+    PnlMetrics.API_REQUEST_SECONDS.get().observeNanos(duration);
+    updateUsedWeight();
     sleepToAvoidRateLimitBan();
-    return getClosePriceFromSingleCandleArray(rawResponse);
+    return rawResponse;
+  }
+
+  /**
+   * Get the durations of the REST API requests made by this client.
+   *
+   * @return Duration of each request, in nanoseconds, not including the delay between requests
+   */
+  public List<Long> getRequestDurations() {
+    return requestDurations;
+  }
+
+  private void updateUsedWeight() {
+    String usedWeight = client.getTrackedHeaderValue();
+    if (usedWeight != null) {
+      try {
+        PnlMetrics.API_USED_WEIGHT.get().set(Long.parseLong(usedWeight.trim()));
+      } catch (NumberFormatException e) {
+        logger.warn("Invalid {} header: {}", USED_WEIGHT_HEADER, usedWeight);
+      }
+    }
   }
 
   private void sleepToAvoidRateLimitBan() {
@@ -0,0 +1,287 @@
+package no.strazdins.tool;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Estimates the heap footprint of object graphs by reflection, without an instrumentation
+ * agent. The sizes follow the HotSpot object layout: object header, fields and 8-byte
+ * alignment, with compressed references when the JVM uses them.
+ *
+ * <p>The classes of the application are walked field by field. The fields of JDK classes can't
+ * be read without opening the JDK modules, therefore strings, big numbers, collections and
+ * maps are estimated from their public API: a node per element of linked lists and maps, a
+ * reference array for array-based collections. Other JDK objects are counted with their shallow
+ * size. Enum constants and classes are not counted.</p>
+ *
+ * <p>An estimator remembers the objects it has visited: when several structures are estimated
+ * with the same estimator, an object shared by them is attributed to the first one.</p>
+ */
+public class HeapEstimator {
+  private static final boolean COMPRESSED_REFERENCES = detectCompressedReferences();
+  private static final int REFERENCE_SIZE = COMPRESSED_REFERENCES ? 4 : 8;
+  private static final int OBJECT_HEADER_SIZE = COMPRESSED_REFERENCES ? 12 : 16;
+  private static final int ARRAY_HEADER_SIZE = OBJECT_HEADER_SIZE + 4;
+  private static final int ALIGNMENT = 8;
+  private static final double HASH_LOAD_FACTOR = 0.75;
+  private static final long LINKED_NODE_SIZE = align(OBJECT_HEADER_SIZE + 3L * REFERENCE_SIZE);
+  private static final long HASH_NODE_SIZE = align(OBJECT_HEADER_SIZE + 4 + 3L * REFERENCE_SIZE);
+  private static final long TREE_NODE_SIZE = align(OBJECT_HEADER_SIZE + 5L * REFERENCE_SIZE + 1);
+
+  private static final ClassValue<Long> shallowSizes = new ClassValue<>() {
+    @Override
+    protected Long computeValue(Class<?> type) {
+      return computeShallowSize(type);
+    }
+  };
+  private static final ClassValue<List<Field>> referenceFields = new ClassValue<>() {
+    @Override
+    protected List<Field> computeValue(Class<?> type) {
+      return findReferenceFields(type);
+    }
+  };
+
+  private final Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+  private final Deque<Object> pending = new ArrayDeque<>();
+  private long objectCount;
+  private long byteCount;
+
+  /**
+   * Estimated footprint of a structure.
+   *
+   * @param objectCount The number of objects
+   * @param bytes       The estimated size, in bytes
+   */
+  public record Estimate(long objectCount, long bytes) {
+  }
+
+  /**
+   * Estimate the footprint of the objects reachable from the root which were not visited by
+   * this estimator before.
+   *
+   * @param root The root object of the structure, may be null
+   * @return The estimated footprint of the newly visited objects
+   */
+  public Estimate estimate(Object root) {
+    return estimateAll(Collections.singletonList(root));
+  }
+
+  /**
+   * Estimate the footprint of the objects reachable from any of the roots which were not
+   * visited by this estimator before. The collection of the roots itself is not counted.
+   *
+   * @param roots The root objects, null elements are ignored
+   * @return The estimated footprint of the newly visited objects
+   */
+  public Estimate estimateAll(Iterable<?> roots) {
+    objectCount = 0;
+    byteCount = 0;
+    for (Object root : roots) {
+      push(root);
+    }
+    while (!pending.isEmpty()) {
+      visit(pending.pop());
+    }
+    return new Estimate(objectCount, byteCount);
+  }
+
+  private void push(Object o) {
+    if (o != null && !(o instanceof Enum<?>) && !(o instanceof Class<?>)
+        && !(o instanceof ClassLoader) && !(o instanceof Thread) && visited.add(o)) {
+      pending.push(o);
+    }
+  }
+
+  private void visit(Object o) {
+    Class<?> type = o.getClass();
+    objectCount++;
+    if (type.isArray()) {
+      visitArray(o, type.getComponentType());
+    } else if (o instanceof String s) {
+      byteCount += shallowSizes.get(type) + getStringContentSize(s);
+    } else if (o instanceof BigDecimal d) {
+      byteCount += shallowSizes.get(type) + getUnscaledValueSize(d);
+    } else if (o instanceof BigInteger i) {
+      byteCount += shallowSizes.get(type) + getMagnitudeSize(i);
+    } else if (!type.getModule().isNamed()) {
+      byteCount += shallowSizes.get(type);
+      for (Field field : referenceFields.get(type)) {
+        push(readField(field, o));
+      }
+    } else if (o instanceof Map<?, ?> map) {
+      byteCount += shallowSizes.get(type) + getMapOverhead(map);
+      for (Map.Entry<?, ?> entry : map.entrySet()) {
+        push(entry.getKey());
+        push(entry.getValue());
+      }
+    } else if (o instanceof Collection<?> collection) {
+      byteCount += shallowSizes.get(type) + getCollectionOverhead(collection);
+      for (Object element : collection) {
+        push(element);
+      }
+    } else if (o instanceof BitSet bits) {
+      byteCount += shallowSizes.get(type) + getArraySize(bits.size() / Long.SIZE, Long.BYTES);
+    } else {
+      byteCount += shallowSizes.get(type);
+    }
+  }
+
+  private void visitArray(Object array, Class<?> componentType) {
+    int length = Array.getLength(array);
+    if (componentType.isPrimitive()) {
+      byteCount += getArraySize(length, getFieldSize(componentType));
+    } else {
+      byteCount += getArraySize(length, REFERENCE_SIZE);
+      for (int i = 0; i < length; ++i) {
+        push(Array.get(array, i));
+      }
+    }
+  }
+
+  private static Object readField(Field field, Object o) {
+    try {
+      return field.get(o);
+    } catch (IllegalAccessException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Get the size of the internal structure of a JDK map, except the map object itself.
+   */
+  private static long getMapOverhead(Map<?, ?> map) {
+    int size = map.size();
+    if (map instanceof EnumMap<?, ?>) {
+      // The value array has a slot for every constant of the key enum
+      Object key = size > 0 ? map.keySet().iterator().next() : null;
+      int slots = key instanceof Enum<?> e ? e.getDeclaringClass().getEnumConstants().length
+          : size;
+      return getArraySize(slots, REFERENCE_SIZE);
+    } else if (map instanceof TreeMap<?, ?>) {
+      return size * TREE_NODE_SIZE;
+    } else if (map instanceof HashMap<?, ?>) {
+      return getHashTableSize(size) + size * HASH_NODE_SIZE;
+    }
+    return getArraySize(2 * size, REFERENCE_SIZE);
+  }
+
+  /**
+   * Get the size of the internal structure of a JDK collection, except the collection object
+   * itself. Hash and tree sets are backed by a map object.
+   */
+  private static long getCollectionOverhead(Collection<?> collection) {
+    int size = collection.size();
+    if (collection instanceof LinkedList<?>) {
+      return size * LINKED_NODE_SIZE;
+    } else if (collection instanceof HashSet<?>) {
+      return shallowSizes.get(HashMap.class) + getHashTableSize(size) + size * HASH_NODE_SIZE;
+    } else if (collection instanceof TreeSet<?>) {
+      return shallowSizes.get(TreeMap.class) + size * TREE_NODE_SIZE;
+    }
+    return getArraySize(size, REFERENCE_SIZE);
+  }
+
+  private static long getHashTableSize(int size) {
+    if (size == 0) {
+      return 0;
+    }
+    int capacity = Integer.highestOneBit((int) Math.ceil(size / HASH_LOAD_FACTOR) - 1) << 1;
+    return getArraySize(Math.max(capacity, 16), REFERENCE_SIZE);
+  }
+
+  private static long getStringContentSize(String s) {
+    boolean latin1 = s.chars().allMatch(c -> c <= 0xFF);
+    return getArraySize(s.length(), latin1 ? 1 : 2);
+  }
+
+  private static long getUnscaledValueSize(BigDecimal d) {
+    BigInteger unscaled = d.unscaledValue();
+    // Values fitting in a long are stored without a BigInteger
+    return unscaled.bitLength() < Long.SIZE
+        ? 0 : shallowSizes.get(BigInteger.class) + getMagnitudeSize(unscaled);
+  }
+
+  private static long getMagnitudeSize(BigInteger i) {
+    return getArraySize((i.bitLength() + Integer.SIZE - 1) / Integer.SIZE, Integer.BYTES);
+  }
+
+  private static long getArraySize(int length, int elementSize) {
+    return align(ARRAY_HEADER_SIZE + (long) length * elementSize);
+  }
+
+  private static long computeShallowSize(Class<?> type) {
+    long size = OBJECT_HEADER_SIZE;
+    for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+      for (Field field : c.getDeclaredFields()) {
+        if (!Modifier.isStatic(field.getModifiers())) {
+          size += getFieldSize(field.getType());
+        }
+      }
+    }
+    return align(size);
+  }
+
+  private static List<Field> findReferenceFields(Class<?> type) {
+    List<Field> fields = new ArrayList<>();
+    for (Class<?> c = type; c != null && !c.getModule().isNamed(); c = c.getSuperclass()) {
+      for (Field field : c.getDeclaredFields()) {
+        if (!Modifier.isStatic(field.getModifiers()) && !field.getType().isPrimitive()
+            && field.trySetAccessible()) {
+          fields.add(field);
+        }
+      }
+    }
+    return fields;
+  }
+
+  private static int getFieldSize(Class<?> type) {
+    if (type == long.class || type == double.class) {
+      return 8;
+    } else if (type == int.class || type == float.class) {
+      return 4;
+    } else if (type == short.class || type == char.class) {
+      return 2;
+    } else if (type == byte.class || type == boolean.class) {
+      return 1;
+    }
+    return REFERENCE_SIZE;
+  }
+
+  private static long align(long size) {
+    return (size + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+  }
+
+  /**
+   * Check whether the JVM uses compressed references. When the option can't be read, assume
+   * the default of HotSpot: compressed references for heaps below 32 GB.
+   */
+  private static boolean detectCompressedReferences() {
+    try {
+      com.sun.management.HotSpotDiagnosticMXBean bean = ManagementFactory.getPlatformMXBean(
+          com.sun.management.HotSpotDiagnosticMXBean.class);
+      return Boolean.parseBoolean(bean.getVMOption("UseCompressedOops").getValue());
+    } catch (RuntimeException e) {
+      return Runtime.getRuntime().maxMemory() < 32L * 1024 * 1024 * 1024;
+    }
+  }
+}
@@ -22,6 +22,9 @@ public class RestApiClient {
 
   private final Gson gson = new Gson();
 
+  private String trackedHeaderName;
+  private String trackedHeaderValue;
+
   /**
    * Create REST API client.
    *
@@ -31,6 +34,24 @@ public class RestApiClient {
     this.apiBaseUrl = baseUrl;
   }
 
+  /**
+   * Remember the value of the given response header, see {@link #getTrackedHeaderValue()}.
+   *
+   * @param headerName Name of the header
+   */
+  public void trackResponseHeader(String headerName) {
+    this.trackedHeaderName = headerName;
+  }
+
+  /**
+   * Get the value of the tracked response header in the last response.
+   *
+   * @return The header value, null if the last response did not contain it
+   */
+  public String getTrackedHeaderValue() {
+    return trackedHeaderValue;
+  }
+
   /**
    * Send an HTTP GET to a REST API endpoint.
    *
@@ -51,8 +72,12 @@ public class RestApiClient {
   private String fetch(String method, String apiPath) {
     HttpURLConnection connection = establishConnection(method, apiPath);
     String response = null;
+    trackedHeaderValue = null;
     if (connection != null) {
       response = readResponseBody(connection);
+      if (trackedHeaderName != null) {
+        trackedHeaderValue = connection.getHeaderField(trackedHeaderName);
+      }
     }
 
     return response;
@@ -1,28 +1,22 @@
 package no.strazdins.tool;
 
 import java.io.IOException;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
-import java.util.Date;
-import java.util.TimeZone;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 
 /**
  * Utility class for conversion between different date and time formats.
  */
 public class TimeConverter {
-  private static final SimpleDateFormat timestampFormat
-      = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-  private static final SimpleDateFormat dateFormat
-      = new SimpleDateFormat("yyyy-MM-dd");
-
-  // Need this to ensure that all time strings are parsed correctly in the UTC timezone
-  static {
-    timestampFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
-    dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
-  }
+  // The formatters are immutable, hence safe to use from several threads at the same time.
+  // All time strings are in the UTC timezone
+  private static final DateTimeFormatter timestampFormat
+      = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneOffset.UTC);
+  private static final DateTimeFormatter dateFormat
+      = DateTimeFormatter.ofPattern("yyyy-MM-dd").withZone(ZoneOffset.UTC);
 
   /**
    * No construction of the object is allowed.
@@ -40,9 +34,9 @@ public class TimeConverter {
    */
   public static long stringToUtcTimestamp(String timeString) throws IllegalArgumentException {
     try {
-      Date parsedDate = timestampFormat.parse(timeString);
-      return parsedDate.getTime();
-    } catch (ParseException e) {
+      return LocalDateTime.parse(timeString, timestampFormat).toInstant(ZoneOffset.UTC)
+          .toEpochMilli();
+    } catch (DateTimeParseException e) {
       throw new IllegalArgumentException("Invalid time string: " + timeString);
     }
   }
@@ -54,7 +48,7 @@ public class TimeConverter {
    * @return Formatted string
    */
   public static String utcTimeToString(long utcTimestamp) {
-    return timestampFormat.format(new Date(utcTimestamp));
+    return timestampFormat.format(Instant.ofEpochMilli(utcTimestamp));
   }
 
   /**
@@ -64,7 +58,7 @@ public class TimeConverter {
    * @return Formatted string
    */
   public static String utcTimeToDateString(long utcTimestamp) {
-    return dateFormat.format(new Date(utcTimestamp));
+    return dateFormat.format(Instant.ofEpochMilli(utcTimestamp));
   }
 
   /**
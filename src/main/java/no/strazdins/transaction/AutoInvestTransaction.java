@@ -50,6 +50,17 @@ public class AutoInvestTransaction extends Transaction {
     this.subscription = subscription;
   }
 
+  /**
+   * Create an unprocessed copy of this transaction. The copy shares the subscription with this
+   * transaction, use {@link #setSubscription(AutoInvestSubscription)} to replace it.
+   *
+   * @return The copy
+   */
+  @Override
+  public AutoInvestTransaction copy() {
+    return new AutoInvestTransaction(this, subscription);
+  }
+
   @Override
   public String getType() {
     return "Auto-invest";
@@ -94,6 +105,14 @@ public class AutoInvestTransaction extends Transaction {
     return newSnapshot;
   }
 
+  @Override
+  public void skipProcessing(ExtraInfoEntry extraInfo) {
+    // The subscription is configured by its first transaction, later transactions rely on it
+    if (!subscription.isValid()) {
+      subscription.tryConfigure(extraInfo);
+    }
+  }
+
   /**
    * Check whether this transaction contains multiple raw account changes of type auto-invest -
    * this should never happen.
@@ -28,6 +28,11 @@ public class BuyTransaction extends Transaction {
     initBaseAndQuote();
   }
 
+  @Override
+  public BuyTransaction copy() {
+    return new BuyTransaction(this);
+  }
+
   private void initBaseAndQuote() throws IllegalStateException {
     base = getFirstBuyTypeChange();
     quote = getFirstSellTypeChange();
@@ -25,6 +25,11 @@ public class CardPurchaseTransaction extends Transaction {
     initFiat();
   }
 
+  @Override
+  public CardPurchaseTransaction copy() {
+    return new CardPurchaseTransaction(this);
+  }
+
   private void initFiat() throws IllegalStateException {
     RawAccountChange fiatSpent = getFiatChange();
     quoteCurrency = fiatSpent.getAsset();
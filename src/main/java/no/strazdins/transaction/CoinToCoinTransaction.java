@@ -13,6 +13,11 @@ public class CoinToCoinTransaction extends BuyTransaction {
     super(t);
   }
 
+  @Override
+  public CoinToCoinTransaction copy() {
+    return new CoinToCoinTransaction(this);
+  }
+
   @Override
   public String toString() {
     return "CC " + baseCurrencyAmount.getNiceString() + " " + base.getAsset() + " -> "
@@ -28,9 +33,10 @@ public class CoinToCoinTransaction extends BuyTransaction {
   @Override
   public WalletSnapshot process(WalletSnapshot walletSnapshot, ExtraInfoEntry extraInfo) {
     WalletSnapshot newSnapshot = walletSnapshot.prepareForTransaction(this);
-    calculateFeeInUsdt(newSnapshot.getWallet());
+    // The fee is taken after the sold coin
+    calculateFeeInUsdt(newSnapshot.getWallet(), quoteCurrency, quoteAmount.negate());
     // Base - the bought coin, quote - the sold coin
-    Decimal usdUsed = quoteAmount.negate().multiply(newSnapshot.getAvgQuoteObtainPrice());
+    Decimal usdUsed = newSnapshot.getWallet().getCostBasis(quoteCurrency, quoteAmount.negate());
     usdUsed = usdUsed.add(feeInUsdt.negate());
     Decimal avgBuyPriceInUsdt = usdUsed.divide(baseCurrencyAmount);
     newSnapshot.addAsset(baseCurrency, baseCurrencyAmount, avgBuyPriceInUsdt);
@@ -17,6 +17,11 @@ public class CommissionTransaction extends SavingsInterestTransaction {
     super(t);
   }
 
+  @Override
+  public CommissionTransaction copy() {
+    return new CommissionTransaction(this);
+  }
+
   @Override
   protected RawAccountChange getInterestOperation() {
     return getFirstChangeOfType(Operation.COMMISSION_REBATE);
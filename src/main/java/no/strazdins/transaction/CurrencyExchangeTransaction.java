@@ -17,6 +17,11 @@ public class CurrencyExchangeTransaction extends Transaction {
     initCurrencies();
   }
 
+  @Override
+  public CurrencyExchangeTransaction copy() {
+    return new CurrencyExchangeTransaction(this);
+  }
+
   private void initCurrencies() {
     List<RawAccountChange> changes = getChangesOfType(CONVERT);
     if (changes.size() != 2) {
@@ -26,6 +26,11 @@ public class DepositTransaction extends ExternalTransferTransaction {
     }
   }
 
+  @Override
+  public DepositTransaction copy() {
+    return new DepositTransaction(this);
+  }
+
   @Override
   public String toString() {
     return "Deposit " + change.getAmount() + " " + change.getAsset()
@@ -27,6 +27,11 @@ public class DistributionTransaction extends Transaction {
     baseCurrencyAmount = distribution.getAmount();
   }
 
+  @Override
+  public DistributionTransaction copy() {
+    return new DistributionTransaction(this);
+  }
+
   @Override
   public WalletSnapshot process(WalletSnapshot walletSnapshot, ExtraInfoEntry extraInfo) {
     WalletSnapshot newSnapshot = walletSnapshot.prepareForTransaction(this);
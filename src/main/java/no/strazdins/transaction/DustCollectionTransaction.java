@@ -35,6 +35,11 @@ public class DustCollectionTransaction extends Transaction {
     quoteAmount = getDustChangeAmount(getQuoteAsset());
   }
 
+  @Override
+  public DustCollectionTransaction copy() {
+    return new DustCollectionTransaction(this);
+  }
+
   private String getQuoteAsset() {
     return dustAssets.size() == 1 ? getFirstDustAssetName() : null;
   }
@@ -118,7 +123,7 @@ public class DustCollectionTransaction extends Transaction {
     for (Map.Entry<String, Decimal> dust : dustAssets.entrySet()) {
       String asset = dust.getKey();
       Decimal amount = dust.getValue().negate();
-      Decimal usdUsedToObtainDust = wallet.getAvgObtainPrice(asset).multiply(amount);
+      Decimal usdUsedToObtainDust = wallet.getCostBasis(asset, amount);
       totalDustValue = totalDustValue.add(usdUsedToObtainDust);
       newSnapshot.decreaseAsset(asset, amount);
     }
@@ -18,6 +18,11 @@ public class RewardTransaction extends SavingsInterestTransaction {
     super(t);
   }
 
+  @Override
+  public RewardTransaction copy() {
+    return new RewardTransaction(this);
+  }
+
   @Override
   protected RawAccountChange getInterestOperation() {
     RawAccountChange change = getFirstChangeOfType(Operation.CASHBACK_VOUCHER);
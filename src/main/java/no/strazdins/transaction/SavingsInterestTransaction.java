@@ -1,5 +1,6 @@
 package no.strazdins.transaction;
 
+import java.util.List;
 import java.util.Objects;
 import no.strazdins.data.AccountType;
 import no.strazdins.data.Decimal;
@@ -35,6 +36,40 @@ public class SavingsInterestTransaction extends Transaction {
     baseObtainPriceInUsdt = Decimal.ZERO;
   }
 
+  @Override
+  public SavingsInterestTransaction copy() {
+    return new SavingsInterestTransaction(this);
+  }
+
+  /**
+   * Merge several interest credits of the same asset into one interest transaction. The merged
+   * transaction gets the timestamp of the last credit and the sum of all credited amounts.
+   *
+   * @param credits The interest transactions to merge, ordered by time
+   * @return A single interest transaction, equivalent to all the given credits
+   * @throws IllegalArgumentException When the list is empty or the credits have different assets
+   */
+  public static SavingsInterestTransaction merge(List<SavingsInterestTransaction> credits)
+      throws IllegalArgumentException {
+    if (credits == null || credits.isEmpty()) {
+      throw new IllegalArgumentException("Can't merge an empty list");
+    }
+    SavingsInterestTransaction last = credits.get(credits.size() - 1);
+    Decimal totalAmount = Decimal.ZERO;
+    for (SavingsInterestTransaction credit : credits) {
+      if (!credit.baseCurrency.equals(last.baseCurrency)) {
+        throw new IllegalArgumentException("Can't merge interest in different assets: "
+            + credit.baseCurrency + " and " + last.baseCurrency);
+      }
+      totalAmount = totalAmount.add(credit.baseCurrencyAmount);
+    }
+    Transaction t = new Transaction(last.utcTime);
+    t.append(new RawAccountChange(last.utcTime, last.interest.getAccount(),
+        last.interest.getOperation(), last.baseCurrency, totalAmount,
+        credits.size() + " interest credits merged"));
+    return new SavingsInterestTransaction(t);
+  }
+
   /**
    * Check whether correct account type is used.
    *
@@ -25,6 +25,11 @@ public class SavingsRedemptionTransaction extends Transaction {
     baseCurrency = withdraw.getAsset();
   }
 
+  @Override
+  public SavingsRedemptionTransaction copy() {
+    return new SavingsRedemptionTransaction(this);
+  }
+
   final RawAccountChange withdraw;
 
   @Override
@@ -35,7 +40,7 @@ public class SavingsRedemptionTransaction extends Transaction {
   @Override
   public WalletSnapshot process(WalletSnapshot walletSnapshot, ExtraInfoEntry extraInfo) {
     baseObtainPriceInUsdt = walletSnapshot.getWallet().getAvgObtainPrice(baseCurrency);
-    return walletSnapshot.prepareForTransaction(this);
+    return walletSnapshot.prepareForWalletNeutralTransaction(this);
   }
 
   @Override
@@ -30,6 +30,11 @@ public class SavingsSubscriptionTransaction extends Transaction {
     baseCurrency = deposit.getAsset();
   }
 
+  @Override
+  public SavingsSubscriptionTransaction copy() {
+    return new SavingsSubscriptionTransaction(this);
+  }
+
   @Override
   public String toString() {
     return "Save-subscribe " + baseCurrencyAmount.getNiceString() + " " + baseCurrency;
@@ -38,7 +43,7 @@ public class SavingsSubscriptionTransaction extends Transaction {
   @Override
   public WalletSnapshot process(WalletSnapshot walletSnapshot, ExtraInfoEntry extraInfo) {
     baseObtainPriceInUsdt = walletSnapshot.getWallet().getAvgObtainPrice(baseCurrency);
-    return walletSnapshot.prepareForTransaction(this);
+    return walletSnapshot.prepareForWalletNeutralTransaction(this);
   }
 
   @Override
@@ -25,6 +25,11 @@ public class SellTransaction extends Transaction {
     initBaseAndQuote();
   }
 
+  @Override
+  public SellTransaction copy() {
+    return new SellTransaction(this);
+  }
+
   private void initBaseAndQuote() {
     base = getFirstSellTypeChange();
     quote = getFirstBuyTypeChange();
@@ -56,9 +61,12 @@ public class SellTransaction extends Transaction {
   public WalletSnapshot process(WalletSnapshot walletSnapshot, ExtraInfoEntry extraInfo) {
     WalletSnapshot newSnapshot = walletSnapshot.prepareForTransaction(this);
     Wallet w = newSnapshot.getWallet();
-    calculateFeeInUsdt(w);
+    Decimal soldAmount = base.getAmount().negate();
+    // The fee is taken after the sold amount
+    calculateFeeInUsdt(w, base.getAsset(), soldAmount);
     Decimal receivedUsdt = quoteAmount.add(feeInUsdt); // Fee is negative
-    Decimal investedUsdt = base.getAmount().negate().multiply(newSnapshot.getAvgBaseObtainPrice());
+    realizedLots = w.getLotPortions(base.getAsset(), soldAmount);
+    Decimal investedUsdt = w.getCostBasis(base.getAsset(), soldAmount);
     pnl = receivedUsdt.subtract(investedUsdt);
     newSnapshot.addPnl(pnl);
 
@@ -8,8 +8,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import no.strazdins.data.AssetSymbols;
 import no.strazdins.data.Decimal;
 import no.strazdins.data.ExtraInfoEntry;
+import no.strazdins.data.LotPortion;
 import no.strazdins.data.Operation;
 import no.strazdins.data.OperationMultiSet;
 import no.strazdins.data.RawAccountChange;
@@ -28,8 +30,6 @@ public class Transaction {
   // All PNL is calculated in this currency
   public static final String QUOTE_CURR = "USDT";
 
-  private static final Set<String> fiatCurrencies = new HashSet<>();
-  private static final Set<String> usdCurrencies = new HashSet<>();
   private static final Logger log = LogManager.getLogger(Transaction.class);
 
   Map<Operation, List<RawAccountChange>> atomicAccountChanges = new EnumMap<>(Operation.class);
@@ -47,6 +47,8 @@ public class Transaction {
   protected Decimal feeInUsdt = Decimal.ZERO;
 
   protected Decimal pnl = Decimal.ZERO;
+  // The lots from which the assets were realized, with the FIFO cost basis
+  protected List<LotPortion> realizedLots = List.of();
   protected Decimal quoteAmount = Decimal.ZERO;
 
 
@@ -64,6 +66,17 @@ public class Transaction {
     this.utcTime = t.utcTime;
   }
 
+  /**
+   * Create an unprocessed copy of this transaction, of the same type. The raw account changes
+   * are shared, the results of processing are not copied. Used to process the same classified
+   * transactions several times, for example with different extra info.
+   *
+   * @return The copy
+   */
+  public Transaction copy() {
+    return new Transaction(this);
+  }
+
   /**
    * Append a change to the transaction.
    *
@@ -352,6 +365,16 @@ public class Transaction {
     throw new UnsupportedOperationException();
   }
 
+  /**
+   * Called instead of {@link #process(WalletSnapshot, ExtraInfoEntry)} when the wallet state
+   * after this transaction is restored from a checkpoint. Transactions which share state with
+   * later transactions must prepare that state here.
+   *
+   * @param extraInfo Extra info provided by the user, if any
+   */
+  public void skipProcessing(ExtraInfoEntry extraInfo) {
+  }
+
   /**
    * Get the type of the transaction.
    *
@@ -443,6 +466,17 @@ public class Transaction {
     return pnl;
   }
 
+  /**
+   * Get the lots from which the base asset was realized (sold or withdrawn) in this
+   * transaction. The PNL is calculated from the cost of these lots.
+   *
+   * @return The lot parts, the oldest first; empty with the average cost basis and for the
+   *     transactions which don't realize any PNL
+   */
+  public final List<LotPortion> getRealizedLots() {
+    return realizedLots;
+  }
+
   /**
    * Get the amount of quote currency change in this transaction.
    *
@@ -458,12 +492,28 @@ public class Transaction {
    * @throws IllegalStateException When no fee raw-account-change is found
    */
   protected final void calculateFeeInUsdt(Wallet wallet) throws IllegalStateException {
+    calculateFeeInUsdt(wallet, null, Decimal.ZERO);
+  }
+
+  /**
+   * Find out the fee in USDT, store it. The fee is paid after the given amount of an asset is
+   * removed from the wallet: when the fee is paid in the same asset, its cost basis is that of
+   * the units following the removed amount.
+   *
+   * @param wallet        The wallet before the transaction
+   * @param removedAsset  The asset removed before the fee is paid, null if none
+   * @param removedAmount The amount of the removed asset
+   */
+  protected final void calculateFeeInUsdt(Wallet wallet, String removedAsset,
+                                          Decimal removedAmount) {
     RawAccountChange feeOp = getFirstChangeOfType(Operation.FEE);
     if (feeOp != null) {
       if (feeOp.getAsset().equals("USDT")) {
         feeInUsdt = feeOp.getAmount();
       } else {
-        feeInUsdt = feeOp.getAmount().multiply(wallet.getAvgObtainPrice(feeOp.getAsset()));
+        Decimal offset = feeOp.getAsset().equals(removedAsset) ? removedAmount : Decimal.ZERO;
+        feeInUsdt = wallet.getCostBasis(feeOp.getAsset(), feeOp.getAmount().negate(), offset)
+            .negate();
       }
     }
   }
@@ -518,12 +568,27 @@ public class Transaction {
     WalletDiff diff = new WalletDiff();
     for (List<RawAccountChange> changes : atomicAccountChanges.values()) {
       for (RawAccountChange change : changes) {
-        diff.add(change.getAsset(), change.getAmount());
+        diff.add(change.getAssetId(), change.getAmount());
       }
     }
     return diff;
   }
 
+  /**
+   * Get all the assets involved in the raw account changes of this transaction.
+   *
+   * @return The set of involved assets
+   */
+  public final Set<String> getInvolvedAssets() {
+    Set<String> assets = new HashSet<>();
+    for (List<RawAccountChange> changes : atomicAccountChanges.values()) {
+      for (RawAccountChange change : changes) {
+        assets.add(change.getAsset());
+      }
+    }
+    return assets;
+  }
+
   /**
    * Get the number of atomic changes of specific type stores inside this transaction.
    *
@@ -541,39 +606,24 @@ public class Transaction {
    * @return True when it is USD or alike (USDT, BUSD)
    */
   public static boolean isUsdLike(String asset) {
-    lazyInitFiatCurrencies();
-    return usdCurrencies.contains(asset);
+    return AssetSymbols.isUsdLike(AssetSymbols.getId(asset));
+  }
+
+  /**
+   * Check whether the provided asset is USD or one of it's coin-equivalents.
+   *
+   * @param assetId The ID of the asset
+   * @return True when it is USD or alike (USDT, BUSD)
+   */
+  public static boolean isUsdLike(int assetId) {
+    return AssetSymbols.isUsdLike(assetId);
   }
 
   public static boolean isFiat(String asset) {
-    lazyInitFiatCurrencies();
-    return fiatCurrencies.contains(asset);
-  }
-
-  private static void lazyInitFiatCurrencies() {
-    if (fiatCurrencies.isEmpty()) {
-      fiatCurrencies.add("USD");
-      fiatCurrencies.add("USDT");
-      fiatCurrencies.add("USDC");
-      fiatCurrencies.add("BUSD");
-      fiatCurrencies.add("EUR");
-      fiatCurrencies.add("RUB");
-      fiatCurrencies.add("AUD");
-      fiatCurrencies.add("TRY");
-      fiatCurrencies.add("NGN");
-      fiatCurrencies.add("UAH");
-      fiatCurrencies.add("KZT");
-      fiatCurrencies.add("INR");
-      fiatCurrencies.add("BRL");
-      fiatCurrencies.add("GBP");
-      fiatCurrencies.add("ZAR");
-      fiatCurrencies.add("PLN");
-    }
-    if (usdCurrencies.isEmpty()) {
-      usdCurrencies.add("USD");
-      usdCurrencies.add("USDT");
-      usdCurrencies.add("USDC");
-      usdCurrencies.add("BUSD");
-    }
+    return AssetSymbols.isFiat(AssetSymbols.getId(asset));
+  }
+
+  public static boolean isFiat(int assetId) {
+    return AssetSymbols.isFiat(assetId);
   }
 }
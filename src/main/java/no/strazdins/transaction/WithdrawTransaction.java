@@ -3,6 +3,7 @@ package no.strazdins.transaction;
 import no.strazdins.data.Decimal;
 import no.strazdins.data.ExtraInfoEntry;
 import no.strazdins.data.Operation;
+import no.strazdins.data.Wallet;
 import no.strazdins.data.WalletSnapshot;
 
 /**
@@ -22,6 +23,11 @@ public class WithdrawTransaction extends ExternalTransferTransaction {
     }
   }
 
+  @Override
+  public WithdrawTransaction copy() {
+    return new WithdrawTransaction(this);
+  }
+
   @Override
   public String getType() {
     return "Withdraw";
@@ -36,7 +42,9 @@ public class WithdrawTransaction extends ExternalTransferTransaction {
     avgPriceInUsdt = realizationPrice;
     WalletSnapshot newSnapshot = walletSnapshot.prepareForTransaction(this);
     baseObtainPriceInUsdt = newSnapshot.getAvgBaseObtainPrice();
-    Decimal investedUsdt = newSnapshot.getAvgBaseObtainPrice().multiply(assetAmount);
+    Wallet w = newSnapshot.getWallet();
+    realizedLots = w.getLotPortions(baseCurrency, assetAmount);
+    Decimal investedUsdt = w.getCostBasis(baseCurrency, assetAmount);
     Decimal receivedUsdt = realizationPrice.multiply(assetAmount);
     pnl = receivedUsdt.subtract(investedUsdt);
     newSnapshot.addPnl(pnl);
@@ -0,0 +1,46 @@
+package no.strazdins;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import no.strazdins.tool.TimeConverter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BatchRunnerTest {
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void testJobsAreIsolated() throws IOException {
+    Files.writeString(tempDir.resolve("input.csv"),
+        "User_ID,UTC_Time,Account,Operation,Coin,Change,Remark\n"
+            + "1,2023-01-01 10:00:00,Spot,Deposit,USDT,1000,\"\"\n");
+    long yearEnd = TimeConverter.getYearEndTimestamp(2023);
+    Files.writeString(tempDir.resolve("extra.csv"), yearEnd + ","
+        + TimeConverter.utcTimeToString(yearEnd) + ",ASSET_PRICE,NOK,10\n");
+    Path manifest = tempDir.resolve("manifest.csv");
+    Files.writeString(manifest, "Input,Currency,Extra info,Output directory\n"
+        + "input.csv,NOK,extra.csv,out1\n"
+        + "missing.csv,NOK,extra.csv,out2\n"
+        + "input.csv,NOK,extra.csv,out3\n");
+
+    List<BatchRunner.BatchJob> jobs = BatchRunner.readManifest(manifest.toString());
+    assertEquals(3, jobs.size());
+    assertEquals(tempDir.resolve("out1"), jobs.get(0).outputDir());
+
+    List<BatchRunner.BatchJobResult> results = BatchRunner.runJobs(jobs, 2, new String[0]);
+    assertEquals(3, results.size());
+    assertTrue(results.get(0).isSuccessful());
+    assertFalse(results.get(1).isSuccessful());
+    assertTrue(results.get(2).isSuccessful());
+    assertEquals(Files.readString(tempDir.resolve("out1").resolve("transactions.csv")),
+        Files.readString(tempDir.resolve("out3").resolve("transactions.csv")));
+    assertTrue(Files.exists(tempDir.resolve("out3").resolve("profits.csv")));
+  }
+}
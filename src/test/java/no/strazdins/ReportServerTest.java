@@ -0,0 +1,147 @@
+package no.strazdins;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import no.strazdins.tool.TimeConverter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ReportServerTest {
+  private static final String BOUNDARY = "test-boundary";
+  private static final String INPUT = "User_ID,UTC_Time,Account,Operation,Coin,Change,Remark\n"
+      + "1,2023-01-01 10:00:00,Spot,Deposit,USDT,1000,\"\"\n";
+
+  private ReportServer server;
+  private final HttpClient client = HttpClient.newHttpClient();
+
+  @BeforeEach
+  void startServer() throws IOException {
+    server = new ReportServer(0, 1, 1, new String[0]);
+    server.start();
+  }
+
+  @AfterEach
+  void stopServer() {
+    server.stop(0);
+  }
+
+  @Test
+  void testReport() throws Exception {
+    long yearEnd = TimeConverter.getYearEndTimestamp(2023);
+    String extra = yearEnd + "," + TimeConverter.utcTimeToString(yearEnd)
+        + ",ASSET_PRICE,NOK,10\n";
+    HttpResponse<byte[]> response = post("NOK", INPUT, extra);
+    assertEquals(200, response.statusCode());
+    List<String> fileNames = new ArrayList<>();
+    try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(response.body()))) {
+      ZipEntry entry;
+      while ((entry = zip.getNextEntry()) != null) {
+        fileNames.add(entry.getName());
+      }
+    }
+    assertEquals(List.of("asset-profits.csv", "balances.csv", "metrics.json", "profits.csv",
+        "transactions.csv"), fileNames);
+
+    HttpResponse<String> metrics = client.send(HttpRequest.newBuilder(URI.create(
+        "http://localhost:" + server.getPort() + "/metrics")).GET().build(),
+        HttpResponse.BodyHandlers.ofString());
+    assertEquals(200, metrics.statusCode());
+    assertTrue(metrics.body().contains(
+        "pnl_transaction_process_seconds_count{type=\"Deposit\"}"));
+    assertTrue(metrics.body().contains("pnl_jobs_in_flight 0\n"));
+  }
+
+  @Test
+  void testMissingExtraInfo() throws Exception {
+    HttpResponse<byte[]> response = post("NOK", INPUT, null);
+    assertEquals(422, response.statusCode());
+    String missingInfo = new String(response.body(), StandardCharsets.UTF_8);
+    assertTrue(missingInfo.contains(",ASSET_PRICE,NOK,"));
+  }
+
+  @Test
+  void testInvalidRequests() throws Exception {
+    assertEquals(400, post("", INPUT, null).statusCode());
+    HttpResponse<byte[]> response = client.send(HttpRequest.newBuilder(reportUri("NOK")).GET()
+        .build(), HttpResponse.BodyHandlers.ofByteArray());
+    assertEquals(405, response.statusCode());
+  }
+
+  @Test
+  void testBusyServer() throws Exception {
+    // One worker and one queued request: two uploads which never finish take all the slots
+    List<Socket> slowUploads = new ArrayList<>();
+    try {
+      for (int i = 0; i < 2; ++i) {
+        slowUploads.add(startSlowUpload());
+      }
+      HttpResponse<byte[]> response = post("NOK", INPUT, null);
+      for (int attempt = 0; attempt < 50 && response.statusCode() != 503; ++attempt) {
+        Thread.sleep(100);
+        response = post("NOK", INPUT, null);
+      }
+      assertEquals(503, response.statusCode());
+      assertEquals("1", response.headers().firstValue("Retry-After").orElse(null));
+    } finally {
+      for (Socket socket : slowUploads) {
+        socket.close();
+      }
+    }
+  }
+
+  private Socket startSlowUpload() throws IOException {
+    Socket socket = new Socket("localhost", server.getPort());
+    String request = "POST " + ReportServer.REPORT_PATH + "?currency=NOK HTTP/1.1\r\n"
+        + "Host: localhost\r\n"
+        + "Content-Type: multipart/form-data; boundary=" + BOUNDARY + "\r\n"
+        + "Content-Length: 1000\r\n\r\n"
+        + "--" + BOUNDARY + "\r\n";
+    OutputStream out = socket.getOutputStream();
+    out.write(request.getBytes(StandardCharsets.UTF_8));
+    out.flush();
+    return socket;
+  }
+
+  private HttpResponse<byte[]> post(String currency, String input, String extra)
+      throws IOException, InterruptedException {
+    StringBuilder body = new StringBuilder();
+    appendPart(body, ReportServer.INPUT_PART, input);
+    if (extra != null) {
+      appendPart(body, ReportServer.EXTRA_INFO_PART, extra);
+    }
+    body.append("--").append(BOUNDARY).append("--\r\n");
+    HttpRequest request = HttpRequest.newBuilder(reportUri(currency))
+        .header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+        .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+        .build();
+    return client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+  }
+
+  private static void appendPart(StringBuilder body, String name, String content) {
+    body.append("--").append(BOUNDARY).append("\r\n")
+        .append("Content-Disposition: form-data; name=\"").append(name)
+        .append("\"; filename=\"").append(name).append(".csv\"\r\n")
+        .append("Content-Type: text/csv\r\n\r\n")
+        .append(content).append("\r\n");
+  }
+
+  private URI reportUri(String currency) {
+    return URI.create("http://localhost:" + server.getPort() + ReportServer.REPORT_PATH
+        + "?currency=" + currency);
+  }
+}
@@ -0,0 +1,173 @@
+package no.strazdins;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import no.strazdins.process.Report;
+import no.strazdins.process.ReportGenerator;
+import no.strazdins.tool.TimeConverter;
+
+/**
+ * One measurement of the scaling benchmark, run in a separate JVM with a fixed heap, see
+ * {@link ScalingBenchmarkTest}. Generates the report for the same input in the given number of
+ * concurrent jobs, and prints the results to the standard output, one
+ * {@link #RESULT_PREFIX}key=value per line.
+ */
+public class ScalingBenchmark {
+  static final String RESULT_PREFIX = "benchmark.";
+  static final String HOME_CURRENCY = "NOK";
+
+  private static final String HEADER = "User_ID,UTC_Time,Account,Operation,Coin,Change,Remark";
+  private static final int ROWS_PER_CYCLE = 8;
+  private static final long ROW_GROUP_INTERVAL_MS = 15_000;
+
+  /**
+   * Not allowed to create instances of this class.
+   */
+  private ScalingBenchmark() {
+  }
+
+  /**
+   * Run one measurement.
+   *
+   * @param args Path to the input file, path to the extra-info file, the number of jobs (and
+   *             threads) and the output directory
+   * @throws Exception When a job fails
+   */
+  public static void main(String[] args) throws Exception {
+    if (args.length != 4) {
+      throw new IllegalArgumentException("Usage: <input> <extra> <jobs> <output-dir>");
+    }
+    int jobCount = Integer.parseInt(args[2]);
+    Path outputDir = Path.of(args[3]);
+    long start = System.nanoTime();
+    runJobs(args[0], args[1], jobCount, outputDir);
+    long wallMillis = (System.nanoTime() - start) / 1_000_000;
+    printResult("wallMillis", wallMillis);
+    printResult("gcMillis", getGcMillis());
+    printResult("peakRssKb", getPeakRssKb());
+  }
+
+  private static void runJobs(String input, String extra, int jobCount, Path outputDir)
+      throws IOException, InterruptedException, ExecutionException {
+    ExecutorService executor = Executors.newFixedThreadPool(jobCount);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < jobCount; ++i) {
+        Path jobDir = outputDir.resolve("job-" + i);
+        futures.add(executor.submit(() -> {
+          runJob(input, extra, jobDir);
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static void runJob(String input, String extra, Path jobDir) throws IOException {
+    ReportGenerator generator = new ReportGenerator();
+    Report report = generator.createReport(input, extra, HOME_CURRENCY);
+    Files.createDirectories(jobDir);
+    Runner.writeOutputFiles(report, null, jobDir, HOME_CURRENCY, generator.getMetrics());
+  }
+
+  private static void printResult(String key, long value) {
+    System.out.println(RESULT_PREFIX + key + "=" + value);
+  }
+
+  private static long getGcMillis() {
+    long total = 0;
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+      total += Math.max(gc.getCollectionTime(), 0);
+    }
+    return total;
+  }
+
+  /**
+   * Get the peak resident set size of the process (VmHWM), in kilobytes.
+   *
+   * @return The peak RSS, -1 when it is not available (not on Linux)
+   */
+  private static long getPeakRssKb() {
+    try {
+      for (String line : Files.readAllLines(Path.of("/proc/self/status"))) {
+        if (line.startsWith("VmHWM:")) {
+          return Long.parseLong(line.substring(6).replace("kB", "").trim());
+        }
+      }
+    } catch (IOException | NumberFormatException e) {
+      // Not available
+    }
+    return -1;
+  }
+
+  /**
+   * Generate an input file and the matching extra-info file. The input repeats a cycle of a
+   * deposit, a buy, a sell and a withdrawal, all with fees in USDT, hence no extra info is
+   * needed for the transactions; the extra info contains the year-end prices of the home
+   * currency and BTC for every year covered.
+   *
+   * @param rowCount  The number of input rows, rounded down to whole cycles
+   * @param inputPath Path to the input file
+   * @param extraPath Path to the extra-info file
+   * @throws IOException When writing the files fails
+   */
+  static void generateInput(long rowCount, Path inputPath, Path extraPath) throws IOException {
+    long startTime = TimeConverter.stringToUtcTimestamp("2000-01-01 00:00:00");
+    long time = startTime;
+    try (BufferedWriter writer = Files.newBufferedWriter(inputPath, StandardCharsets.UTF_8)) {
+      writer.write(HEADER);
+      writer.newLine();
+      for (long i = 0; i < rowCount / ROWS_PER_CYCLE; ++i) {
+        writeRow(writer, time, "Deposit", "USDT", "1000");
+        time += ROW_GROUP_INTERVAL_MS;
+        writeRow(writer, time, "Transaction Buy", "BTC", "0.02");
+        writeRow(writer, time, "Transaction Spend", "USDT", "-400");
+        writeRow(writer, time, "Transaction Fee", "USDT", "-0.4");
+        time += ROW_GROUP_INTERVAL_MS;
+        writeRow(writer, time, "Transaction Sold", "BTC", "-0.01");
+        writeRow(writer, time, "Transaction Revenue", "USDT", "210");
+        writeRow(writer, time, "Transaction Fee", "USDT", "-0.21");
+        time += ROW_GROUP_INTERVAL_MS;
+        writeRow(writer, time, "Withdraw", "USDT", "-500");
+        time += ROW_GROUP_INTERVAL_MS;
+      }
+    }
+    try (BufferedWriter writer = Files.newBufferedWriter(extraPath, StandardCharsets.UTF_8)) {
+      int lastYear = TimeConverter.getUtcYear(time);
+      for (int year = TimeConverter.getUtcYear(startTime); year <= lastYear; ++year) {
+        long yearEnd = TimeConverter.getYearEndTimestamp(year);
+        writeExtraInfoRow(writer, yearEnd, HOME_CURRENCY, "10");
+        writeExtraInfoRow(writer, yearEnd, "BTC", "20000");
+      }
+    }
+  }
+
+  private static void writeRow(BufferedWriter writer, long time, String operation,
+                               String asset, String change) throws IOException {
+    writer.write("1," + TimeConverter.utcTimeToString(time) + ",Spot," + operation + ","
+        + asset + "," + change + ",\"\"");
+    writer.newLine();
+  }
+
+  private static void writeExtraInfoRow(BufferedWriter writer, long time, String asset,
+                                        String value) throws IOException {
+    writer.write(time + "," + TimeConverter.utcTimeToString(time) + ",ASSET_PRICE," + asset
+        + "," + value);
+    writer.newLine();
+  }
+}
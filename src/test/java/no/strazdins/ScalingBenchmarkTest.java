@@ -0,0 +1,231 @@
+package no.strazdins;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Scaling benchmark: generates inputs of increasing size and runs the report generation for
+ * each size with 1..N concurrent jobs, each measurement in a fresh JVM with a fixed heap.
+ * Writes every measurement to scaling.csv and the curves to scaling-summary.json, and fails
+ * when a curve grows faster than allowed:
+ * <ul>
+ *   <li>Time against input size, for each thread count - the log-log slope must not exceed
+ *   benchmark.maxSizeSlope (1.0 is linear)</li>
+ *   <li>Time against thread count, with as many jobs as threads, for each input size - the
+ *   log-log slope must not exceed benchmark.maxThreadSlope (0.0 is perfect scaling)</li>
+ * </ul>
+ *
+ * <p>The benchmark is tagged and excluded from the normal build, run it with
+ * {@code mvn test -Pbenchmark}. Settings, as system properties: benchmark.sizes,
+ * benchmark.threads, benchmark.heap, benchmark.maxSizeSlope, benchmark.maxThreadSlope and
+ * benchmark.outputDir.</p>
+ */
+class ScalingBenchmarkTest {
+  private static final String DEFAULT_SIZES = "10000,40000,160000";
+  private static final String DEFAULT_HEAP = "1g";
+  private static final double DEFAULT_MAX_SIZE_SLOPE = 1.2;
+  private static final double DEFAULT_MAX_THREAD_SLOPE = 0.5;
+  private static final String CSV_HEADER =
+      "rows,threads,wallMillis,rowsPerSecond,peakRssKb,gcMillis";
+
+  /**
+   * One measurement.
+   */
+  record Measurement(long rows, int threads, long wallMillis, double rowsPerSecond,
+                     long peakRssKb, long gcMillis) {
+  }
+
+  /**
+   * Points of a curve with the fitted log-log slope, as written to the summary.
+   *
+   * @param variable The variable of the curve: rows or threads
+   * @param fixed    The value of the other variable, which is fixed in this curve
+   * @param slope    The log-log slope of the wall time against the variable
+   * @param points   The measurements of the curve
+   */
+  record Curve(String variable, long fixed, double slope, List<Measurement> points) {
+  }
+
+  /**
+   * The JSON summary.
+   */
+  record Summary(String heap, double maxSizeSlope, double maxThreadSlope, List<Curve> curves) {
+  }
+
+  @Test
+  void testLogLogSlope() {
+    assertEquals(1.0, getLogLogSlope(new double[] {1, 10, 100}, new double[] {5, 50, 500}),
+        1e-9);
+    assertEquals(2.0, getLogLogSlope(new double[] {1, 2, 4}, new double[] {3, 12, 48}), 1e-9);
+    assertEquals(0.0, getLogLogSlope(new double[] {1, 2, 4}, new double[] {7, 7, 7}), 1e-9);
+    assertEquals(0.0, getLogLogSlope(new double[] {3}, new double[] {10}), 1e-9);
+  }
+
+  @Test
+  @Tag("benchmark")
+  void testScaling() throws Exception {
+    List<Long> sizes = parseList(System.getProperty("benchmark.sizes", DEFAULT_SIZES)).stream()
+        .map(Long::parseLong).toList();
+    String threadList = System.getProperty("benchmark.threads");
+    List<Integer> threadCounts = threadList != null
+        ? parseList(threadList).stream().map(Integer::parseInt).toList()
+        : getDefaultThreadCounts();
+    String heap = System.getProperty("benchmark.heap", DEFAULT_HEAP);
+    double maxSizeSlope = Double.parseDouble(System.getProperty("benchmark.maxSizeSlope",
+        String.valueOf(DEFAULT_MAX_SIZE_SLOPE)));
+    double maxThreadSlope = Double.parseDouble(System.getProperty("benchmark.maxThreadSlope",
+        String.valueOf(DEFAULT_MAX_THREAD_SLOPE)));
+    Path outputDir = Path.of(System.getProperty("benchmark.outputDir", "target/benchmark"));
+    Files.createDirectories(outputDir);
+
+    List<Measurement> measurements = new ArrayList<>();
+    for (long size : sizes) {
+      Path input = outputDir.resolve("input-" + size + ".csv");
+      Path extra = outputDir.resolve("extra-" + size + ".csv");
+      if (!Files.exists(input) || !Files.exists(extra)) {
+        ScalingBenchmark.generateInput(size, input, extra);
+      }
+      for (int threads : threadCounts) {
+        measurements.add(measure(size, threads, input, extra, heap, outputDir.resolve("run")));
+      }
+    }
+
+    List<Curve> curves = createCurves(measurements, sizes, threadCounts);
+    writeCsv(measurements, outputDir.resolve("scaling.csv"));
+    Summary summary = new Summary(heap, maxSizeSlope, maxThreadSlope, curves);
+    Gson gson = new GsonBuilder().setPrettyPrinting().create();
+    Files.writeString(outputDir.resolve("scaling-summary.json"), gson.toJson(summary),
+        StandardCharsets.UTF_8);
+
+    StringBuilder exceeded = new StringBuilder();
+    for (Curve curve : curves) {
+      double maxSlope = curve.variable().equals("rows") ? maxSizeSlope : maxThreadSlope;
+      if (curve.slope() > maxSlope) {
+        exceeded.append(String.format("time vs %s (other variable = %d): slope %.3f > %.3f%n",
+            curve.variable(), curve.fixed(), curve.slope(), maxSlope));
+      }
+    }
+    assertTrue(exceeded.isEmpty(), "Scaling threshold exceeded:\n" + exceeded);
+  }
+
+  /**
+   * Run one measurement in a new JVM.
+   */
+  private static Measurement measure(long rows, int threads, Path input, Path extra, String heap,
+                                     Path runDir) throws IOException, InterruptedException {
+    String javaBin = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+    // Surefire may start the tests with a manifest-only jar on the class path
+    String classPath = System.getProperty("surefire.test.class.path",
+        System.getProperty("java.class.path"));
+    List<String> command = List.of(javaBin, "-Xms" + heap, "-Xmx" + heap, "-cp", classPath,
+        ScalingBenchmark.class.getName(), input.toString(), extra.toString(),
+        String.valueOf(threads), runDir.toString());
+    Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+    Map<String, Long> results = new HashMap<>();
+    StringBuilder output = new StringBuilder();
+    try (BufferedReader reader = new BufferedReader(
+        new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.startsWith(ScalingBenchmark.RESULT_PREFIX)) {
+          String[] keyValue = line.substring(ScalingBenchmark.RESULT_PREFIX.length()).split("=");
+          results.put(keyValue[0], Long.parseLong(keyValue[1].trim()));
+        } else {
+          output.append(line).append(System.lineSeparator());
+        }
+      }
+    }
+    int exitCode = process.waitFor();
+    if (exitCode != 0 || !results.containsKey("wallMillis")) {
+      throw new IOException("Benchmark run failed for " + rows + " rows, " + threads
+          + " threads:" + System.lineSeparator() + output);
+    }
+    long wallMillis = Math.max(results.get("wallMillis"), 1);
+    return new Measurement(rows, threads, wallMillis, rows * threads * 1000.0 / wallMillis,
+        results.getOrDefault("peakRssKb", -1L), results.getOrDefault("gcMillis", -1L));
+  }
+
+  private static List<Curve> createCurves(List<Measurement> measurements, List<Long> sizes,
+                                          List<Integer> threadCounts) {
+    List<Curve> curves = new ArrayList<>();
+    for (int threads : threadCounts) {
+      List<Measurement> points = measurements.stream()
+          .filter(m -> m.threads() == threads).toList();
+      curves.add(new Curve("rows", threads, getLogLogSlope(
+          points.stream().mapToDouble(Measurement::rows).toArray(),
+          points.stream().mapToDouble(Measurement::wallMillis).toArray()), points));
+    }
+    for (long size : sizes) {
+      List<Measurement> points = measurements.stream().filter(m -> m.rows() == size).toList();
+      curves.add(new Curve("threads", size, getLogLogSlope(
+          points.stream().mapToDouble(Measurement::threads).toArray(),
+          points.stream().mapToDouble(Measurement::wallMillis).toArray()), points));
+    }
+    return curves;
+  }
+
+  /**
+   * Fit a line to the points in log-log scale with least squares.
+   *
+   * @param x The values of the variable
+   * @param y The measured values
+   * @return The slope of the line, 0 when there are less than two distinct x values
+   */
+  static double getLogLogSlope(double[] x, double[] y) {
+    int n = x.length;
+    double meanX = Arrays.stream(x).map(Math::log).average().orElse(0);
+    double meanY = Arrays.stream(y).map(Math::log).average().orElse(0);
+    double covariance = 0;
+    double variance = 0;
+    for (int i = 0; i < n; ++i) {
+      double dx = Math.log(x[i]) - meanX;
+      covariance += dx * (Math.log(y[i]) - meanY);
+      variance += dx * dx;
+    }
+    return variance > 0 ? covariance / variance : 0;
+  }
+
+  private static void writeCsv(List<Measurement> measurements, Path path) throws IOException {
+    StringBuilder sb = new StringBuilder(CSV_HEADER).append("\n");
+    for (Measurement m : measurements) {
+      sb.append(m.rows()).append(",").append(m.threads()).append(",").append(m.wallMillis())
+          .append(",").append(String.format("%.0f", m.rowsPerSecond())).append(",")
+          .append(m.peakRssKb()).append(",").append(m.gcMillis()).append("\n");
+    }
+    Files.writeString(path, sb.toString(), StandardCharsets.UTF_8);
+  }
+
+  private static List<String> parseList(String s) {
+    return Arrays.stream(s.split(",")).map(String::trim).filter(v -> !v.isEmpty()).toList();
+  }
+
+  /**
+   * Get the default thread counts: powers of two up to the number of processors, and the
+   * number of processors itself.
+   */
+  private static List<Integer> getDefaultThreadCounts() {
+    int processors = Runtime.getRuntime().availableProcessors();
+    List<Integer> counts = new ArrayList<>();
+    for (int threads = 1; threads < processors; threads *= 2) {
+      counts.add(threads);
+    }
+    counts.add(processors);
+    return counts;
+  }
+}
@@ -0,0 +1,50 @@
+package no.strazdins.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class AssetSymbolsTest {
+  @Test
+  void testInterning() {
+    int id = AssetSymbols.intern("SYMTEST");
+    assertEquals(id, AssetSymbols.intern(new String("SYMTEST".toCharArray())));
+    assertEquals(id, AssetSymbols.getId("SYMTEST"));
+    assertEquals("SYMTEST", AssetSymbols.getSymbol(id));
+    assertTrue(id < AssetSymbols.size());
+    assertEquals(AssetSymbols.NO_ID, AssetSymbols.getId("SYMTEST-UNKNOWN"));
+    assertEquals(AssetSymbols.NO_ID, AssetSymbols.intern(null));
+    assertFalse(AssetSymbols.isFiat(AssetSymbols.NO_ID));
+  }
+
+  @Test
+  void testFlags() {
+    int usdt = AssetSymbols.intern("USDT");
+    assertTrue(AssetSymbols.isUsdLike(usdt));
+    assertTrue(AssetSymbols.isFiat(usdt));
+    int eur = AssetSymbols.intern("EUR");
+    assertFalse(AssetSymbols.isUsdLike(eur));
+    assertTrue(AssetSymbols.isFiat(eur));
+    int btc = AssetSymbols.intern("BTC");
+    assertFalse(AssetSymbols.isFiat(btc));
+    assertFalse(AssetSymbols.isLendingAsset(btc));
+    assertEquals(btc, AssetSymbols.getUnderlyingId(btc));
+
+    int ldbtc = AssetSymbols.intern("LDBTC");
+    assertTrue(AssetSymbols.isLendingAsset(ldbtc));
+    assertEquals(btc, AssetSymbols.getUnderlyingId(ldbtc));
+    assertFalse(AssetSymbols.isLendingAsset(AssetSymbols.intern("LD")));
+  }
+
+  @Test
+  void testLendingAssetRename() {
+    RawAccountChange change = new RawAccountChange(0, AccountType.EARN,
+        Operation.EARN_INTEREST, "LDUSDT", new Decimal("1"), "");
+    change.setAssetId(AssetSymbols.getUnderlyingId(change.getAssetId()));
+    assertSame(AssetSymbols.getSymbol(AssetSymbols.getId("USDT")), change.getAsset());
+    assertEquals(AssetSymbols.getId("USDT"), change.getAssetId());
+  }
+}
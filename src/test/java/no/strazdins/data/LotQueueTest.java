@@ -0,0 +1,88 @@
+package no.strazdins.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class LotQueueTest {
+  @Test
+  void testFifoConsumption() {
+    LotQueue lots = new LotQueue();
+    lots.add(1, new Decimal("1"), new Decimal("100"));
+    lots.add(2, new Decimal("2"), new Decimal("200"));
+    lots.add(3, new Decimal("3"), new Decimal("300"));
+    assertEquals(new Decimal("1400"), lots.getTotalCost());
+
+    assertEquals(new Decimal("200"), lots.getCost(new Decimal("1.5")));
+    assertEquals(List.of(
+        new LotPortion(1, new Decimal("1"), new Decimal("100")),
+        new LotPortion(2, new Decimal("0.5"), new Decimal("200"))
+    ), lots.getPortions(new Decimal("1.5")));
+    // Peeking does not change the lots
+    assertEquals(3, lots.getLotCount());
+
+    assertEquals(new Decimal("200"), lots.consume(new Decimal("1.5")));
+    assertEquals(2, lots.getLotCount());
+    assertEquals(new Decimal("4.5"), lots.getAmount());
+    assertEquals(new Decimal("1200"), lots.getTotalCost());
+    assertEquals(new Decimal("600"), lots.consume(new Decimal("2.5")));
+    assertEquals(new Decimal("600"), lots.getTotalCost());
+    assertThrows(IllegalStateException.class, () -> lots.consume(new Decimal("2.1")));
+  }
+
+  @Test
+  void testCostAfterOffset() {
+    LotQueue lots = new LotQueue();
+    lots.add(1, new Decimal("1"), new Decimal("100"));
+    lots.add(2, new Decimal("2"), new Decimal("200"));
+    // 0.5 @ 100 + 0.5 @ 200, after skipping 0.5
+    assertEquals(new Decimal("150"), lots.getCost(new Decimal("1"), new Decimal("0.5")));
+    // Skipping a whole lot
+    assertEquals(new Decimal("100"), lots.getCost(new Decimal("0.5"), new Decimal("1")));
+    assertEquals(new Decimal("300"), lots.getCost(new Decimal("1.5"), new Decimal("1.5")));
+    assertThrows(IllegalStateException.class,
+        () -> lots.getCost(new Decimal("1"), new Decimal("2.5")));
+  }
+
+  @Test
+  void testRingBufferWrapAndGrow() {
+    LotQueue lots = new LotQueue();
+    Decimal expectedAmount = Decimal.ZERO;
+    long time = 0;
+    for (int round = 0; round < 100; ++round) {
+      for (int i = 0; i < 7; ++i) {
+        lots.add(++time, Decimal.ONE, new Decimal(String.valueOf(time)));
+      }
+      // Consume the 5 oldest lots - the buffer wraps around and grows
+      lots.consume(new Decimal("5"));
+      expectedAmount = expectedAmount.add(new Decimal("2"));
+    }
+    assertEquals(200, lots.getLotCount());
+    assertEquals(expectedAmount, lots.getAmount());
+    List<LotPortion> portions = lots.getPortions(new Decimal("200"));
+    for (int i = 1; i < portions.size(); ++i) {
+      assertEquals(1, Long.signum(portions.get(i).obtainTime() - portions.get(i - 1).obtainTime()));
+    }
+    assertEquals(time, portions.get(portions.size() - 1).obtainTime());
+  }
+
+  @Test
+  void testMergeAndSplit() {
+    LotQueue lots = new LotQueue();
+    lots.add(1, new Decimal("0.001"), new Decimal("10"));
+    lots.add(1, new Decimal("0.002"), new Decimal("10"));
+    assertEquals(1, lots.getLotCount());
+
+    // Does not fit in a long scaled by 10^8
+    Decimal huge = new Decimal("200000000000");
+    lots.add(2, huge, Decimal.ONE);
+    assertEquals(4, lots.getLotCount());
+    assertEquals(huge.add(new Decimal("0.003")), lots.getAmount());
+    assertEquals(new Decimal("0.03"), lots.consume(new Decimal("0.003")));
+    assertEquals(huge, lots.consume(huge));
+    assertEquals(0, lots.getLotCount());
+    assertEquals(Decimal.ZERO, lots.getTotalCost());
+  }
+}
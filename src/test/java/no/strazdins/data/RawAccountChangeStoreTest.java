@@ -0,0 +1,71 @@
+package no.strazdins.data;
+
+import static no.strazdins.testtools.TestTools.createChanges;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class RawAccountChangeStoreTest {
+  @Test
+  void testStoreAndMaterialize() {
+    List<RawAccountChange> changes = createChanges(
+        "SPOT", "Deposit", "2000", "USDT",
+        "SPOT", "Buy", "0.1", "BTC",
+        "SPOT", "Sell", "-2000", "USDT",
+        "EARN", "Simple Earn Flexible Interest", "0.00000001", "BTC"
+    );
+    RawAccountChangeStore store = new RawAccountChangeStore();
+    for (int i = 0; i < 2000; ++i) {
+      for (RawAccountChange change : changes) {
+        store.add(change);
+      }
+    }
+    assertEquals(8000, store.size());
+    for (int i = 0; i < store.size(); ++i) {
+      assertEquals(changes.get(i % 4), store.get(i));
+    }
+    assertEquals(Operation.EARN_INTEREST, store.getOperation(3));
+    assertEquals(AccountType.EARN, store.getAccount(3));
+    assertEquals(new Decimal("-2000"), store.getAmount(2));
+    assertThrows(IndexOutOfBoundsException.class, () -> store.get(8000));
+  }
+
+  @Test
+  void testCursor() {
+    RawAccountChangeStore store = RawAccountChangeStore.of(createChanges(
+        "SPOT", "Deposit", "2000", "USDT",
+        "SPOT", "Buy", "0.1", "BTC"
+    ));
+    RawAccountChangeStore.Cursor cursor = store.cursor();
+    assertTrue(cursor.next());
+    assertEquals(AssetSymbols.getId("USDT"), cursor.getAssetId());
+    assertEquals(Operation.DEPOSIT, cursor.getOperation());
+    assertTrue(cursor.next());
+    assertEquals(new Decimal("0.1"), cursor.getAmount());
+    assertEquals(store.get(1), cursor.get());
+    assertFalse(cursor.next());
+    assertFalse(cursor.next());
+  }
+
+  @Test
+  void testLargeAmountsAndRemarks() {
+    Decimal huge = new Decimal("999999999999999999999.12345678");
+    RawAccountChangeStore store = new RawAccountChangeStore();
+    store.add(1000, AccountType.SPOT, Operation.DEPOSIT, AssetSymbols.intern("SHIB"), huge,
+        "Big one");
+    store.add(2000, AccountType.SPOT, Operation.DEPOSIT, AssetSymbols.intern("SHIB"),
+        Decimal.ONE, "Big one");
+    assertEquals(huge, store.getAmount(0));
+    assertEquals(Decimal.ONE, store.getAmount(1));
+    assertEquals("Big one", store.getRemark(1));
+
+    RawAccountChangeStore noRemarks = new RawAccountChangeStore(false);
+    noRemarks.add(store.get(0));
+    assertEquals("", noRemarks.getRemark(0));
+    assertEquals(huge, noRemarks.getAmount(0));
+  }
+}
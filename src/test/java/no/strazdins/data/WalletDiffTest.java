@@ -5,6 +5,7 @@ import static no.strazdins.testtools.TestTools.createWalletWith;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 
+import java.util.BitSet;
 import org.junit.jupiter.api.Test;
 
 class WalletDiffTest {
@@ -54,6 +55,19 @@ class WalletDiffTest {
     assertEquals(Decimal.ZERO, diff.getAmount("BTC"));
   }
 
+  @Test
+  void testAssetIds() {
+    WalletDiff diff = createWalletDiff("1", "ETH", "-2", "BTC", "3", "BNB");
+    diff.add(AssetSymbols.intern("BTC"), new Decimal("2"));
+    BitSet expected = new BitSet();
+    expected.set(AssetSymbols.getId("ETH"));
+    expected.set(AssetSymbols.getId("BNB"));
+    assertEquals(expected, diff.getAssetIds());
+    assertEquals(new Decimal("3"), diff.getAmount(AssetSymbols.getId("BNB")));
+    assertEquals(Decimal.ZERO, diff.getAmount("NOT-INTERNED-DIFF-ASSET"));
+    assertEquals("{BNB=3.00000000, ETH=1.00000000}", diff.toString());
+  }
+
   @Test
   void testEqualAssets() {
     WalletDiff d1 = createWalletDiff("2", "LTC");
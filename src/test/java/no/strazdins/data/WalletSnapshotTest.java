@@ -0,0 +1,46 @@
+package no.strazdins.data;
+
+import static no.strazdins.testtools.TestTools.createSpotAccountChanges;
+import static no.strazdins.testtools.TestTools.processDeposit;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import no.strazdins.transaction.SavingsSubscriptionTransaction;
+import no.strazdins.transaction.Transaction;
+import org.junit.jupiter.api.Test;
+
+class WalletSnapshotTest {
+  @Test
+  void testWalletNeutralSnapshotSharesWallet() {
+    WalletSnapshot ws1 = processDeposit(WalletSnapshot.createEmpty(), "USDT", "100", null);
+    assertFalse(ws1.isWalletNeutral());
+
+    long time = ws1.getTimestamp() + 1000;
+    Transaction t = new Transaction(time);
+    for (RawAccountChange change : createSpotAccountChanges(time,
+        "Simple Earn Flexible Subscription", "-100", "USDT")) {
+      t.append(change);
+    }
+    Transaction subscription = t.clarifyTransactionType();
+    assertTrue(subscription instanceof SavingsSubscriptionTransaction);
+
+    WalletSnapshot ws2 = subscription.process(ws1, null);
+    assertTrue(ws2.isWalletNeutral());
+    assertSame(ws1.getWallet(), ws2.getWallet());
+    assertEquals(ws1.getPnl(), ws2.getPnl());
+    assertThrows(IllegalStateException.class,
+        () -> ws2.addAsset("BTC", Decimal.ONE, Decimal.ONE));
+    assertThrows(IllegalStateException.class,
+        () -> ws2.decreaseAsset("USDT", Decimal.ONE));
+
+    // The next transaction gets its own copy, the shared wallet stays unchanged
+    WalletSnapshot ws3 = processDeposit(ws2, "USDT", "50", null);
+    assertNotSame(ws2.getWallet(), ws3.getWallet());
+    assertEquals(new Decimal("100"), ws1.getWallet().getAssetAmount("USDT"));
+    assertEquals(new Decimal("150"), ws3.getWallet().getAssetAmount("USDT"));
+  }
+}
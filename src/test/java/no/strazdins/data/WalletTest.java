@@ -2,7 +2,11 @@ package no.strazdins.data;
 
 import static no.strazdins.testtools.TestTools.createWalletWith;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 import org.junit.jupiter.api.Test;
 
 class WalletTest {
@@ -48,6 +52,30 @@ class WalletTest {
     assertEquals(Decimal.ZERO, w.getAvgObtainPrice("BTC"));
   }
 
+  @Test
+  void testAlphabeticalOrder() {
+    // Symbols interned in reverse order
+    AssetSymbols.intern("ZZWALLETTEST");
+    AssetSymbols.intern("AAWALLETTEST");
+    Wallet w1 = createWalletWith("1", "ZZWALLETTEST", "1", "2", "AAWALLETTEST", "1",
+        "3", "BTC", "1");
+    Wallet w2 = createWalletWith("2", "AAWALLETTEST", "1", "3", "BTC", "1",
+        "1", "ZZWALLETTEST", "1");
+    assertEquals(List.of("AAWALLETTEST", "BTC", "ZZWALLETTEST"), toList(w1));
+    assertEquals(w1, w2);
+    assertEquals(w1.hashCode(), w2.hashCode());
+
+    w1.decreaseAsset("BTC", new Decimal("3"));
+    assertEquals(List.of("AAWALLETTEST", "ZZWALLETTEST"), toList(w1));
+    assertEquals(List.of("AAWALLETTEST", "BTC", "ZZWALLETTEST"), toList(new Wallet(w2)));
+  }
+
+  private static List<String> toList(Wallet wallet) {
+    List<String> assets = new ArrayList<>();
+    wallet.forEach(assets::add);
+    return assets;
+  }
+
   @Test
   void testDiffEmpty() {
     assertEquals(new WalletDiff(), new Wallet().getDiffFrom(new Wallet()));
@@ -88,4 +116,52 @@ class WalletTest {
         .add("SLP", new Decimal("400"));
     assertEquals(expectedDiff, w2.getDiffFrom(w1));
   }
+
+  @Test
+  void testTouchedAssetDiff() {
+    Wallet w1 = createWalletWith(
+        "1", "BTC", "10000",
+        "20", "LTC", "100",
+        "200", "USDT", "1"
+    );
+    assertEquals(Set.of("BTC", "LTC", "USDT"), w1.getTouchedAssets());
+    Wallet w2 = new Wallet(w1);
+    assertTrue(w2.getTouchedAssets().isEmpty());
+    w2.decreaseAsset("LTC", new Decimal("20"));
+    w2.addAsset("XRP", new Decimal("15"), new Decimal("3"));
+    assertEquals(Set.of("LTC", "XRP"), w2.getTouchedAssets());
+    WalletDiff expectedDiff = new WalletDiff()
+        .add("LTC", new Decimal("-20"))
+        .add("XRP", new Decimal("15"));
+    assertEquals(expectedDiff, w2.getDiffFrom(w1, w2.getTouchedAssets()));
+    assertEquals(w2.getDiffFrom(w1), w2.getDiffFrom(w1, w2.getTouchedAssets()));
+  }
+
+  @Test
+  void testFifoCostBasis() {
+    Wallet w = new Wallet();
+    w.addAsset("BTC", Decimal.ONE, new Decimal("20000"));
+    w.setCostBasisStrategy(CostBasisStrategy.FIFO);
+    assertEquals(CostBasisStrategy.FIFO, w.getCostBasisStrategy());
+    w.addAsset("BTC", Decimal.ONE, new Decimal("30000"), 1000);
+    assertEquals(new Decimal("25000"), w.getAvgObtainPrice("BTC"));
+    assertEquals(new Decimal("35000"), w.getCostBasis("BTC", new Decimal("1.5")));
+    assertEquals(2, w.getLotPortions("BTC", new Decimal("1.5")).size());
+
+    Wallet copy = new Wallet(w);
+    copy.decreaseAsset("BTC", new Decimal("1.5"));
+    assertEquals(new Decimal("0.5"), copy.getAssetAmount("BTC"));
+    // The remaining lot was obtained at 30000
+    assertEquals(new Decimal("30000"), copy.getAvgObtainPrice("BTC"));
+    assertEquals(new Decimal("15000"), copy.getCostBasis("BTC", new Decimal("0.5")));
+    // The original wallet keeps its balances
+    assertEquals(new Decimal("2"), w.getAssetAmount("BTC"));
+    assertEquals(new Decimal("25000"), w.getAvgObtainPrice("BTC"));
+
+    Wallet average = new Wallet();
+    average.addAsset("BTC", Decimal.ONE, new Decimal("20000"));
+    average.addAsset("BTC", Decimal.ONE, new Decimal("30000"));
+    assertEquals(new Decimal("37500"), average.getCostBasis("BTC", new Decimal("1.5")));
+    assertTrue(average.getLotPortions("BTC", Decimal.ONE).isEmpty());
+  }
 }
@@ -0,0 +1,84 @@
+package no.strazdins.file;
+
+import static no.strazdins.testtools.TestTools.createSpotAccountChanges;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import no.strazdins.data.Decimal;
+import no.strazdins.data.ExtraInfo;
+import no.strazdins.data.RawAccountChange;
+import no.strazdins.process.Report;
+import no.strazdins.transaction.Transaction;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BinaryReportTest {
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void testWriteAndRead() throws IOException {
+    Report report = new Report(new ExtraInfo());
+    long time = 1672531200000L;
+    report.process(createTransaction(time, "Deposit", "1000", "USDT"));
+    report.process(createTransaction(time + 1000,
+        "Buy", "0.01", "BTC", "Sell", "-200", "USDT", "Fee", "-0.2", "USDT"));
+    report.process(createTransaction(time + 5000,
+        "Sell", "-0.005", "BTC", "Buy", "110", "USDT"));
+
+    String path = tempDir.resolve("report.bin").toString();
+    BinaryReportWriter.writeReportToFile(report, path);
+    ColumnarReport columns = BinaryReportReader.readFromFile(path);
+
+    assertEquals(3, columns.getRowCount());
+    assertEquals(time, columns.getTimestamp(0));
+    assertEquals(time + 5000, columns.getTimestamp(2));
+    assertEquals("Deposit", columns.getType(0));
+    assertEquals("Buy", columns.getType(1));
+    assertEquals("Sell", columns.getType(2));
+    assertEquals("BTC", columns.getBaseCurrency(2));
+    assertEquals("USDT", columns.getQuoteCurrency(2));
+    assertEquals("USDT", columns.getFeeCurrency(1));
+    assertEquals(new Decimal("-0.005"), columns.getValue(ColumnarReport.Column.AMOUNT, 2));
+    assertEquals(new Decimal("9.9"), columns.getValue(ColumnarReport.Column.PNL, 2));
+    assertEquals(new Decimal("9.9"), columns.getValue(ColumnarReport.Column.RUNNING_PNL, 2));
+    assertEquals(new Decimal("20020"),
+        columns.getValue(ColumnarReport.Column.AVG_OBTAIN_PRICE, 1));
+
+    assertEquals(1, columns.getBalanceCount(0));
+    assertEquals("USDT", columns.getBalanceAsset(0, 0));
+    assertEquals(2, columns.getBalanceCount(2));
+    Decimal usdt = null;
+    for (int i = 0; i < columns.getBalanceCount(2); ++i) {
+      if ("USDT".equals(columns.getBalanceAsset(2, i))) {
+        usdt = Decimal.fromScaledLong(columns.getScaledBalanceAmount(2, i));
+      }
+    }
+    assertEquals(new Decimal("909.8"), usdt);
+  }
+
+  @Test
+  void testEmptyReport() throws IOException {
+    String path = tempDir.resolve("empty.bin").toString();
+    BinaryReportWriter.writeReportToFile(new Report(new ExtraInfo()), path);
+    assertEquals(0, BinaryReportReader.readFromFile(path).getRowCount());
+  }
+
+  @Test
+  void testInvalidFile() throws IOException {
+    Path path = tempDir.resolve("invalid.bin");
+    Files.writeString(path, "Unix timestamp,UTC time");
+    assertThrows(IOException.class, () -> BinaryReportReader.readFromFile(path.toString()));
+  }
+
+  private static Transaction createTransaction(long time, String... changes) {
+    Transaction t = new Transaction(time);
+    for (RawAccountChange change : createSpotAccountChanges(time, changes)) {
+      t.append(change);
+    }
+    return t.clarifyTransactionType();
+  }
+}
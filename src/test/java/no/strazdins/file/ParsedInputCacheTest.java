@@ -0,0 +1,102 @@
+package no.strazdins.file;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import no.strazdins.data.RawAccountChangeStore;
+import no.strazdins.process.ProgressTracker;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ParsedInputCacheTest {
+  private static final String HEADER = "User_ID,UTC_Time,Account,Operation,Coin,Change,Remark\n";
+  private static final String ROWS =
+      "1,2023-01-01 10:00:00,Spot,Deposit,USDT,1000,\"\"\n"
+          + "1,2023-01-01 11:00:00,Spot,Transaction Buy,BTC,0.01,Buy\n"
+          + "1,2023-01-01 11:00:00,Spot,Transaction Spend,USDT,-200,Buy\n"
+          + "1,2023-01-01 11:00:00,Spot,Transaction Fee,USDT,-0.2,Some fee\n";
+  private static final String NEW_ROWS =
+      "1,2023-01-02 10:00:00,Earn,Simple Earn Flexible Interest,LDBTC,0.00000001,\"\"\n"
+          + "1,2023-01-03 10:00:00,Spot,Transaction Sold,BTC,-0.005,Sell";
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void testCacheIsCreatedAndUsed() throws IOException {
+    Path input = tempDir.resolve("input.csv");
+    Files.writeString(input, HEADER + ROWS);
+    String inputPath = input.toString();
+
+    RawAccountChangeStore parsed = ParsedInputCache.readAccountChanges(inputPath);
+    assertTrue(Files.exists(Path.of(ParsedInputCache.getCacheFilePath(inputPath))));
+    expectSameChanges(TransactionFileReader.readAccountChangeStore(inputPath), parsed);
+    expectSameChanges(parsed, ParsedInputCache.readAccountChanges(inputPath));
+  }
+
+  @Test
+  void testProgressOnCacheHit() throws IOException {
+    Path input = tempDir.resolve("input.csv");
+    Files.writeString(input, HEADER + ROWS);
+    String inputPath = input.toString();
+    ParsedInputCache.readAccountChanges(inputPath);
+
+    List<ProgressTracker.Progress> notifications = new ArrayList<>();
+    ProgressTracker tracker = new ProgressTracker(0, notifications::add);
+    tracker.startPhase("read-input", "bytes", Files.size(input));
+    ParsedInputCache.readAccountChanges(inputPath, tracker);
+    assertEquals(1, notifications.size());
+    assertEquals(Files.size(input), notifications.get(0).done());
+  }
+
+  @Test
+  void testAppendedRows() throws IOException {
+    Path input = tempDir.resolve("input.csv");
+    Files.writeString(input, HEADER + ROWS);
+    String inputPath = input.toString();
+    ParsedInputCache.readAccountChanges(inputPath);
+
+    Files.writeString(input, NEW_ROWS, StandardOpenOption.APPEND);
+    RawAccountChangeStore changes = ParsedInputCache.readAccountChanges(inputPath);
+    assertEquals(6, changes.size());
+    expectSameChanges(TransactionFileReader.readAccountChangeStore(inputPath), changes);
+    // The last row has no trailing newline, it is parsed again each time
+    expectSameChanges(changes, ParsedInputCache.readAccountChanges(inputPath));
+  }
+
+  @Test
+  void testChangedContent() throws IOException {
+    Path input = tempDir.resolve("input.csv");
+    Files.writeString(input, HEADER + ROWS);
+    String inputPath = input.toString();
+    ParsedInputCache.readAccountChanges(inputPath);
+
+    Files.writeString(input, HEADER + ROWS.replace("1000", "2000") + NEW_ROWS);
+    RawAccountChangeStore changes = ParsedInputCache.readAccountChanges(inputPath);
+    expectSameChanges(TransactionFileReader.readAccountChangeStore(inputPath), changes);
+  }
+
+  @Test
+  void testInvalidCacheIgnored() throws IOException {
+    Path input = tempDir.resolve("input.csv");
+    Files.writeString(input, HEADER + ROWS);
+    String inputPath = input.toString();
+    Files.writeString(Path.of(ParsedInputCache.getCacheFilePath(inputPath)), "garbage");
+    expectSameChanges(TransactionFileReader.readAccountChangeStore(inputPath),
+        ParsedInputCache.readAccountChanges(inputPath));
+  }
+
+  private static void expectSameChanges(RawAccountChangeStore expected,
+                                        RawAccountChangeStore actual) {
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); ++i) {
+      assertEquals(expected.get(i), actual.get(i));
+    }
+  }
+}
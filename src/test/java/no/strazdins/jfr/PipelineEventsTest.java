@@ -0,0 +1,115 @@
+package no.strazdins.jfr;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import no.strazdins.file.ReportFileWriter;
+import no.strazdins.file.TransactionFileReader;
+import no.strazdins.process.Report;
+import no.strazdins.process.ReportGenerator;
+import no.strazdins.tool.TimeConverter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PipelineEventsTest {
+  private static final List<String> EVENT_NAMES = List.of("ParseChunk", "GroupTransactions",
+      "ClassifyTransactions", "ProcessTransactions", "TransactionProcess", "WalletCopy",
+      "DiffVerification", "PriceLookup", "FileWrite");
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void testEventsRecorded() throws IOException {
+    Path input = tempDir.resolve("input.csv");
+    Files.writeString(input, "User_ID,UTC_Time,Account,Operation,Coin,Change,Remark\n"
+        + "1,2023-01-01 10:00:00,Spot,Deposit,USDT,1000,\"\"\n"
+        + "1,2023-01-02 10:00:00,Spot,Withdraw,USDT,-100,\"\"\n");
+    long yearEnd = TimeConverter.getYearEndTimestamp(2023);
+    Path extra = tempDir.resolve("extra.csv");
+    Files.writeString(extra, yearEnd + "," + TimeConverter.utcTimeToString(yearEnd)
+        + ",ASSET_PRICE,NOK,10\n");
+
+    Path recordingFile = tempDir.resolve("recording.jfr");
+    try (Recording recording = new Recording()) {
+      for (String name : EVENT_NAMES) {
+        recording.enable("no.strazdins." + name).withThreshold(Duration.ZERO);
+      }
+      recording.start();
+      Report report = new ReportGenerator().createReport(input.toString(), extra.toString(),
+          "NOK");
+      report.createAnnualReports();
+      ReportFileWriter.writeTransactionLogToFile(report,
+          tempDir.resolve("transactions.csv").toString());
+      recording.stop();
+      recording.dump(recordingFile);
+    }
+
+    Map<String, RecordedEvent> lastEvents = new HashMap<>();
+    for (RecordedEvent event : RecordingFile.readAllEvents(recordingFile)) {
+      lastEvents.put(event.getEventType().getName(), event);
+    }
+    for (String name : EVENT_NAMES) {
+      assertTrue(lastEvents.containsKey("no.strazdins." + name), name + " not recorded");
+    }
+    assertEquals(2, lastEvents.get("no.strazdins.ParseChunk").getLong("rowCount"));
+    assertEquals(2, lastEvents.get("no.strazdins.ProcessTransactions")
+        .getLong("transactionCount"));
+    assertEquals(PriceLookupEvent.SOURCE_FIXED,
+        lastEvents.get("no.strazdins.PriceLookup").getString("source"));
+    // The header and two transactions
+    assertEquals(3, lastEvents.get("no.strazdins.FileWrite").getLong("rowCount"));
+  }
+
+  @Test
+  void testParseChunksCoverFile() throws IOException {
+    StringBuilder input = new StringBuilder(
+        "User_ID,UTC_Time,Account,Operation,Coin,Change,Remark\n");
+    int rowCount = 60000;
+    for (int i = 0; i < rowCount; ++i) {
+      input.append("1,2023-01-01 10:00:00,Spot,Deposit,USDT,1,\"\"\n");
+    }
+    Path inputFile = tempDir.resolve("input.csv");
+    Files.writeString(inputFile, input);
+
+    Path recordingFile = tempDir.resolve("chunks.jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable("no.strazdins.ParseChunk").withThreshold(Duration.ZERO);
+      recording.start();
+      TransactionFileReader.readAccountChangeStore(inputFile.toString());
+      recording.stop();
+      recording.dump(recordingFile);
+    }
+
+    List<RecordedEvent> chunks = new ArrayList<>();
+    for (RecordedEvent event : RecordingFile.readAllEvents(recordingFile)) {
+      if (event.getEventType().getName().equals("no.strazdins.ParseChunk")) {
+        chunks.add(event);
+      }
+    }
+    chunks.sort(Comparator.comparingLong(e -> e.getLong("startOffset")));
+    // About 3 MB of input, one event per 1 MB chunk
+    assertTrue(chunks.size() >= 3, "Only " + chunks.size() + " chunks recorded");
+    long offset = 0;
+    long parsedRows = 0;
+    for (RecordedEvent chunk : chunks) {
+      assertEquals(offset, chunk.getLong("startOffset"));
+      offset += chunk.getLong("byteCount");
+      parsedRows += chunk.getLong("rowCount");
+    }
+    assertEquals(Files.size(inputFile), offset);
+    assertEquals(rowCount, parsedRows);
+  }
+}
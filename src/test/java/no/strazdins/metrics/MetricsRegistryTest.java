@@ -0,0 +1,51 @@
+package no.strazdins.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class MetricsRegistryTest {
+  @Test
+  void testHistogramBuckets() {
+    assertEquals(0, Histogram.getBucketIndex(0));
+    assertEquals(0, Histogram.getBucketIndex(1000));
+    assertEquals(1, Histogram.getBucketIndex(1001));
+    assertEquals(1, Histogram.getBucketIndex(2000));
+    assertEquals(2, Histogram.getBucketIndex(2001));
+    assertEquals(10, Histogram.getBucketIndex(1_000_000));
+    assertEquals(28, Histogram.getBucketIndex(Long.MAX_VALUE / 2));
+    assertEquals(1_024_000, Histogram.getUpperBoundNanos(10));
+  }
+
+  @Test
+  void testPrometheusFormat() {
+    MetricsRegistry registry = new MetricsRegistry();
+    MetricFamily<Counter> lookups = registry.counter("lookups_total", "Lookups", "source");
+    lookups.labels("api").inc();
+    lookups.labels("extra-info").add(3);
+    registry.gauge("in_flight", "In flight").get().set(2);
+    MetricFamily<Histogram> latency = registry.histogram("latency_seconds", "Latency", "type");
+    latency.labels("Buy").observeNanos(1500);
+    latency.labels("Buy").observeNanos(3_000_000_000L);
+
+    String text = registry.scrape();
+    assertTrue(text.contains("# HELP lookups_total Lookups\n# TYPE lookups_total counter\n"
+        + "lookups_total{source=\"api\"} 1\nlookups_total{source=\"extra-info\"} 3\n"));
+    assertTrue(text.contains("# TYPE in_flight gauge\nin_flight 2\n"));
+    assertTrue(text.contains("# TYPE latency_seconds histogram\n"
+        + "latency_seconds_bucket{type=\"Buy\",le=\"0.000001\"} 0\n"
+        + "latency_seconds_bucket{type=\"Buy\",le=\"0.000002\"} 1\n"));
+    assertTrue(text.contains("latency_seconds_bucket{type=\"Buy\",le=\"4.194304\"} 2\n"));
+    assertTrue(text.contains("latency_seconds_bucket{type=\"Buy\",le=\"+Inf\"} 2\n"
+        + "latency_seconds_sum{type=\"Buy\"} 3.000001500\n"
+        + "latency_seconds_count{type=\"Buy\"} 2\n"));
+  }
+
+  @Test
+  void testApplicationMetrics() {
+    String text = PnlMetrics.REGISTRY.scrape();
+    assertTrue(text.contains("# TYPE pnl_gc_pause_seconds_total counter\n"));
+    assertTrue(text.contains("# TYPE pnl_price_cache_hit_ratio gauge\n"));
+  }
+}
@@ -0,0 +1,143 @@
+package no.strazdins.process;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import no.strazdins.data.ExtraInfo;
+import no.strazdins.data.RawAccountChangeStore;
+import no.strazdins.file.ReportFileWriter;
+import no.strazdins.file.TransactionFileReader;
+import no.strazdins.tool.TimeConverter;
+import no.strazdins.transaction.Transaction;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks that the hot path does not allocate more than the budgets in
+ * allocation-budgets.properties, in bytes per input row. The budgets are checked in, so that
+ * a deliberate increase is visible in a review.
+ */
+class AllocationBudgetTest {
+  private static final String BUDGET_FILE = "/allocation-budgets.properties";
+  private static final String HEADER = "User_ID,UTC_Time,Account,Operation,Coin,Change,Remark\n";
+  private static final int CYCLE_COUNT = 1000;
+  private static final int ROWS_PER_CYCLE = 8;
+  private static final List<String> STAGES = List.of("parse", "classify", "process", "write");
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void testAllocationsWithinBudget() throws IOException {
+    com.sun.management.ThreadMXBean threadBean = getAllocationMeasuringBean();
+    assumeTrue(threadBean != null, "Thread allocation measurement not supported");
+    Properties budgets = readBudgets();
+    Path input = writeInput();
+    int rowCount = CYCLE_COUNT * ROWS_PER_CYCLE;
+
+    // The first run loads the classes and warms up the JIT
+    runPipeline(input, threadBean);
+    Map<String, Long> allocated = runPipeline(input, threadBean);
+
+    StringBuilder exceeded = new StringBuilder();
+    for (String stage : STAGES) {
+      String budget = budgets.getProperty(stage);
+      assertNotNull(budget, "No budget for stage " + stage);
+      long bytesPerRow = allocated.get(stage) / rowCount;
+      if (bytesPerRow > Long.parseLong(budget.trim())) {
+        exceeded.append(stage).append(": ").append(bytesPerRow).append(" bytes per row, budget ")
+            .append(budget.trim()).append("\n");
+      }
+    }
+    assertTrue(exceeded.isEmpty(), "Allocation budget exceeded:\n" + exceeded);
+  }
+
+  private Map<String, Long> runPipeline(Path input,
+                                        com.sun.management.ThreadMXBean threadBean)
+      throws IOException {
+    Map<String, Long> allocated = new LinkedHashMap<>();
+    long start = threadBean.getCurrentThreadAllocatedBytes();
+    RawAccountChangeStore changes = TransactionFileReader.readAccountChangeStore(
+        input.toString());
+    long afterParse = threadBean.getCurrentThreadAllocatedBytes();
+    allocated.put("parse", afterParse - start);
+
+    ReportLogic logic = new ReportLogic();
+    List<Transaction> transactions = logic.clarifyTransactionTypes(
+        logic.groupTransactionsByTimestamp(changes));
+    long afterClassify = threadBean.getCurrentThreadAllocatedBytes();
+    allocated.put("classify", afterClassify - afterParse);
+
+    Report report = new Report(new ExtraInfo());
+    for (Transaction transaction : transactions) {
+      report.process(transaction);
+    }
+    long afterProcess = threadBean.getCurrentThreadAllocatedBytes();
+    allocated.put("process", afterProcess - afterClassify);
+
+    ReportFileWriter.writeTransactionLogToFile(report,
+        tempDir.resolve("transactions.csv").toString());
+    ReportFileWriter.writeBalanceLogToFile(report, tempDir.resolve("balances.csv").toString());
+    allocated.put("write", threadBean.getCurrentThreadAllocatedBytes() - afterProcess);
+    return allocated;
+  }
+
+  private static com.sun.management.ThreadMXBean getAllocationMeasuringBean() {
+    if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+        && bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()) {
+      return bean;
+    }
+    return null;
+  }
+
+  private static Properties readBudgets() throws IOException {
+    Properties budgets = new Properties();
+    try (InputStream in = AllocationBudgetTest.class.getResourceAsStream(BUDGET_FILE)) {
+      assertNotNull(in, "Budget file " + BUDGET_FILE + " not found");
+      budgets.load(in);
+    }
+    return budgets;
+  }
+
+  /**
+   * Generate an input file with deposits, buys, sells and withdrawals.
+   */
+  private Path writeInput() throws IOException {
+    StringBuilder sb = new StringBuilder(HEADER);
+    long time = TimeConverter.stringToUtcTimestamp("2023-01-01 00:00:00");
+    for (int i = 0; i < CYCLE_COUNT; ++i) {
+      appendRow(sb, time, "Deposit", "USDT", "1000");
+      time += 60_000;
+      appendRow(sb, time, "Transaction Buy", "BTC", "0.02");
+      appendRow(sb, time, "Transaction Spend", "USDT", "-400");
+      appendRow(sb, time, "Transaction Fee", "USDT", "-0.4");
+      time += 60_000;
+      appendRow(sb, time, "Transaction Sold", "BTC", "-0.01");
+      appendRow(sb, time, "Transaction Revenue", "USDT", "210");
+      appendRow(sb, time, "Transaction Fee", "USDT", "-0.21");
+      time += 60_000;
+      appendRow(sb, time, "Withdraw", "USDT", "-500");
+      time += 60_000;
+    }
+    Path path = tempDir.resolve("input.csv");
+    Files.writeString(path, sb.toString());
+    return path;
+  }
+
+  private static void appendRow(StringBuilder sb, long time, String operation, String asset,
+                                String change) {
+    sb.append("1,").append(TimeConverter.utcTimeToString(time)).append(",Spot,")
+        .append(operation).append(",").append(asset).append(",").append(change)
+        .append(",\"\"\n");
+  }
+}
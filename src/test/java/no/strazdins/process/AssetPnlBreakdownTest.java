@@ -0,0 +1,82 @@
+package no.strazdins.process;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import no.strazdins.data.Decimal;
+import no.strazdins.tool.TimeConverter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class AssetPnlBreakdownTest {
+  private static final String HEADER = "User_ID,UTC_Time,Account,Operation,Coin,Change,Remark\n";
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void testAccumulation() {
+    AssetPnlBreakdown breakdown = new AssetPnlBreakdown();
+    breakdown.add(time("2022-12-31 23:59:59"), "ETH", new Decimal("-10.5"));
+    breakdown.add(time("2023-01-01 00:00:00"), "BTC", new Decimal("100"));
+    breakdown.add(time("2023-06-01 00:00:00"), "BTC", new Decimal("-30.25"));
+    breakdown.add(time("2023-07-01 00:00:00"), "ETH", new Decimal("5"));
+
+    assertEquals(new Decimal("-10.5"), breakdown.getPnl(2022, "ETH"));
+    assertEquals(Decimal.ZERO, breakdown.getPnl(2022, "BTC"));
+    assertEquals(new Decimal("69.75"), breakdown.getPnl(2023, "BTC"));
+    assertEquals(Decimal.ZERO, breakdown.getPnl(2024, "BTC"));
+    assertEquals(List.of(
+        new AssetPnlBreakdown.Entry(2022, "ETH", new Decimal("-10.5")),
+        new AssetPnlBreakdown.Entry(2023, "BTC", new Decimal("69.75")),
+        new AssetPnlBreakdown.Entry(2023, "ETH", new Decimal("5"))
+    ), breakdown.getEntries());
+  }
+
+  @Test
+  void testOverflow() {
+    AssetPnlBreakdown breakdown = new AssetPnlBreakdown();
+    long t = time("2023-01-01 00:00:00");
+    Decimal big = new Decimal("90000000000");
+    breakdown.add(t, "BTC", big);
+    breakdown.add(t, "BTC", big);
+    breakdown.add(t, "BTC", Decimal.ONE);
+    assertEquals(new Decimal("180000000001"), breakdown.getPnl(2023, "BTC"));
+  }
+
+  @Test
+  void testReportBreakdown() throws IOException {
+    String input = HEADER
+        + "1,2023-01-10 10:00:00,Spot,Deposit,BTC,1,\"\"\n"
+        + "1,2023-01-20 10:00:00,Spot,Transaction Sold,BTC,-0.5,\"\"\n"
+        + "1,2023-01-20 10:00:00,Spot,Transaction Revenue,USDT,12000,\"\"\n"
+        + "1,2024-03-10 10:00:00,Spot,Transaction Sold,BTC,-0.25,\"\"\n"
+        + "1,2024-03-10 10:00:00,Spot,Transaction Revenue,USDT,4000,\"\"\n";
+    Path inputPath = tempDir.resolve("input.csv");
+    Files.writeString(inputPath, input);
+    String extra = extraInfoRow(time("2023-01-10 10:00:00"), "BTC", "20000")
+        + extraInfoRow(TimeConverter.getYearEndTimestamp(2023), "NOK", "10")
+        + extraInfoRow(TimeConverter.getYearEndTimestamp(2024), "NOK", "11");
+    Path extraPath = tempDir.resolve("extra.csv");
+    Files.writeString(extraPath, extra);
+
+    Report report = new ReportGenerator().createReport(inputPath.toString(),
+        extraPath.toString(), "NOK");
+    AssetPnlBreakdown breakdown = report.getAssetPnlBreakdown();
+    assertEquals(new Decimal("2000"), breakdown.getPnl(2023, "BTC"));
+    assertEquals(new Decimal("-1000"), breakdown.getPnl(2024, "BTC"));
+    assertEquals(2, breakdown.getEntries().size());
+  }
+
+  private static long time(String s) {
+    return TimeConverter.stringToUtcTimestamp(s);
+  }
+
+  private static String extraInfoRow(long utcTime, String asset, String value) {
+    return utcTime + "," + TimeConverter.utcTimeToString(utcTime) + ",ASSET_PRICE," + asset
+        + "," + value + "\n";
+  }
+}
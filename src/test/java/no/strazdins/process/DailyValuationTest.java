@@ -0,0 +1,108 @@
+package no.strazdins.process;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import no.strazdins.data.Decimal;
+import no.strazdins.data.WalletSnapshot;
+import no.strazdins.tool.BinanceApiClient;
+import no.strazdins.tool.TimeConverter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DailyValuationTest {
+  private static final String HEADER = "User_ID,UTC_Time,Account,Operation,Coin,Change,Remark\n";
+  private static final String DEPOSIT_TIME = "2023-12-30 10:00:00";
+  private static final String SELL_TIME = "2024-01-01 10:00:00";
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void testDailySeries() throws IOException {
+    String input = HEADER
+        + "1," + DEPOSIT_TIME + ",Spot,Deposit,BTC,1,\"\"\n"
+        + "1," + SELL_TIME + ",Spot,Transaction Sold,BTC,-0.5,\"\"\n"
+        + "1," + SELL_TIME + ",Spot,Transaction Revenue,USDT,12000,\"\"\n";
+    Path inputPath = tempDir.resolve("input.csv");
+    Files.writeString(inputPath, input);
+    String extra = extraInfoRow(time(DEPOSIT_TIME), "BTC", "20000")
+        + extraInfoRow(time("2023-12-30 23:59:59"), "BTC", "21000")
+        + extraInfoRow(time("2023-12-31 23:59:59"), "NOK", "10")
+        + extraInfoRow(time("2023-12-31 23:59:59"), "BTC", "22000")
+        + extraInfoRow(time("2024-01-01 23:59:59"), "BTC", "23000")
+        + extraInfoRow(time("2024-01-01 23:59:59"), "NOK", "10.5")
+        + extraInfoRow(time("2024-12-31 23:59:59"), "NOK", "11");
+    Path extraPath = tempDir.resolve("extra.csv");
+    Files.writeString(extraPath, extra);
+
+    ReportGenerator generator = new ReportGenerator();
+    generator.setDailyValuesEnabled(true);
+    Report report = generator.createReport(inputPath.toString(), extraPath.toString(), "NOK");
+    List<DailyValue> values = report.createDailyValues("NOK");
+    assertEquals(3, values.size());
+    // No exchange rate at the end of the first day, the HC value is unknown
+    assertDay(values.get(0), "2023-12-30", "21000", null);
+    assertNull(values.get(0).walletValueHc());
+    assertDay(values.get(1), "2023-12-31", "22000", "10");
+    assertEquals(new Decimal("220000"), values.get(1).walletValueHc());
+    assertDay(values.get(2), "2024-01-01", "23500", "10.5");
+    assertEquals(new Decimal("246750"), values.get(2).walletValueHc());
+  }
+
+  @Test
+  void testMissingPriceLeavesValueEmpty() throws IOException {
+    String input = HEADER
+        + "1," + DEPOSIT_TIME + ",Spot,Deposit,XYZ,10,\"\"\n"
+        + "1," + SELL_TIME + ",Spot,Deposit,USDT,100,\"\"\n";
+    Path inputPath = tempDir.resolve("input.csv");
+    Files.writeString(inputPath, input);
+    String extra = extraInfoRow(time(DEPOSIT_TIME), "XYZ", "2")
+        + extraInfoRow(time("2023-12-31 23:59:59"), "NOK", "10")
+        + extraInfoRow(time("2023-12-31 23:59:59"), "XYZ", "3")
+        + extraInfoRow(time("2024-12-31 23:59:59"), "NOK", "11");
+    Path extraPath = tempDir.resolve("extra.csv");
+    Files.writeString(extraPath, extra);
+    Report report = new ReportGenerator().createReport(inputPath.toString(),
+        extraPath.toString(), "NOK");
+    List<WalletSnapshot> snapshots = new ArrayList<>();
+    report.forEach(snapshots::add);
+
+    DailyValuation valuation = new DailyValuation(report.getExtras(), "NOK",
+        new BinanceApiClient() {
+          @Override
+          public Map<Long, Decimal> getDailyClosePrices(String asset, long startTime,
+                                                        long endTime) {
+            return Map.of();
+          }
+        });
+    List<DailyValue> values = valuation.createSeries(snapshots);
+    assertEquals(3, values.size());
+    assertNull(values.get(0).walletValueUsd());
+    assertNull(values.get(0).walletValueHc());
+    assertDay(values.get(1), "2023-12-31", "30", "10");
+    assertNull(values.get(2).walletValueUsd());
+    assertNull(values.get(2).exchangeRate());
+  }
+
+  private static void assertDay(DailyValue value, String date, String valueUsd, String rate) {
+    assertEquals(date + " 23:59:59", TimeConverter.utcTimeToString(value.timestamp()));
+    assertEquals(new Decimal(valueUsd), value.walletValueUsd());
+    assertEquals(rate != null ? new Decimal(rate) : null, value.exchangeRate());
+  }
+
+  private static long time(String s) {
+    return TimeConverter.stringToUtcTimestamp(s);
+  }
+
+  private static String extraInfoRow(long utcTime, String asset, String value) {
+    return utcTime + "," + TimeConverter.utcTimeToString(utcTime) + ",ASSET_PRICE," + asset
+        + "," + value + "\n";
+  }
+}
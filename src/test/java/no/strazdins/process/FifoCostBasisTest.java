@@ -0,0 +1,136 @@
+package no.strazdins.process;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import no.strazdins.data.CostBasisStrategy;
+import no.strazdins.data.Decimal;
+import no.strazdins.data.Wallet;
+import no.strazdins.data.WalletSnapshot;
+import no.strazdins.tool.TimeConverter;
+import no.strazdins.transaction.Transaction;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FifoCostBasisTest {
+  private static final String HEADER = "User_ID,UTC_Time,Account,Operation,Coin,Change,Remark\n";
+  private static final String FIRST_BUY = "2023-01-10 10:00:00";
+  private static final String SECOND_BUY = "2023-02-10 10:00:00";
+  private static final String SELL = "2023-03-10 10:00:00";
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void testFifoRealizedLots() throws IOException {
+    Report report = createReport(CostBasisStrategy.FIFO);
+    // 1 BTC @ 20000 + 0.5 BTC @ 30000 = 35000, sold for 45000
+    assertEquals(new Decimal("10000"), report.getAssetPnlBreakdown().getPnl(2023, "BTC"));
+    List<RealizedLot> lots = report.getRealizedLots();
+    assertEquals(2, lots.size());
+    assertLot(lots.get(0), FIRST_BUY, "1", "20000", "30000", "10000");
+    assertLot(lots.get(1), SECOND_BUY, "0.5", "15000", "15000", "0");
+  }
+
+  @Test
+  void testAverageCostBasis() throws IOException {
+    Report report = createReport(CostBasisStrategy.AVERAGE);
+    // 1.5 BTC @ 25000 = 37500, sold for 45000
+    assertEquals(new Decimal("7500"), report.getAssetPnlBreakdown().getPnl(2023, "BTC"));
+    assertEquals(0, report.getRealizedLots().size());
+  }
+
+  @Test
+  void testSellWithFeeInSoldAsset() throws IOException {
+    String transactions = buy("BNB", FIRST_BUY, "1", "100") + buy("BNB", SECOND_BUY, "1", "200")
+        + "1," + SELL + ",Spot,Transaction Sold,BNB,-1,\"\"\n"
+        + "1," + SELL + ",Spot,Transaction Revenue,USDT,300,\"\"\n"
+        + "1," + SELL + ",Spot,Transaction Fee,BNB,-0.1,\"\"\n";
+    Report report = createReport(CostBasisStrategy.FIFO, transactions, "BNB");
+    // The sold 1 BNB is the first lot (100), the fee is taken from the second lot (0.1 * 200)
+    assertEquals(new Decimal("180"), report.getAssetPnlBreakdown().getPnl(2023, "BNB"));
+    List<RealizedLot> lots = report.getRealizedLots();
+    assertEquals(1, lots.size());
+    assertEquals(new Decimal("100"), lots.get(0).costUsd());
+    Wallet wallet = getFinalWallet(report);
+    assertEquals(new Decimal("0.9"), wallet.getAssetAmount("BNB"));
+    assertEquals(new Decimal("180"), wallet.getCostBasis("BNB", new Decimal("0.9")));
+  }
+
+  @Test
+  void testBuyWithFeeLargerThanHeldAsset() throws IOException {
+    String transactions = buy("BNB", FIRST_BUY, "0.01", "3")
+        + buy("BNB", SECOND_BUY, "1", "300")
+        + "1," + SECOND_BUY + ",Spot,Transaction Fee,BNB,-0.05,\"\"\n";
+    Report fifo = createReport(CostBasisStrategy.FIFO, transactions, "BNB");
+    Report average = createReport(CostBasisStrategy.AVERAGE, transactions, "BNB");
+    assertEquals(new Decimal("0.96"), getFinalWallet(fifo).getAssetAmount("BNB"));
+    // The dust does not cover the fee, it is valued with the average price, as with AVERAGE
+    assertEquals(getFinalWallet(average).getAssetAmount("BNB"),
+        getFinalWallet(fifo).getAssetAmount("BNB"));
+    assertEquals(getLastTransaction(average).getFeeInUsdt(),
+        getLastTransaction(fifo).getFeeInUsdt());
+  }
+
+  private static String buy(String asset, String time, String amount, String usdt) {
+    return "1," + time + ",Spot,Transaction Buy," + asset + "," + amount + ",\"\"\n"
+        + "1," + time + ",Spot,Transaction Spend,USDT,-" + usdt + ",\"\"\n";
+  }
+
+  private static Wallet getFinalWallet(Report report) {
+    return getLastSnapshot(report).getWallet();
+  }
+
+  private static Transaction getLastTransaction(Report report) {
+    return getLastSnapshot(report).getTransaction();
+  }
+
+  private static WalletSnapshot getLastSnapshot(Report report) {
+    WalletSnapshot last = null;
+    for (WalletSnapshot snapshot : report) {
+      last = snapshot;
+    }
+    return last;
+  }
+
+  private Report createReport(CostBasisStrategy strategy) throws IOException {
+    String transactions = buy("BTC", FIRST_BUY, "1", "20000") + buy("BTC", SECOND_BUY, "1", "30000")
+        + "1," + SELL + ",Spot,Transaction Sold,BTC,-1.5,\"\"\n"
+        + "1," + SELL + ",Spot,Transaction Revenue,USDT,45000,\"\"\n";
+    return createReport(strategy, transactions, null);
+  }
+
+  private Report createReport(CostBasisStrategy strategy, String transactions,
+                              String heldAsset) throws IOException {
+    String input = HEADER
+        + "1,2023-01-05 10:00:00,Spot,Deposit,USDT,50000,\"\"\n"
+        + transactions;
+    Path inputPath = tempDir.resolve("input.csv");
+    Files.writeString(inputPath, input);
+    long yearEnd = TimeConverter.getYearEndTimestamp(2023);
+    String yearEndTime = yearEnd + "," + TimeConverter.utcTimeToString(yearEnd);
+    String extra = yearEndTime + ",ASSET_PRICE,NOK,10\n";
+    if (heldAsset != null) {
+      extra += yearEndTime + ",ASSET_PRICE," + heldAsset + ",250\n";
+    }
+    Path extraPath = tempDir.resolve("extra.csv");
+    Files.writeString(extraPath, extra);
+    ReportGenerator generator = new ReportGenerator();
+    generator.setCostBasisStrategy(strategy);
+    return generator.createReport(inputPath.toString(), extraPath.toString(), "NOK");
+  }
+
+  private static void assertLot(RealizedLot lot, String obtainTime, String amount, String cost,
+                                String proceeds, String gain) {
+    assertEquals(SELL, TimeConverter.utcTimeToString(lot.realizationTime()));
+    assertEquals("BTC", lot.asset());
+    assertEquals(obtainTime, TimeConverter.utcTimeToString(lot.obtainTime()));
+    assertEquals(new Decimal(amount), lot.amount());
+    assertEquals(new Decimal(cost), lot.costUsd());
+    assertEquals(new Decimal(proceeds), lot.proceedsUsd());
+    assertEquals(new Decimal(gain), lot.gainUsd());
+  }
+}
@@ -0,0 +1,156 @@
+package no.strazdins.process;
+
+import static no.strazdins.testtools.TestTools.createSpotAccountChanges;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import no.strazdins.data.AccountType;
+import no.strazdins.data.Decimal;
+import no.strazdins.data.ExtraInfo;
+import no.strazdins.data.Operation;
+import no.strazdins.data.RawAccountChange;
+import no.strazdins.data.Wallet;
+import no.strazdins.data.WalletSnapshot;
+import no.strazdins.transaction.SavingsInterestTransaction;
+import no.strazdins.transaction.Transaction;
+import org.junit.jupiter.api.Test;
+
+class InterestCompactorTest {
+  private static final long HOUR = 3600000L;
+  // 2023-01-02 00:00:00 UTC, a Monday
+  private static final long DAY_START = 1672617600000L;
+
+  @Test
+  void testMergeWithinDay() {
+    List<Transaction> transactions = new ArrayList<>();
+    transactions.add(createTransaction(DAY_START, "Deposit", "1000", "USDT"));
+    transactions.add(createTransaction(DAY_START + HOUR,
+        "Buy", "0.01", "BTC", "Sell", "-200", "USDT", "Fee", "-0.2", "USDT"));
+    transactions.add(createInterest(DAY_START + 2 * HOUR, "0.0001", "BTC"));
+    transactions.add(createInterest(DAY_START + 3 * HOUR, "0.1", "USDT"));
+    transactions.add(createInterest(DAY_START + 4 * HOUR, "0.0002", "BTC"));
+    transactions.add(createInterest(DAY_START + 5 * HOUR, "0.2", "USDT"));
+    // The sale closes the BTC run and the USDT run
+    transactions.add(createTransaction(DAY_START + 6 * HOUR,
+        "Sell", "-0.005", "BTC", "Buy", "110", "USDT"));
+    transactions.add(createInterest(DAY_START + 7 * HOUR, "0.0003", "BTC"));
+    transactions.add(createInterest(DAY_START + 8 * HOUR, "0.0004", "BTC"));
+    // Next day - a new run
+    transactions.add(createInterest(DAY_START + 25 * HOUR, "0.0005", "BTC"));
+
+    List<Transaction> compacted = new InterestCompactor(CompactionWindow.DAY)
+        .compact(transactions);
+    assertEquals(7, compacted.size());
+    expectInterest(compacted.get(2), DAY_START + 4 * HOUR, "0.0003", "BTC");
+    expectInterest(compacted.get(3), DAY_START + 5 * HOUR, "0.3", "USDT");
+    assertEquals(transactions.get(6), compacted.get(4));
+    expectInterest(compacted.get(5), DAY_START + 8 * HOUR, "0.0007", "BTC");
+    expectInterest(compacted.get(6), DAY_START + 25 * HOUR, "0.0005", "BTC");
+
+    WalletSnapshot expected = processAll(transactions);
+    WalletSnapshot actual = processAll(compacted);
+    assertEquals(expected.getPnl(), actual.getPnl());
+    expectSameAmounts(expected.getWallet(), actual.getWallet());
+  }
+
+  @Test
+  void testSingleCreditsUnchanged() {
+    List<Transaction> transactions = new ArrayList<>();
+    transactions.add(createInterest(DAY_START, "0.1", "USDT"));
+    transactions.add(createInterest(DAY_START + HOUR, "0.0001", "BTC"));
+    transactions.add(createInterest(DAY_START + 24 * HOUR, "0.1", "USDT"));
+    List<Transaction> compacted = new InterestCompactor(CompactionWindow.DAY)
+        .compact(transactions);
+    assertEquals(transactions, compacted);
+  }
+
+  @Test
+  void testWindows() {
+    long sunday = DAY_START - HOUR;
+    assertNotEquals(CompactionWindow.DAY.getWindowStart(sunday),
+        CompactionWindow.DAY.getWindowStart(DAY_START));
+    assertEquals(CompactionWindow.WEEK.getWindowStart(DAY_START),
+        CompactionWindow.WEEK.getWindowStart(DAY_START + 6 * 24 * HOUR));
+    assertNotEquals(CompactionWindow.WEEK.getWindowStart(DAY_START),
+        CompactionWindow.WEEK.getWindowStart(DAY_START + 7 * 24 * HOUR));
+    // 2023-01-01 is a Sunday, the week of 2022-12-26 is split at the year boundary
+    assertNotEquals(CompactionWindow.WEEK.getWindowStart(sunday),
+        CompactionWindow.WEEK.getWindowStart(sunday - 24 * HOUR));
+    // 2023-01-30 is a Monday, the week is split at the month boundary
+    long monday = DAY_START + 28 * 24 * HOUR;
+    assertEquals(CompactionWindow.WEEK.getWindowStart(monday),
+        CompactionWindow.WEEK.getWindowStart(monday + 47 * HOUR));
+    assertNotEquals(CompactionWindow.WEEK.getWindowStart(monday),
+        CompactionWindow.WEEK.getWindowStart(monday + 48 * HOUR));
+    assertEquals(CompactionWindow.WEEK.getWindowStart(monday + 48 * HOUR),
+        CompactionWindow.WEEK.getWindowStart(monday + 6 * 24 * HOUR));
+    assertEquals(CompactionWindow.MONTH.getWindowStart(DAY_START),
+        CompactionWindow.MONTH.getWindowStart(DAY_START + 29 * 24 * HOUR));
+    assertNotEquals(CompactionWindow.MONTH.getWindowStart(DAY_START),
+        CompactionWindow.MONTH.getWindowStart(DAY_START + 30 * 24 * HOUR));
+  }
+
+  @Test
+  void testWideWindowsRejectedForDayBoundaries() throws IOException {
+    ReportGenerator generator = new ReportGenerator();
+    generator.setInterestCompactionWindow(CompactionWindow.WEEK);
+    generator.setPeriods(List.of(PeriodDefinition.MONTH, PeriodDefinition.QUARTER));
+    generator.checkOptions();
+    generator.setDailyValuesEnabled(true);
+    assertThrows(IOException.class, generator::checkOptions);
+    assertThrows(IOException.class, () -> generator.createReport("input.csv", "extra.csv",
+        "NOK"));
+    generator.setDailyValuesEnabled(false);
+    generator.setPeriods(List.of(PeriodDefinition.custom(LocalDate.of(2023, 6, 15))));
+    assertThrows(IOException.class, generator::checkOptions);
+    generator.setInterestCompactionWindow(CompactionWindow.DAY);
+    generator.checkOptions();
+  }
+
+  private static void expectInterest(Transaction t, long time, String amount, String asset) {
+    assertInstanceOf(SavingsInterestTransaction.class, t);
+    assertEquals(time, t.getUtcTime());
+    assertEquals(new Decimal(amount), t.getBaseCurrencyAmount());
+    assertEquals(asset, t.getBaseCurrency());
+  }
+
+  private static void expectSameAmounts(Wallet expected, Wallet actual) {
+    assertEquals(expected.getAssetCount(), actual.getAssetCount());
+    for (String asset : expected) {
+      assertEquals(expected.getAssetAmount(asset), actual.getAssetAmount(asset));
+    }
+  }
+
+  private static WalletSnapshot processAll(List<Transaction> transactions) {
+    Report report = new Report(new ExtraInfo());
+    WalletSnapshot last = null;
+    for (Transaction t : transactions) {
+      report.process(t);
+    }
+    for (WalletSnapshot snapshot : report) {
+      last = snapshot;
+    }
+    return last;
+  }
+
+  private static Transaction createInterest(long time, String amount, String asset) {
+    Transaction t = new Transaction(time);
+    t.append(new RawAccountChange(time, AccountType.EARN, Operation.EARN_INTEREST,
+        asset, new Decimal(amount), ""));
+    return t.clarifyTransactionType();
+  }
+
+  private static Transaction createTransaction(long time, String... changes) {
+    Transaction t = new Transaction(time);
+    for (RawAccountChange change : createSpotAccountChanges(time, changes)) {
+      t.append(change);
+    }
+    return t.clarifyTransactionType();
+  }
+}
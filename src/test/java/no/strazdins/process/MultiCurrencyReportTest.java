@@ -0,0 +1,78 @@
+package no.strazdins.process;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import no.strazdins.data.Decimal;
+import no.strazdins.data.ExtraInfoEntry;
+import no.strazdins.tool.TimeConverter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MultiCurrencyReportTest {
+  private static final String HEADER = "User_ID,UTC_Time,Account,Operation,Coin,Change,Remark\n";
+  private static final String INPUT = HEADER
+      + "1,2023-01-05 10:00:00,Spot,Deposit,USDT,30000,\"\"\n"
+      + "1,2023-01-10 10:00:00,Spot,Transaction Buy,BTC,1,\"\"\n"
+      + "1,2023-01-10 10:00:00,Spot,Transaction Spend,USDT,-20000,\"\"\n"
+      + "1,2023-03-10 10:00:00,Spot,Transaction Sold,BTC,-0.5,\"\"\n"
+      + "1,2023-03-10 10:00:00,Spot,Transaction Revenue,USDT,15000,\"\"\n";
+  private static final long YEAR_END = TimeConverter.getYearEndTimestamp(2023);
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void testAnnualReportsInSeveralCurrencies() throws IOException {
+    // The EUR rate is listed first, the NOK rate must still be found for NOK
+    Report report = createReport(List.of("EUR", "NOK", "BTC"), List.of("0.9", "10", "40000"));
+    Map<String, List<AnnualReport>> reports = report.createAnnualReports(List.of("NOK", "EUR"));
+    assertEquals(List.of("NOK", "EUR"), List.copyOf(reports.keySet()));
+    // PNL: 15000 - 10000; wallet: 25000 USDT + 0.5 BTC @ 40000
+    assertAnnualReport(reports.get("NOK"), "10", "50000", "450000");
+    assertAnnualReport(reports.get("EUR"), "0.9", "4500", "40500");
+  }
+
+  @Test
+  void testMissingAdditionalCurrencyRate() throws IOException {
+    MissingExtraInfoException e = assertThrows(MissingExtraInfoException.class,
+        () -> createReport(List.of("NOK", "BTC"), List.of("10", "40000")));
+    List<ExtraInfoEntry> missing = e.getMissingInfo().getAllEntries();
+    assertEquals(1, missing.size());
+    assertEquals("EUR", missing.get(0).asset());
+    assertEquals(YEAR_END, missing.get(0).utcTimestamp());
+  }
+
+  private Report createReport(List<String> assets, List<String> prices) throws IOException {
+    Path inputPath = tempDir.resolve("input.csv");
+    Files.writeString(inputPath, INPUT);
+    StringBuilder extra = new StringBuilder();
+    for (int i = 0; i < assets.size(); ++i) {
+      extra.append(YEAR_END).append(',').append(TimeConverter.utcTimeToString(YEAR_END))
+          .append(",ASSET_PRICE,").append(assets.get(i)).append(',').append(prices.get(i))
+          .append('\n');
+    }
+    Path extraPath = tempDir.resolve("extra.csv");
+    Files.writeString(extraPath, extra.toString());
+    ReportGenerator generator = new ReportGenerator();
+    generator.setAdditionalHomeCurrencies(List.of("EUR"));
+    return generator.createReport(inputPath.toString(), extraPath.toString(), "NOK");
+  }
+
+  private static void assertAnnualReport(List<AnnualReport> reports, String rate, String pnlHc,
+                                         String walletHc) {
+    assertEquals(1, reports.size());
+    AnnualReport report = reports.get(0);
+    assertEquals(YEAR_END, report.timestamp());
+    assertEquals(new Decimal("5000"), report.pnlUsd());
+    assertEquals(new Decimal(rate), report.exchangeRate());
+    assertEquals(new Decimal(pnlHc), report.pnlHc());
+    assertEquals(new Decimal("45000"), report.walletValueUsd());
+    assertEquals(new Decimal(walletHc), report.walletValueHc());
+  }
+}
@@ -0,0 +1,52 @@
+package no.strazdins.process;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import no.strazdins.tool.TimeConverter;
+import org.junit.jupiter.api.Test;
+
+class PeriodDefinitionTest {
+  @Test
+  void testCalendarPeriods() {
+    long time = TimeConverter.stringToUtcTimestamp("2024-02-10 12:00:00");
+    assertEnd("2024-02-29 23:59:59", PeriodDefinition.MONTH.getPeriodEnd(time));
+    assertEnd("2024-03-31 23:59:59", PeriodDefinition.QUARTER.getPeriodEnd(time));
+    assertEnd("2024-12-31 23:59:59", PeriodDefinition.YEAR.getPeriodEnd(time));
+    assertEquals(TimeConverter.getYearEndTimestamp(2024),
+        PeriodDefinition.YEAR.getPeriodEnd(time));
+
+    long lastSecond = TimeConverter.stringToUtcTimestamp("2024-03-31 23:59:59");
+    assertEquals(lastSecond, PeriodDefinition.QUARTER.getPeriodEnd(lastSecond));
+    assertEnd("2024-06-30 23:59:59", PeriodDefinition.QUARTER.getPeriodEnd(lastSecond + 1000));
+    assertEnd("2024-12-31 23:59:59", PeriodDefinition.QUARTER.getPeriodEnd(
+        TimeConverter.stringToUtcTimestamp("2024-10-01 00:00:00")));
+  }
+
+  @Test
+  void testCustomPeriods() throws IOException {
+    PeriodDefinition custom = PeriodDefinition.fromString("custom:2024-06-15|2024-01-31");
+    assertEquals("custom", custom.getName());
+    assertEnd("2024-01-31 23:59:59", custom.getPeriodEnd(
+        TimeConverter.stringToUtcTimestamp("2023-05-01 00:00:00")));
+    assertEnd("2024-06-15 23:59:59", custom.getPeriodEnd(
+        TimeConverter.stringToUtcTimestamp("2024-02-01 00:00:00")));
+    assertEquals(PeriodDefinition.NO_END, custom.getPeriodEnd(
+        TimeConverter.stringToUtcTimestamp("2024-06-16 00:00:00")));
+  }
+
+  @Test
+  void testFromString() throws IOException {
+    assertSame(PeriodDefinition.MONTH, PeriodDefinition.fromString("month"));
+    assertSame(PeriodDefinition.QUARTER, PeriodDefinition.fromString("Quarter"));
+    assertSame(PeriodDefinition.YEAR, PeriodDefinition.fromString("YEAR"));
+    assertThrows(IOException.class, () -> PeriodDefinition.fromString("week"));
+    assertThrows(IOException.class, () -> PeriodDefinition.fromString("custom:2024-13-01"));
+  }
+
+  private static void assertEnd(String expected, long periodEnd) {
+    assertEquals(expected, TimeConverter.utcTimeToString(periodEnd));
+  }
+}
@@ -0,0 +1,106 @@
+package no.strazdins.process;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import no.strazdins.data.Decimal;
+import no.strazdins.tool.TimeConverter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PeriodReportTest {
+  private static final String HEADER = "User_ID,UTC_Time,Account,Operation,Coin,Change,Remark\n";
+  private static final String DEPOSIT_TIME = "2023-01-10 10:00:00";
+  private static final String JANUARY_SELL_TIME = "2023-01-20 10:00:00";
+  private static final String MARCH_SELL_TIME = "2023-03-10 10:00:00";
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void testMonthlyAndQuarterlyReports() throws IOException {
+    String input = writeInput();
+    String extra = writeExtraInfo(true);
+    ReportGenerator generator = new ReportGenerator();
+    generator.setPeriods(List.of(PeriodDefinition.MONTH, PeriodDefinition.QUARTER));
+    Report report = generator.createReport(input, extra, "NOK");
+    Map<String, List<PeriodReport>> periodReports = report.createPeriodReports();
+    assertEquals(List.of("month", "quarter"), List.copyOf(periodReports.keySet()));
+
+    List<PeriodReport> months = periodReports.get("month");
+    assertEquals(3, months.size());
+    assertPeriod(months.get(0), "2023-01-31", "2000", "2000", "20000", "27000");
+    // No transactions in February
+    assertPeriod(months.get(1), "2023-02-28", "0", "2000", "0", "26000");
+    assertPeriod(months.get(2), "2023-03-31", "2500", "4500", "30000", "27500");
+    assertEquals(new Decimal("286000"), months.get(1).walletValueHc());
+
+    List<PeriodReport> quarters = periodReports.get("quarter");
+    assertEquals(1, quarters.size());
+    assertPeriod(quarters.get(0), "2023-03-31", "4500", "4500", "54000", "27500");
+  }
+
+  @Test
+  void testExchangeRateRequiredAtPeriodEnds() throws IOException {
+    String input = writeInput();
+    String extra = writeExtraInfo(false);
+    ReportGenerator generator = new ReportGenerator();
+    generator.setPeriods(List.of(PeriodDefinition.MONTH));
+    MissingExtraInfoException e = assertThrows(MissingExtraInfoException.class,
+        () -> generator.createReport(input, extra, "NOK"));
+    assertEquals(1, e.getMissingInfo().getAllEntries().size());
+  }
+
+  private static void assertPeriod(PeriodReport report, String date, String periodPnlUsd,
+                                   String runningPnlUsd, String periodPnlHc,
+                                   String walletValueUsd) {
+    assertEquals(date, TimeConverter.utcTimeToDateString(report.timestamp()));
+    assertEquals(new Decimal(periodPnlUsd), report.periodPnlUsd());
+    assertEquals(new Decimal(runningPnlUsd), report.runningPnlUsd());
+    assertEquals(new Decimal(periodPnlHc), report.periodPnlHc());
+    assertEquals(new Decimal(walletValueUsd), report.walletValueUsd());
+  }
+
+  private String writeInput() throws IOException {
+    String input = HEADER
+        + "1," + DEPOSIT_TIME + ",Spot,Deposit,BTC,1,\"\"\n"
+        + "1," + JANUARY_SELL_TIME + ",Spot,Transaction Sold,BTC,-0.5,\"\"\n"
+        + "1," + JANUARY_SELL_TIME + ",Spot,Transaction Revenue,USDT,12000,\"\"\n"
+        + "1," + MARCH_SELL_TIME + ",Spot,Transaction Sold,BTC,-0.25,\"\"\n"
+        + "1," + MARCH_SELL_TIME + ",Spot,Transaction Revenue,USDT,7500,\"\"\n";
+    Path path = tempDir.resolve("input.csv");
+    Files.writeString(path, input);
+    return path.toString();
+  }
+
+  private String writeExtraInfo(boolean withFebruaryRate) throws IOException {
+    StringBuilder sb = new StringBuilder();
+    sb.append(extraInfoRow(TimeConverter.stringToUtcTimestamp(DEPOSIT_TIME), "BTC", "20000"));
+    appendPeriodEnd(sb, "2023-01-31 23:59:59", "10", "30000");
+    if (withFebruaryRate) {
+      appendPeriodEnd(sb, "2023-02-28 23:59:59", "11", "28000");
+    }
+    appendPeriodEnd(sb, "2023-03-31 23:59:59", "12", "32000");
+    appendPeriodEnd(sb, "2023-12-31 23:59:59", "10", "40000");
+    Path path = tempDir.resolve("extra.csv");
+    Files.writeString(path, sb.toString());
+    return path.toString();
+  }
+
+  private static void appendPeriodEnd(StringBuilder sb, String time, String nokRate,
+                                      String btcPrice) {
+    long utcTime = TimeConverter.stringToUtcTimestamp(time);
+    sb.append(extraInfoRow(utcTime, "NOK", nokRate));
+    sb.append(extraInfoRow(utcTime, "BTC", btcPrice));
+  }
+
+  private static String extraInfoRow(long utcTime, String asset, String value) {
+    return utcTime + "," + TimeConverter.utcTimeToString(utcTime) + ",ASSET_PRICE," + asset
+        + "," + value + "\n";
+  }
+}
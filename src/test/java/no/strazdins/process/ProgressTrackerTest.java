@@ -0,0 +1,104 @@
+package no.strazdins.process;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import no.strazdins.file.TransactionFileReader;
+import no.strazdins.tool.TimeConverter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ProgressTrackerTest {
+  private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void testRateLimitedProgress() {
+    List<ProgressTracker.Progress> notifications = new ArrayList<>();
+    long[] clock = {0};
+    ProgressTracker tracker = new ProgressTracker(1000, notifications::add, () -> clock[0]);
+    assertNull(tracker.getProgress());
+
+    tracker.startPhase("process", "transactions", 1000);
+    assertEquals(0, tracker.getProgress().done());
+    tracker.advance(100);
+    clock[0] = NANOS_PER_SECOND / 2;
+    tracker.advance(100);
+    assertTrue(notifications.isEmpty());
+
+    clock[0] = NANOS_PER_SECOND;
+    tracker.advance(50);
+    assertEquals(1, notifications.size());
+    ProgressTracker.Progress progress = notifications.get(0);
+    assertEquals(250, progress.done());
+    assertEquals(25.0, progress.percent(), 1e-9);
+    assertEquals(250.0, progress.ratePerSecond(), 1e-9);
+    // 750 transactions left at 250 transactions/s
+    assertEquals(3000, progress.etaMillis());
+    assertFalse(progress.finished());
+    assertEquals(progress, tracker.getProgress());
+
+    clock[0] = 2 * NANOS_PER_SECOND;
+    tracker.advance(100);
+    assertEquals(100.0, tracker.getProgress().ratePerSecond(), 1e-9);
+
+    tracker.finishPhase();
+    assertEquals(3, notifications.size());
+    assertTrue(tracker.getProgress().finished());
+    assertEquals(1000, tracker.getProgress().done());
+    assertEquals(100.0, tracker.getProgress().percent(), 1e-9);
+  }
+
+  @Test
+  void testStalled() {
+    ProgressTracker tracker = new ProgressTracker(0, p -> { });
+    tracker.startPhase("process", "transactions", 10);
+    assertFalse(tracker.isStalled(60_000));
+    assertTrue(tracker.isStalled(-1));
+  }
+
+  @Test
+  void testUnpublishedUpdatesAreNotStalls() {
+    long[] clock = {0};
+    ProgressTracker tracker = new ProgressTracker(10_000, p -> { }, () -> clock[0]);
+    tracker.startPhase("process", "transactions", 10);
+    clock[0] = 2 * NANOS_PER_SECOND;
+    tracker.advance(1);
+    clock[0] = 4 * NANOS_PER_SECOND;
+    // Updated 2 s ago, last published 4 s ago
+    assertFalse(tracker.isStalled(3000));
+    assertTrue(tracker.isStalled(1000));
+  }
+
+  @Test
+  void testParserByteOffset() throws IOException {
+    StringBuilder sb = new StringBuilder(
+        "User_ID,UTC_Time,Account,Operation,Coin,Change,Remark\n");
+    long time = TimeConverter.stringToUtcTimestamp("2023-01-01 00:00:00");
+    for (int i = 0; i < 5000; ++i) {
+      sb.append("1,").append(TimeConverter.utcTimeToString(time + i * 1000L))
+          .append(",Spot,Deposit,USDT,10,\"\"\n");
+    }
+    Path input = tempDir.resolve("input.csv");
+    Files.writeString(input, sb.toString());
+
+    List<ProgressTracker.Progress> notifications = new ArrayList<>();
+    ProgressTracker tracker = new ProgressTracker(0, notifications::add);
+    tracker.startPhase("read-input", "bytes", Files.size(input));
+    TransactionFileReader.readAccountChangeStore(input.toString(), tracker);
+    assertTrue(notifications.size() > 1);
+    for (int i = 1; i < notifications.size(); ++i) {
+      assertTrue(notifications.get(i).done() >= notifications.get(i - 1).done());
+    }
+    assertEquals(Files.size(input), notifications.get(notifications.size() - 1).done());
+  }
+}
@@ -0,0 +1,157 @@
+package no.strazdins.process;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import no.strazdins.data.CostBasisStrategy;
+import no.strazdins.data.ExtraInfo;
+import no.strazdins.data.ExtraInfoEntry;
+import no.strazdins.data.ExtraInfoType;
+import no.strazdins.file.ReportFileWriter;
+import no.strazdins.tool.TimeConverter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class RecomputationStateTest {
+  private static final String HEADER = "User_ID,UTC_Time,Account,Operation,Coin,Change,Remark\n";
+  private static final int TRANSACTION_COUNT = 8;
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void testEarliestDifference() {
+    ExtraInfo a = new ExtraInfo();
+    a.add(new ExtraInfoEntry(1000, ExtraInfoType.ASSET_PRICE, "BTC", "20000"));
+    a.add(new ExtraInfoEntry(2000, ExtraInfoType.ASSET_PRICE, "BTC", "21000"));
+    ExtraInfo b = new ExtraInfo();
+    b.add(new ExtraInfoEntry(1000, ExtraInfoType.ASSET_PRICE, "BTC", "20000"));
+    assertEquals(2000, a.getEarliestDifference(b));
+    b.add(new ExtraInfoEntry(2000, ExtraInfoType.ASSET_PRICE, "BTC", "21000"));
+    assertEquals(Long.MAX_VALUE, a.getEarliestDifference(b));
+    b.add(new ExtraInfoEntry(500, ExtraInfoType.ASSET_PRICE, "ETH", "1000"));
+    assertEquals(500, b.getEarliestDifference(a));
+  }
+
+  @Test
+  void testRecomputationFromCheckpoint() throws IOException {
+    String input = writeInput();
+    String extra = tempDir.resolve("extra.csv").toString();
+    writeExtraInfo(extra, "22000");
+    String statePath = tempDir.resolve("state.json").toString();
+    String transactionLog = tempDir.resolve("transactions.csv").toString();
+
+    ReportGenerator generator = createGenerator();
+    Report report = generator.recomputeReport(input, extra, "NOK", null);
+    assertNull(generator.getResumedCheckpoint());
+    ReportFileWriter.writeTransactionLogToFile(report, transactionLog);
+    generator.createRecomputationState(report, report.createAnnualReports(), input, "NOK")
+        .writeToFile(statePath);
+
+    // Correct the price of the third deposit (transaction #4)
+    writeExtraInfo(extra, "25000");
+    generator = createGenerator();
+    report = generator.recomputeReport(input, extra, "NOK",
+        RecomputationState.readFromFile(statePath));
+    ReportCheckpoint checkpoint = generator.getResumedCheckpoint();
+    assertNotNull(checkpoint);
+    assertEquals(4, checkpoint.getRowCount());
+    assertEquals(timeOf(4), checkpoint.getResumeTime());
+    ReportFileWriter.appendTransactionLogToFile(report, transactionLog, checkpoint.getRowCount());
+    List<AnnualReport> annualReports = checkpoint.mergeAnnualReports(
+        report.createAnnualReports());
+
+    Report fullReport = createGenerator().createReport(input, extra, "NOK");
+    String fullLog = tempDir.resolve("full-transactions.csv").toString();
+    ReportFileWriter.writeTransactionLogToFile(fullReport, fullLog);
+    assertEquals(Files.readString(Path.of(fullLog)), Files.readString(Path.of(transactionLog)));
+    assertEquals(fullReport.createAnnualReports(), annualReports);
+    // The PNL of the sells before the checkpoint is stored in it
+    List<AssetPnlBreakdown.Entry> fullAssetPnl = fullReport.getAssetPnlBreakdown().getEntries();
+    assertEquals(fullAssetPnl,
+        checkpoint.mergeAssetPnl(report.getAssetPnlBreakdown()).getEntries());
+
+    // Nothing changed - the last checkpoint is used
+    generator.createRecomputationState(report, annualReports, input, "NOK")
+        .writeToFile(statePath);
+    generator = createGenerator();
+    report = generator.recomputeReport(input, extra, "NOK",
+        RecomputationState.readFromFile(statePath));
+    checkpoint = generator.getResumedCheckpoint();
+    assertEquals(6, checkpoint.getRowCount());
+    assertEquals(fullAssetPnl,
+        checkpoint.mergeAssetPnl(report.getAssetPnlBreakdown()).getEntries());
+  }
+
+  @Test
+  void testFifoCostBasisRejected() throws IOException {
+    String input = writeInput();
+    String extra = tempDir.resolve("extra.csv").toString();
+    writeExtraInfo(extra, "22000");
+    ReportGenerator generator = createGenerator();
+    Report report = generator.createReport(input, extra, "NOK");
+    RecomputationState state = generator.createRecomputationState(report,
+        report.createAnnualReports(), input, "NOK");
+    assertTrue(state.matches(input, "NOK", null, CostBasisStrategy.AVERAGE));
+    assertFalse(state.matches(input, "NOK", null, CostBasisStrategy.FIFO));
+
+    ReportGenerator fifoGenerator = createGenerator();
+    fifoGenerator.setCostBasisStrategy(CostBasisStrategy.FIFO);
+    assertThrows(IOException.class, () -> fifoGenerator.recomputeReport(input, extra, "NOK",
+        state));
+    Report fifoReport = fifoGenerator.createReport(input, extra, "NOK");
+    assertThrows(IOException.class, () -> fifoGenerator.createRecomputationState(fifoReport,
+        fifoReport.createAnnualReports(), input, "NOK"));
+    assertThrows(IllegalStateException.class, () -> fifoGenerator.createCheckpoint(fifoReport,
+        fifoReport.createAnnualReports()));
+  }
+
+  private static ReportGenerator createGenerator() {
+    ReportGenerator generator = new ReportGenerator();
+    generator.setCheckpointInterval(2);
+    return generator;
+  }
+
+  private String writeInput() throws IOException {
+    StringBuilder sb = new StringBuilder(HEADER);
+    for (int i = 0; i < TRANSACTION_COUNT; i += 2) {
+      String depositTime = TimeConverter.utcTimeToString(timeOf(i));
+      String sellTime = TimeConverter.utcTimeToString(timeOf(i + 1));
+      sb.append("1,").append(depositTime).append(",Spot,Deposit,BTC,1,\"\"\n");
+      sb.append("1,").append(sellTime).append(",Spot,Transaction Sold,BTC,-0.5,\"\"\n");
+      sb.append("1,").append(sellTime).append(",Spot,Transaction Revenue,USDT,12000,\"\"\n");
+    }
+    Path path = tempDir.resolve("input.csv");
+    Files.writeString(path, sb.toString());
+    return path.toString();
+  }
+
+  private static void writeExtraInfo(String path, String thirdDepositPrice) throws IOException {
+    String[] prices = {"20000", "21000", thirdDepositPrice, "23000"};
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < prices.length; ++i) {
+      sb.append(extraInfoRow(timeOf(2 * i), "BTC", prices[i]));
+    }
+    sb.append(extraInfoRow(TimeConverter.getYearEndTimestamp(2023), "NOK", "10"));
+    sb.append(extraInfoRow(TimeConverter.getYearEndTimestamp(2023), "BTC", "40000"));
+    Files.writeString(Path.of(path), sb.toString());
+  }
+
+  private static String extraInfoRow(long utcTime, String asset, String value) {
+    return utcTime + "," + TimeConverter.utcTimeToString(utcTime) + ",ASSET_PRICE," + asset
+        + "," + value + "\n";
+  }
+
+  private static long timeOf(int transactionIndex) {
+    return TimeConverter.stringToUtcTimestamp("2023-01-01 10:00:00")
+        + transactionIndex * 3600_000L;
+  }
+}
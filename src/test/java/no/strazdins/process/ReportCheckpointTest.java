@@ -0,0 +1,151 @@
+package no.strazdins.process;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import no.strazdins.data.CostBasisStrategy;
+import no.strazdins.data.WalletSnapshot;
+import no.strazdins.file.ReportFileWriter;
+import no.strazdins.tool.TimeConverter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ReportCheckpointTest {
+  private static final String HEADER = "User_ID,UTC_Time,Account,Operation,Coin,Change,Remark\n";
+  private static final String[] OLD_CHANGES = {
+      "Deposit", "100", "USDT",
+      // Round 1
+      "Auto-Invest Transaction", "-5", "USDT",
+      "Auto-Invest Transaction", "0.01", "BNB",
+      "Auto-Invest Transaction", "0.0002", "BTC",
+      "Auto-Invest Transaction", "0.0004", "ETH",
+      // Round 2 - a new subscription, detected only when round 3 is seen
+      "Auto-Invest Transaction", "-10", "USDT",
+      "Auto-Invest Transaction", "0.0004", "BTC",
+      "Auto-Invest Transaction", "0.0008", "ETH"
+  };
+  private static final String[] NEW_CHANGES = {
+      // Round 3
+      "Auto-Invest Transaction", "-10", "USDT",
+      "Auto-Invest Transaction", "0.00065", "BTC",
+      "Auto-Invest Transaction", "0.001", "ETH",
+      // Round 4 and 5
+      "Auto-Invest Transaction", "-5", "USDT",
+      "Auto-Invest Transaction", "0.0002", "BTC",
+      "Auto-Invest Transaction", "-5", "USDT",
+      "Auto-Invest Transaction", "0.0002", "BTC"
+  };
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void testResumedReportMatchesFullReport() throws IOException {
+    String extraPath = writeExtraInfo();
+    String oldInput = writeInput("old.csv", OLD_CHANGES);
+    String newInput = writeInput("new.csv", OLD_CHANGES, NEW_CHANGES);
+
+    ReportGenerator generator = new ReportGenerator();
+    Report oldReport = generator.createReport(oldInput, extraPath, "NOK");
+    String checkpointPath = tempDir.resolve("checkpoint.json").toString();
+    generator.createCheckpoint(oldReport, new ArrayList<>()).writeToFile(checkpointPath);
+    String transactionLog = tempDir.resolve("transactions.csv").toString();
+    ReportFileWriter.writeTransactionLogToFile(oldReport, transactionLog);
+
+    ReportCheckpoint checkpoint = ReportCheckpoint.readFromFile(checkpointPath);
+    // The last auto-invest round is processed again
+    assertEquals(timeOf(5), checkpoint.getResumeTime());
+    assertEquals(5, checkpoint.getRowCount());
+    Report resumedReport = new ReportGenerator().resumeReport(newInput, extraPath, "NOK",
+        checkpoint);
+    ReportFileWriter.appendTransactionLogToFile(resumedReport, transactionLog,
+        checkpoint.getRowCount());
+
+    Report fullReport = new ReportGenerator().createReport(newInput, extraPath, "NOK");
+    List<WalletSnapshot> expected = getSnapshotsFrom(fullReport, checkpoint.getResumeTime());
+    List<WalletSnapshot> actual = getSnapshotsFrom(resumedReport, 0);
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); ++i) {
+      assertEquals(expected.get(i).getTimestamp(), actual.get(i).getTimestamp());
+      assertEquals(expected.get(i).getPnl(), actual.get(i).getPnl());
+      assertEquals(expected.get(i).getWallet(), actual.get(i).getWallet());
+    }
+
+    String fullLog = tempDir.resolve("full-transactions.csv").toString();
+    ReportFileWriter.writeTransactionLogToFile(fullReport, fullLog);
+    assertEquals(Files.readString(Path.of(fullLog)), Files.readString(Path.of(transactionLog)));
+  }
+
+  @Test
+  void testInputMustCoverCheckpoint() throws IOException {
+    String extraPath = writeExtraInfo();
+    String input = writeInput("input.csv", OLD_CHANGES);
+    ReportGenerator generator = new ReportGenerator();
+    Report report = generator.createReport(input, extraPath, "NOK");
+    ReportCheckpoint checkpoint = generator.createCheckpoint(report, new ArrayList<>());
+
+    String shorterInput = writeInput("shorter.csv", new String[] {"Deposit", "100", "USDT"});
+    assertThrows(IOException.class, () -> new ReportGenerator().resumeReport(shorterInput,
+        extraPath, "NOK", checkpoint));
+
+    // The lots are not stored in the checkpoint
+    ReportGenerator fifoGenerator = new ReportGenerator();
+    fifoGenerator.setCostBasisStrategy(CostBasisStrategy.FIFO);
+    assertThrows(IOException.class, () -> fifoGenerator.resumeReport(input, extraPath, "NOK",
+        checkpoint));
+    // The reports in the additional currencies are not stored either
+    ReportGenerator multiCurrencyGenerator = new ReportGenerator();
+    multiCurrencyGenerator.setAdditionalHomeCurrencies(List.of("EUR"));
+    assertThrows(IOException.class, () -> multiCurrencyGenerator.resumeReport(input,
+        extraPath, "NOK", checkpoint));
+  }
+
+  private static List<WalletSnapshot> getSnapshotsFrom(Report report, long utcTime) {
+    List<WalletSnapshot> snapshots = new ArrayList<>();
+    for (WalletSnapshot snapshot : report) {
+      if (snapshot.getTimestamp() >= utcTime) {
+        snapshots.add(snapshot);
+      }
+    }
+    return snapshots;
+  }
+
+  private String writeInput(String fileName, String[]... changeGroups) throws IOException {
+    StringBuilder sb = new StringBuilder(HEADER);
+    int index = 0;
+    for (String[] changes : changeGroups) {
+      for (int i = 0; i < changes.length; i += 3) {
+        sb.append("1,").append(TimeConverter.utcTimeToString(timeOf(index++))).append(",Spot,")
+            .append(changes[i]).append(",").append(changes[i + 2]).append(",")
+            .append(changes[i + 1]).append(",\"\"\n");
+      }
+    }
+    Path path = tempDir.resolve(fileName);
+    Files.writeString(path, sb.toString());
+    return path.toString();
+  }
+
+  private String writeExtraInfo() throws IOException {
+    String rows = extraInfoRow(timeOf(1), "AUTO_INVEST_PROPORTIONS", "BTC|BNB|ETH", "0.5|0.3|0.2")
+        + extraInfoRow(timeOf(5), "AUTO_INVEST_PROPORTIONS", "BTC|ETH", "0.5|0.5")
+        + extraInfoRow(timeOf(11), "AUTO_INVEST_PROPORTIONS", "BTC", "1")
+        + extraInfoRow(TimeConverter.getYearEndTimestamp(2023), "ASSET_PRICE", "NOK", "10");
+    Path path = tempDir.resolve("extra.csv");
+    Files.writeString(path, rows);
+    return path.toString();
+  }
+
+  private static String extraInfoRow(long utcTime, String type, String asset, String value) {
+    return utcTime + "," + TimeConverter.utcTimeToString(utcTime) + "," + type + "," + asset
+        + "," + value + "\n";
+  }
+
+  private static long timeOf(int changeIndex) {
+    return TimeConverter.stringToUtcTimestamp("2023-01-01 10:00:00") + changeIndex * 1000L;
+  }
+}
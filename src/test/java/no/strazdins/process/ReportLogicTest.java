@@ -1,10 +1,15 @@
 package no.strazdins.process;
 
 import static no.strazdins.testtools.TestTools.createChanges;
+import static no.strazdins.testtools.TestTools.createSpotAccountChanges;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import java.util.ArrayList;
 import java.util.List;
+import no.strazdins.data.AssetSymbols;
 import no.strazdins.data.RawAccountChange;
+import no.strazdins.data.RawAccountChangeStore;
+import no.strazdins.transaction.Transaction;
 import org.junit.jupiter.api.Test;
 
 class ReportLogicTest {
@@ -24,6 +29,36 @@ class ReportLogicTest {
     expectChangeAssets(changes, "USDT", "USDT", "USDT", "BTC", "USDT", "BTC");
   }
 
+  @Test
+  void testLendingCurrencyUpdateInStore() {
+    RawAccountChangeStore store = RawAccountChangeStore.of(createChanges(
+        "SPOT", "Savings Distribution", "2000", "LDUSDT",
+        "EARN", "Simple Earn Flexible Subscription", "-2000", "USDT",
+        "EARN", "Simple Earn Flexible Subscription", "0.1", "LDBTC"
+    ));
+    new ReportLogic().updateLendingAssets(store);
+    assertEquals(AssetSymbols.getId("USDT"), store.getAssetId(0));
+    assertEquals(AssetSymbols.getId("USDT"), store.getAssetId(1));
+    assertEquals("BTC", store.get(2).getAsset());
+  }
+
+  @Test
+  void testGroupingOverStore() {
+    long time = 1672531200000L;
+    List<RawAccountChange> changes = new ArrayList<>();
+    changes.addAll(createSpotAccountChanges(time, "Deposit", "1000", "USDT"));
+    changes.addAll(createSpotAccountChanges(time + 1000,
+        "Buy", "0.01", "BTC", "Sell", "-200", "USDT", "Fee", "-0.2", "USDT"));
+    changes.addAll(createSpotAccountChanges(time + 5000,
+        "Sell", "-0.005", "BTC", "Buy", "110", "USDT"));
+
+    List<Transaction> expected = new ReportLogic().groupTransactionsByTimestamp(changes);
+    List<Transaction> actual = new ReportLogic().groupTransactionsByTimestamp(
+        RawAccountChangeStore.of(changes));
+    assertEquals(3, actual.size());
+    assertEquals(expected, actual);
+  }
+
   private void expectChangeAssets(List<RawAccountChange> changes, String... assets) {
     assertEquals(changes.size(), assets.length, "Expected " + assets.length + " changes");
     for (int i = 0; i < assets.length; ++i) {
@@ -0,0 +1,94 @@
+package no.strazdins.process;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import no.strazdins.tool.TimeConverter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class RunMetricsTest {
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void testApiCallPercentiles() {
+    RunMetrics metrics = new RunMetrics();
+    List<Long> durations = new ArrayList<>();
+    for (long ms = 100; ms >= 1; --ms) {
+      durations.add(ms * 1_000_000);
+    }
+    metrics.addApiCalls(durations);
+    RunMetrics.ApiCallMetrics apiCalls = metrics.createSummary().apiCalls();
+    assertEquals(100, apiCalls.count());
+    assertEquals(50.0, apiCalls.p50Millis());
+    assertEquals(90.0, apiCalls.p90Millis());
+    assertEquals(99.0, apiCalls.p99Millis());
+    assertEquals(100.0, apiCalls.maxMillis());
+    assertEquals(5050.0, apiCalls.totalMillis());
+  }
+
+  @Test
+  void testStagesOfReportGeneration() throws IOException {
+    Path input = tempDir.resolve("input.csv");
+    Files.writeString(input, "User_ID,UTC_Time,Account,Operation,Coin,Change,Remark\n"
+        + "1,2023-01-01 10:00:00,Spot,Deposit,USDT,1000,\"\"\n");
+    long yearEnd = TimeConverter.getYearEndTimestamp(2023);
+    Path extra = tempDir.resolve("extra.csv");
+    Files.writeString(extra, yearEnd + "," + TimeConverter.utcTimeToString(yearEnd)
+        + ",ASSET_PRICE,NOK,10\n");
+
+    ReportGenerator generator = new ReportGenerator();
+    generator.createReport(input.toString(), extra.toString(), "NOK");
+    RunMetrics metrics = generator.getMetrics();
+    assertEquals(List.of("read-input", "group", "classify", "extra-info", "process"),
+        metrics.getStageNames());
+
+    Path metricsFile = tempDir.resolve("metrics.json");
+    metrics.writeToFile(metricsFile.toString());
+    JsonObject json = JsonParser.parseString(Files.readString(metricsFile)).getAsJsonObject();
+    assertEquals(Files.size(input) + Files.size(extra), json.get("bytesRead").getAsLong());
+    assertEquals(5, json.getAsJsonArray("stages").size());
+    JsonObject process = json.getAsJsonArray("stages").get(4).getAsJsonObject();
+    assertEquals(1, process.get("rowCount").getAsLong());
+    long maxHeap = json.get("maxSampledHeapBytes").getAsLong();
+    assertTrue(process.get("heapUsedBytes").getAsLong() > 0);
+    assertTrue(process.get("heapUsedBytes").getAsLong() <= maxHeap);
+  }
+
+  @Test
+  void testHeapReport() throws IOException {
+    Path input = tempDir.resolve("input.csv");
+    Files.writeString(input, "User_ID,UTC_Time,Account,Operation,Coin,Change,Remark\n"
+        + "1,2023-01-01 10:00:00,Spot,Deposit,USDT,1000,\"\"\n"
+        + "1,2023-01-02 10:00:00,Spot,Withdraw,USDT,-400,\"\"\n");
+    long yearEnd = TimeConverter.getYearEndTimestamp(2023);
+    Path extra = tempDir.resolve("extra.csv");
+    Files.writeString(extra, yearEnd + "," + TimeConverter.utcTimeToString(yearEnd)
+        + ",ASSET_PRICE,NOK,10\n");
+
+    ReportGenerator generator = new ReportGenerator();
+    generator.createReport(input.toString(), extra.toString(), "NOK");
+    assertTrue(generator.getMetrics().createSummary().heapEstimates().isEmpty());
+
+    generator.setHeapReportEnabled(true);
+    generator.createReport(input.toString(), extra.toString(), "NOK");
+    List<RunMetrics.HeapEstimate> estimates =
+        generator.getMetrics().createSummary().heapEstimates();
+    List<String> processStructures = estimates.stream()
+        .filter(e -> e.stage().equals("process")).map(RunMetrics.HeapEstimate::structure)
+        .toList();
+    assertEquals(List.of("transactions", "extra-info", "wallets", "wallet-snapshots"),
+        processStructures);
+    for (RunMetrics.HeapEstimate estimate : estimates) {
+      assertTrue(estimate.bytes() > 0, estimate.stage() + " " + estimate.structure());
+    }
+  }
+}
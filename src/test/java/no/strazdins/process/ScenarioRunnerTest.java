@@ -0,0 +1,124 @@
+package no.strazdins.process;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import no.strazdins.data.Decimal;
+import no.strazdins.data.ExtraInfo;
+import no.strazdins.data.ExtraInfoEntry;
+import no.strazdins.data.ExtraInfoType;
+import no.strazdins.tool.BinanceApiClient;
+import no.strazdins.tool.TimeConverter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ScenarioRunnerTest {
+  private static final String HEADER = "User_ID,UTC_Time,Account,Operation,Coin,Change,Remark\n";
+  private static final String DEPOSIT = "2023-01-05 10:00:00";
+  private static final long DEPOSIT_TIME = TimeConverter.stringToUtcTimestamp(DEPOSIT);
+  private static final long YEAR_END = TimeConverter.getYearEndTimestamp(2023);
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void testScenarioDifferences() throws IOException {
+    ScenarioRunner runner = createRunner();
+    Scenario depositPrice = new Scenario("deposit-price",
+        createInfo(new ExtraInfoEntry(DEPOSIT_TIME, ExtraInfoType.ASSET_PRICE, "BTC", "25000")));
+    Scenario exchangeRate = new Scenario("exchange-rate",
+        createInfo(new ExtraInfoEntry(YEAR_END, ExtraInfoType.ASSET_PRICE, "NOK", "11")));
+    ForkJoinPool pool = new ForkJoinPool(2);
+    List<ScenarioResult> results;
+    try {
+      results = runner.run(List.of(depositPrice, exchangeRate), pool);
+    } finally {
+      pool.shutdown();
+    }
+    assertEquals(3, results.size());
+    assertEquals(ScenarioRunner.BASELINE, results.get(0).name());
+    // Deposited 1 BTC @ 20000, sold for 30000
+    assertEquals(new Decimal("10000"), results.get(0).annualReports().get(0).pnlUsd());
+    assertEquals(new Decimal("5000"), results.get(1).annualReports().get(0).pnlUsd());
+    assertEquals(new Decimal("11"), results.get(2).annualReports().get(0).exchangeRate());
+
+    List<ScenarioDifference> differences = runner.compare(List.of(depositPrice, exchangeRate));
+    assertEquals(2, differences.size());
+    assertDifference(differences.get(0), "deposit-price", "-5000", "-50000", "0", "0");
+    assertDifference(differences.get(1), "exchange-rate", "0", "10000", "0", "30000");
+  }
+
+  @Test
+  void testRepeatedRunsAreIndependent() throws IOException {
+    ScenarioRunner runner = createRunner();
+    List<ScenarioResult> first = runner.run(List.of());
+    List<ScenarioResult> second = runner.run(List.of());
+    assertEquals(first, second);
+  }
+
+  @Test
+  void testYearEndPricesFetchedOnce() throws IOException {
+    ScenarioRunner runner = createRunner("-0.5", "15000");
+    AtomicInteger requestCount = new AtomicInteger();
+    runner.setApiClientFactory(() -> new BinanceApiClient() {
+      @Override
+      public Decimal getDailyClosePrice(String asset, long timestamp) {
+        requestCount.incrementAndGet();
+        return asset.equals("BTC") && timestamp == YEAR_END ? new Decimal("40000") : null;
+      }
+    });
+    List<Scenario> scenarios = new ArrayList<>();
+    for (int i = 0; i < 4; ++i) {
+      scenarios.add(new Scenario("deposit-price-" + i, createInfo(new ExtraInfoEntry(
+          DEPOSIT_TIME, ExtraInfoType.ASSET_PRICE, "BTC", String.valueOf(21000 + i)))));
+    }
+    List<ScenarioResult> results = runner.run(scenarios);
+    assertEquals(5, results.size());
+    // 0.5 BTC @ 40000 + 15000 USDT
+    for (ScenarioResult result : results) {
+      assertEquals(new Decimal("35000"), result.annualReports().get(0).walletValueUsd());
+    }
+    assertEquals(1, requestCount.get());
+  }
+
+  private ScenarioRunner createRunner() throws IOException {
+    return createRunner("-1", "30000");
+  }
+
+  private ScenarioRunner createRunner(String soldAmount, String revenue) throws IOException {
+    String input = HEADER
+        + "1," + DEPOSIT + ",Spot,Deposit,BTC,1,\"\"\n"
+        + "1,2023-03-10 10:00:00,Spot,Transaction Sold,BTC," + soldAmount + ",\"\"\n"
+        + "1,2023-03-10 10:00:00,Spot,Transaction Revenue,USDT," + revenue + ",\"\"\n";
+    Path inputPath = tempDir.resolve("input.csv");
+    Files.writeString(inputPath, input);
+    Path extraPath = tempDir.resolve("extra.csv");
+    Files.writeString(extraPath, DEPOSIT_TIME + "," + DEPOSIT + ",ASSET_PRICE,BTC,20000\n"
+        + YEAR_END + "," + TimeConverter.utcTimeToString(YEAR_END) + ",ASSET_PRICE,NOK,10\n");
+    return new ReportGenerator().createScenarioRunner(inputPath.toString(),
+        extraPath.toString(), "NOK");
+  }
+
+  private static ExtraInfo createInfo(ExtraInfoEntry entry) {
+    ExtraInfo info = new ExtraInfo();
+    info.add(entry);
+    return info;
+  }
+
+  private static void assertDifference(ScenarioDifference difference, String scenario,
+                                       String pnlUsd, String pnlHc, String walletValueUsd,
+                                       String walletValueHc) {
+    assertEquals(scenario, difference.scenario());
+    assertEquals(YEAR_END, difference.timestamp());
+    assertEquals(new Decimal(pnlUsd), difference.pnlUsd());
+    assertEquals(new Decimal(pnlHc), difference.pnlHc());
+    assertEquals(new Decimal(walletValueUsd), difference.walletValueUsd());
+    assertEquals(new Decimal(walletValueHc), difference.walletValueHc());
+  }
+}
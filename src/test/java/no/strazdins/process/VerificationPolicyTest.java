@@ -0,0 +1,80 @@
+package no.strazdins.process;
+
+import static no.strazdins.testtools.TestTools.createDeposit;
+import static no.strazdins.testtools.TestTools.createWalletDiff;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+import no.strazdins.data.Decimal;
+import no.strazdins.data.ExtraInfo;
+import no.strazdins.transaction.Transaction;
+import org.junit.jupiter.api.Test;
+
+class VerificationPolicyTest {
+  @Test
+  void testParsing() throws IOException {
+    Transaction deposit = createDeposit("100", "USDT");
+    VerificationPolicy full = VerificationPolicy.fromString("full");
+    assertTrue(full.shouldVerify(deposit, 0));
+    assertTrue(full.shouldVerify(deposit, 7));
+
+    VerificationPolicy off = VerificationPolicy.fromString("OFF");
+    assertTrue(off.isOff());
+    assertFalse(off.shouldVerify(deposit, 0));
+
+    VerificationPolicy sampled = VerificationPolicy.fromString("sample:3");
+    assertTrue(sampled.shouldVerify(deposit, 0));
+    assertFalse(sampled.shouldVerify(deposit, 1));
+    assertFalse(sampled.shouldVerify(deposit, 2));
+    assertTrue(sampled.shouldVerify(deposit, 3));
+
+    VerificationPolicy types = VerificationPolicy.fromString("types:Buy, Deposit");
+    assertTrue(types.shouldVerify(deposit, 5));
+    assertFalse(VerificationPolicy.fromString("types:Sell").shouldVerify(deposit, 0));
+
+    assertThrows(IOException.class, () -> VerificationPolicy.fromString("sample:0"));
+    assertThrows(IOException.class, () -> VerificationPolicy.fromString("sample:x"));
+    assertThrows(IOException.class, () -> VerificationPolicy.fromString("types:"));
+    assertThrows(IOException.class, () -> VerificationPolicy.fromString("some"));
+  }
+
+  @Test
+  void testDiscrepancyStatistics() {
+    DiscrepancyStatistics statistics = new DiscrepancyStatistics();
+    assertFalse(statistics.register("Buy", createWalletDiff("1", "BTC", "-20000", "USDT"),
+        createWalletDiff("1", "BTC", "-20000", "USDT")));
+    assertTrue(statistics.register("Buy", createWalletDiff("1", "BTC", "-20000", "USDT"),
+        createWalletDiff("1.5", "BTC", "-20001", "USDT")));
+    assertTrue(statistics.register("Buy", createWalletDiff("1", "BTC"),
+        createWalletDiff("1", "BNB")));
+    assertEquals(3, statistics.getCheckedCount("Buy"));
+    assertEquals(2, statistics.getDiscrepancyCount("Buy"));
+    assertEquals(new Decimal("1.5"), statistics.getTotalMagnitude("Buy", "BTC"));
+    assertEquals(new Decimal("1"), statistics.getTotalMagnitude("Buy", "USDT"));
+    assertEquals(new Decimal("1"), statistics.getTotalMagnitude("Buy", "BNB"));
+    assertEquals(Decimal.ZERO, statistics.getTotalMagnitude("Buy", "ETH"));
+    assertEquals(0, statistics.getCheckedCount("Sell"));
+    assertEquals(List.of("Buy: 3 checked, 2 with discrepancies, total magnitude 1 BNB (max 1),"
+        + " 1.5 BTC (max 1), 1 USDT (max 1)"), statistics.getSummary());
+  }
+
+  @Test
+  void testReportSkipsVerification() {
+    Report report = new Report(new ExtraInfo());
+    report.setVerificationPolicy(VerificationPolicy.sampled(2));
+    report.process(createDeposit("100", "USDT"));
+    report.process(createDeposit("50", "USDT"));
+    report.process(createDeposit("20", "USDT"));
+    assertEquals(2, report.getDiscrepancyStatistics().getCheckedCount("Deposit"));
+    assertEquals(0, report.getDiscrepancyStatistics().getDiscrepancyCount("Deposit"));
+
+    report = new Report(new ExtraInfo());
+    report.setVerificationPolicy(VerificationPolicy.off());
+    report.process(createDeposit("100", "USDT"));
+    assertEquals(0, report.getDiscrepancyStatistics().getCheckedCount("Deposit"));
+  }
+}
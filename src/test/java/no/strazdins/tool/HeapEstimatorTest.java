@@ -0,0 +1,59 @@
+package no.strazdins.tool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import no.strazdins.data.Decimal;
+import no.strazdins.data.Wallet;
+import org.junit.jupiter.api.Test;
+
+class HeapEstimatorTest {
+  @Test
+  void testArraySize() {
+    long empty = new HeapEstimator().estimate(new long[0]).bytes();
+    assertEquals(empty + 80, new HeapEstimator().estimate(new long[10]).bytes());
+    assertEquals(0, new HeapEstimator().estimate(null).bytes());
+  }
+
+  @Test
+  void testSharedObjectsCountedOnce() {
+    Decimal shared = new Decimal("12.5");
+    List<Decimal> first = new ArrayList<>(List.of(shared, new Decimal("1")));
+    List<Decimal> second = new ArrayList<>(List.of(shared));
+
+    HeapEstimator estimator = new HeapEstimator();
+    HeapEstimator.Estimate firstEstimate = estimator.estimate(first);
+    HeapEstimator.Estimate secondEstimate = estimator.estimate(second);
+    HeapEstimator.Estimate secondAlone = new HeapEstimator().estimate(second);
+    assertTrue(secondAlone.bytes() > secondEstimate.bytes());
+    assertEquals(1, secondEstimate.objectCount());
+    assertTrue(firstEstimate.objectCount() > secondAlone.objectCount());
+    // Nothing new when estimated again
+    assertEquals(0, estimator.estimate(first).bytes());
+  }
+
+  @Test
+  void testLinkedListNodes() {
+    List<Decimal> linked = new LinkedList<>();
+    List<Decimal> array = new ArrayList<>();
+    for (int i = 0; i < 100; ++i) {
+      linked.add(Decimal.ONE);
+      array.add(Decimal.ONE);
+    }
+    // A node per element is bigger than a reference in the array
+    assertTrue(new HeapEstimator().estimate(linked).bytes()
+        > new HeapEstimator().estimate(array).bytes());
+  }
+
+  @Test
+  void testWalletGrowsWithAssets() {
+    Wallet wallet = new Wallet();
+    long emptySize = new HeapEstimator().estimate(wallet).bytes();
+    wallet.addAsset("BTC", new Decimal("1"), new Decimal("20000"));
+    wallet.addAsset("ETH", new Decimal("2"), new Decimal("1500"));
+    assertTrue(new HeapEstimator().estimate(wallet).bytes() > emptySize);
+  }
+}
@@ -1,6 +1,10 @@
 package no.strazdins.tool;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
 
 import org.junit.jupiter.api.Test;
 
@@ -11,6 +15,30 @@ class TimeConverterTest {
     assertEquals(1571846455000L, TimeConverter.stringToUtcTimestamp("2019-10-23 16:00:55"));
   }
 
+  @Test
+  void testConcurrentConversion() throws InterruptedException {
+    List<Throwable> errors = new ArrayList<>();
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 4; ++t) {
+      Thread thread = new Thread(() -> {
+        for (long time = 1571834540000L; time < 1571834540000L + 2000 * 1000L; time += 1000) {
+          String s = TimeConverter.utcTimeToString(time);
+          if (TimeConverter.stringToUtcTimestamp(s) != time) {
+            synchronized (errors) {
+              errors.add(new AssertionError("Conversion failed for " + s));
+            }
+          }
+        }
+      });
+      threads.add(thread);
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertTrue(errors.isEmpty());
+  }
+
   @Test
   void testYear() {
     assertEquals(2023, TimeConverter.getUtcYear(1681052698000L));